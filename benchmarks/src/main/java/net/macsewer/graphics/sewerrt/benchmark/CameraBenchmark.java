@@ -0,0 +1,100 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.macsewer.graphics.sewerrt.camera.AbstractCamera;
+import net.macsewer.graphics.sewerrt.camera.FisheyeCamera;
+import net.macsewer.graphics.sewerrt.camera.PinholeCamera;
+import net.macsewer.graphics.sewerrt.camera.PlainCamera;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.Vector3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Měření generování primárních paprsků kamerami
+ * ({@link AbstractCamera#getPrimaryRay(int, int)}). Pixely se procházejí po
+ * řádcích přes celý rastr průmětny, u sférické kamery tak zahrnují i pixely
+ * mimo obraz, pro které kamera paprsek nevytváří.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CameraBenchmark {
+
+   /**
+    * Typ kamery.
+    */
+   @Param({ "plain", "pinhole", "fisheye" })
+   public String camera;
+
+   /**
+    * Šířka rastru průmětny.
+    */
+   private static final int WIDTH = 640;
+
+   /**
+    * Výška rastru průmětny.
+    */
+   private static final int HEIGHT = 480;
+
+   /**
+    * Měřená kamera.
+    */
+   private AbstractCamera cam;
+
+   /**
+    * Index dalšího pixelu.
+    */
+   private int pixel;
+
+   /**
+    * Vytvoří kameru daného typu se stejným nastavením jako ukázková aplikace.
+    */
+   @Setup
+   public void setup() {
+      Point3D eye = new Point3D(0.2f, 0.2f, 0.5f);
+      Point3D target = new Point3D(1, 0, 0);
+      Vector3 up = new Vector3(0, 0, 1);
+      if (camera.equals("plain")) {
+         cam = new PlainCamera(eye, target, up, WIDTH, HEIGHT);
+      } else if (camera.equals("pinhole")) {
+         cam = new PinholeCamera(eye, target, up, WIDTH, HEIGHT, 0.785398163f);
+      } else {
+         cam = new FisheyeCamera(eye, target, up, WIDTH, HEIGHT);
+      }
+   }
+
+   /**
+    * Primární paprsek dalšího pixelu.
+    * 
+    * @return Primární paprsek, nebo <code>null</code>.
+    */
+   @Benchmark
+   public Ray getPrimaryRay() {
+      if (++pixel == WIDTH * HEIGHT) {
+         pixel = 0;
+      }
+      return cam.getPrimaryRay(pixel % WIDTH, pixel / WIDTH);
+   }
+}
@@ -0,0 +1,160 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.benchmark;
+
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import net.macsewer.graphics.sewerrt.geometry.AbstractObject;
+import net.macsewer.graphics.sewerrt.geometry.ColorRGB;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.IndexedMesh;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.TriMesh;
+import net.macsewer.graphics.sewerrt.geometry.Triangle;
+import net.macsewer.graphics.sewerrt.geometry.Vector3;
+import net.macsewer.graphics.sewerrt.geometry.Vertex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Měření výpočtu průsečíku paprsku s objektem scény
+ * ({@link AbstractObject#crossRay(Ray)}) na síti trojúhelníků. Síť tvoří
+ * náhodně rozmístěné malé trojúhelníky uvnitř jednotkové koule.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeshBenchmark {
+
+   /**
+    * Podíl paprsků mířících na některý trojúhelník sítě.
+    */
+   @Param({ "0.0", "0.5", "1.0" })
+   public double hitRatio;
+
+   /**
+    * Počet trojúhelníků sítě.
+    */
+   @Param({ "12", "1000", "100000" })
+   public int triangleCount;
+
+   /**
+    * Uložení trojúhelníků: kolekce objektů {@link Triangle}
+    * (<code>triangles</code>), nebo indexovaná síť {@link IndexedMesh}
+    * (<code>indexed</code>).
+    */
+   @Param({ "triangles", "indexed" })
+   public String storage;
+
+   /**
+    * Měřená síť trojúhelníků.
+    */
+   private AbstractObject mesh;
+
+   /**
+    * Sada paprsků.
+    */
+   private Ray[] rays;
+
+   /**
+    * Záznam o průsečíku.
+    */
+   private HitRecord hit;
+
+   /**
+    * Index dalšího paprsku.
+    */
+   private int index;
+
+   /**
+    * Připraví síť trojúhelníků a sadu paprsků.
+    */
+   @Setup
+   public void setup() {
+      Random random = new Random(RayMix.SEED);
+      // trojuhelniky se vkladaji najednou, addTriangle() pocita obalovou
+      // kouli po kazdem vlozeni
+      Vector<Triangle> triangles = new Vector<Triangle>(triangleCount);
+      float size = 2 / (float) Math.cbrt(triangleCount);
+      for (int i = 0; i < triangleCount; i++) {
+         Point3D a = new Point3D().move(RayMix.randomUnitVector(random).mul((float) Math.cbrt(random.nextFloat())));
+         Point3D b = a.move(RayMix.randomUnitVector(random).mul(size));
+         Point3D c = a.move(RayMix.randomUnitVector(random).mul(size));
+         Vector3 normal = Triangle.computeNormal(a, b, c);
+         triangles.add(new Triangle(new Vertex(a, normal, ColorRGB.white, new Vector3()), new Vertex(b, normal, ColorRGB.white, new Vector3()), new Vertex(c, normal, ColorRGB.white,
+               new Vector3())));
+      }
+      TriMesh triMesh;
+      if (storage.equals("indexed")) {
+         float[] positions = new float[triangleCount * 9];
+         int[] indices = new int[triangleCount * 3];
+         for (int i = 0, p = 0; i < triangleCount; i++) {
+            Triangle triangle = triangles.get(i);
+            Vertex[] vertices = { triangle.getVertexA(), triangle.getVertexB(), triangle.getVertexC() };
+            for (int k = 0; k < 3; k++) {
+               indices[i * 3 + k] = i * 3 + k;
+               positions[p++] = vertices[k].getPosition().getX();
+               positions[p++] = vertices[k].getPosition().getY();
+               positions[p++] = vertices[k].getPosition().getZ();
+            }
+         }
+         triMesh = new TriMesh(new IndexedMesh(positions, indices));
+      } else {
+         triMesh = new TriMesh();
+         triMesh.setTriangles(triangles);
+      }
+      triMesh.buildHierarchy();
+      mesh = triMesh;
+
+      Point3D[] targets = new Point3D[RayMix.SIZE];
+      for (int i = 0; i < targets.length; i++) {
+         Triangle triangle = triangles.get(random.nextInt(triangleCount));
+         targets[i] = RayMix.pointsOnTriangle(random, triangle, 1)[0];
+      }
+      rays = RayMix.create(random, targets, new Point3D(), 1 + size, hitRatio);
+      hit = new HitRecord();
+   }
+
+   /**
+    * Průsečík s vytvořením vrcholu.
+    * 
+    * @return Vrchol průsečíku, nebo <code>null</code>.
+    */
+   @Benchmark
+   public Vertex crossRay() {
+      index = (index + 1) & RayMix.MASK;
+      return mesh.crossRay(rays[index]);
+   }
+
+   /**
+    * Test libovolného průsečíku (stínový paprsek).
+    * 
+    * @return <code>true</code>, pokud paprsek síť zasáhl.
+    */
+   @Benchmark
+   public boolean intersectAny() {
+      index = (index + 1) & RayMix.MASK;
+      hit.reset(Float.MAX_VALUE, null);
+      return mesh.intersectAny(rays[index], hit);
+   }
+}
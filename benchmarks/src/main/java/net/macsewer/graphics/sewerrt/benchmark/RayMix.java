@@ -0,0 +1,165 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.benchmark;
+
+import java.util.Random;
+
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.Triangle;
+import net.macsewer.graphics.sewerrt.geometry.Vector3;
+
+/**
+ * Pomocná třída pro generování náhodných sad paprsků s daným podílem
+ * zásahů. Paprsky vycházejí z náhodných bodů na kouli kolem cíle. Zasahující
+ * paprsek míří na náhodný bod cíle, míjející paprsek míří na bod posunutý
+ * kolmo k ose pohledu o trojnásobek poloměru cíle, takže mine celou obalovou
+ * kouli cíle. Pořadí zásahů a minutí je náhodné, aby výsledek neovlivňovala
+ * predikce skoků.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+final class RayMix {
+
+   /**
+    * Počet paprsků v sadě (mocnina dvou, index se počítá maskou).
+    */
+   static final int SIZE = 1024;
+
+   /**
+    * Maska indexu paprsku.
+    */
+   static final int MASK = SIZE - 1;
+
+   /**
+    * Semínko generátoru, aby byly sady paprsků mezi běhy stejné.
+    */
+   static final long SEED = 0x5EEE7L;
+
+   /**
+    * Počet paprsků v paketu (viz {@link RayMix#packets(Ray[])}).
+    */
+   static final int PACKET_SIZE = 16;
+
+   /**
+    * Maska všech paprsků paketu.
+    */
+   static final int PACKET_MASK = (1 << PACKET_SIZE) - 1;
+
+   /**
+    * Třída obsahuje jen statické metody.
+    */
+   private RayMix() {
+   }
+
+   /**
+    * Vytvoří sadu paprsků mířících na dané body nebo kolem nich.
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @param targets
+    *           Body cíle, na které míří zasahující paprsky (vybírají se
+    *           náhodně).
+    * @param center
+    *           Střed obalové koule cíle.
+    * @param radius
+    *           Poloměr obalové koule cíle.
+    * @param hitRatio
+    *           Podíl zasahujících paprsků (0 až 1).
+    * @return Sada {@link RayMix#SIZE} paprsků.
+    */
+   static Ray[] create(Random random, Point3D[] targets, Point3D center, float radius, double hitRatio) {
+      Ray[] rays = new Ray[SIZE];
+      float distance = 10 * radius;
+      for (int i = 0; i < SIZE; i++) {
+         Vector3 dir = randomUnitVector(random);
+         Point3D origin = center.move(dir.mul(distance));
+         Point3D target;
+         if (random.nextDouble() < hitRatio) {
+            target = targets[random.nextInt(targets.length)];
+         } else {
+            Vector3 side = dir.cross(randomUnitVector(random)).normalized();
+            target = center.move(side.mul(3 * radius));
+         }
+         rays[i] = new Ray(origin, new Vector3(origin, target).normalized());
+      }
+      return rays;
+   }
+
+   /**
+    * Rozdělí sadu paprsků na pakety po {@link RayMix#PACKET_SIZE} paprscích.
+    * 
+    * @param rays
+    *           Sada paprsků.
+    * @return Pakety paprsků.
+    */
+   static Ray[][] packets(Ray[] rays) {
+      Ray[][] packets = new Ray[rays.length / PACKET_SIZE][PACKET_SIZE];
+      for (int i = 0; i < packets.length; i++) {
+         System.arraycopy(rays, i * PACKET_SIZE, packets[i], 0, PACKET_SIZE);
+      }
+      return packets;
+   }
+
+   /**
+    * Vytvoří záznamy o průsečících pro jeden paket.
+    * 
+    * @return Záznamy o průsečících.
+    */
+   static HitRecord[] packetHits() {
+      HitRecord[] hits = new HitRecord[PACKET_SIZE];
+      for (int i = 0; i < hits.length; i++) {
+         hits[i] = new HitRecord();
+      }
+      return hits;
+   }
+
+   /**
+    * Vrací náhodné body na daném trojúhelníku.
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @param triangle
+    *           Trojúhelník.
+    * @param count
+    *           Počet bodů.
+    * @return Náhodné body uvnitř trojúhelníku.
+    */
+   static Point3D[] pointsOnTriangle(Random random, Triangle triangle, int count) {
+      Point3D a = triangle.getVertexA().getPosition();
+      Point3D b = triangle.getVertexB().getPosition();
+      Point3D c = triangle.getVertexC().getPosition();
+      Point3D[] points = new Point3D[count];
+      for (int i = 0; i < count; i++) {
+         // vzdalenost od hran alespon 5 % kvuli zaokrouhlovacim chybam
+         float r1 = random.nextFloat();
+         float r2 = random.nextFloat();
+         if (r1 + r2 > 1) {
+            r1 = 1 - r1;
+            r2 = 1 - r2;
+         }
+         float u = 0.05f + 0.85f * r1;
+         float v = 0.05f + 0.85f * r2;
+         float w = 1 - u - v;
+         points[i] = new Point3D(w * a.getX() + u * b.getX() + v * c.getX(), w * a.getY() + u * b.getY() + v * c.getY(), w * a.getZ() + u * b.getZ() + v * c.getZ());
+      }
+      return points;
+   }
+
+   /**
+    * Vrací náhodný jednotkový vektor s rovnoměrným rozložením směrů.
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @return Jednotkový vektor.
+    */
+   static Vector3 randomUnitVector(Random random) {
+      float z = 2 * random.nextFloat() - 1;
+      float phi = (float) (2 * Math.PI * random.nextFloat());
+      float r = (float) Math.sqrt(1 - z * z);
+      return new Vector3(r * (float) Math.cos(phi), r * (float) Math.sin(phi), z);
+   }
+}
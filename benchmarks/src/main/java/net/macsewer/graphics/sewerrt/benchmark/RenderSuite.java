@@ -0,0 +1,580 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+import net.macsewer.graphics.sewerrt.acceleration.BoundingVolumeHierarchy;
+import net.macsewer.graphics.sewerrt.camera.AbstractCamera;
+import net.macsewer.graphics.sewerrt.camera.FisheyeCamera;
+import net.macsewer.graphics.sewerrt.camera.PinholeCamera;
+import net.macsewer.graphics.sewerrt.camera.PlainCamera;
+import net.macsewer.graphics.sewerrt.geometry.AbstractObject;
+import net.macsewer.graphics.sewerrt.geometry.IntersectionKernel;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.TriMesh;
+import net.macsewer.graphics.sewerrt.geometry.Vector3;
+import net.macsewer.graphics.sewerrt.geometry.scene.ObjMeshReader;
+import net.macsewer.graphics.sewerrt.geometry.scene.ReferenceScenes;
+import net.macsewer.graphics.sewerrt.geometry.scene.Scene;
+import net.macsewer.graphics.sewerrt.image.ImageFileWriter;
+import net.macsewer.graphics.sewerrt.raytracer.RayTracer;
+
+/**
+ * Měření výkonu vykreslení celých referenčních scén (viz
+ * {@link ReferenceScenes}). Každá scéna se vykreslí všemi kamerami v daných
+ * rozlišeních a s daným vyhlazováním. Pro každé vykreslení se zaznamená čas,
+ * počet primárních paprsků za sekundu, objem alokované paměti a odstup
+ * signálu od šumu (PSNR) vůči uloženému referenčnímu obrázku. Výsledky se
+ * vypisují ve formátu JSON.
+ * <p>
+ * Referenční obrázky se ukládají do adresáře <code>golden</code> ve formátu
+ * PNG s názvem <code>scéna_kamera_šířkaxvýška_vzorky.png</code>. Pokud
+ * referenční obrázek chybí, je PSNR ve výsledcích <code>null</code>.
+ * Referenční obrázky se vytvoří (nebo přepíšou) volbou
+ * <code>-update-golden</code>. Pokud je PSNR některého vykreslení nižší než
+ * mez (volba <code>-min-psnr</code>), měření po vypsání výsledků skončí
+ * návratovým kódem 3.
+ * <p>
+ * Alokace se měří jako součet přírůstků alokované paměti vláken, která žijí
+ * na konci vykreslení, vůči stavu týchž vláken na jeho začátku (vlákna
+ * vzniklá během vykreslení se počítají celá). Vlákna, která během vykreslení
+ * zaniknou (např. nečinná pracovní vlákna fondu fork/join), se nezapočítají,
+ * údaj je proto přibližný a spíše podhodnocený, nikdy však záporný.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class RenderSuite {
+
+   /**
+    * Horní mez PSNR, která se uvádí pro shodné obrázky.
+    */
+   static final double MAX_PSNR = 100;
+
+   /**
+    * Výchozí nejnižší přípustné PSNR vůči referenčnímu obrázku.
+    */
+   static final double DEFAULT_MIN_PSNR = 40;
+
+   /**
+    * Semínko náhodných scén.
+    */
+   static final long SEED = 20121112L;
+
+   /**
+    * Názvy scén.
+    */
+   private String[] scenes = { "kulicky", "mesto", "velkomesto", "spheres", "mesh" };
+
+   /**
+    * Názvy kamer.
+    */
+   private String[] cameras = { "plain", "pinhole", "fisheye" };
+
+   /**
+    * Rozlišení ve tvaru <code>šířkaxvýška</code>.
+    */
+   private String[] sizes = { "160x120", "320x240" };
+
+   /**
+    * Poloměry mřížky vyhlazování (záporná hodnota = jeden paprsek na pixel).
+    */
+   private int[] samples = { -1, 1 };
+
+   /**
+    * Urychlovací struktury objektů scény (viz
+    * {@link RayTracer#setAccelerationMode(int)}), každá konfigurace se měří
+    * se všemi.
+    */
+   private int[] accelerationModes = { RayTracer.ACCELERATION_BVH };
+
+   /**
+    * Velikosti paketů primárních paprsků (viz
+    * {@link RayTracer#setPacketSize(int)}), každá konfigurace se měří se
+    * všemi.
+    */
+   private int[] packetSizes = { 16 };
+
+   /**
+    * Metody stavby hierarchií obalových kvádrů (viz
+    * {@link BoundingVolumeHierarchy#setDefaultBuildMethod(int)}), každá
+    * konfigurace se měří se všemi.
+    */
+   private int[] buildMethods = { BoundingVolumeHierarchy.getDefaultBuildMethod() };
+
+   /**
+    * Počet vykreslovacích vláken.
+    */
+   private int threads = Runtime.getRuntime().availableProcessors();
+
+   /**
+    * Počet opakování každého měření (výsledkem je nejrychlejší běh).
+    */
+   private int repeat = 1;
+
+   /**
+    * Adresář s referenčními obrázky.
+    */
+   private File goldenDir = new File("golden");
+
+   /**
+    * Nejnižší přípustné PSNR vůči referenčnímu obrázku.
+    */
+   private double minPsnr = DEFAULT_MIN_PSNR;
+
+   /**
+    * Názvy vykreslení s PSNR pod mezí {@link RenderSuite#minPsnr}.
+    */
+   private final List<String> regressions = new ArrayList<String>();
+
+   /**
+    * Příznak přepsání referenčních obrázků.
+    */
+   private boolean updateGolden;
+
+   /**
+    * Soubor s velkou sítí trojúhelníků ve formátu OBJ, nebo <code>null</code>
+    * pro generovaný terén.
+    */
+   private File meshFile;
+
+   /**
+    * Výstupní soubor s výsledky, nebo <code>null</code> pro standardní
+    * výstup.
+    */
+   private File outputFile;
+
+   /**
+    * Spustí měření.
+    * 
+    * @param args
+    *           Parametry příkazové řádky (viz {@link RenderSuite#printUsage()}).
+    * @throws IOException
+    *            Pokud se nepodaří načíst nebo uložit některý soubor.
+    */
+   public static void main(String[] args) throws IOException {
+      RenderSuite suite = new RenderSuite();
+      try {
+         for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-update-golden")) {
+               suite.updateGolden = true;
+               continue;
+            }
+            if (i + 1 >= args.length) {
+               throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+            String value = args[++i];
+            if (args[i - 1].equals("-scenes")) {
+               suite.scenes = value.split(",");
+            } else if (args[i - 1].equals("-cameras")) {
+               suite.cameras = value.split(",");
+            } else if (args[i - 1].equals("-sizes")) {
+               suite.sizes = value.split(",");
+            } else if (args[i - 1].equals("-samples")) {
+               String[] values = value.split(",");
+               suite.samples = new int[values.length];
+               for (int k = 0; k < values.length; k++) {
+                  suite.samples[k] = Integer.parseInt(values[k]);
+               }
+            } else if (args[i - 1].equals("-accel")) {
+               String[] values = value.split(",");
+               suite.accelerationModes = new int[values.length];
+               for (int k = 0; k < values.length; k++) {
+                  suite.accelerationModes[k] = RayTracer.getAccelerationMode(values[k]);
+               }
+            } else if (args[i - 1].equals("-packets")) {
+               String[] values = value.split(",");
+               suite.packetSizes = new int[values.length];
+               for (int k = 0; k < values.length; k++) {
+                  if (!values[k].matches("1|4|8|16")) {
+                     throw new IllegalArgumentException("Unknown packet size: " + values[k]);
+                  }
+                  suite.packetSizes[k] = Integer.parseInt(values[k]);
+               }
+            } else if (args[i - 1].equals("-build")) {
+               String[] values = value.split(",");
+               suite.buildMethods = new int[values.length];
+               for (int k = 0; k < values.length; k++) {
+                  suite.buildMethods[k] = BoundingVolumeHierarchy.getBuildMethod(values[k]);
+               }
+            } else if (args[i - 1].equals("-threads")) {
+               suite.threads = Integer.parseInt(value);
+            } else if (args[i - 1].equals("-repeat")) {
+               suite.repeat = Math.max(1, Integer.parseInt(value));
+            } else if (args[i - 1].equals("-golden")) {
+               suite.goldenDir = new File(value);
+            } else if (args[i - 1].equals("-min-psnr")) {
+               suite.minPsnr = Double.parseDouble(value);
+            } else if (args[i - 1].equals("-mesh")) {
+               suite.meshFile = new File(value);
+            } else if (args[i - 1].equals("-o")) {
+               suite.outputFile = new File(value);
+            } else {
+               throw new IllegalArgumentException("Unknown option: " + args[i - 1]);
+            }
+         }
+      } catch (IllegalArgumentException e) {
+         System.err.println(e.getMessage());
+         printUsage();
+         System.exit(1);
+      }
+      suite.run();
+      if (!suite.regressions.isEmpty()) {
+         System.err.println("PSNR below " + suite.minPsnr + " dB: " + suite.regressions);
+         System.exit(3);
+      }
+   }
+
+   /**
+    * Vypíše nápovědu ke spuštění měření.
+    */
+   private static void printUsage() {
+      System.err.println("Usage: RenderSuite [options]");
+      System.err.println("  -scenes <list>     kulicky,mesto,velkomesto,spheres,mesh");
+      System.err.println("  -cameras <list>    plain,pinhole,fisheye");
+      System.err.println("  -sizes <list>      e.g. 320x240,640x480 (default: 160x120,320x240)");
+      System.err.println("  -samples <list>    supersampling radii, -1 = 1 ray per pixel (default: -1,1)");
+      System.err.println("  -accel <list>      acceleration structures over the scene objects: bvh,grid,linear (default: bvh)");
+      System.err.println("  -packets <list>    primary ray packet sizes: 1,4,8,16 (default: 16)");
+      System.err.println("  -build <list>      BVH build methods: sweep,binned,morton (default: " + BoundingVolumeHierarchy.getBuildName(BoundingVolumeHierarchy.getDefaultBuildMethod()) + ")");
+      System.err.println("  -threads <n>       render threads (default: number of CPUs)");
+      System.err.println("  -repeat <n>        runs per configuration, the fastest is reported (default: 1)");
+      System.err.println("  -golden <dir>      golden image directory (default: golden)");
+      System.err.println("  -update-golden     write the rendered images as new golden images");
+      System.err.println("  -min-psnr <dB>     lowest PSNR against the golden images, otherwise exit code 3 (default: " + DEFAULT_MIN_PSNR + ")");
+      System.err.println("  -mesh <file.obj>   large mesh for the mesh scene (default: generated terrain)");
+      System.err.println("  -o <file>          JSON output file (default: stdout)");
+   }
+
+   /**
+    * Provede všechna měření a vypíše výsledky.
+    * 
+    * @throws IOException
+    *            Pokud se nepodaří načíst nebo uložit některý soubor.
+    */
+   private void run() throws IOException {
+      List<String> results = new ArrayList<String>();
+      for (String sceneName : scenes) {
+         long buildStart = System.nanoTime();
+         Scene scene = createScene(sceneName);
+         long buildMillis = (System.nanoTime() - buildStart) / 1000000;
+         System.err.println(sceneName + ": " + scene.getObjects().size() + " objects, built in " + buildMillis + " ms");
+
+         for (int buildMethod : buildMethods) {
+            BoundingVolumeHierarchy.setDefaultBuildMethod(buildMethod);
+            String meshHierarchy = buildMeshHierarchies(scene);
+            for (String cameraName : cameras) {
+               for (String size : sizes) {
+                  String[] wh = size.split("x");
+                  int width = Integer.parseInt(wh[0]);
+                  int height = Integer.parseInt(wh[1]);
+                  for (int radius : samples) {
+                     for (int accelerationMode : accelerationModes) {
+                        for (int packetSize : packetSizes) {
+                           results.add(measure(sceneName, scene, cameraName, width, height, radius, accelerationMode, packetSize, buildMethod, meshHierarchy));
+                        }
+                     }
+                  }
+               }
+            }
+         }
+      }
+
+      StringBuilder json = new StringBuilder();
+      json.append("{\n");
+      json.append("  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+      json.append("  \"os\": \"").append(System.getProperty("os.name")).append(' ').append(System.getProperty("os.arch")).append("\",\n");
+      json.append("  \"cpus\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+      json.append("  \"threads\": ").append(threads).append(",\n");
+      json.append("  \"results\": [\n");
+      for (int i = 0; i < results.size(); i++) {
+         json.append("    ").append(results.get(i)).append(i + 1 < results.size() ? ",\n" : "\n");
+      }
+      json.append("  ]\n}\n");
+
+      if (outputFile == null) {
+         System.out.print(json);
+      } else {
+         PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"));
+         try {
+            out.print(json);
+         } finally {
+            out.close();
+         }
+      }
+   }
+
+   /**
+    * Postaví znovu hierarchie obalových kvádrů všech sítí trojúhelníků scény
+    * aktuální výchozí metodou stavby.
+    * 
+    * @param scene
+    *           Scéna.
+    * @return Celková doba stavby, nejvyšší cena podle SAH a největší hloubka
+    *         hierarchií sítí jako položky objektu JSON (hodnoty
+    *         <code>null</code>, pokud scéna nemá žádnou síť).
+    */
+   private static String buildMeshHierarchies(Scene scene) {
+      long buildNanos = 0;
+      double sahCost = 0;
+      int depth = 0;
+      int meshCount = 0;
+      for (AbstractObject object : scene.getObjects()) {
+         if (object instanceof TriMesh) {
+            TriMesh mesh = (TriMesh) object;
+            mesh.buildHierarchy();
+            BoundingVolumeHierarchy bvh = mesh.getBoundingVolumeHierarchy();
+            buildNanos += bvh.getBuildNanos();
+            sahCost = Math.max(sahCost, bvh.getSahCost());
+            depth = Math.max(depth, bvh.getDepth());
+            meshCount++;
+         }
+      }
+      if (meshCount == 0) {
+         return "\"mesh_build_ms\": null, \"mesh_sah\": null, \"mesh_depth\": null";
+      }
+      return String.format(Locale.ROOT, "\"mesh_build_ms\": %.3f, \"mesh_sah\": %.3f, \"mesh_depth\": %d", buildNanos / 1e6, sahCost, depth);
+   }
+
+   /**
+    * Změří vykreslení jedné konfigurace.
+    * 
+    * @param sceneName
+    *           Název scény.
+    * @param scene
+    *           Scéna.
+    * @param cameraName
+    *           Název kamery.
+    * @param width
+    *           Šířka rastru.
+    * @param height
+    *           Výška rastru.
+    * @param radius
+    *           Poloměr mřížky vyhlazování.
+    * @param accelerationMode
+    *           Urychlovací struktura objektů scény.
+    * @param packetSize
+    *           Velikost paketu primárních paprsků.
+    * @param buildMethod
+    *           Metoda stavby hierarchií obalových kvádrů.
+    * @param meshHierarchy
+    *           Doba stavby a kvalita hierarchií sítí trojúhelníků scény jako
+    *           položky objektu JSON (viz
+    *           {@link RenderSuite#buildMeshHierarchies(Scene)}).
+    * @return Výsledek jako objekt JSON.
+    * @throws IOException
+    *            Pokud se nepodaří načíst nebo uložit referenční obrázek.
+    */
+   private String measure(String sceneName, Scene scene, String cameraName, int width, int height, int radius, int accelerationMode, int packetSize, int buildMethod, String meshHierarchy) throws IOException {
+      RayTracer rt = new RayTracer(createCamera(sceneName, cameraName, width, height));
+      rt.setShadowMode(RayTracer.SHADOWS_ON);
+      rt.setRecursionDeep(2);
+      rt.setThreadCount(threads);
+      rt.setScene(scene);
+      rt.setAccelerationMode(accelerationMode);
+      rt.setPacketSize(packetSize);
+      rt.setSuperSamplingRadius(Math.max(radius, 0));
+      int mode = radius < 0 ? RayTracer.RENDER_SINGLE : RayTracer.RENDER_SUPERSAMPLED;
+
+      long bestNanos = Long.MAX_VALUE;
+      long allocated = -1;
+      for (int r = 0; r < repeat; r++) {
+         Map<Long, Long> allocatedBefore = allocatedBytes();
+         long start = System.nanoTime();
+         rt.renderScene(mode);
+         long nanos = System.nanoTime() - start;
+         long allocatedDuring = allocatedSince(allocatedBefore);
+         if (nanos < bestNanos) {
+            bestNanos = nanos;
+            allocated = allocatedDuring;
+         }
+      }
+
+      String name = sceneName + "_" + cameraName + "_" + width + "x" + height + "_" + (radius < 0 ? "single" : "ss" + radius);
+      File golden = new File(goldenDir, name + ".png");
+      String psnr = "null";
+      if (updateGolden) {
+         goldenDir.mkdirs();
+         ImageFileWriter.write(rt.getCanvas(), golden);
+      } else if (golden.exists()) {
+         double value = psnr(rt.getCanvas(), ImageIO.read(golden));
+         psnr = String.format(Locale.ROOT, "%.3f", value);
+         if (value < minPsnr) {
+            regressions.add(name + " (" + RayTracer.getAccelerationName(accelerationMode) + ", packet " + packetSize + ", " + BoundingVolumeHierarchy.getBuildName(buildMethod) + "): " + psnr);
+         }
+      }
+
+      long rays = rt.getSampleCount();
+      double seconds = bestNanos / 1e9;
+      String sahCost = "null";
+      String depth = "null";
+      if (rt.getAccelerator() instanceof BoundingVolumeHierarchy) {
+         BoundingVolumeHierarchy bvh = (BoundingVolumeHierarchy) rt.getAccelerator();
+         sahCost = String.format(Locale.ROOT, "%.3f", bvh.getSahCost());
+         depth = String.valueOf(bvh.getDepth());
+      }
+      String result = String.format(Locale.ROOT, "{\"name\": \"%s\", \"scene\": \"%s\", \"camera\": \"%s\", \"width\": %d, \"height\": %d, \"samples\": %d, \"accel\": \"%s\", \"packet\": %d, \"kernel\": \"%s\", \"build\": \"%s\", \"accel_build_ms\": %.3f, \"accel_bytes\": %d, "
+            + "\"accel_sah\": %s, \"accel_depth\": %s, %s, \"wall_ms\": %.3f, \"primary_rays\": %d, \"rays_per_s\": %.0f, \"allocated_bytes\": %d, \"alloc_mb_per_s\": %.1f, \"psnr\": %s}", name, sceneName, cameraName, width, height, radius,
+            RayTracer.getAccelerationName(accelerationMode), packetSize, IntersectionKernel.getInstance().getName(), BoundingVolumeHierarchy.getBuildName(buildMethod), rt.getAcceleratorBuildNanos() / 1e6, rt.getAccelerator().getMemoryFootprint(), sahCost, depth, meshHierarchy, bestNanos / 1e6, rays, rays / seconds, allocated, allocated < 0 ? -1.0 : allocated / seconds / (1 << 20), psnr);
+      System.err.println(result);
+      return result;
+   }
+
+   /**
+    * Vytvoří scénu daného názvu.
+    * 
+    * @param name
+    *           Název scény.
+    * @return Scéna.
+    * @throws IOException
+    *            Pokud se nepodaří načíst síť trojúhelníků.
+    */
+   private Scene createScene(String name) throws IOException {
+      if (name.equals("kulicky")) {
+         return ReferenceScenes.createKulicky();
+      } else if (name.equals("mesto")) {
+         return ReferenceScenes.createMesto();
+      } else if (name.equals("velkomesto")) {
+         return ReferenceScenes.createVelkomesto(200, SEED);
+      } else if (name.equals("spheres")) {
+         return ReferenceScenes.createRandomSpheres(10000, SEED);
+      } else if (name.equals("mesh")) {
+         TriMesh mesh = meshFile != null ? ObjMeshReader.read(meshFile) : ReferenceScenes.createTerrain(320, SEED);
+         return ReferenceScenes.createMeshScene(mesh);
+      }
+      throw new IllegalArgumentException("Unknown scene: " + name);
+   }
+
+   /**
+    * Vytvoří kameru daného typu s pohledem vhodným pro danou scénu.
+    * 
+    * @param sceneName
+    *           Název scény.
+    * @param cameraName
+    *           Název kamery.
+    * @param width
+    *           Šířka rastru.
+    * @param height
+    *           Výška rastru.
+    * @return Kamera.
+    */
+   private static AbstractCamera createCamera(String sceneName, String cameraName, int width, int height) {
+      Point3D eye;
+      Point3D target;
+      if (sceneName.equals("mesto") || sceneName.equals("velkomesto")) {
+         eye = new Point3D(-3.5f, -3f, 2.5f);
+         target = new Point3D(0, 0, 0.3f);
+      } else if (sceneName.equals("mesh")) {
+         eye = new Point3D(-0.5f, 0, 1.2f);
+         target = new Point3D(2, 0, 0);
+      } else {
+         eye = new Point3D(0.2f, 0.2f, 0.5f);
+         target = new Point3D(1, 0, 0);
+      }
+      Vector3 up = new Vector3(0, 0, 1);
+      if (cameraName.equals("plain")) {
+         return new PlainCamera(eye, target, up, width, height);
+      } else if (cameraName.equals("pinhole")) {
+         return new PinholeCamera(eye, target, up, width, height, 0.785398163f);
+      } else if (cameraName.equals("fisheye")) {
+         return new FisheyeCamera(eye, target, up, width, height);
+      }
+      throw new IllegalArgumentException("Unknown camera: " + cameraName);
+   }
+
+   /**
+    * Vrací odstup signálu od šumu (PSNR) dvou obrázků v decibelech.
+    * 
+    * @param image
+    *           Obrázek.
+    * @param reference
+    *           Referenční obrázek.
+    * @return PSNR (nejvýše {@link RenderSuite#MAX_PSNR}), nebo 0, pokud mají
+    *         obrázky různé rozměry.
+    */
+   static double psnr(BufferedImage image, BufferedImage reference) {
+      int width = image.getWidth();
+      int height = image.getHeight();
+      if (reference.getWidth() != width || reference.getHeight() != height) {
+         return 0;
+      }
+      int[] a = image.getRGB(0, 0, width, height, null, 0, width);
+      int[] b = reference.getRGB(0, 0, width, height, null, 0, width);
+      double sum = 0;
+      for (int i = 0; i < a.length; i++) {
+         for (int shift = 0; shift < 24; shift += 8) {
+            int d = ((a[i] >> shift) & 0xff) - ((b[i] >> shift) & 0xff);
+            sum += d * d;
+         }
+      }
+      if (sum == 0) {
+         return MAX_PSNR;
+      }
+      double mse = sum / (3.0 * a.length);
+      return Math.min(MAX_PSNR, 10 * Math.log10(255.0 * 255.0 / mse));
+   }
+
+   /**
+    * Vrací objem paměti alokované jednotlivými živými vlákny, nebo
+    * <code>null</code>, pokud jej JVM neposkytuje.
+    * 
+    * @return Objem alokované paměti v bajtech podle ID vlákna.
+    */
+   private static Map<Long, Long> allocatedBytes() {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+         return null;
+      }
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+      if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled()) {
+         return null;
+      }
+      long[] ids = bean.getAllThreadIds();
+      long[] bytes = sunBean.getThreadAllocatedBytes(ids);
+      Map<Long, Long> allocated = new HashMap<Long, Long>();
+      for (int i = 0; i < ids.length; i++) {
+         if (bytes[i] >= 0) {
+            allocated.put(ids[i], bytes[i]);
+         }
+      }
+      return allocated;
+   }
+
+   /**
+    * Vrací objem paměti alokované od daného stavu vlákny, která dosud žijí.
+    * Vlákna, která mezitím zanikla, se nezapočítají.
+    * 
+    * @param before
+    *           Stav vrácený metodou {@link RenderSuite#allocatedBytes()}.
+    * @return Objem alokované paměti v bajtech, nebo -1, pokud jej JVM
+    *         neposkytuje.
+    */
+   private static long allocatedSince(Map<Long, Long> before) {
+      Map<Long, Long> after = allocatedBytes();
+      if (before == null || after == null) {
+         return -1;
+      }
+      long total = 0;
+      for (Map.Entry<Long, Long> thread : after.entrySet()) {
+         Long initial = before.get(thread.getKey());
+         total += Math.max(0, thread.getValue() - (initial != null ? initial : 0));
+      }
+      return total;
+   }
+}
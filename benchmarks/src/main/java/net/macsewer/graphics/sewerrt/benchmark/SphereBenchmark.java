@@ -0,0 +1,164 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingSphere;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.IntersectionKernel;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.Sphere;
+import net.macsewer.graphics.sewerrt.geometry.Vertex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Měření výpočtu průsečíku paprsku s koulí a testu obalové koule. Metoda
+ * {@link Sphere#intersect(Ray, HitRecord)} obsahuje test obalové koule a
+ * vlastní výpočet průsečíku koule, metoda {@link Sphere#crossRay(Ray)} navíc
+ * vytváří vrchol průsečíku.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SphereBenchmark {
+
+   /**
+    * Podíl paprsků, které kouli zasáhnou.
+    */
+   @Param({ "0.0", "0.5", "1.0" })
+   public double hitRatio;
+
+   /**
+    * Měřená koule.
+    */
+   private Sphere sphere;
+
+   /**
+    * Obalová koule se stejným středem a poloměrem.
+    */
+   private BoundingSphere boundingSphere;
+
+   /**
+    * Sada paprsků.
+    */
+   private Ray[] rays;
+
+   /**
+    * Záznam o průsečíku.
+    */
+   private HitRecord hit;
+
+   /**
+    * Sada paprsků rozdělená na pakety.
+    */
+   private Ray[][] packets;
+
+   /**
+    * Záznamy o průsečících paprsků paketu.
+    */
+   private HitRecord[] hits;
+
+   /**
+    * Index dalšího paprsku.
+    */
+   private int index;
+
+   /**
+    * Index dalšího paketu.
+    */
+   private int packet;
+
+   /**
+    * Připraví kouli a sadu paprsků.
+    */
+   @Setup
+   public void setup() {
+      Random random = new Random(RayMix.SEED);
+      Point3D center = new Point3D(0.5f, -0.25f, 0.1f);
+      float radius = 0.2f;
+      sphere = new Sphere(center, radius);
+      boundingSphere = new BoundingSphere(center, radius);
+
+      // zasahujici paprsky miri do vnitrni casti koule
+      Point3D[] targets = new Point3D[RayMix.SIZE];
+      for (int i = 0; i < targets.length; i++) {
+         targets[i] = center.move(RayMix.randomUnitVector(random).mul(radius * 0.9f * random.nextFloat()));
+      }
+      rays = RayMix.create(random, targets, center, radius, hitRatio);
+      hit = new HitRecord();
+      packets = RayMix.packets(rays);
+      hits = RayMix.packetHits();
+   }
+
+   /**
+    * Test obalové koule.
+    * 
+    * @return <code>true</code>, pokud paprsek obalovou kouli protíná.
+    */
+   @Benchmark
+   public boolean boundingSphereRayCrossed() {
+      index = (index + 1) & RayMix.MASK;
+      return boundingSphere.rayCrossed(rays[index]);
+   }
+
+   /**
+    * Průsečík zapisovaný do záznamu.
+    * 
+    * @return <code>true</code>, pokud paprsek kouli zasáhl.
+    */
+   @Benchmark
+   public boolean intersect() {
+      index = (index + 1) & RayMix.MASK;
+      hit.reset(Float.MAX_VALUE, null);
+      return sphere.intersect(rays[index], hit);
+   }
+
+   /**
+    * Průsečík s vytvořením vrcholu ({@link Sphere#crossRay(Ray)}).
+    * 
+    * @return Vrchol průsečíku, nebo <code>null</code>.
+    */
+   @Benchmark
+   public Vertex crossRay() {
+      index = (index + 1) & RayMix.MASK;
+      return sphere.crossRay(rays[index]);
+   }
+
+   /**
+    * Průsečíky paketu {@link RayMix#PACKET_SIZE} paprsků jedním voláním
+    * (jádro {@link IntersectionKernel}; vektorové jádro se použije s volbou
+    * <code>-jvmArgsAppend --add-modules=jdk.incubator.vector</code>). Čas se
+    * vztahuje k celému paketu.
+    * 
+    * @return Bitová maska paprsků, které kouli zasáhly.
+    */
+   @Benchmark
+   public int intersectPacket() {
+      packet = (packet + 1) & (packets.length - 1);
+      for (HitRecord packetHit : hits) {
+         packetHit.reset(Float.MAX_VALUE, null);
+      }
+      return sphere.intersect(packets[packet], hits, RayMix.PACKET_MASK);
+   }
+}
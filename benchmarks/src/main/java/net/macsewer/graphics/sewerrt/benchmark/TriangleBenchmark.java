@@ -0,0 +1,144 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.macsewer.graphics.sewerrt.geometry.ColorRGB;
+import net.macsewer.graphics.sewerrt.geometry.Float3;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.IntersectionKernel;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.Triangle;
+import net.macsewer.graphics.sewerrt.geometry.Vector3;
+import net.macsewer.graphics.sewerrt.geometry.Vertex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Měření výpočtu průsečíku paprsku s trojúhelníkem. Metoda
+ * {@link Triangle#crossRay(Ray)} vytváří pro každý průsečík vrchol, metoda
+ * {@link Triangle#intersect(Ray, HitRecord, int)} jen přepisuje záznam o
+ * průsečíku.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriangleBenchmark {
+
+   /**
+    * Podíl paprsků, které trojúhelník zasáhnou.
+    */
+   @Param({ "0.0", "0.5", "1.0" })
+   public double hitRatio;
+
+   /**
+    * Měřený trojúhelník.
+    */
+   private Triangle triangle;
+
+   /**
+    * Sada paprsků.
+    */
+   private Ray[] rays;
+
+   /**
+    * Záznam o průsečíku.
+    */
+   private HitRecord hit;
+
+   /**
+    * Sada paprsků rozdělená na pakety.
+    */
+   private Ray[][] packets;
+
+   /**
+    * Záznamy o průsečících paprsků paketu.
+    */
+   private HitRecord[] hits;
+
+   /**
+    * Index dalšího paprsku.
+    */
+   private int index;
+
+   /**
+    * Index dalšího paketu.
+    */
+   private int packet;
+
+   /**
+    * Připraví trojúhelník a sadu paprsků.
+    */
+   @Setup
+   public void setup() {
+      Random random = new Random(RayMix.SEED);
+      Vertex a = new Vertex(new Point3D(0, 0, 0), new Vector3(0, 0, 1), ColorRGB.red, new Float3());
+      Vertex b = new Vertex(new Point3D(1, 0, 0.2f), new Vector3(0, 0, 1), ColorRGB.green, new Float3());
+      Vertex c = new Vertex(new Point3D(0.3f, 1, -0.1f), new Vector3(0, 0, 1), ColorRGB.blue, new Float3());
+      triangle = new Triangle(a, b, c);
+      rays = RayMix.create(random, RayMix.pointsOnTriangle(random, triangle, RayMix.SIZE), new Point3D(0.43f, 0.33f, 0.03f), 0.75f, hitRatio);
+      hit = new HitRecord();
+      packets = RayMix.packets(rays);
+      hits = RayMix.packetHits();
+   }
+
+   /**
+    * Průsečík s vytvořením vrcholu.
+    * 
+    * @return Vrchol průsečíku, nebo <code>null</code>.
+    */
+   @Benchmark
+   public Vertex crossRay() {
+      index = (index + 1) & RayMix.MASK;
+      return triangle.crossRay(rays[index]);
+   }
+
+   /**
+    * Průsečík zapisovaný do záznamu.
+    * 
+    * @return <code>true</code>, pokud paprsek trojúhelník zasáhl.
+    */
+   @Benchmark
+   public boolean intersect() {
+      index = (index + 1) & RayMix.MASK;
+      hit.reset(Float.MAX_VALUE, null);
+      return triangle.intersect(rays[index], hit, 0);
+   }
+
+   /**
+    * Průsečíky paketu {@link RayMix#PACKET_SIZE} paprsků jedním voláním
+    * (jádro {@link IntersectionKernel}; vektorové jádro se použije s volbou
+    * <code>-jvmArgsAppend --add-modules=jdk.incubator.vector</code>). Čas se
+    * vztahuje k celému paketu.
+    * 
+    * @return Bitová maska paprsků, které trojúhelník zasáhly.
+    */
+   @Benchmark
+   public int intersectPacket() {
+      packet = (packet + 1) & (packets.length - 1);
+      for (HitRecord packetHit : hits) {
+         packetHit.reset(Float.MAX_VALUE, null);
+      }
+      return triangle.intersect(packets[packet], hits, RayMix.PACKET_MASK, 0);
+   }
+}
@@ -1,461 +1,638 @@
-package net.macsewer.graphics.sewerrt;
-
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-
-import javax.imageio.ImageIO;
-
-import net.macsewer.graphics.sewerrt.camera.AbstractCamera;
-import net.macsewer.graphics.sewerrt.camera.FisheyeCamera;
-import net.macsewer.graphics.sewerrt.camera.PinholeCamera;
-import net.macsewer.graphics.sewerrt.camera.PlainCamera;
-import net.macsewer.graphics.sewerrt.geometry.ColorRGB;
-import net.macsewer.graphics.sewerrt.geometry.Point3D;
-import net.macsewer.graphics.sewerrt.geometry.Sphere;
-import net.macsewer.graphics.sewerrt.geometry.TriMesh;
-import net.macsewer.graphics.sewerrt.geometry.Vector3;
-import net.macsewer.graphics.sewerrt.geometry.scene.Light;
-import net.macsewer.graphics.sewerrt.geometry.scene.Scene;
-import net.macsewer.graphics.sewerrt.gui.SewerRTFrame;
-import net.macsewer.graphics.sewerrt.raytracer.RayTracer;
-
-/**
- * Třída ukázkové Demo aplikace.
- * 
- * @author Pavel Macík
- * 
- */
-public class Render {
-   /**
-    * Scéna s kuličkami na desce.
-    */
-   private Scene sceneKulickyNadDeskou;
-
-   // /**
-   // * Scéna typu město.
-   // */
-   // private Scene sceneMesto;
-
-   /**
-    * Plošná kamera.
-    */
-   private PlainCamera plainCamera;
-
-   /**
-    * Dírková kamera.
-    */
-   private PinholeCamera pinholeCamera;
-
-   /**
-    * Sférická kamera (rybí oko).
-    */
-   private FisheyeCamera fisheyeCamera;
-
-   /**
-    * Typ kamery.
-    */
-   private CameraType cameraType = CameraType.FISHEYE;
-
-   /**
-    * Typ kamery.
-    * 
-    * @author Pavel Macík
-    * 
-    */
-   private enum CameraType {
-      /**
-       * Plošná kamera.
-       */
-      PLAIN,
-
-      /**
-       * Dírková kamera.
-       */
-      PINHOLE,
-
-      /**
-       * Sférická kamera - rybí oko.
-       */
-      FISHEYE
-   };
-
-   /**
-    * Vytvoří instanci aplikace s danými atributy.
-    * 
-    * @param width
-    *           Šířka rastru průmětny kamery.
-    * @param height
-    *           Výška rastru průmětny kamery.
-    * @param cameraType
-    *           Typ kamery.
-    */
-   public Render(int width, int height, CameraType cameraType) {
-
-      // long pred, po;
-      this.cameraType = cameraType;
-
-      initSceneKulicky();
-      // initSceneMesto();
-
-      initCameras(width, height);
-
-      render();
-
-   }
-
-   /**
-    * Vykreslí (promítne) scénu do rastru průmětny pomocí raytraceru, a
-    * definovaného typu kamery.
-    */
-   private void render() {
-      long pred;
-      long po;
-
-      // String sceneName = "kulicky";
-      Scene scene = sceneKulickyNadDeskou;
-
-      RayTracer rt = new RayTracer();
-
-      rt.setShadowMode(RayTracer.SHADOWS_ON);
-
-      AbstractCamera camera;
-      switch (cameraType) {
-         case PLAIN:
-            camera = plainCamera;
-            break;
-         case PINHOLE:
-            camera = pinholeCamera;
-            break;
-         case FISHEYE:
-         default:
-            camera = fisheyeCamera;
-      }
-
-      // camera.setRealWidth(0.5f);
-      // camera.setRealHeight(0.5f);
-
-      // posun dozadu o 1
-      // camera.setPosition(camera.getPosition().move(
-      // camera.getDirection()
-      // .normalized()
-      // .mul(-1f)));
-
-      // posun vlevo o 1
-      // camera.setPosition(camera.getPosition().move(
-      // camera.getRight().normalized().mul(-1f)));
-
-      // zvetseni prumetny
-      // camera.setRealWidth(4);
-      // camera.setRealHeight(4);
-
-      rt.setCamera(camera);
-      rt.setRecursionDeep(2);
-
-      System.out.println("Zacinam kreslit...");
-
-      System.out.print(camera.getClass().getSimpleName());
-      pred = System.currentTimeMillis();
-
-      // rt.renderScene(scene);
-      rt.renderSceneSuperSampled(scene, 1);
-
-      po = System.currentTimeMillis();
-      System.out.println(" " + (po - pred) + " ms");
-
-      SewerRTFrame df = new SewerRTFrame(rt.getCanvas());
-      df.setVisible(true);
-
-      // saveImageToFile(rt.getCanvas(), "pinhole_45_big.bmp");
-
-      // plosna
-      // rt.setCamera(plainCamera);
-      // pred = System.currentTimeMillis();
-      // System.out.print("Plain camera... ");
-      // rt.renderScene(scene);
-      // po = System.currentTimeMillis();
-      // System.out.println((po - pred) + " ms");
-      // saveImageToFile(rt.getCanvas(), sceneName + "_plain.bmp");
-
-      // dirkova
-      // rt.setCamera(pinholeCamera);
-      // pred = System.currentTimeMillis();
-      // System.out.print("Pinhole camera... ");
-      // rt.renderScene(scene);
-      // po = System.currentTimeMillis();
-      // System.out.println((po - pred) + " ms");
-      // saveImageToFile(rt.getCanvas(), sceneName + "_pinhole.bmp");
-
-      // fish-eye
-      // rt.setCamera(pinholeCamera);
-      // pred = System.currentTimeMillis();
-      // System.out.print("Pinhole camera... ");
-      // rt.renderScene(scene);
-      // po = System.currentTimeMillis();
-      // System.out.println((po - pred) + " ms");
-      // saveImageToFile(rt.getCanvas(), sceneName + "_pinhole.bmp");
-
-      // rt.setCamera(fisheyeCamera);
-      //
-      // System.out.println("Fish-eye camera... ");
-      //
-      // int max = 1000;
-      // Point3D pos = new Point3D(0.2f, 2f, 0.5f);
-      // fisheyeCamera.setPosition(pos);
-      // DrzkaFrame df = new DrzkaFrame(rt.getCanvas());
-      // df.setVisible(true);
-      // float step = (float) 4 / max;
-      // for (int i = 0; i < max; i++) {
-      // // pos.setX(pos.getX());
-      // pos.setY(pos.getY() - step);
-      // // pos.setZ(pos.getZ());
-      // System.out.print("Snímek " + (i + 1) + "/" + max + " ... ");
-      // pred = System.currentTimeMillis();
-      // rt.renderScene(scene);
-      // po = System.currentTimeMillis();
-      // System.out.println((po - pred) + " ms");
-      // saveImageToFile(rt.getCanvas(), sceneName + "_fisheye_"
-      // + ((i < 10) ? ("00") : (i < 100) ? "0" : "") + i + ".bmp");
-      // df.repaint();
-      // }
-
-      // saveImageToFile(rt.getCanvas(), sceneName + "_fisheye.bmp");
-      //
-      // DrzkaFrame df = new DrzkaFrame(rt.getCanvas());
-      // df.setVisible(true);
-
-      // try {
-      // ImageIO.write(rt.getCanvas(), "bmp", new File("fisheye.bmp"));
-      // } catch (IOException e) {
-      // e.printStackTrace();
-      // }
-   }
-
-   /**
-    * Inicializuje jednotlivé kamery s danými rozměry rastru průmětny.
-    * 
-    * @param width
-    *           Šířka rastru průmětny kamery.
-    * @param height
-    *           Výška rastru průmětny kamery.
-    */
-   private void initCameras(int width, int height) {
-      Point3D cameraEyePosition = new Point3D(0.2f, 0.2f, 0.5f);
-      Point3D cameraTarget = new Point3D(1, 0, 0);
-      plainCamera = new PlainCamera(cameraEyePosition, cameraTarget, new Vector3(0, 0, 1), width, height);
-
-      float pi_4 = 0.785398163f;
-
-      pinholeCamera = new PinholeCamera(cameraEyePosition, cameraTarget, new Vector3(0, 0, 1f), width, height, pi_4);
-
-      fisheyeCamera = new FisheyeCamera(cameraEyePosition, cameraTarget, new Vector3(0, 0, 1), width, height);
-
-      // definice typu sférické kamery na 360˚
-      // fisheyeCamera.setCameraType(FisheyeCamera.CAMERA_TYPE_360);
-   }
-
-   /**
-    * Uloží daný rastr do daného souboru jako obrázek typu BMP.
-    * 
-    * @param img
-    *           Rastr průmětny.
-    * @param filePath
-    *           Cesta k souboru obrázku, do kterého se má rastr uložit.
-    */
-   private void saveImageToFile(BufferedImage img, String filePath) {
-      try {
-         ImageIO.write(img, "bmp", new File(filePath));
-      } catch (IOException e) {
-         e.printStackTrace();
-      }
-   }
-
-   // /**
-   // *
-   // */
-   // private void initSceneMesto() {
-   // sceneMesto = new Scene();
-   //
-   // SecureRandom srg = new SecureRandom();
-   // srg.nextFloat();
-   // // objekty
-   //
-   // // podlaha
-   // TriMesh mesh = new TriMesh();
-   // float p = 3;
-   // float m = -3;
-   // Point3D vp1, vp2, vp3;
-   // vp1 = new Point3D(0, m, m);
-   // vp3 = new Point3D(0, m, p);
-   // vp2 = new Point3D(0, p, p);
-   // mesh.addTriangle(vp1, vp2, vp3);
-   // vp1 = new Point3D(0, m, m);
-   // vp2 = new Point3D(0, p, m);
-   // vp3 = new Point3D(0, p, p);
-   // mesh.addTriangle(vp1, vp2, vp3);
-   //
-   // sceneMesto.addObject(mesh);
-   //
-   // // domy
-   // // for (int i = 0; i < 1e2; i++) {
-   // // sceneMesto.addObject(new BoxTriMesh(new Point3D(4 * (srg
-   // // .nextFloat() - 0.5f), 4 * (srg.nextFloat() - 0.5f), 0),
-   // // 0.1f, (float) i / 120 + 0.1f, 0.1f));
-   // // }
-   //
-   // for (float i = -2f; i <= 2; i += 0.4f) {
-   // for (float j = -2; j <= 2; j += 0.4f) {
-   // float d = Math.abs(i * j) * 0.4f + 0.2f;
-   // sceneMesto.addObject(new BoxTriMesh(
-   // new Point3D(d / 2, (i /* * Math.random() */),
-   // (j /* * Math.random() */)), 0.07f, 0.07f, d));
-   // }
-   // }
-   //
-   // // svetlo
-   // sceneMesto.setAmbientLight(new ColorRGB(30, 30, 30));
-   // sceneMesto.setLight(0, new Light(new Point3D(4, -2, 1.5f), 5f,
-   // ColorRGB.white));
-   // }
-
-   /**
-    * Vytvoří a inicializuje scénu s kuličkami. (Čtvercová plocha, na které je
-    * rozmístěno 9 koulí (v matici 3x3). Nad deskou i kuličkami jsou umístěna 4
-    * všesměrová světla (červené, zelené, modré a bílé). Ambientní světlo je v
-    * nastaveno na hodnotu RGB = (20,&nbsp;20,&nbsp;20) a barva pozadí je černá
-    * RGB = (0,&nbsp;0,&nbsp;0)).
-    */
-   private void initSceneKulicky() {
-      sceneKulickyNadDeskou = new Scene();
-
-      TriMesh mesh = new TriMesh();
-      float p = 1;
-      float m = -1;
-      Point3D vp1, vp2, vp3;
-      vp1 = new Point3D(m + 1, m, 0);
-      vp3 = new Point3D(m + 1, p, 0);
-      vp2 = new Point3D(p + 1, p, 0);
-      mesh.addTriangle(vp1, vp2, vp3);
-      vp1 = new Point3D(m + 1, m, 0);
-      vp2 = new Point3D(p + 1, m, 0);
-      vp3 = new Point3D(p + 1, p, 0);
-      mesh.addTriangle(vp1, vp2, vp3);
-
-      // vp1 = new Point3D(1, m, p);
-      // vp2 = new Point3D(1, p, p);
-      // vp3 = new Point3D(1, p, m);
-      // mesh.addTriangle(vp1, vp2, vp3);
-      // vp1 = new Point3D(1, p, m);
-      // vp2 = new Point3D(1, m, m);
-      // vp3 = new Point3D(1, m, p);
-      // mesh.addTriangle(vp1, vp2, vp3);
-
-      sceneKulickyNadDeskou.addObject(mesh);
-
-      // scene.addObject(new Sphere(new Point3D(1.5f, 0, 0), 0.2f));
-      float x, y, z, r;
-      int a = 3;
-      Sphere ss;
-      // ss = new Sphere(new Point3D(0.5f, 0, 0), 0.2f);
-      // ss.setDiffuseColor(ColorRGB.getRandomColor());
-      // scene.addObject(ss);
-      // ss = new Sphere(new Point3D(2, 1.5f, 0), 1.499999f);
-      // ss.setDiffuseColor(ColorRGB.getRandomColor());
-      // scene.addObject(ss);
-
-      // float step = 1;
-      for (int i = 0; i < a; i++) {
-         for (int j = 0; j < a; j++) {
-            // for (int k = 0; k < a; k++) {
-            x = i * 0.5f + 0.5f;
-            y = j * 0.5f - 0.5f;
-            z = 0.1f;
-            // if (i == 2 && j == 2)
-            // continue;
-            // x = 0.7f;
-            // z = i * 0.5f - step;
-            // y = j * 0.5f - step;
-
-            r = 0.1f;
-            ss = new Sphere(new Point3D(x, y, z), r);
-            ss.setDiffuseColor(new ColorRGB(i * 70, j * 70, i * j * 20));
-            // ss.setDiffuseColor(ColorRGB.getRandomColor());
-            sceneKulickyNadDeskou.addObject(ss);
-            // }
-         }
-      }
-      ss = new Sphere(new Point3D(0.5f, 0, 0), 0.03f);
-      ss.setDiffuseColor(ColorRGB.blue);
-      sceneKulickyNadDeskou.addObject(ss);
-
-      // Random gen = new Random(System.currentTimeMillis());
-      // for (int i = 0; i < 100; i++) {
-      // x = gen.nextInt(500) / 100f + 1f;
-      // y = gen.nextInt(200) / 100f - 1f;
-      // z = gen.nextInt(200) / 100f - 1f;
-      // r = gen.nextInt(10) / 100f + 0.03f;
-      // scene.addObject(new Sphere(new Point3D(x, y, z), r));
-      // }
-
-      // scene
-      // .setLight(1, new Light(new Point3D(0, 0, 0), 0.5f,
-      // ColorRGB.white));
-      // scene.setLight(1, new Light(new Point3D(1, -1, 1), 0.5f, new
-      // ColorRGB(
-      // 255, 255, 255)));
-
-      sceneKulickyNadDeskou.setAmbientLight(new ColorRGB(20, 20, 20));
-      // scene.setAmbientLight(new ColorRGB(100, 100, 100));
-      sceneKulickyNadDeskou.setBackgroundColor(ColorRGB.black);
-      // sceneKulickyNadDeskou.setLight(0, new Light(new Point3D(0, 1, -1),
-      // 0.4f, new ColorRGB(ColorRGB.red)));
-      // sceneKulickyNadDeskou.setLight(1, new Light(new Point3D(0, 1, 1),
-      // 0.4f,
-      // new ColorRGB(ColorRGB.green)));
-      // sceneKulickyNadDeskou.setLight(2, new Light(new Point3D(0, -1, 1),
-      // 0.4f, new ColorRGB(ColorRGB.blue)));
-      // sceneKulickyNadDeskou.setLight(3, new Light(new Point3D(0, -1, -1),
-      // 0.4f, new ColorRGB(ColorRGB.white)));
-      sceneKulickyNadDeskou.setLight(0, new Light(new Point3D(1, -1, 1), 0.4f, new ColorRGB(ColorRGB.red)));
-      sceneKulickyNadDeskou.setLight(1, new Light(new Point3D(1, 1, 1), 0.4f, new ColorRGB(ColorRGB.green)));
-      sceneKulickyNadDeskou.setLight(2, new Light(new Point3D(0, 1, 1), 0.4f, new ColorRGB(ColorRGB.blue)));
-      sceneKulickyNadDeskou.setLight(3, new Light(new Point3D(0, -1, 1), 0.4f, new ColorRGB(ColorRGB.white)));
-
-   }
-
-   /**
-    * Spouštěcí metoda programu - vstupní bod programu. Zpracuje parametry z
-    * příkazové řádky a na základě nich vytvoří instanci Demo aplikace. Program
-    * se pouští následujícím příkazem: <br >
-    * <code>Render &lt;screen width&gt; &lt;screen height&gt; &lt;plain|pinhole|fisheye&gt;</code><br />
-    * ,
-    * kde <br />
-    * &lt;screen width&gt; .... šířka rastru průmětny <br />
-    * &lt;screen height&gt; .... výška rastru průmětny <br />
-    * &lt;plain|pinhole|fisheye&gt; .... jedna z hodnot definující typ kamery <br />
-    * .
-    * 
-    * @param args
-    *           Parametry příkazové řádky.
-    */
-   public static void main(String[] args) {
-      if (args.length == 3) {
-         int w, h;
-         CameraType cameraType = CameraType.FISHEYE;
-         w = Integer.valueOf(args[0]);
-         h = Integer.valueOf(args[1]);
-
-         if (args[2].equals("plain")) {
-            cameraType = CameraType.PLAIN;
-         } else if (args[2].equals("pinhole")) {
-            cameraType = CameraType.PINHOLE;
-         } else if (args[2].equals("fisheye")) {
-            cameraType = CameraType.FISHEYE;
-         }
-         new Render(w, h, cameraType);
-         return;
-      }
-      System.out.println("Usage: Render <screen width> <screen height> <plain|pinhole|fisheye>");
-
-   }
-}
+package net.macsewer.graphics.sewerrt;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import net.macsewer.graphics.sewerrt.acceleration.BoundingVolumeHierarchy;
+import net.macsewer.graphics.sewerrt.camera.AbstractCamera;
+import net.macsewer.graphics.sewerrt.camera.FisheyeCamera;
+import net.macsewer.graphics.sewerrt.camera.PinholeCamera;
+import net.macsewer.graphics.sewerrt.camera.PlainCamera;
+import net.macsewer.graphics.sewerrt.geometry.IntersectionKernel;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.RenderStatistics;
+import net.macsewer.graphics.sewerrt.geometry.Vector3;
+import net.macsewer.graphics.sewerrt.geometry.scene.ReferenceScenes;
+import net.macsewer.graphics.sewerrt.geometry.scene.Scene;
+import net.macsewer.graphics.sewerrt.gui.SewerRTFrame;
+import net.macsewer.graphics.sewerrt.image.HeatMap;
+import net.macsewer.graphics.sewerrt.image.ImageFileWriter;
+import net.macsewer.graphics.sewerrt.raytracer.FrameSequenceRenderer;
+import net.macsewer.graphics.sewerrt.raytracer.FrameSetup;
+import net.macsewer.graphics.sewerrt.raytracer.RayTracer;
+
+/**
+ * Třída ukázkové Demo aplikace.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class Render {
+   /**
+    * Scéna s kuličkami na desce.
+    */
+   private Scene sceneKulickyNadDeskou;
+
+   // /**
+   // * Scéna typu město.
+   // */
+   // private Scene sceneMesto;
+
+   /**
+    * Plošná kamera.
+    */
+   private PlainCamera plainCamera;
+
+   /**
+    * Dírková kamera.
+    */
+   private PinholeCamera pinholeCamera;
+
+   /**
+    * Sférická kamera (rybí oko).
+    */
+   private FisheyeCamera fisheyeCamera;
+
+   /**
+    * Typ kamery.
+    */
+   private CameraType cameraType = CameraType.FISHEYE;
+
+   /**
+    * Počet vykreslovacích vláken.
+    */
+   private int threadCount = Runtime.getRuntime().availableProcessors();
+
+   /**
+    * Poloměr mřížky vzorků vyhlazování. Záporná hodnota znamená vykreslení
+    * jedním primárním paprskem na pixel.
+    */
+   private int superSamplingRadius = 1;
+
+   /**
+    * Práh adaptivního vyhlazování. Záporná hodnota znamená, že se adaptivní
+    * vyhlazování nepoužije.
+    */
+   private float adaptiveThreshold = -1;
+
+   /**
+    * Hloubka rekurze algoritmu sledování paprsku.
+    */
+   private int recursionDeep = 2;
+
+   /**
+    * Režim stínování ({@link RayTracer#SHADOWS_ON} nebo
+    * {@link RayTracer#SHADOWS_OFF}).
+    */
+   private int shadowMode = RayTracer.SHADOWS_ON;
+
+   /**
+    * Soubor, do kterého se uloží vykreslený obrázek. Pokud je
+    * <code>null</code>, zobrazí se obrázek v okně.
+    */
+   private File outputFile;
+
+   /**
+    * Počet snímků průletu kamery scénou. Hodnota 0 znamená jediný snímek.
+    */
+   private int frameCount;
+
+   /**
+    * Příznak výpisu statistik vykreslování.
+    */
+   private boolean printStatistics;
+
+   /**
+    * Režim mapy ceny pixelů (viz {@link RayTracer#setCostMode(int)}).
+    */
+   private int costMode = RayTracer.COST_OFF;
+
+   /**
+    * Urychlovací struktura objektů scény (viz
+    * {@link RayTracer#setAccelerationMode(int)}).
+    */
+   private int accelerationMode = RayTracer.ACCELERATION_BVH;
+
+   /**
+    * Velikost paketu primárních paprsků (viz
+    * {@link RayTracer#setPacketSize(int)}).
+    */
+   private int packetSize = 1;
+
+   /**
+    * Metoda stavby hierarchií obalových kvádrů (viz
+    * {@link BoundingVolumeHierarchy#setDefaultBuildMethod(int)}).
+    */
+   private int buildMethod = BoundingVolumeHierarchy.getDefaultBuildMethod();
+
+   /**
+    * Typ kamery.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private enum CameraType {
+      /**
+       * Plošná kamera.
+       */
+      PLAIN,
+
+      /**
+       * Dírková kamera.
+       */
+      PINHOLE,
+
+      /**
+       * Sférická kamera - rybí oko.
+       */
+      FISHEYE
+   };
+
+   /**
+    * Vytvoří instanci aplikace s danými atributy.
+    * 
+    * @param width
+    *           Šířka rastru průmětny kamery.
+    * @param height
+    *           Výška rastru průmětny kamery.
+    * @param cameraType
+    *           Typ kamery.
+    */
+   public Render(int width, int height, CameraType cameraType) {
+
+      // long pred, po;
+      this.cameraType = cameraType;
+
+      initSceneKulicky();
+      // initSceneMesto();
+
+      initCameras(width, height);
+   }
+
+   /**
+    * Vykreslí (promítne) scénu do rastru průmětny pomocí raytraceru, a
+    * definovaného typu kamery. Pokud je nastaven výstupní soubor, uloží do
+    * něj obrázek a na standardní výstup vypíše jeden řádek s údaji o
+    * vykreslení ve tvaru <code>klíč=hodnota</code>, jinak obrázek zobrazí v
+    * okně.
+    * 
+    * @throws IOException
+    *            Pokud se nepodaří uložit obrázek do souboru.
+    * @throws InterruptedException
+    *            Pokud bylo vykreslování posloupnosti snímků přerušeno.
+    */
+   private void render() throws IOException, InterruptedException {
+      long pred;
+      long po;
+
+      // String sceneName = "kulicky";
+      Scene scene = sceneKulickyNadDeskou;
+
+      RayTracer rt = new RayTracer();
+
+      rt.setShadowMode(shadowMode);
+
+      AbstractCamera camera;
+      switch (cameraType) {
+         case PLAIN:
+            camera = plainCamera;
+            break;
+         case PINHOLE:
+            camera = pinholeCamera;
+            break;
+         case FISHEYE:
+         default:
+            camera = fisheyeCamera;
+      }
+
+      // camera.setRealWidth(0.5f);
+      // camera.setRealHeight(0.5f);
+
+      // posun dozadu o 1
+      // camera.setPosition(camera.getPosition().move(
+      // camera.getDirection()
+      // .normalized()
+      // .mul(-1f)));
+
+      // posun vlevo o 1
+      // camera.setPosition(camera.getPosition().move(
+      // camera.getRight().normalized().mul(-1f)));
+
+      // zvetseni prumetny
+      // camera.setRealWidth(4);
+      // camera.setRealHeight(4);
+
+      rt.setCamera(camera);
+      rt.setRecursionDeep(recursionDeep);
+      rt.setThreadCount(threadCount);
+      if (printStatistics) {
+         rt.setStatistics(new RenderStatistics(threadCount));
+      }
+      rt.setCostMode(costMode);
+      rt.setAccelerationMode(accelerationMode);
+      rt.setPacketSize(packetSize);
+      BoundingVolumeHierarchy.setDefaultBuildMethod(buildMethod);
+
+      if (outputFile == null) {
+         System.out.println("Zacinam kreslit...");
+         System.out.print(camera.getClass().getSimpleName());
+      }
+      int mode = RayTracer.RENDER_SINGLE;
+      if (superSamplingRadius >= 0) {
+         rt.setSuperSamplingRadius(superSamplingRadius);
+         mode = RayTracer.RENDER_SUPERSAMPLED;
+         if (adaptiveThreshold >= 0) {
+            rt.setAdaptiveThreshold(adaptiveThreshold);
+            mode = RayTracer.RENDER_ADAPTIVE;
+         }
+      }
+
+      pred = System.nanoTime();
+
+      if (frameCount > 0) {
+         // prulet kamery podel osy Y
+         final int frames = frameCount;
+         FrameSequenceRenderer sequence = new FrameSequenceRenderer(rt, scene);
+         sequence.setRenderMode(mode);
+         sequence.render(frames, new FrameSetup() {
+            @Override
+            public void setupFrame(int frame, AbstractCamera frameCamera, Scene frameScene) {
+               frameCamera.setPosition(new Point3D(0.2f, 2f - 4f * frame / frames, 0.5f));
+            }
+         }, outputFile.getPath());
+
+         po = System.nanoTime();
+         long millis = (po - pred) / 1000000;
+         long rays = sequence.getSampleCount();
+         long raysPerSecond = po > pred ? rays * 1000000000L / (po - pred) : 0;
+         System.out.println("file=" + outputFile.getPath() + " camera=" + cameraType.name().toLowerCase() + " width=" + camera.getScreenWidth() + " height=" + camera.getScreenHeight()
+               + " threads=" + threadCount + " samples=" + superSamplingRadius + " adaptive=" + (adaptiveThreshold >= 0 ? adaptiveThreshold : "off") + " recursion=" + recursionDeep + " shadows="
+               + (shadowMode == RayTracer.SHADOWS_ON ? "on" : "off") + " accel=" + RayTracer.getAccelerationName(accelerationMode) + " packet=" + packetSize + " frames=" + frames + " ms=" + millis + " ms_per_frame=" + millis / frames
+               + " primary_rays=" + rays + " rays_per_s=" + raysPerSecond);
+         return;
+      }
+
+      rt.setScene(scene);
+      rt.renderScene(mode);
+
+      po = System.nanoTime();
+      long millis = (po - pred) / 1000000;
+
+      if (outputFile == null) {
+         System.out.println(" " + millis + " ms");
+         if (printStatistics) {
+            System.out.println(rt.getStatistics());
+         }
+         if (costMode != RayTracer.COST_OFF) {
+            new SewerRTFrame(rt.getCostImage()).setVisible(true);
+         }
+
+         SewerRTFrame df = new SewerRTFrame(rt.getCanvas());
+         df.setVisible(true);
+      } else {
+         ImageFileWriter.write(rt.getCanvas(), outputFile);
+
+         long rays = rt.getSampleCount();
+         long raysPerSecond = po > pred ? rays * 1000000000L / (po - pred) : 0;
+         System.out.println("file=" + outputFile.getPath() + " camera=" + cameraType.name().toLowerCase() + " width=" + camera.getScreenWidth() + " height=" + camera.getScreenHeight()
+               + " threads=" + threadCount + " samples=" + superSamplingRadius + " adaptive=" + (adaptiveThreshold >= 0 ? adaptiveThreshold : "off") + " recursion=" + recursionDeep + " shadows="
+               + (shadowMode == RayTracer.SHADOWS_ON ? "on" : "off") + " accel=" + RayTracer.getAccelerationName(accelerationMode) + " packet=" + packetSize + " build=" + BoundingVolumeHierarchy.getBuildName(buildMethod) + " kernel=" + IntersectionKernel.getInstance().getName() + " accel_build_ms=" + rt.getAcceleratorBuildNanos() / 1000000.0
+               + " accel_bytes=" + rt.getAccelerator().getMemoryFootprint() + getHierarchyQuality(rt) + " ms=" + millis + " primary_rays=" + rays + " rays_per_s=" + raysPerSecond);
+         if (printStatistics) {
+            System.out.println(rt.getStatistics());
+         }
+         if (costMode != RayTracer.COST_OFF) {
+            File costFile = getCostFile(outputFile);
+            ImageFileWriter.write(rt.getCostImage(), costFile);
+            System.out.println("cost_file=" + costFile.getPath() + " cost=" + (costMode == RayTracer.COST_TESTS ? "tests" : "ns") + " max_cost=" + HeatMap.max(rt.getCostBuffer()));
+         }
+      }
+
+      // saveImageToFile(rt.getCanvas(), "pinhole_45_big.bmp");
+
+      // plosna
+      // rt.setCamera(plainCamera);
+      // pred = System.currentTimeMillis();
+      // System.out.print("Plain camera... ");
+      // rt.renderScene(scene);
+      // po = System.currentTimeMillis();
+      // System.out.println((po - pred) + " ms");
+      // saveImageToFile(rt.getCanvas(), sceneName + "_plain.bmp");
+
+      // dirkova
+      // rt.setCamera(pinholeCamera);
+      // pred = System.currentTimeMillis();
+      // System.out.print("Pinhole camera... ");
+      // rt.renderScene(scene);
+      // po = System.currentTimeMillis();
+      // System.out.println((po - pred) + " ms");
+      // saveImageToFile(rt.getCanvas(), sceneName + "_pinhole.bmp");
+
+      // fish-eye
+      // rt.setCamera(pinholeCamera);
+      // pred = System.currentTimeMillis();
+      // System.out.print("Pinhole camera... ");
+      // rt.renderScene(scene);
+      // po = System.currentTimeMillis();
+      // System.out.println((po - pred) + " ms");
+      // saveImageToFile(rt.getCanvas(), sceneName + "_pinhole.bmp");
+
+      // rt.setCamera(fisheyeCamera);
+      //
+      // System.out.println("Fish-eye camera... ");
+      //
+      // int max = 1000;
+      // Point3D pos = new Point3D(0.2f, 2f, 0.5f);
+      // fisheyeCamera.setPosition(pos);
+      // DrzkaFrame df = new DrzkaFrame(rt.getCanvas());
+      // df.setVisible(true);
+      // float step = (float) 4 / max;
+      // for (int i = 0; i < max; i++) {
+      // // pos.setX(pos.getX());
+      // pos.setY(pos.getY() - step);
+      // // pos.setZ(pos.getZ());
+      // System.out.print("Snímek " + (i + 1) + "/" + max + " ... ");
+      // pred = System.currentTimeMillis();
+      // rt.renderScene(scene);
+      // po = System.currentTimeMillis();
+      // System.out.println((po - pred) + " ms");
+      // saveImageToFile(rt.getCanvas(), sceneName + "_fisheye_"
+      // + ((i < 10) ? ("00") : (i < 100) ? "0" : "") + i + ".bmp");
+      // df.repaint();
+      // }
+
+      // saveImageToFile(rt.getCanvas(), sceneName + "_fisheye.bmp");
+      //
+      // DrzkaFrame df = new DrzkaFrame(rt.getCanvas());
+      // df.setVisible(true);
+
+      // try {
+      // ImageIO.write(rt.getCanvas(), "bmp", new File("fisheye.bmp"));
+      // } catch (IOException e) {
+      // e.printStackTrace();
+      // }
+   }
+
+   /**
+    * Inicializuje jednotlivé kamery s danými rozměry rastru průmětny.
+    * 
+    * @param width
+    *           Šířka rastru průmětny kamery.
+    * @param height
+    *           Výška rastru průmětny kamery.
+    */
+   private void initCameras(int width, int height) {
+      Point3D cameraEyePosition = new Point3D(0.2f, 0.2f, 0.5f);
+      Point3D cameraTarget = new Point3D(1, 0, 0);
+      plainCamera = new PlainCamera(cameraEyePosition, cameraTarget, new Vector3(0, 0, 1), width, height);
+
+      float pi_4 = 0.785398163f;
+
+      pinholeCamera = new PinholeCamera(cameraEyePosition, cameraTarget, new Vector3(0, 0, 1f), width, height, pi_4);
+
+      fisheyeCamera = new FisheyeCamera(cameraEyePosition, cameraTarget, new Vector3(0, 0, 1), width, height);
+
+      // definice typu sférické kamery na 360˚
+      // fisheyeCamera.setCameraType(FisheyeCamera.CAMERA_TYPE_360);
+   }
+
+   /**
+    * Uloží daný rastr do daného souboru. Formát obrázku se určí podle přípony
+    * souboru (viz {@link ImageFileWriter}).
+    * 
+    * @param img
+    *           Rastr průmětny.
+    * @param filePath
+    *           Cesta k souboru obrázku, do kterého se má rastr uložit.
+    */
+   private void saveImageToFile(BufferedImage img, String filePath) {
+      try {
+         ImageFileWriter.write(img, new File(filePath));
+      } catch (IOException e) {
+         e.printStackTrace();
+      }
+   }
+
+   // /**
+   // *
+   // */
+   // private void initSceneMesto() {
+   // sceneMesto = new Scene();
+   //
+   // SecureRandom srg = new SecureRandom();
+   // srg.nextFloat();
+   // // objekty
+   //
+   // // podlaha
+   // TriMesh mesh = new TriMesh();
+   // float p = 3;
+   // float m = -3;
+   // Point3D vp1, vp2, vp3;
+   // vp1 = new Point3D(0, m, m);
+   // vp3 = new Point3D(0, m, p);
+   // vp2 = new Point3D(0, p, p);
+   // mesh.addTriangle(vp1, vp2, vp3);
+   // vp1 = new Point3D(0, m, m);
+   // vp2 = new Point3D(0, p, m);
+   // vp3 = new Point3D(0, p, p);
+   // mesh.addTriangle(vp1, vp2, vp3);
+   //
+   // sceneMesto.addObject(mesh);
+   //
+   // // domy
+   // // for (int i = 0; i < 1e2; i++) {
+   // // sceneMesto.addObject(new BoxTriMesh(new Point3D(4 * (srg
+   // // .nextFloat() - 0.5f), 4 * (srg.nextFloat() - 0.5f), 0),
+   // // 0.1f, (float) i / 120 + 0.1f, 0.1f));
+   // // }
+   //
+   // for (float i = -2f; i <= 2; i += 0.4f) {
+   // for (float j = -2; j <= 2; j += 0.4f) {
+   // float d = Math.abs(i * j) * 0.4f + 0.2f;
+   // sceneMesto.addObject(new BoxTriMesh(
+   // new Point3D(d / 2, (i /* * Math.random() */),
+   // (j /* * Math.random() */)), 0.07f, 0.07f, d));
+   // }
+   // }
+   //
+   // // svetlo
+   // sceneMesto.setAmbientLight(new ColorRGB(30, 30, 30));
+   // sceneMesto.setLight(0, new Light(new Point3D(4, -2, 1.5f), 5f,
+   // ColorRGB.white));
+   // }
+
+   /**
+    * Vytvoří a inicializuje scénu s kuličkami. (Čtvercová plocha, na které je
+    * rozmístěno 9 koulí (v matici 3x3). Nad deskou i kuličkami jsou umístěna 4
+    * všesměrová světla (červené, zelené, modré a bílé). Ambientní světlo je v
+    * nastaveno na hodnotu RGB = (20,&nbsp;20,&nbsp;20) a barva pozadí je černá
+    * RGB = (0,&nbsp;0,&nbsp;0)).
+    */
+   private void initSceneKulicky() {
+      sceneKulickyNadDeskou = ReferenceScenes.createKulicky();
+   }
+
+   /**
+    * Spouštěcí metoda programu - vstupní bod programu. Zpracuje parametry z
+    * příkazové řádky a na základě nich vytvoří instanci Demo aplikace. Program
+    * se pouští následujícím příkazem: <br >
+    * <code>Render &lt;screen width&gt; &lt;screen height&gt; &lt;plain|pinhole|fisheye&gt; [volby]</code><br />
+    * ,
+    * kde <br />
+    * &lt;screen width&gt; .... šířka rastru průmětny <br />
+    * &lt;screen height&gt; .... výška rastru průmětny <br />
+    * &lt;plain|pinhole|fisheye&gt; .... jedna z hodnot definující typ kamery <br />
+    * a volby jsou: <br />
+    * <code>-o &lt;soubor&gt;</code> .... uloží obrázek do souboru (PNG, BMP
+    * nebo PPM podle přípony) bez otevření okna <br />
+    * <code>-t &lt;počet&gt;</code> .... počet vykreslovacích vláken <br />
+    * <code>-s &lt;poloměr&gt;</code> .... poloměr mřížky vzorků vyhlazování,
+    * záporná hodnota vypne vyhlazování <br />
+    * <code>-a &lt;práh&gt;</code> .... adaptivní vyhlazování s daným prahem
+    * rozdílu barev <br />
+    * <code>-r &lt;hloubka&gt;</code> .... hloubka rekurze <br />
+    * <code>-shadows &lt;on|off&gt;</code> .... režim stínování <br />
+    * <code>-accel &lt;bvh|grid|linear&gt;</code> .... urychlovací struktura
+    * objektů scény <br />
+    * <code>-packet &lt;1|4|8|16&gt;</code> .... počet primárních paprsků
+    * sledovaných najednou <br />
+    * <code>-build &lt;sweep|binned|morton&gt;</code> .... metoda stavby
+    * hierarchií obalových kvádrů <br />
+    * <code>-frames &lt;počet&gt;</code> .... vykreslí průlet kamery daným
+    * počtem snímků, název souboru u volby <code>-o</code> je pak vzor pro
+    * {@link String#format(String, Object...)} (např.
+    * <code>frame_%04d.png</code>) <br />
+    * .
+    * 
+    * @param args
+    *           Parametry příkazové řádky.
+    */
+   public static void main(String[] args) {
+      if (args.length >= 3 && args.length % 2 == 1) {
+         int w, h;
+         CameraType cameraType = CameraType.FISHEYE;
+         Render render;
+         try {
+            w = Integer.valueOf(args[0]);
+            h = Integer.valueOf(args[1]);
+
+            if (args[2].equals("plain")) {
+               cameraType = CameraType.PLAIN;
+            } else if (args[2].equals("pinhole")) {
+               cameraType = CameraType.PINHOLE;
+            } else if (args[2].equals("fisheye")) {
+               cameraType = CameraType.FISHEYE;
+            }
+            render = new Render(w, h, cameraType);
+
+            for (int i = 3; i < args.length; i += 2) {
+               String value = args[i + 1];
+               if (args[i].equals("-o")) {
+                  render.outputFile = new File(value);
+                  ImageFileWriter.getFormat(render.outputFile);
+               } else if (args[i].equals("-frames")) {
+                  render.frameCount = Integer.valueOf(value);
+               } else if (args[i].equals("-t")) {
+                  render.threadCount = Math.max(1, Integer.valueOf(value));
+               } else if (args[i].equals("-s")) {
+                  render.superSamplingRadius = Integer.valueOf(value);
+               } else if (args[i].equals("-a")) {
+                  render.adaptiveThreshold = Float.valueOf(value);
+               } else if (args[i].equals("-r")) {
+                  render.recursionDeep = Integer.valueOf(value);
+               } else if (args[i].equals("-stats") && (value.equals("on") || value.equals("off"))) {
+                  render.printStatistics = value.equals("on");
+               } else if (args[i].equals("-cost") && (value.equals("tests") || value.equals("ns"))) {
+                  render.costMode = value.equals("tests") ? RayTracer.COST_TESTS : RayTracer.COST_NANOS;
+               } else if (args[i].equals("-accel")) {
+                  render.accelerationMode = RayTracer.getAccelerationMode(value);
+               } else if (args[i].equals("-packet") && value.matches("1|4|8|16")) {
+                  render.packetSize = Integer.valueOf(value);
+               } else if (args[i].equals("-build")) {
+                  render.buildMethod = BoundingVolumeHierarchy.getBuildMethod(value);
+               } else if (args[i].equals("-shadows") && (value.equals("on") || value.equals("off"))) {
+                  render.shadowMode = value.equals("on") ? RayTracer.SHADOWS_ON : RayTracer.SHADOWS_OFF;
+               } else {
+                  throw new IllegalArgumentException("Unknown option: " + args[i] + " " + value);
+               }
+            }
+            if (render.frameCount > 0 && (render.outputFile == null || !render.outputFile.getName().contains("%"))) {
+               throw new IllegalArgumentException("-frames needs -o with a frame number pattern, e.g. frame_%04d.png");
+            }
+         } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(1);
+            return;
+         }
+
+         if (render.outputFile != null) {
+            System.setProperty("java.awt.headless", "true");
+         }
+         try {
+            render.render();
+         } catch (IOException e) {
+            System.err.println("Cannot write image: " + e.getMessage());
+            System.exit(2);
+         } catch (InterruptedException e) {
+            System.err.println("Rendering interrupted");
+            System.exit(3);
+         }
+         return;
+      }
+      printUsage();
+   }
+
+   /**
+    * Vrací kvalitu hierarchie obalových kvádrů objektů scény pro výpis.
+    * 
+    * @param rt
+    *           Raytracer po vykreslení.
+    * @return Cena hierarchie podle SAH a její hloubka ve tvaru
+    *         <code> accel_sah=... accel_depth=...</code>, nebo prázdný
+    *         řetězec, pokud urychlovací strukturou není hierarchie.
+    */
+   private static String getHierarchyQuality(RayTracer rt) {
+      if (!(rt.getAccelerator() instanceof BoundingVolumeHierarchy)) {
+         return "";
+      }
+      BoundingVolumeHierarchy bvh = (BoundingVolumeHierarchy) rt.getAccelerator();
+      return String.format(Locale.ROOT, " accel_sah=%.2f accel_depth=%d", bvh.getSahCost(), bvh.getDepth());
+   }
+
+   /**
+    * Vrací soubor pro mapu ceny pixelů vedle daného výstupního souboru (jméno
+    * s příponou <code>_cost</code> před příponou formátu).
+    * 
+    * @param outputFile
+    *           Výstupní soubor obrázku.
+    * @return Soubor pro mapu ceny pixelů.
+    */
+   private static File getCostFile(File outputFile) {
+      String name = outputFile.getName();
+      int dot = name.lastIndexOf('.');
+      return new File(outputFile.getParentFile(), name.substring(0, dot) + "_cost" + name.substring(dot));
+   }
+
+   /**
+    * Vypíše nápovědu ke spuštění programu.
+    */
+   private static void printUsage() {
+      System.out.println("Usage: Render <screen width> <screen height> <plain|pinhole|fisheye> [options]");
+      System.out.println("Options:");
+      System.out.println("  -o <file>          render headless into a PNG, BMP or PPM file (by extension)");
+      System.out.println("  -t <threads>       number of render threads (default: number of CPUs)");
+      System.out.println("  -s <radius>        supersampling radius, (2r+1)^2 samples per pixel; negative = 1 ray per pixel (default: 1)");
+      System.out.println("  -a <threshold>     adaptive supersampling with the given colour threshold (0-255)");
+      System.out.println("  -r <depth>         recursion depth (default: 2)");
+      System.out.println("  -shadows <on|off>  shadow mode (default: on)");
+      System.out.println("  -accel <bvh|grid|linear>  acceleration structure over the scene objects (default: bvh)");
+      System.out.println("  -packet <1|4|8|16> primary rays traced together as one packet, 1 = each ray alone (default: 1)");
+      System.out.println("  -build <sweep|binned|morton>  BVH build method, from highest quality to fastest build (default: " + BoundingVolumeHierarchy.getBuildName(BoundingVolumeHierarchy.getDefaultBuildMethod()) + ")");
+      System.out.println("  -stats <on|off>    print ray, intersection and timing counters after the render (default: off)");
+      System.out.println("  -cost <tests|ns>   also write a false-colour per-pixel cost map (<file>_cost.<ext>)");
+      System.out.println("  -frames <count>    render a camera fly-through; -o is then a pattern such as frame_%04d.png");
+   }
+}
@@ -0,0 +1,96 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+
+/**
+ * Rozhraní urychlovací struktury nad množinou primitiv daných svými obalovými
+ * kvádry. Struktura určuje, s kterými primitivy má smysl počítat průsečík
+ * paprsku, vlastní průsečík s primitivem počítá {@link PrimitiveIntersector}.
+ * Implementace se postaví v konstruktoru, pak se už nemění a lze je souběžně
+ * procházet z více vláken.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public interface Accelerator {
+
+   /**
+    * Najde nejbližší průsečík daného paprsku s primitivy struktury.
+    * 
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku. Jeho vzdálenost omezuje
+    *           hledání, nalezený bližší průsečík se do něj zapíše.
+    * @param intersector
+    *           Výpočet průsečíku s jednotlivými primitivy.
+    * @return <code>true</code>, pokud byl nalezen průsečík bližší než
+    *         průsečík původně zaznamenaný v <code>hit</code>, jinak
+    *         <code>false</code>.
+    */
+   boolean closestHit(Ray ray, HitRecord hit, PrimitiveIntersector intersector);
+
+   /**
+    * Najde nejbližší průsečíky skupiny (paketu) paprsků s primitivy
+    * struktury. Pro každý paprsek je výsledek stejný, jako kdyby se hledal
+    * samostatně metodou
+    * {@link Accelerator#closestHit(Ray, HitRecord, PrimitiveIntersector)};
+    * implementace však mohou strukturu procházet pro celý paket najednou.
+    * 
+    * @param rays
+    *           Paprsky paketu.
+    * @param hits
+    *           Záznamy o dosud nejbližších průsečících, jeden pro každý
+    *           paprsek.
+    * @param count
+    *           Počet paprsků paketu (použije se prvních <code>count</code>
+    *           prvků obou polí).
+    * @param intersector
+    *           Výpočet průsečíku s jednotlivými primitivy.
+    */
+   void closestHits(Ray[] rays, HitRecord[] hits, int count, PrimitiveIntersector intersector);
+
+   /**
+    * Zjistí, zda-li daný paprsek protíná alespoň jedno primitivum struktury
+    * blíže, než je vzdálenost zaznamenaná v <code>hit</code>. Hledání končí u
+    * prvního nalezeného průsečíku bez ohledu na to, zda-li je nejbližší.
+    * 
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam, jehož vzdálenost omezuje hledání. Nalezený průsečík se
+    *           do něj zapíše.
+    * @param intersector
+    *           Výpočet průsečíku s jednotlivými primitivy.
+    * @return <code>true</code>, pokud byl nalezen průsečík, jinak
+    *         <code>false</code>.
+    */
+   boolean anyHit(Ray ray, HitRecord hit, PrimitiveIntersector intersector);
+
+   /**
+    * Vrací obalový kvádr všech primitiv struktury.
+    * 
+    * @return Obalový kvádr (prázdný pro prázdnou strukturu).
+    */
+   BoundingBox getBounds();
+
+   /**
+    * Vrací počet primitiv struktury.
+    * 
+    * @return Počet primitiv.
+    */
+   int getPrimitiveCount();
+
+   /**
+    * Vrací přibližnou velikost paměti, kterou struktura zabírá (bez
+    * primitiv samotných).
+    * 
+    * @return Odhad velikosti struktury v bajtech.
+    */
+   long getMemoryFootprint();
+}
@@ -0,0 +1,46 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+
+/**
+ * Pomocné metody společné urychlovacím strukturám.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+final class Accelerators {
+   /**
+    * Relativní rozšíření obalových kvádrů primitiv, které pokrývá
+    * zaokrouhlovací chyby výpočtu průsečíků.
+    */
+   static final float BOUNDS_EPSILON = 1e-5f;
+
+   /**
+    * Třída obsahuje jen statické metody.
+    */
+   private Accelerators() {
+   }
+
+   /**
+    * Vrací kopii obalového kvádru primitiva rozšířenou o
+    * {@link Accelerators#BOUNDS_EPSILON} největší absolutní souřadnice
+    * kvádru, aby paprsek zasahující primitivum těsně u okraje kvádr
+    * neminul.
+    * 
+    * @param box
+    *           Obalový kvádr primitiva.
+    * @return Rozšířená kopie kvádru.
+    */
+   static BoundingBox expandBounds(BoundingBox box) {
+      BoundingBox expanded = new BoundingBox(box);
+      float extent = 0;
+      for (int axis = 0; axis < 3; axis++) {
+         extent = Math.max(extent, Math.max(Math.abs(expanded.getMin(axis)), Math.abs(expanded.getMax(axis))));
+      }
+      expanded.expand(extent * BOUNDS_EPSILON + Float.MIN_NORMAL);
+      return expanded;
+   }
+}
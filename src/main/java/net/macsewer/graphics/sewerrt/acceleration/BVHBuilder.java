@@ -0,0 +1,810 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+
+/**
+ * Stavba stromu uzlů {@link BVHNode} hierarchie obalových kvádrů jednou z
+ * metod {@link BoundingVolumeHierarchy#BUILD_SWEEP},
+ * {@link BoundingVolumeHierarchy#BUILD_BINNED} a
+ * {@link BoundingVolumeHierarchy#BUILD_MORTON}. Podstromy nad velkými úseky
+ * primitiv se staví souběžně úlohami fork/join, metoda
+ * {@link BoundingVolumeHierarchy#BUILD_BINNED} navíc souběžně třídí primitiva
+ * velkých uzlů do přihrádek. Každý podstrom závisí jen na svém úseku
+ * primitiv, postavený strom proto na počtu vláken nezávisí.
+ * <p>
+ * Úlohy běží ve fondu vlákna, které stavbu spustilo (např. při líné stavbě
+ * hierarchie sítě ve vykreslovacím vlákně
+ * {@link net.macsewer.graphics.sewerrt.raytracer.RayTracer}), jinak ve
+ * sdíleném fondu {@link BuildPool}. Stavba si tak
+ * nevytváří vlastní fond a při vykreslování využije jen vlákna nastavená
+ * metodou {@link net.macsewer.graphics.sewerrt.raytracer.RayTracer#setThreadCount(int)}.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+final class BVHBuilder {
+
+   /**
+    * Počet přihrádek v každé ose při stavbě metodou
+    * {@link BoundingVolumeHierarchy#BUILD_BINNED}.
+    */
+   private static final int BIN_COUNT = 32;
+
+   /**
+    * Největší počet primitiv uzlu, jehož podstrom metoda
+    * {@link BoundingVolumeHierarchy#BUILD_BINNED} staví přesně jako metoda
+    * {@link BoundingVolumeHierarchy#BUILD_SWEEP}. U malých uzlů je řazení
+    * levnější než příprava přihrádek.
+    */
+   private static final int BINNED_SWEEP_SIZE = 32;
+
+   /**
+    * Nejmenší počet primitiv uzlu, jehož podstromy se staví souběžně.
+    */
+   private static final int PARALLEL_SUBTREE = 2048;
+
+   /**
+    * Největší počet primitiv, které do přihrádek třídí jedna úloha. Větší
+    * úseky se rozdělí mezi více úloh.
+    */
+   private static final int BINNING_CHUNK = 16384;
+
+   /**
+    * Počet hodnot pole {@link BVHBuilder#records} na primitivum.
+    */
+   private static final int RECORD_SIZE = 9;
+
+   /**
+    * Počet bitů Mortonova kódu v každé ose.
+    */
+   private static final int MORTON_BITS = 10;
+
+   /**
+    * Obalové kvádry primitiv.
+    */
+   private final BoundingBox[] bounds;
+
+   /**
+    * Středy obalových kvádrů primitiv v jednotlivých osách.
+    */
+   private final float[][] centroids;
+
+   /**
+    * Indexy primitiv. Stavba je přeuspořádá tak, že každý list odkazuje na
+    * souvislý úsek.
+    */
+   private final int[] primitives;
+
+   /**
+    * Největší počet primitiv v listu.
+    */
+   private final int maxLeafSize;
+
+   /**
+    * Metoda stavby.
+    */
+   private final int method;
+
+   /**
+    * Obalové kvádry a středy primitiv ve stejném pořadí jako
+    * {@link BVHBuilder#primitives}, devět hodnot
+    * <code>minX, minY, minZ, maxX, maxY, maxZ, x, y, z</code> na primitivum
+    * (jen pro metodu {@link BoundingVolumeHierarchy#BUILD_BINNED}). Rozdělení
+    * uzlu přesouvá záznamy spolu s indexy primitiv, takže se úseky čtou
+    * sekvenčně.
+    */
+   private float[] records;
+
+   /**
+    * Mortonovy kódy primitiv ve stejném pořadí jako
+    * {@link BVHBuilder#primitives} (jen pro metodu
+    * {@link BoundingVolumeHierarchy#BUILD_MORTON}).
+    */
+   private int[] mortonCodes;
+
+   /**
+    * Připraví stavbu hierarchie nad danými primitivy.
+    * 
+    * @param bounds
+    *           Obalové kvádry primitiv (indexované indexem primitiva).
+    * @param centroids
+    *           Středy obalových kvádrů primitiv v jednotlivých osách.
+    * @param primitives
+    *           Indexy primitiv, které stavba přeuspořádá.
+    * @param maxLeafSize
+    *           Největší počet primitiv v listu.
+    * @param method
+    *           Metoda stavby.
+    */
+   BVHBuilder(BoundingBox[] bounds, float[][] centroids, int[] primitives, int maxLeafSize, int method) {
+      this.bounds = bounds;
+      this.centroids = centroids;
+      this.primitives = primitives;
+      this.maxLeafSize = maxLeafSize;
+      this.method = method;
+   }
+
+   /**
+    * Postaví strom nad všemi primitivy. Malé stromy se staví v aktuálním
+    * vlákně, velké úlohami fork/join ve fondu aktuálního vlákna, nebo ve
+    * sdíleném fondu, pokud aktuální vlákno do žádného fondu nepatří.
+    * 
+    * @return Kořen stromu, nebo <code>null</code>, pokud nejsou žádná
+    *         primitiva.
+    */
+   BVHNode build() {
+      if (primitives.length == 0) {
+         return null;
+      }
+      if (method == BoundingVolumeHierarchy.BUILD_MORTON) {
+         sortByMortonCode();
+      } else if (method == BoundingVolumeHierarchy.BUILD_BINNED) {
+         records = new float[primitives.length * RECORD_SIZE];
+         for (int i = 0, r = 0; i < primitives.length; i++, r += RECORD_SIZE) {
+            int p = primitives[i];
+            for (int axis = 0; axis < 3; axis++) {
+               records[r + axis] = bounds[p].getMin(axis);
+               records[r + 3 + axis] = bounds[p].getMax(axis);
+               records[r + 6 + axis] = centroids[axis][p];
+            }
+         }
+      }
+      if (primitives.length < PARALLEL_SUBTREE) {
+         return build(0, primitives.length);
+      }
+      SubtreeTask task = new SubtreeTask(0, primitives.length);
+      return BuildPool.invoke(task);
+   }
+
+   /**
+    * Rekurzivně postaví podstrom nad úsekem <code>[start, end)</code> pole
+    * primitiv. Potomky velkých uzlů staví souběžně.
+    * 
+    * @param start
+    *           Začátek úseku (včetně).
+    * @param end
+    *           Konec úseku (vyjma).
+    * @return Kořen podstromu.
+    */
+   private BVHNode build(int start, int end) {
+      BVHNode node = new BVHNode(new BoundingBox());
+      int split;
+      if (method == BoundingVolumeHierarchy.BUILD_BINNED && end - start > BINNED_SWEEP_SIZE) {
+         split = binnedSplit(node, start, end);
+      } else {
+         for (int i = start; i < end; i++) {
+            node.include(bounds[primitives[i]]);
+         }
+         split = method == BoundingVolumeHierarchy.BUILD_MORTON ? mortonSplit(node, start, end) : sweepSplit(node, start, end);
+      }
+      if (split < 0) {
+         node.first = start;
+         node.count = end - start;
+         return node;
+      }
+      if (end - start >= PARALLEL_SUBTREE) {
+         SubtreeTask left = new SubtreeTask(start, split);
+         SubtreeTask right = new SubtreeTask(split, end);
+         ForkJoinTask.invokeAll(left, right);
+         node.left = left.join();
+         node.right = right.join();
+      } else {
+         node.left = build(start, split);
+         node.right = build(split, end);
+      }
+      return node;
+   }
+
+   /**
+    * Najde rozdělení uzlu s nejnižší cenou podle SAH mezi všemi rozděleními
+    * primitiv seřazených podle středů v jednotlivých osách.
+    * 
+    * @param node
+    *           Uzel s obalovým kvádrem úseku. Nastaví se mu osa rozdělení.
+    * @param start
+    *           Začátek úseku (včetně).
+    * @param end
+    *           Konec úseku (vyjma).
+    * @return Index prvního primitiva pravého potomka, nebo -1, pokud má být
+    *         uzel listem.
+    */
+   private int sweepSplit(BVHNode node, int start, int end) {
+      int count = end - start;
+      if (count == 1) {
+         return -1;
+      }
+
+      float[] rightArea = new float[count];
+      int[][] sorted = new int[3][];
+      float bestCost = Float.POSITIVE_INFINITY;
+      int bestAxis = -1;
+      int bestSplit = count / 2;
+      BoundingBox accumulated;
+      for (int axis = 0; axis < 3; axis++) {
+         sorted[axis] = Arrays.copyOfRange(primitives, start, end);
+         sortByKey(sorted[axis], centroids[axis]);
+
+         accumulated = new BoundingBox();
+         for (int i = count - 1; i > 0; i--) {
+            accumulated.include(bounds[sorted[axis][i]]);
+            rightArea[i] = accumulated.getSurfaceArea();
+         }
+         accumulated = new BoundingBox();
+         for (int i = 1; i < count; i++) {
+            accumulated.include(bounds[sorted[axis][i - 1]]);
+            float cost = accumulated.getSurfaceArea() * i + rightArea[i] * (count - i);
+            if (cost < bestCost) {
+               bestCost = cost;
+               bestAxis = axis;
+               bestSplit = i;
+            }
+         }
+      }
+
+      float area = node.getSurfaceArea();
+      if (count <= maxLeafSize && (area <= 0 || count <= BoundingVolumeHierarchy.TRAVERSAL_COST + bestCost / area)) {
+         return -1;
+      }
+
+      System.arraycopy(sorted[bestAxis], 0, primitives, start, count);
+      node.axis = bestAxis;
+      return start + bestSplit;
+   }
+
+   /**
+    * Najde rozdělení uzlu s nejnižší cenou podle SAH mezi hranicemi
+    * {@link BVHBuilder#BIN_COUNT} přihrádek stejné šířky, do kterých se
+    * primitiva roztřídí podle středů, a primitiva podle něj rozdělí. Obalové
+    * kvádry a přihrádky velkých úseků se počítají souběžně.
+    * 
+    * @param node
+    *           Prázdný uzel. Nastaví se mu obalový kvádr úseku a osa
+    *           rozdělení.
+    * @param start
+    *           Začátek úseku (včetně).
+    * @param end
+    *           Konec úseku (vyjma).
+    * @return Index prvního primitiva pravého potomka, nebo -1, pokud má být
+    *         uzel listem.
+    */
+   private int binnedSplit(BVHNode node, int start, int end) {
+      int count = end - start;
+      float[] range = new RangeTask(start, end).compute();
+      node.include(range[0], range[1], range[2]);
+      node.include(range[3], range[4], range[5]);
+
+      float[] origin = new float[3];
+      float[] scale = new float[3];
+      for (int axis = 0; axis < 3; axis++) {
+         float extent = range[9 + axis] - range[6 + axis];
+         origin[axis] = range[6 + axis];
+         scale[axis] = extent > 0 ? BIN_COUNT / extent : 0;
+      }
+      Bins bins = new BinningTask(start, end, origin, scale).compute();
+
+      // ceny rozdeleni na hranicich prihradek
+      float[] rightArea = new float[BIN_COUNT];
+      float bestCost = Float.POSITIVE_INFINITY;
+      int bestAxis = -1;
+      int bestBin = 0;
+      BoundingBox accumulated;
+      for (int axis = 0; axis < 3; axis++) {
+         if (scale[axis] == 0) {
+            continue;
+         }
+         accumulated = new BoundingBox();
+         for (int bin = BIN_COUNT - 1; bin > 0; bin--) {
+            bins.includeInto(accumulated, axis, bin);
+            rightArea[bin] = accumulated.getSurfaceArea();
+         }
+         accumulated = new BoundingBox();
+         int leftCount = 0;
+         for (int bin = 1; bin < BIN_COUNT; bin++) {
+            bins.includeInto(accumulated, axis, bin - 1);
+            leftCount += bins.counts[axis * BIN_COUNT + bin - 1];
+            if (leftCount == 0 || leftCount == count) {
+               continue;
+            }
+            float cost = accumulated.getSurfaceArea() * leftCount + rightArea[bin] * (count - leftCount);
+            if (cost < bestCost) {
+               bestCost = cost;
+               bestAxis = axis;
+               bestBin = bin;
+            }
+         }
+      }
+
+      float area = node.getSurfaceArea();
+      if (bestAxis < 0) {
+         // stredy vsech primitiv splyvaji, uzel se rozdeli v polovine
+         if (count <= maxLeafSize) {
+            return -1;
+         }
+         node.axis = longestAxis(node);
+         return start + count / 2;
+      }
+      if (count <= maxLeafSize && (area <= 0 || count <= BoundingVolumeHierarchy.TRAVERSAL_COST + bestCost / area)) {
+         return -1;
+      }
+
+      int i = start;
+      int j = end - 1;
+      while (i <= j) {
+         if (bin(i, bestAxis, origin, scale) < bestBin) {
+            i++;
+         } else {
+            swap(i, j--);
+         }
+      }
+      node.axis = bestAxis;
+      return i;
+   }
+
+   /**
+    * Prohodí dvě primitiva v poli {@link BVHBuilder#primitives} spolu s
+    * jejich záznamy v poli {@link BVHBuilder#records}.
+    * 
+    * @param i
+    *           Pozice prvního primitiva.
+    * @param j
+    *           Pozice druhého primitiva.
+    */
+   private void swap(int i, int j) {
+      int primitive = primitives[i];
+      primitives[i] = primitives[j];
+      primitives[j] = primitive;
+      for (int ri = i * RECORD_SIZE, rj = j * RECORD_SIZE, last = ri + RECORD_SIZE; ri < last; ri++, rj++) {
+         float value = records[ri];
+         records[ri] = records[rj];
+         records[rj] = value;
+      }
+   }
+
+   /**
+    * Vrací přihrádku, do které patří primitivum v dané ose.
+    * 
+    * @param position
+    *           Pozice primitiva v poli {@link BVHBuilder#primitives}.
+    * @param axis
+    *           Osa.
+    * @param origin
+    *           Počátky přihrádek v jednotlivých osách.
+    * @param scale
+    *           Převrácené šířky přihrádek v jednotlivých osách.
+    * @return Index přihrádky.
+    */
+   private int bin(int position, int axis, float[] origin, float[] scale) {
+      return Math.min((int) ((records[position * RECORD_SIZE + 6 + axis] - origin[axis]) * scale[axis]), BIN_COUNT - 1);
+   }
+
+   /**
+    * Seřadí primitiva podle Mortonových kódů středů jejich obalových kvádrů.
+    * Primitiva blízko sebe pak leží v souvislých úsecích a hierarchie se
+    * staví jen rozdělováním úseků podle bitů kódů.
+    */
+   private void sortByMortonCode() {
+      float[] origin = new float[3];
+      float[] scale = new float[3];
+      for (int axis = 0; axis < 3; axis++) {
+         float min = Float.POSITIVE_INFINITY;
+         float max = Float.NEGATIVE_INFINITY;
+         for (float centroid : centroids[axis]) {
+            min = Math.min(min, centroid);
+            max = Math.max(max, centroid);
+         }
+         origin[axis] = min;
+         scale[axis] = max > min ? ((1 << MORTON_BITS) - 1) / (max - min) : 0;
+      }
+      long[] packed = new long[primitives.length];
+      for (int i = 0; i < primitives.length; i++) {
+         int p = primitives[i];
+         int code = 0;
+         for (int axis = 0; axis < 3; axis++) {
+            int cell = Math.min((int) ((centroids[axis][p] - origin[axis]) * scale[axis]), (1 << MORTON_BITS) - 1);
+            code |= spreadBits(cell) << (2 - axis);
+         }
+         packed[i] = ((long) code << 32) | (p & 0xffffffffL);
+      }
+      Arrays.sort(packed);
+      mortonCodes = new int[primitives.length];
+      for (int i = 0; i < primitives.length; i++) {
+         primitives[i] = (int) packed[i];
+         mortonCodes[i] = (int) (packed[i] >>> 32);
+      }
+   }
+
+   /**
+    * Rozprostře dolních {@link BVHBuilder#MORTON_BITS} bitů hodnoty tak, že
+    * mezi každými dvěma sousedními bity jsou dva nulové.
+    * 
+    * @param value
+    *           Hodnota.
+    * @return Rozprostřené bity.
+    */
+   private static int spreadBits(int value) {
+      int v = value & 0x3ff;
+      v = (v | (v << 16)) & 0x030000ff;
+      v = (v | (v << 8)) & 0x0300f00f;
+      v = (v | (v << 4)) & 0x030c30c3;
+      v = (v | (v << 2)) & 0x09249249;
+      return v;
+   }
+
+   /**
+    * Rozdělí úsek primitiv seřazených podle Mortonových kódů na nejvyšším
+    * bitu, ve kterém se kódy úseku liší.
+    * 
+    * @param node
+    *           Uzel s obalovým kvádrem úseku. Nastaví se mu osa rozdělení.
+    * @param start
+    *           Začátek úseku (včetně).
+    * @param end
+    *           Konec úseku (vyjma).
+    * @return Index prvního primitiva pravého potomka, nebo -1, pokud má být
+    *         uzel listem.
+    */
+   private int mortonSplit(BVHNode node, int start, int end) {
+      int count = end - start;
+      if (count <= maxLeafSize) {
+         return -1;
+      }
+      int first = mortonCodes[start];
+      int last = mortonCodes[end - 1];
+      if (first == last) {
+         node.axis = longestAxis(node);
+         return start + count / 2;
+      }
+      int bit = 31 - Integer.numberOfLeadingZeros(first ^ last);
+      // kody useku se shoduji nad bitem, prvni kod ma bit nulovy a posledni
+      // jednickovy
+      int lo = start;
+      int hi = end - 1;
+      while (hi - lo > 1) {
+         int mid = (lo + hi) >>> 1;
+         if ((mortonCodes[mid] & (1 << bit)) != 0) {
+            hi = mid;
+         } else {
+            lo = mid;
+         }
+      }
+      node.axis = 2 - bit % 3;
+      return hi;
+   }
+
+   /**
+    * Vrací osu, ve které má obalový kvádr uzlu největší rozměr.
+    * 
+    * @param node
+    *           Uzel.
+    * @return Osa (0 = X, 1 = Y, 2 = Z).
+    */
+   private static int longestAxis(BVHNode node) {
+      int longest = 0;
+      for (int axis = 1; axis < 3; axis++) {
+         if (node.getMax(axis) - node.getMin(axis) > node.getMax(longest) - node.getMin(longest)) {
+            longest = axis;
+         }
+      }
+      return longest;
+   }
+
+   /**
+    * Seřadí indexy primitiv vzestupně podle daného klíče.
+    * 
+    * @param indices
+    *           Řazené indexy.
+    * @param keys
+    *           Klíče primitiv (indexované indexem primitiva).
+    */
+   private static void sortByKey(int[] indices, float[] keys) {
+      long[] packed = new long[indices.length];
+      for (int i = 0; i < indices.length; i++) {
+         int bits = Float.floatToIntBits(keys[indices[i]]);
+         bits ^= (bits >> 31) & 0x7fffffff;
+         packed[i] = ((long) bits << 32) | (indices[i] & 0xffffffffL);
+      }
+      Arrays.sort(packed);
+      for (int i = 0; i < indices.length; i++) {
+         indices[i] = (int) packed[i];
+      }
+   }
+
+   /**
+    * Stavba podstromu jako úloha fork/join.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private final class SubtreeTask extends RecursiveTask<BVHNode> {
+      /**
+       * ID pro serializaci.
+       */
+      private static final long serialVersionUID = -4328745316079886294L;
+
+      /**
+       * Začátek úseku (včetně).
+       */
+      private final int start;
+
+      /**
+       * Konec úseku (vyjma).
+       */
+      private final int end;
+
+      /**
+       * Vytvoří úlohu stavby podstromu nad úsekem pole primitiv.
+       * 
+       * @param start
+       *           Začátek úseku (včetně).
+       * @param end
+       *           Konec úseku (vyjma).
+       */
+      SubtreeTask(int start, int end) {
+         this.start = start;
+         this.end = end;
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see java.util.concurrent.RecursiveTask#compute()
+       */
+      @Override
+      protected BVHNode compute() {
+         return build(start, end);
+      }
+   }
+
+   /**
+    * Výpočet obalového kvádru úseku primitiv a kvádru jejich středů jako
+    * úloha fork/join. Výsledkem je pole
+    * <code>minX, minY, minZ, maxX, maxY, maxZ</code> obalového kvádru
+    * následované stejně uspořádanými mezemi středů.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private final class RangeTask extends RecursiveTask<float[]> {
+      /**
+       * ID pro serializaci.
+       */
+      private static final long serialVersionUID = 1009989081253823309L;
+
+      /**
+       * Začátek úseku (včetně).
+       */
+      private final int start;
+
+      /**
+       * Konec úseku (vyjma).
+       */
+      private final int end;
+
+      /**
+       * Vytvoří úlohu nad úsekem pole primitiv.
+       * 
+       * @param start
+       *           Začátek úseku (včetně).
+       * @param end
+       *           Konec úseku (vyjma).
+       */
+      RangeTask(int start, int end) {
+         this.start = start;
+         this.end = end;
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see java.util.concurrent.RecursiveTask#compute()
+       */
+      @Override
+      protected float[] compute() {
+         if (end - start > BINNING_CHUNK && ForkJoinTask.inForkJoinPool()) {
+            int middle = (start + end) >>> 1;
+            RangeTask left = new RangeTask(start, middle);
+            RangeTask right = new RangeTask(middle, end);
+            invokeAll(left, right);
+            float[] range = right.join();
+            float[] leftRange = left.join();
+            for (int k = 0; k < 12; k += 6) {
+               for (int axis = 0; axis < 3; axis++) {
+                  range[k + axis] = Math.min(range[k + axis], leftRange[k + axis]);
+                  range[k + 3 + axis] = Math.max(range[k + 3 + axis], leftRange[k + 3 + axis]);
+               }
+            }
+            return range;
+         }
+         float[] range = new float[12];
+         Arrays.fill(range, 0, 3, Float.POSITIVE_INFINITY);
+         Arrays.fill(range, 3, 6, Float.NEGATIVE_INFINITY);
+         Arrays.fill(range, 6, 9, Float.POSITIVE_INFINITY);
+         Arrays.fill(range, 9, 12, Float.NEGATIVE_INFINITY);
+         for (int r = start * RECORD_SIZE, last = end * RECORD_SIZE; r < last; r += RECORD_SIZE) {
+            for (int axis = 0; axis < 3; axis++) {
+               range[axis] = Math.min(range[axis], records[r + axis]);
+               range[3 + axis] = Math.max(range[3 + axis], records[r + 3 + axis]);
+               range[6 + axis] = Math.min(range[6 + axis], records[r + 6 + axis]);
+               range[9 + axis] = Math.max(range[9 + axis], records[r + 6 + axis]);
+            }
+         }
+         return range;
+      }
+   }
+
+   /**
+    * Přihrádky primitiv ve všech třech osách: počty primitiv a obalové
+    * kvádry primitiv jednotlivých přihrádek.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private static final class Bins {
+      /**
+       * Počty primitiv, přihrádka <code>bin</code> osy <code>axis</code> má
+       * index <code>axis * BIN_COUNT + bin</code>.
+       */
+      final int[] counts = new int[3 * BIN_COUNT];
+
+      /**
+       * Obalové kvádry primitiv přihrádek, šest hodnot
+       * <code>minX, minY, minZ, maxX, maxY, maxZ</code> na přihrádku ve
+       * stejném pořadí jako {@link Bins#counts}.
+       */
+      final float[] boxes = new float[3 * BIN_COUNT * 6];
+
+      /**
+       * Vytvoří prázdné přihrádky.
+       */
+      Bins() {
+         for (int b = 0; b < boxes.length; b += 6) {
+            Arrays.fill(boxes, b, b + 3, Float.POSITIVE_INFINITY);
+            Arrays.fill(boxes, b + 3, b + 6, Float.NEGATIVE_INFINITY);
+         }
+      }
+
+      /**
+       * Přidá obalový kvádr primitiva do přihrádky.
+       * 
+       * @param index
+       *           Index přihrádky (<code>axis * BIN_COUNT + bin</code>).
+       * @param records
+       *           Záznamy primitiv (viz {@link BVHBuilder#records}).
+       * @param record
+       *           Začátek záznamu primitiva.
+       */
+      void add(int index, float[] records, int record) {
+         counts[index]++;
+         int b = index * 6;
+         for (int axis = 0; axis < 3; axis++) {
+            boxes[b + axis] = Math.min(boxes[b + axis], records[record + axis]);
+            boxes[b + 3 + axis] = Math.max(boxes[b + 3 + axis], records[record + 3 + axis]);
+         }
+      }
+
+      /**
+       * Přidá do přihrádek obsah jiných přihrádek.
+       * 
+       * @param other
+       *           Přidávané přihrádky.
+       */
+      void merge(Bins other) {
+         for (int index = 0; index < counts.length; index++) {
+            counts[index] += other.counts[index];
+         }
+         for (int b = 0; b < boxes.length; b += 6) {
+            for (int axis = 0; axis < 3; axis++) {
+               boxes[b + axis] = Math.min(boxes[b + axis], other.boxes[b + axis]);
+               boxes[b + 3 + axis] = Math.max(boxes[b + 3 + axis], other.boxes[b + 3 + axis]);
+            }
+         }
+      }
+
+      /**
+       * Rozšíří kvádr o obalový kvádr neprázdné přihrádky.
+       * 
+       * @param box
+       *           Rozšiřovaný kvádr.
+       * @param axis
+       *           Osa přihrádky.
+       * @param bin
+       *           Index přihrádky v ose.
+       */
+      void includeInto(BoundingBox box, int axis, int bin) {
+         if (counts[axis * BIN_COUNT + bin] > 0) {
+            int b = (axis * BIN_COUNT + bin) * 6;
+            box.include(boxes[b], boxes[b + 1], boxes[b + 2]);
+            box.include(boxes[b + 3], boxes[b + 4], boxes[b + 5]);
+         }
+      }
+   }
+
+   /**
+    * Roztřídění úseku primitiv do přihrádek jako úloha fork/join. Úseky
+    * delší než {@link BVHBuilder#BINNING_CHUNK} se rozdělí na poloviny,
+    * jejichž přihrádky se nakonec sloučí.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private final class BinningTask extends RecursiveTask<Bins> {
+      /**
+       * ID pro serializaci.
+       */
+      private static final long serialVersionUID = 4124166108753111098L;
+
+      /**
+       * Začátek úseku (včetně).
+       */
+      private final int start;
+
+      /**
+       * Konec úseku (vyjma).
+       */
+      private final int end;
+
+      /**
+       * Počátky přihrádek v jednotlivých osách.
+       */
+      private final float[] origin;
+
+      /**
+       * Převrácené šířky přihrádek v jednotlivých osách (0 pro osu, ve které
+       * se nedělí).
+       */
+      private final float[] scale;
+
+      /**
+       * Vytvoří úlohu nad úsekem pole primitiv.
+       * 
+       * @param start
+       *           Začátek úseku (včetně).
+       * @param end
+       *           Konec úseku (vyjma).
+       * @param origin
+       *           Počátky přihrádek v jednotlivých osách.
+       * @param scale
+       *           Převrácené šířky přihrádek v jednotlivých osách.
+       */
+      BinningTask(int start, int end, float[] origin, float[] scale) {
+         this.start = start;
+         this.end = end;
+         this.origin = origin;
+         this.scale = scale;
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see java.util.concurrent.RecursiveTask#compute()
+       */
+      @Override
+      protected Bins compute() {
+         if (end - start > BINNING_CHUNK && ForkJoinTask.inForkJoinPool()) {
+            int middle = (start + end) >>> 1;
+            BinningTask left = new BinningTask(start, middle, origin, scale);
+            BinningTask right = new BinningTask(middle, end, origin, scale);
+            invokeAll(left, right);
+            Bins bins = right.join();
+            bins.merge(left.join());
+            return bins;
+         }
+         Bins bins = new Bins();
+         for (int i = start; i < end; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+               if (scale[axis] != 0) {
+                  bins.add(axis * BIN_COUNT + bin(i, axis, origin, scale), records, i * RECORD_SIZE);
+               }
+            }
+         }
+         return bins;
+      }
+   }
+}
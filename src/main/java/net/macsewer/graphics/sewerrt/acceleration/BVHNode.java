@@ -0,0 +1,63 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+
+/**
+ * Uzel hierarchie obalových kvádrů. Vnitřní uzel má dva potomky, list
+ * odkazuje na souvislý úsek pole primitiv hierarchie. Uzly se používají jen
+ * během stavby, postavená hierarchie je ukládá do polí (viz
+ * {@link BoundingVolumeHierarchy}).
+ * 
+ * @author Pavel Macík
+ * 
+ */
+class BVHNode extends BoundingBox {
+
+   /**
+    * Levý potomek (<code>null</code> u listu).
+    */
+   BVHNode left;
+
+   /**
+    * Pravý potomek (<code>null</code> u listu).
+    */
+   BVHNode right;
+
+   /**
+    * Osa (0 = X, 1 = Y, 2 = Z), podle které byla primitiva vnitřního uzlu
+    * rozdělena mezi potomky.
+    */
+   int axis;
+
+   /**
+    * Index prvního primitiva listu v poli primitiv hierarchie.
+    */
+   int first;
+
+   /**
+    * Počet primitiv v listu. Vnitřní uzel má hodnotu 0.
+    */
+   int count;
+
+   /**
+    * Vytvoří uzel s daným obalovým kvádrem.
+    * 
+    * @param bounds
+    *           Obalový kvádr uzlu.
+    */
+   BVHNode(BoundingBox bounds) {
+      super(bounds);
+   }
+
+   /**
+    * Vrací informaci o tom, zda-li je uzel listem.
+    * 
+    * @return <code>true</code>, pokud je uzel listem, jinak <code>false</code>.
+    */
+   boolean isLeaf() {
+      return count > 0;
+   }
+}
@@ -0,0 +1,738 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import java.util.Arrays;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.RenderStatistics;
+import net.macsewer.graphics.sewerrt.geometry.Vector3;
+
+/**
+ * Hierarchie obalových kvádrů (BVH) nad množinou primitiv daných svými
+ * obalovými kvádry. Hierarchie se staví heuristikou povrchu (SAH) a slouží k
+ * rychlému nalezení nejbližšího průsečíku paprsku s primitivy - místo všech
+ * primitiv se testují jen ta, jejichž obalové kvádry paprsek protíná.
+ * 
+ * Vlastní průsečík s primitivem počítá {@link PrimitiveIntersector}, takže
+ * hierarchii lze použít nad objekty scény i nad trojúhelníky jednoho objektu.
+ * Postavená hierarchie se nemění a lze ji souběžně procházet z více vláken.
+ * <p>
+ * Uzly se staví jako objekty {@link BVHNode}, po stavbě se ale uloží do dvou
+ * souvislých polí v pořadí průchodu do hloubky (levý potomek následuje hned
+ * za rodičem), takže průchod čte paměť převážně sekvenčně a nesleduje odkazy
+ * rozptýlené po haldě. Uzly čekající na průchod se ukládají do zásobníku
+ * indexů {@link TraversalStack}, který si vlákno alokuje jen jednou.
+ * <p>
+ * Metoda stavby volí mezi kvalitou hierarchie a dobou stavby (viz
+ * {@link BoundingVolumeHierarchy#BUILD_SWEEP},
+ * {@link BoundingVolumeHierarchy#BUILD_BINNED} a
+ * {@link BoundingVolumeHierarchy#BUILD_MORTON}). Velké hierarchie se staví
+ * souběžně ({@link BVHBuilder}). Doba stavby a kvalita postavené hierarchie
+ * (cena podle SAH a hloubka) se zaznamenají.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class BoundingVolumeHierarchy implements Accelerator {
+
+   /**
+    * Výchozí největší počet primitiv v listu.
+    */
+   public static final int DEFAULT_MAX_LEAF_SIZE = 4;
+
+   /**
+    * Největší počet paprsků paketu, který hierarchie prochází najednou
+    * (aktivní paprsky se evidují bitovou maskou typu <code>int</code>).
+    */
+   public static final int MAX_PACKET_SIZE = 32;
+
+   /**
+    * Stavba hledá rozdělení každého uzlu s nejnižší cenou podle SAH mezi
+    * všemi rozděleními primitiv seřazených v jednotlivých osách. Dává
+    * nejkvalitnější hierarchie, ale staví se nejdéle (každý uzel řadí svá
+    * primitiva).
+    */
+   public static final int BUILD_SWEEP = 0;
+
+   /**
+    * Stavba hledá rozdělení každého uzlu s nejnižší cenou podle SAH jen na
+    * hranicích 32 přihrádek stejné šířky v každé ose. Hierarchie je téměř
+    * stejně kvalitní jako při stavbě {@link BoundingVolumeHierarchy#BUILD_SWEEP}
+    * a staví se v lineárním čase na úroveň, u velkých uzlů souběžně.
+    */
+   public static final int BUILD_BINNED = 1;
+
+   /**
+    * Stavba seřadí primitiva podle Mortonových kódů středů a uzly rozděluje
+    * podle bitů kódů bez výpočtu ceny. Staví se nejrychleji, průchod
+    * hierarchií je ale pomalejší. Hodí se pro náhledy a často se měnící
+    * scény. Průsečíky ve shodné vzdálenosti (např. na společné hraně
+    * trojúhelníků) se mohou vyhodnotit v jiném pořadí než u ostatních metod,
+    * obraz se proto může v ojedinělých pixelech lišit.
+    */
+   public static final int BUILD_MORTON = 2;
+
+   /**
+    * Názvy metod stavby indexované metodou (pro volby příkazové řádky a
+    * výpisy).
+    */
+   private static final String[] BUILD_NAMES = { "sweep", "binned", "morton" };
+
+   /**
+    * Cena průchodu vnitřním uzlem vztažená k ceně testu průsečíku s
+    * primitivem.
+    */
+   static final float TRAVERSAL_COST = 1f;
+
+   /**
+    * Metoda stavby hierarchií vytvořených bez jejího určení.
+    */
+   private static volatile int defaultBuildMethod = BUILD_BINNED;
+
+   /**
+    * Počet hodnot pole {@link BoundingVolumeHierarchy#nodeBounds} na uzel.
+    */
+   private static final int BOUNDS_STRIDE = 6;
+
+   /**
+    * Počet hodnot pole {@link BoundingVolumeHierarchy#nodeLinks} na uzel.
+    */
+   private static final int LINKS_STRIDE = 2;
+
+   /**
+    * Obalové kvádry uzlů v pořadí průchodu do hloubky, pro každý uzel
+    * <code>minX, minY, minZ, maxX, maxY, maxZ</code>. Kořen má index 0
+    * (prázdná hierarchie nemá žádný uzel).
+    */
+   private float[] nodeBounds;
+
+   /**
+    * Odkazy uzlů, pro každý uzel dvě hodnoty. List má index prvního
+    * primitiva v poli {@link BoundingVolumeHierarchy#primitives} a (kladný)
+    * počet primitiv, vnitřní uzel index pravého potomka a záporně uloženou
+    * osu rozdělení <code>-1 - axis</code>. Levý potomek vnitřního uzlu
+    * následuje hned za ním.
+    */
+   private int[] nodeLinks;
+
+   /**
+    * Indexy primitiv seřazené tak, že každý list odkazuje na souvislý úsek.
+    */
+   private int[] primitives;
+
+   /**
+    * Největší počet primitiv v listu.
+    */
+   private int maxLeafSize;
+
+   /**
+    * Metoda stavby.
+    */
+   private int buildMethod;
+
+   /**
+    * Doba stavby hierarchie (ns).
+    */
+   private long buildNanos;
+
+   /**
+    * Cena hierarchie podle SAH.
+    */
+   private double sahCost;
+
+   /**
+    * Počet uzlů hierarchie.
+    */
+   private int nodeCount;
+
+   /**
+    * Hloubka hierarchie (počet hran na nejdelší cestě od kořene k listu).
+    */
+   private int depth;
+
+   /**
+    * Postaví hierarchii nad primitivy s danými obalovými kvádry s výchozím
+    * největším počtem primitiv v listu a výchozí metodou stavby.
+    * 
+    * @param primitiveBounds
+    *           Obalové kvádry primitiv. Index v poli je indexem primitiva.
+    */
+   public BoundingVolumeHierarchy(BoundingBox[] primitiveBounds) {
+      this(primitiveBounds, DEFAULT_MAX_LEAF_SIZE);
+   }
+
+   /**
+    * Postaví hierarchii nad primitivy s danými obalovými kvádry výchozí
+    * metodou stavby (viz
+    * {@link BoundingVolumeHierarchy#setDefaultBuildMethod(int)}).
+    * 
+    * @param primitiveBounds
+    *           Obalové kvádry primitiv. Index v poli je indexem primitiva.
+    * @param maxLeafSize
+    *           Největší počet primitiv v listu.
+    */
+   public BoundingVolumeHierarchy(BoundingBox[] primitiveBounds, int maxLeafSize) {
+      this(primitiveBounds, maxLeafSize, defaultBuildMethod);
+   }
+
+   /**
+    * Postaví hierarchii nad primitivy s danými obalovými kvádry.
+    * 
+    * @param primitiveBounds
+    *           Obalové kvádry primitiv. Index v poli je indexem primitiva.
+    * @param maxLeafSize
+    *           Největší počet primitiv v listu.
+    * @param buildMethod
+    *           Metoda stavby ({@link BoundingVolumeHierarchy#BUILD_SWEEP},
+    *           {@link BoundingVolumeHierarchy#BUILD_BINNED} nebo
+    *           {@link BoundingVolumeHierarchy#BUILD_MORTON}).
+    * @throws IllegalArgumentException
+    *            Pokud metoda stavby není platná.
+    */
+   public BoundingVolumeHierarchy(BoundingBox[] primitiveBounds, int maxLeafSize, int buildMethod) {
+      if (buildMethod < 0 || buildMethod >= BUILD_NAMES.length) {
+         throw new IllegalArgumentException("Unknown build method: " + buildMethod);
+      }
+      long buildStart = System.nanoTime();
+      this.maxLeafSize = Math.max(1, maxLeafSize);
+      this.buildMethod = buildMethod;
+      int count = primitiveBounds.length;
+      primitives = new int[count];
+      BoundingBox[] bounds = new BoundingBox[count];
+      float[][] centroids = new float[3][count];
+      for (int i = 0; i < count; i++) {
+         primitives[i] = i;
+         for (int axis = 0; axis < 3; axis++) {
+            centroids[axis][i] = primitiveBounds[i].getCenter(axis);
+         }
+         bounds[i] = Accelerators.expandBounds(primitiveBounds[i]);
+      }
+      nodeBounds = new float[0];
+      nodeLinks = new int[0];
+      BVHNode root = new BVHBuilder(bounds, centroids, primitives, this.maxLeafSize, buildMethod).build();
+      if (root != null) {
+         // uzlu je nejvyse 2n - 1, pole se po ulozeni zkrati
+         nodeBounds = new float[(2 * count - 1) * BOUNDS_STRIDE];
+         nodeLinks = new int[(2 * count - 1) * LINKS_STRIDE];
+         nodeCount = flatten(root, 0, 0);
+         nodeBounds = Arrays.copyOf(nodeBounds, nodeCount * BOUNDS_STRIDE);
+         nodeLinks = Arrays.copyOf(nodeLinks, nodeCount * LINKS_STRIDE);
+         float rootArea = root.getSurfaceArea();
+         sahCost = rootArea > 0 ? sahCost / rootArea : 0;
+      }
+      buildNanos = System.nanoTime() - buildStart;
+   }
+
+   /**
+    * Uloží podstrom daného uzlu do polí uzlů v pořadí průchodu do hloubky a
+    * připočte jeho uzly k hloubce a ceně hierarchie.
+    * 
+    * @param node
+    *           Kořen ukládaného podstromu.
+    * @param index
+    *           Index, na který se uzel uloží.
+    * @param level
+    *           Hloubka uzlu.
+    * @return Index prvního uzlu za uloženým podstromem.
+    */
+   private int flatten(BVHNode node, int index, int level) {
+      depth = Math.max(depth, level);
+      int b = index * BOUNDS_STRIDE;
+      for (int axis = 0; axis < 3; axis++) {
+         nodeBounds[b + axis] = node.getMin(axis);
+         nodeBounds[b + 3 + axis] = node.getMax(axis);
+      }
+      int l = index * LINKS_STRIDE;
+      if (node.isLeaf()) {
+         nodeLinks[l] = node.first;
+         nodeLinks[l + 1] = node.count;
+         sahCost += (double) node.getSurfaceArea() * node.count;
+         return index + 1;
+      }
+      sahCost += (double) node.getSurfaceArea() * TRAVERSAL_COST;
+      int right = flatten(node.left, index + 1, level + 1);
+      nodeLinks[l] = right;
+      nodeLinks[l + 1] = -1 - node.axis;
+      return flatten(node.right, right, level + 1);
+   }
+
+   /**
+    * Najde nejbližší průsečík daného paprsku s primitivy hierarchie. Uzly se
+    * procházejí od bližšího potomka ke vzdálenějšímu a uzly, do kterých
+    * paprsek vstupuje dále než je dosud nejbližší průsečík, se přeskakují.
+    * 
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku. Jeho vzdálenost omezuje
+    *           hledání, nalezený bližší průsečík se do něj zapíše.
+    * @param intersector
+    *           Výpočet průsečíku s jednotlivými primitivy.
+    * @return <code>true</code>, pokud byl nalezen průsečík bližší než
+    *         průsečík původně zaznamenaný v <code>hit</code>, jinak
+    *         <code>false</code>.
+    */
+   @Override
+   public boolean closestHit(Ray ray, HitRecord hit, PrimitiveIntersector intersector) {
+      return nodeCount > 0 && closestHit(0, ray, hit, intersector);
+   }
+
+   /**
+    * Najde nejbližší průsečík daného paprsku s primitivy podstromu daného
+    * uzlu.
+    * 
+    * @param start
+    *           Index kořene prohledávaného podstromu.
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku.
+    * @param intersector
+    *           Výpočet průsečíku s jednotlivými primitivy.
+    * @return <code>true</code>, pokud byl nalezen bližší průsečík, jinak
+    *         <code>false</code>.
+    */
+   private boolean closestHit(int start, Ray ray, HitRecord hit, PrimitiveIntersector intersector) {
+      Point3D origin = ray.getOrigin();
+      Vector3 direction = ray.getDirection();
+      float ox = origin.getX();
+      float oy = origin.getY();
+      float oz = origin.getZ();
+      float invX = 1 / direction.getX();
+      float invY = 1 / direction.getY();
+      float invZ = 1 / direction.getZ();
+
+      boolean found = false;
+      TraversalStack traversal = TraversalStack.get();
+      int base = traversal.reserve(depth + 2);
+      int[] stack = traversal.nodes;
+      int top = base;
+      stack[top++] = start;
+      int node, b, l, link;
+      boolean negative;
+
+      try {
+         while (top > base) {
+            node = stack[--top];
+            hit.countTest(RenderStatistics.BVH_NODE_VISITS);
+            b = node * BOUNDS_STRIDE;
+            if (BoundingBox.rayEntryDistance(nodeBounds[b], nodeBounds[b + 1], nodeBounds[b + 2], nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5], ox, oy, oz, invX, invY, invZ,
+                  hit.getDistance()) == Float.POSITIVE_INFINITY) {
+               continue;
+            }
+            l = node * LINKS_STRIDE;
+            link = nodeLinks[l + 1];
+            if (link > 0) {
+               for (int i = nodeLinks[l], last = nodeLinks[l] + link; i < last; i++) {
+                  if (intersector.intersect(primitives[i], ray, hit)) {
+                     found = true;
+                  }
+               }
+            } else {
+               negative = (link == -1) ? invX < 0 : (link == -2) ? invY < 0 : invZ < 0;
+               if (negative) {
+                  stack[top++] = node + 1;
+                  stack[top++] = nodeLinks[l];
+               } else {
+                  stack[top++] = nodeLinks[l];
+                  stack[top++] = node + 1;
+               }
+            }
+         }
+      } finally {
+         traversal.release(base);
+      }
+      return found;
+   }
+
+   /**
+    * Najde nejbližší průsečíky paketu paprsků s primitivy hierarchie.
+    * Hierarchie se prochází jednou pro celý paket. Každý uzel se nejprve
+    * otestuje intervalovou aritmetikou nad rozsahy výchozích bodů a
+    * převrácených směrů paprsků paketu (obdoba testu komolým jehlanem
+    * paketu): pokud kvádr uzlu jistě minou všechny paprsky, uzel se přeskočí,
+    * pokud jej jistě zasáhnou všechny, potomci se procházejí bez testů
+    * jednotlivých paprsků. Jen v ostatních případech se kvádr testuje pro
+    * každý aktivní paprsek zvlášť. Aktivní paprsky uzlu se evidují bitovou
+    * maskou, takže každý paprsek navštíví tytéž uzly ve stejném pořadí jako
+    * při samostatném průchodu a výsledek je s ním totožný. Podstrom, ve
+    * kterém zbyl jediný aktivní paprsek, se prochází samostatně. Implementuje-li
+    * výpočet průsečíku rozhraní {@link PacketIntersector}, testují se v listech
+    * všechny aktivní paprsky s primitivem jedním voláním.
+    * <p>
+    * Paket, jehož paprsky nemají stejná znaménka složek směru (nebo má
+    * některý paprsek složku směru nulovou), se rozpadne na samostatné
+    * paprsky, stejně jako paket s jediným paprskem nebo s více než
+    * {@link BoundingVolumeHierarchy#MAX_PACKET_SIZE} paprsky.
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#closestHits(net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int, net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector)
+    */
+   @Override
+   public void closestHits(Ray[] rays, HitRecord[] hits, int count, PrimitiveIntersector intersector) {
+      if (nodeCount == 0) {
+         return;
+      }
+      TraversalStack traversal = TraversalStack.get();
+      TraversalStack.PacketLanes lanes = traversal.reserveLanes();
+      float[] ox = lanes.ox, oy = lanes.oy, oz = lanes.oz;
+      float[] invX = lanes.invX, invY = lanes.invY, invZ = lanes.invZ;
+      float[] originLo = lanes.originLo, originHi = lanes.originHi;
+      float[] inverseLo = lanes.inverseLo, inverseHi = lanes.inverseHi;
+      boolean coherent = count > 1 && count <= MAX_PACKET_SIZE;
+      for (int k = 0; k < count && coherent; k++) {
+         Point3D origin = rays[k].getOrigin();
+         Vector3 direction = rays[k].getDirection();
+         ox[k] = origin.getX();
+         oy[k] = origin.getY();
+         oz[k] = origin.getZ();
+         invX[k] = 1 / direction.getX();
+         invY[k] = 1 / direction.getY();
+         invZ[k] = 1 / direction.getZ();
+         for (int axis = 0; axis < 3; axis++) {
+            float o = axis == 0 ? ox[k] : axis == 1 ? oy[k] : oz[k];
+            float inv = axis == 0 ? invX[k] : axis == 1 ? invY[k] : invZ[k];
+            if (Float.isInfinite(inv) || (k > 0 && (inv < 0) != (inverseLo[axis] < 0))) {
+               coherent = false;
+               break;
+            }
+            originLo[axis] = k == 0 ? o : Math.min(originLo[axis], o);
+            originHi[axis] = k == 0 ? o : Math.max(originHi[axis], o);
+            inverseLo[axis] = k == 0 ? inv : Math.min(inverseLo[axis], inv);
+            inverseHi[axis] = k == 0 ? inv : Math.max(inverseHi[axis], inv);
+         }
+      }
+      if (!coherent) {
+         traversal.releaseLanes(lanes);
+         for (int k = 0; k < count; k++) {
+            closestHit(rays[k], hits[k], intersector);
+         }
+         return;
+      }
+
+      PacketIntersector packetIntersector = intersector instanceof PacketIntersector ? (PacketIntersector) intersector : null;
+      int base = traversal.reserve(depth + 2);
+      int[] stack = traversal.nodes;
+      int[] masks = traversal.masks;
+      int top = base;
+      stack[top] = 0;
+      masks[top++] = count == 32 ? -1 : (1 << count) - 1;
+      int node, b, l, link, axis;
+      int mask;
+
+      try {
+         while (top > base) {
+            node = stack[--top];
+            mask = masks[top];
+            if ((mask & (mask - 1)) == 0) {
+               // zbyl jediny aktivni paprsek, podstrom projde samostatne
+               int k = Integer.numberOfTrailingZeros(mask);
+               closestHit(node, rays[k], hits[k], intersector);
+               continue;
+            }
+            hits[Integer.numberOfTrailingZeros(mask)].countTest(RenderStatistics.BVH_NODE_VISITS);
+
+            float minDistance = Float.POSITIVE_INFINITY;
+            float maxDistance = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+               float distance = hits[Integer.numberOfTrailingZeros(rest)].getDistance();
+               minDistance = Math.min(minDistance, distance);
+               maxDistance = Math.max(maxDistance, distance);
+            }
+
+            // intervalove meze vstupu do kvadru a vystupu z nej pres paket
+            b = node * BOUNDS_STRIDE;
+            float nearLo = 0, nearHi = 0, farLo = minDistance, farHi = maxDistance;
+            for (axis = 0; axis < 3; axis++) {
+               boolean negative = inverseLo[axis] < 0;
+               float entry = negative ? nodeBounds[b + 3 + axis] : nodeBounds[b + axis];
+               float exit = negative ? nodeBounds[b + axis] : nodeBounds[b + 3 + axis];
+               float entryLo = entry - originHi[axis], entryHi = entry - originLo[axis];
+               float exitLo = exit - originHi[axis], exitHi = exit - originLo[axis];
+               if (negative) {
+                  nearLo = Math.max(nearLo, entryHi * (entryHi >= 0 ? inverseLo[axis] : inverseHi[axis]));
+                  nearHi = Math.max(nearHi, entryLo * (entryLo >= 0 ? inverseHi[axis] : inverseLo[axis]));
+                  farLo = Math.min(farLo, exitHi * (exitHi >= 0 ? inverseLo[axis] : inverseHi[axis]));
+                  farHi = Math.min(farHi, exitLo * (exitLo >= 0 ? inverseHi[axis] : inverseLo[axis]));
+               } else {
+                  nearLo = Math.max(nearLo, entryLo * (entryLo >= 0 ? inverseLo[axis] : inverseHi[axis]));
+                  nearHi = Math.max(nearHi, entryHi * (entryHi >= 0 ? inverseHi[axis] : inverseLo[axis]));
+                  farLo = Math.min(farLo, exitLo * (exitLo >= 0 ? inverseLo[axis] : inverseHi[axis]));
+                  farHi = Math.min(farHi, exitHi * (exitHi >= 0 ? inverseHi[axis] : inverseLo[axis]));
+               }
+            }
+            if (nearLo > farHi) {
+               continue;
+            }
+            if (nearHi > farLo) {
+               int active = 0;
+               for (int rest = mask; rest != 0; rest &= rest - 1) {
+                  int k = Integer.numberOfTrailingZeros(rest);
+                  if (BoundingBox.rayEntryDistance(nodeBounds[b], nodeBounds[b + 1], nodeBounds[b + 2], nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5], ox[k], oy[k], oz[k],
+                        invX[k], invY[k], invZ[k], hits[k].getDistance()) != Float.POSITIVE_INFINITY) {
+                     active |= 1 << k;
+                  }
+               }
+               if (active == 0) {
+                  continue;
+               }
+               mask = active;
+            }
+
+            l = node * LINKS_STRIDE;
+            link = nodeLinks[l + 1];
+            if (link > 0) {
+               for (int i = nodeLinks[l], last = nodeLinks[l] + link; i < last; i++) {
+                  if (packetIntersector != null) {
+                     packetIntersector.intersect(primitives[i], rays, hits, mask);
+                     continue;
+                  }
+                  for (int rest = mask; rest != 0; rest &= rest - 1) {
+                     int k = Integer.numberOfTrailingZeros(rest);
+                     intersector.intersect(primitives[i], rays[k], hits[k]);
+                  }
+               }
+            } else {
+               if (inverseLo[-1 - link] < 0) {
+                  stack[top] = node + 1;
+                  masks[top++] = mask;
+                  stack[top] = nodeLinks[l];
+                  masks[top++] = mask;
+               } else {
+                  stack[top] = nodeLinks[l];
+                  masks[top++] = mask;
+                  stack[top] = node + 1;
+                  masks[top++] = mask;
+               }
+            }
+         }
+      } finally {
+         traversal.release(base);
+         traversal.releaseLanes(lanes);
+      }
+   }
+
+   /**
+    * Zjistí, zda-li daný paprsek protíná alespoň jedno primitivum hierarchie
+    * blíže, než je vzdálenost zaznamenaná v <code>hit</code>. Průchod končí u
+    * prvního nalezeného průsečíku bez ohledu na to, zda-li je nejbližší.
+    * 
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam, jehož vzdálenost omezuje hledání. Nalezený průsečík se
+    *           do něj zapíše.
+    * @param intersector
+    *           Výpočet průsečíku s jednotlivými primitivy.
+    * @return <code>true</code>, pokud byl nalezen průsečík, jinak
+    *         <code>false</code>.
+    */
+   @Override
+   public boolean anyHit(Ray ray, HitRecord hit, PrimitiveIntersector intersector) {
+      if (nodeCount == 0) {
+         return false;
+      }
+
+      Point3D origin = ray.getOrigin();
+      Vector3 direction = ray.getDirection();
+      float ox = origin.getX();
+      float oy = origin.getY();
+      float oz = origin.getZ();
+      float invX = 1 / direction.getX();
+      float invY = 1 / direction.getY();
+      float invZ = 1 / direction.getZ();
+
+      TraversalStack traversal = TraversalStack.get();
+      int base = traversal.reserve(depth + 2);
+      int[] stack = traversal.nodes;
+      int top = base;
+      stack[top++] = 0;
+      int node, b, l, link;
+
+      try {
+         while (top > base) {
+            node = stack[--top];
+            hit.countTest(RenderStatistics.BVH_NODE_VISITS);
+            b = node * BOUNDS_STRIDE;
+            if (BoundingBox.rayEntryDistance(nodeBounds[b], nodeBounds[b + 1], nodeBounds[b + 2], nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5], ox, oy, oz, invX, invY, invZ,
+                  hit.getDistance()) == Float.POSITIVE_INFINITY) {
+               continue;
+            }
+            l = node * LINKS_STRIDE;
+            link = nodeLinks[l + 1];
+            if (link > 0) {
+               for (int i = nodeLinks[l], last = nodeLinks[l] + link; i < last; i++) {
+                  if (intersector.intersect(primitives[i], ray, hit)) {
+                     return true;
+                  }
+               }
+            } else {
+               stack[top++] = nodeLinks[l];
+               stack[top++] = node + 1;
+            }
+         }
+      } finally {
+         traversal.release(base);
+      }
+      return false;
+   }
+
+   /**
+    * Vrací obalový kvádr všech primitiv hierarchie.
+    * 
+    * @return Obalový kvádr hierarchie (prázdný pro prázdnou hierarchii).
+    */
+   @Override
+   public BoundingBox getBounds() {
+      BoundingBox result = new BoundingBox();
+      if (nodeCount > 0) {
+         result.include(nodeBounds[0], nodeBounds[1], nodeBounds[2]);
+         result.include(nodeBounds[3], nodeBounds[4], nodeBounds[5]);
+      }
+      return result;
+   }
+
+   /**
+    * Vrací počet primitiv hierarchie.
+    * 
+    * @return Počet primitiv.
+    */
+   @Override
+   public int getPrimitiveCount() {
+      return primitives.length;
+   }
+
+   /**
+    * Vrací přibližnou velikost paměti, kterou zabírají pole uzlů hierarchie a
+    * pole indexů primitiv.
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#getMemoryFootprint()
+    */
+   @Override
+   public long getMemoryFootprint() {
+      return MemoryEstimate.array(nodeBounds.length, 4) + MemoryEstimate.array(nodeLinks.length, 4) + MemoryEstimate.array(primitives.length, 4);
+   }
+
+   /**
+    * Vrací počet uzlů hierarchie.
+    * 
+    * @return Počet uzlů.
+    */
+   public int getNodeCount() {
+      return nodeCount;
+   }
+
+   /**
+    * Vrací hloubku hierarchie.
+    * 
+    * @return Počet hran na nejdelší cestě od kořene k listu.
+    */
+   public int getDepth() {
+      return depth;
+   }
+
+   /**
+    * Vrací největší počet primitiv v listu.
+    * 
+    * @return Největší počet primitiv v listu.
+    */
+   public int getMaxLeafSize() {
+      return maxLeafSize;
+   }
+
+   /**
+    * Vrací metodu, kterou byla hierarchie postavena.
+    * 
+    * @return {@link BoundingVolumeHierarchy#BUILD_SWEEP},
+    *         {@link BoundingVolumeHierarchy#BUILD_BINNED} nebo
+    *         {@link BoundingVolumeHierarchy#BUILD_MORTON}.
+    */
+   public int getBuildMethod() {
+      return buildMethod;
+   }
+
+   /**
+    * Vrací dobu stavby hierarchie včetně uložení uzlů do polí.
+    * 
+    * @return Doba stavby v nanosekundách.
+    */
+   public long getBuildNanos() {
+      return buildNanos;
+   }
+
+   /**
+    * Vrací cenu hierarchie podle SAH: očekávaný počet průchodů vnitřními uzly
+    * (s cenou {@link BoundingVolumeHierarchy#TRAVERSAL_COST}) a testů
+    * průsečíků s primitivy pro paprsek, který protíná obalový kvádr
+    * hierarchie. Nižší cena znamená kvalitnější hierarchii.
+    * 
+    * @return Cena hierarchie (0 pro prázdnou hierarchii).
+    */
+   public double getSahCost() {
+      return sahCost;
+   }
+
+   /**
+    * Vrací metodu stavby hierarchií vytvořených bez jejího určení.
+    * 
+    * @return Výchozí metoda stavby.
+    */
+   public static int getDefaultBuildMethod() {
+      return defaultBuildMethod;
+   }
+
+   /**
+    * Nastavuje metodu stavby hierarchií vytvořených bez jejího určení, tedy
+    * hierarchie objektů scény v {@link net.macsewer.graphics.sewerrt.raytracer.RayTracer}
+    * i hierarchií trojúhelníků sítí. Umožňuje stavět rychle pro náhledy a
+    * kvalitně pro výsledné vykreslení. Už postavené hierarchie se nemění.
+    * 
+    * @param buildMethod
+    *           {@link BoundingVolumeHierarchy#BUILD_SWEEP},
+    *           {@link BoundingVolumeHierarchy#BUILD_BINNED} nebo
+    *           {@link BoundingVolumeHierarchy#BUILD_MORTON}.
+    * @throws IllegalArgumentException
+    *            Pokud metoda stavby není platná.
+    */
+   public static void setDefaultBuildMethod(int buildMethod) {
+      if (buildMethod < 0 || buildMethod >= BUILD_NAMES.length) {
+         throw new IllegalArgumentException("Unknown build method: " + buildMethod);
+      }
+      defaultBuildMethod = buildMethod;
+   }
+
+   /**
+    * Vrací název metody stavby.
+    * 
+    * @param buildMethod
+    *           Metoda stavby (např. {@link BoundingVolumeHierarchy#BUILD_BINNED}).
+    * @return Název metody (<code>sweep</code>, <code>binned</code> nebo
+    *         <code>morton</code>).
+    */
+   public static String getBuildName(int buildMethod) {
+      return BUILD_NAMES[buildMethod];
+   }
+
+   /**
+    * Vrací metodu stavby daného názvu.
+    * 
+    * @param name
+    *           Název metody (<code>sweep</code>, <code>binned</code> nebo
+    *           <code>morton</code>).
+    * @return Metoda stavby (např. {@link BoundingVolumeHierarchy#BUILD_BINNED}).
+    * @throws IllegalArgumentException
+    *            Pokud metoda daného názvu neexistuje.
+    */
+   public static int getBuildMethod(String name) {
+      for (int method = 0; method < BUILD_NAMES.length; method++) {
+         if (BUILD_NAMES[method].equals(name)) {
+            return method;
+         }
+      }
+      throw new IllegalArgumentException("Unknown build method: " + name);
+   }
+}
@@ -0,0 +1,52 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Fond vláken sdílený stavbami hierarchií ({@link BVHBuilder}) a sítí
+ * trojúhelníků ({@link net.macsewer.graphics.sewerrt.geometry.TriMeshBuilder}).
+ * Úlohy spuštěné z vlákna fondu fork/join běží v tomto fondu, ostatní ve
+ * sdíleném fondu, který má jedno vlákno na procesor a vytváří se až při
+ * prvním použití; jeho vlákna jsou démony a po nečinnosti zanikají. Proces
+ * tak má pro stavby jediný fond.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public final class BuildPool {
+
+   /**
+    * Třída obsahuje jen statické metody.
+    */
+   private BuildPool() {
+   }
+
+   /**
+    * Provede úlohu ve fondu aktuálního vlákna, pokud do nějakého patří, jinak
+    * ve sdíleném fondu, a počká na její výsledek.
+    * 
+    * @param task
+    *           Úloha.
+    * @return Výsledek úlohy.
+    */
+   public static <T> T invoke(ForkJoinTask<T> task) {
+      return ForkJoinTask.inForkJoinPool() ? task.invoke() : Holder.POOL.invoke(task);
+   }
+
+   /**
+    * Líně vytvářený sdílený fond vláken.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private static final class Holder {
+      /**
+       * Sdílený fond vláken.
+       */
+      static final ForkJoinPool POOL = new ForkJoinPool();
+   }
+}
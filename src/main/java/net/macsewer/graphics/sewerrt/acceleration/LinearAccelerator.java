@@ -0,0 +1,172 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.RenderStatistics;
+import net.macsewer.graphics.sewerrt.geometry.Vector3;
+
+/**
+ * Urychlovací struktura bez prostorového dělení, která slouží jako základ
+ * pro srovnání s ostatními strukturami. Paprsek se testuje proti obalovým
+ * kvádrům všech primitiv; při hledání nejbližšího průsečíku se pak primitiva,
+ * jejichž kvádry paprsek protíná, testují od nejbližšího a hledání končí,
+ * jakmile je nalezený průsečík bližší než vstup do kvádru dalšího primitiva.
+ * Stavba spočívá jen ve zkopírování obalových kvádrů. Seřazení kandidáti se
+ * ukládají do zásobníku {@link TraversalStack} vlákna, takže se pro paprsek
+ * nic nealokuje.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class LinearAccelerator implements Accelerator {
+
+   /**
+    * Obalové kvádry primitiv.
+    */
+   private final BoundingBox[] boxes;
+
+   /**
+    * Obalový kvádr všech primitiv.
+    */
+   private final BoundingBox bounds = new BoundingBox();
+
+   /**
+    * Počet primitiv.
+    */
+   private final int primitiveCount;
+
+   /**
+    * Vytvoří strukturu nad primitivy s danými obalovými kvádry.
+    * 
+    * @param primitiveBounds
+    *           Obalové kvádry primitiv. Index v poli je indexem primitiva.
+    */
+   public LinearAccelerator(BoundingBox[] primitiveBounds) {
+      primitiveCount = primitiveBounds.length;
+      boxes = new BoundingBox[primitiveCount];
+      for (int i = 0; i < primitiveCount; i++) {
+         BoundingBox box = Accelerators.expandBounds(primitiveBounds[i]);
+         bounds.include(box);
+         boxes[i] = box;
+      }
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#closestHit(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord, net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector)
+    */
+   @Override
+   public boolean closestHit(Ray ray, HitRecord hit, PrimitiveIntersector intersector) {
+      Point3D o = ray.getOrigin();
+      Vector3 d = ray.getDirection();
+      float ox = o.getX(), oy = o.getY(), oz = o.getZ();
+      float invX = 1 / d.getX(), invY = 1 / d.getY(), invZ = 1 / d.getZ();
+
+      // primitiva, jejichz kvadry paprsek protina, serazena podle vstupu
+      TraversalStack traversal = TraversalStack.get();
+      int base = traversal.reserve(primitiveCount);
+      try {
+         int[] candidates = traversal.nodes;
+         float[] entries = traversal.distances;
+         int end = base;
+         for (int k = 0; k < primitiveCount; k++) {
+            hit.countTest(RenderStatistics.BOUNDING_BOX_TESTS);
+            float entry = boxes[k].rayEntryDistance(ox, oy, oz, invX, invY, invZ, hit.getDistance());
+            if (entry == Float.POSITIVE_INFINITY) {
+               hit.count(RenderStatistics.BOUNDING_BOX_REJECTIONS);
+               continue;
+            }
+            int i = end++;
+            while (i > base && entries[i - 1] > entry) {
+               entries[i] = entries[i - 1];
+               candidates[i] = candidates[i - 1];
+               i--;
+            }
+            entries[i] = entry;
+            candidates[i] = k;
+         }
+
+         // vnorene pruchody si vyhradi ramce nad timto, kandidati se neprepisi
+         boolean found = false;
+         for (int i = base; i < end && entries[i] < hit.getDistance(); i++) {
+            if (intersector.intersect(candidates[i], ray, hit)) {
+               found = true;
+            }
+         }
+         return found;
+      } finally {
+         traversal.release(base);
+      }
+   }
+
+   /**
+    * Paprsky paketu se hledají jeden po druhém, procházení všech kvádrů
+    * společné paprskům paketu nic neušetří.
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#closestHits(net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int, net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector)
+    */
+   @Override
+   public void closestHits(Ray[] rays, HitRecord[] hits, int count, PrimitiveIntersector intersector) {
+      for (int k = 0; k < count; k++) {
+         closestHit(rays[k], hits[k], intersector);
+      }
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#anyHit(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord, net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector)
+    */
+   @Override
+   public boolean anyHit(Ray ray, HitRecord hit, PrimitiveIntersector intersector) {
+      Point3D o = ray.getOrigin();
+      Vector3 d = ray.getDirection();
+      float ox = o.getX(), oy = o.getY(), oz = o.getZ();
+      float invX = 1 / d.getX(), invY = 1 / d.getY(), invZ = 1 / d.getZ();
+      for (int k = 0; k < primitiveCount; k++) {
+         hit.countTest(RenderStatistics.BOUNDING_BOX_TESTS);
+         if (boxes[k].rayEntryDistance(ox, oy, oz, invX, invY, invZ, hit.getDistance()) == Float.POSITIVE_INFINITY) {
+            hit.count(RenderStatistics.BOUNDING_BOX_REJECTIONS);
+         } else if (intersector.intersect(k, ray, hit)) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#getBounds()
+    */
+   @Override
+   public BoundingBox getBounds() {
+      return new BoundingBox(bounds);
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#getPrimitiveCount()
+    */
+   @Override
+   public int getPrimitiveCount() {
+      return primitiveCount;
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#getMemoryFootprint()
+    */
+   @Override
+   public long getMemoryFootprint() {
+      return MemoryEstimate.referenceArray(boxes.length) + (boxes.length + 1) * MemoryEstimate.BOUNDING_BOX;
+   }
+}
@@ -0,0 +1,63 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+/**
+ * Odhad velikosti objektů a polí urychlovacích struktur v paměti. Odhad
+ * předpokládá 64bitový virtuální stroj s komprimovanými ukazateli (hlavička
+ * objektu 12 bajtů, hlavička pole 16 bajtů, odkaz 4 bajty, zarovnání na 8
+ * bajtů), skutečná velikost se může mírně lišit.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+final class MemoryEstimate {
+
+   /**
+    * Velikost objektu {@link net.macsewer.graphics.sewerrt.geometry.BoundingBox}
+    * (hlavička a šest složek typu <code>float</code>).
+    */
+   static final long BOUNDING_BOX = align(12 + 6 * 4);
+
+   /**
+    * Třída obsahuje jen statické metody.
+    */
+   private MemoryEstimate() {
+   }
+
+   /**
+    * Vrací velikost pole primitivního typu.
+    * 
+    * @param length
+    *           Délka pole.
+    * @param elementSize
+    *           Velikost prvku v bajtech.
+    * @return Velikost pole v bajtech.
+    */
+   static long array(long length, int elementSize) {
+      return align(16 + length * elementSize);
+   }
+
+   /**
+    * Vrací velikost pole odkazů (bez odkazovaných objektů).
+    * 
+    * @param length
+    *           Délka pole.
+    * @return Velikost pole v bajtech.
+    */
+   static long referenceArray(long length) {
+      return array(length, 4);
+   }
+
+   /**
+    * Zarovná velikost objektu na násobek osmi bajtů.
+    * 
+    * @param size
+    *           Velikost v bajtech.
+    * @return Zarovnaná velikost.
+    */
+   private static long align(long size) {
+      return (size + 7) & ~7L;
+   }
+}
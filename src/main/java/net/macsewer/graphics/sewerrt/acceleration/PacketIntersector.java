@@ -0,0 +1,44 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+
+/**
+ * Rozšíření výpočtu průsečíku o test více paprsků paketu s jedním primitivem
+ * najednou. Urychlovací struktura, která prochází paket paprsků společně (viz
+ * {@link Accelerator#closestHits(Ray[], HitRecord[], int, PrimitiveIntersector)}),
+ * za běhu ověří, zda-li výpočet průsečíku toto rozhraní implementuje, a pokud
+ * ano, předá mu v listech všechny aktivní paprsky paketu jedním voláním. Data
+ * primitiva se tak načtou a předzpracují jednou pro celý paket. Jinak se
+ * paprsky testují jeden po druhém metodou
+ * {@link PrimitiveIntersector#intersect(int, Ray, HitRecord)}.
+ * <p>
+ * Výsledek musí být pro každý paprsek totožný s výsledkem samostatného testu.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public interface PacketIntersector extends PrimitiveIntersector {
+
+   /**
+    * Určí průsečíky paprsků paketu daných maskou s primitivem. Průsečík, který
+    * je blíže než průsečík zaznamenaný v záznamu paprsku, se do záznamu
+    * zapíše.
+    * 
+    * @param primitive
+    *           Index primitiva.
+    * @param rays
+    *           Paprsky paketu.
+    * @param hits
+    *           Záznamy o dosud nejbližších průsečících paprsků paketu.
+    * @param mask
+    *           Bitová maska testovaných paprsků (bit <code>k</code> odpovídá
+    *           paprsku <code>rays[k]</code>).
+    * @return Bitová maska paprsků, jejichž záznam byl přepsán bližším
+    *         průsečíkem.
+    */
+   int intersect(int primitive, Ray[] rays, HitRecord[] hits, int mask);
+}
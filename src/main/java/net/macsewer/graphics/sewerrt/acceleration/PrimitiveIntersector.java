@@ -0,0 +1,37 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+
+/**
+ * Rozhraní pro výpočet průsečíku paprsku s jedním primitivem (objektem scény,
+ * trojúhelníkem, ...), které volá urychlovací struktura při průchodu svými
+ * listy. Primitiva jsou určena indexem, pod kterým byla do struktury vložena.
+ * Implementace nemají vlastní stav vázaný na paprsek, výsledek se zapisuje do
+ * záznamu {@link HitRecord}.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public interface PrimitiveIntersector {
+
+   /**
+    * Určí průsečík daného paprsku s primitivem. Pokud je průsečík blíže než
+    * průsečík zaznamenaný v <code>hit</code>, implementace jej do záznamu
+    * zapíše. Při hledání libovolného průsečíku (test zastínění) nemusí být
+    * zapsaný průsečík nejbližší průsečík s primitivem.
+    * 
+    * @param primitive
+    *           Index primitiva.
+    * @param ray
+    *           Paprsek, s nímž je průsečík určován.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku.
+    * @return <code>true</code>, pokud byl záznam přepsán bližším průsečíkem,
+    *         jinak <code>false</code>.
+    */
+   boolean intersect(int primitive, Ray ray, HitRecord hit);
+}
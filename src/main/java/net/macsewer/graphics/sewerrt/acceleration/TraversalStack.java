@@ -0,0 +1,219 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import java.util.Arrays;
+
+/**
+ * Zásobník uzlů pro průchod hierarchií, sdílený všemi průchody jednoho
+ * vlákna, aby se pro každý paprsek nealokoval nový. Průchod si na začátku
+ * vyhradí úsek zásobníku (rámec) a na konci jej uvolní. Průchody vnořené do
+ * výpočtu průsečíku s primitivem (např. hierarchie trojúhelníků objektu
+ * uvnitř hierarchie objektů scény) si vyhradí rámec nad ním.
+ * <p>
+ * Při zvětšení zásobníku se pole nahradí většími, rozpracované průchody ale
+ * dál používají pole, která si načetly při vyhrazení rámce, takže se jejich
+ * data neztratí.
+ * <p>
+ * Stejně se vyhrazují i dráhy paketu ({@link PacketLanes}) pro průchod
+ * hierarchií paketem paprsků.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+final class TraversalStack {
+   /**
+    * Zásobníky jednotlivých vláken.
+    */
+   private static final ThreadLocal<TraversalStack> STACKS = new ThreadLocal<TraversalStack>() {
+      @Override
+      protected TraversalStack initialValue() {
+         return new TraversalStack();
+      }
+   };
+
+   /**
+    * Indexy uzlů.
+    */
+   int[] nodes = new int[256];
+
+   /**
+    * Bitové masky aktivních paprsků paketu pro uložené uzly.
+    */
+   int[] masks = new int[256];
+
+   /**
+    * Vzdálenosti vstupu paprsku do kvádrů uložených uzlů či primitiv (např.
+    * pro řazení kandidátů v {@link LinearAccelerator}).
+    */
+   float[] distances = new float[256];
+
+   /**
+    * Začátek volné části zásobníku.
+    */
+   private int top;
+
+   /**
+    * Dráhy paketů, vytvářené až při prvním použití.
+    */
+   private PacketLanes[] lanes = new PacketLanes[4];
+
+   /**
+    * Počet vyhrazených drah paketů.
+    */
+   private int lanesTop;
+
+   /**
+    * Vytvoří prázdný zásobník.
+    */
+   private TraversalStack() {
+   }
+
+   /**
+    * Vrací zásobník aktuálního vlákna.
+    * 
+    * @return Zásobník aktuálního vlákna.
+    */
+   static TraversalStack get() {
+      return STACKS.get();
+   }
+
+   /**
+    * Vyhradí rámec dané velikosti. Pole {@link TraversalStack#nodes},
+    * {@link TraversalStack#masks} a {@link TraversalStack#distances} je nutné
+    * načíst až po vyhrazení.
+    * 
+    * @param size
+    *           Velikost rámce.
+    * @return Index začátku rámce.
+    */
+   int reserve(int size) {
+      int base = top;
+      top += size;
+      if (top > nodes.length) {
+         int length = Math.max(top, nodes.length * 2);
+         int[] newNodes = new int[length];
+         int[] newMasks = new int[length];
+         float[] newDistances = new float[length];
+         System.arraycopy(nodes, 0, newNodes, 0, base);
+         System.arraycopy(masks, 0, newMasks, 0, base);
+         System.arraycopy(distances, 0, newDistances, 0, base);
+         nodes = newNodes;
+         masks = newMasks;
+         distances = newDistances;
+      }
+      return base;
+   }
+
+   /**
+    * Uvolní rámec vyhrazený metodou {@link TraversalStack#reserve(int)} (a
+    * všechny rámce nad ním).
+    * 
+    * @param base
+    *           Index začátku rámce.
+    */
+   void release(int base) {
+      top = base;
+   }
+
+   /**
+    * Vyhradí dráhy pro průchod paketem paprsků.
+    * 
+    * @return Vyhrazené dráhy.
+    */
+   PacketLanes reserveLanes() {
+      if (lanesTop == lanes.length) {
+         lanes = Arrays.copyOf(lanes, lanesTop * 2);
+      }
+      PacketLanes packet = lanes[lanesTop];
+      if (packet == null) {
+         packet = new PacketLanes(lanesTop);
+         lanes[lanesTop] = packet;
+      }
+      lanesTop++;
+      return packet;
+   }
+
+   /**
+    * Uvolní dráhy vyhrazené metodou {@link TraversalStack#reserveLanes()} (a
+    * všechny dráhy vyhrazené po nich).
+    * 
+    * @param packet
+    *           Uvolňované dráhy.
+    */
+   void releaseLanes(PacketLanes packet) {
+      lanesTop = packet.level;
+   }
+
+   /**
+    * Výchozí body a převrácené směry paprsků paketu a jejich rozsahy pro
+    * intervalový test uzlů.
+    */
+   static final class PacketLanes {
+      /**
+       * Pořadí drah v zásobníku.
+       */
+      private final int level;
+
+      /**
+       * Souřadnice X výchozích bodů.
+       */
+      final float[] ox = new float[BoundingVolumeHierarchy.MAX_PACKET_SIZE];
+
+      /**
+       * Souřadnice Y výchozích bodů.
+       */
+      final float[] oy = new float[BoundingVolumeHierarchy.MAX_PACKET_SIZE];
+
+      /**
+       * Souřadnice Z výchozích bodů.
+       */
+      final float[] oz = new float[BoundingVolumeHierarchy.MAX_PACKET_SIZE];
+
+      /**
+       * Převrácené složky X směrů.
+       */
+      final float[] invX = new float[BoundingVolumeHierarchy.MAX_PACKET_SIZE];
+
+      /**
+       * Převrácené složky Y směrů.
+       */
+      final float[] invY = new float[BoundingVolumeHierarchy.MAX_PACKET_SIZE];
+
+      /**
+       * Převrácené složky Z směrů.
+       */
+      final float[] invZ = new float[BoundingVolumeHierarchy.MAX_PACKET_SIZE];
+
+      /**
+       * Nejmenší souřadnice výchozích bodů v jednotlivých osách.
+       */
+      final float[] originLo = new float[3];
+
+      /**
+       * Největší souřadnice výchozích bodů v jednotlivých osách.
+       */
+      final float[] originHi = new float[3];
+
+      /**
+       * Nejmenší převrácené složky směrů v jednotlivých osách.
+       */
+      final float[] inverseLo = new float[3];
+
+      /**
+       * Největší převrácené složky směrů v jednotlivých osách.
+       */
+      final float[] inverseHi = new float[3];
+
+      /**
+       * Vytvoří dráhy daného pořadí.
+       * 
+       * @param level
+       *           Pořadí drah v zásobníku.
+       */
+      private PacketLanes(int level) {
+         this.level = level;
+      }
+   }
+}
@@ -0,0 +1,541 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import java.util.Arrays;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.RenderStatistics;
+import net.macsewer.graphics.sewerrt.geometry.Vector3;
+
+/**
+ * Pravidelná mřížka (uniform grid) nad množinou primitiv daných svými
+ * obalovými kvádry. Obalový kvádr všech primitiv se rozdělí na buňky stejné
+ * velikosti a každá buňka si pamatuje primitiva, jejichž obalové kvádry do ní
+ * zasahují. Paprsek prochází buňky v pořadí, ve kterém jimi prochází
+ * (algoritmus 3D-DDA), a testuje jen primitiva v navštívených buňkách.
+ * <p>
+ * Mřížka se staví výrazně rychleji než hierarchie obalových kvádrů a pro
+ * scény s rovnoměrně rozmístěnými objekty (např. město z pravidelně
+ * rozmístěných domů) je i rychlejší při průchodu. Pro scény s velmi
+ * nerovnoměrným rozmístěním objektů je naopak vhodnější
+ * {@link BoundingVolumeHierarchy}. Postavená mřížka se nemění a lze ji
+ * souběžně procházet z více vláken.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class UniformGrid implements Accelerator {
+
+   /**
+    * Výchozí průměrný počet buněk na jedno primitivum.
+    */
+   public static final float DEFAULT_DENSITY = 2f;
+
+   /**
+    * Největší počet buněk mřížky v jedné ose.
+    */
+   public static final int MAX_RESOLUTION = 128;
+
+   /**
+    * Velikost schránky (mailbox) naposledy testovaných primitiv, která brání
+    * opakovanému testu primitiva zasahujícího do více buněk (mocnina dvou).
+    */
+   private static final int MAILBOX_SIZE = 16;
+
+   /**
+    * Schránky jednotlivých vláken.
+    */
+   private static final ThreadLocal<Mailbox> MAILBOXES = new ThreadLocal<Mailbox>() {
+      @Override
+      protected Mailbox initialValue() {
+         return new Mailbox();
+      }
+   };
+
+   /**
+    * Obalový kvádr mřížky.
+    */
+   private final BoundingBox bounds;
+
+   /**
+    * Počet buněk v jednotlivých osách.
+    */
+   private final int[] resolution = new int[3];
+
+   /**
+    * Počátek mřížky v jednotlivých osách.
+    */
+   private final float[] origin = new float[3];
+
+   /**
+    * Velikost buňky v jednotlivých osách.
+    */
+   private final float[] cellSize = new float[3];
+
+   /**
+    * Začátky seznamů primitiv jednotlivých buněk v poli
+    * {@link UniformGrid#cellPrimitives}. Buňka <code>(x, y, z)</code> má
+    * index <code>(z * resolutionY + y) * resolutionX + x</code>, její seznam
+    * končí začátkem seznamu následující buňky.
+    */
+   private int[] cellStart;
+
+   /**
+    * Indexy primitiv všech buněk uložené za sebou.
+    */
+   private int[] cellPrimitives;
+
+   /**
+    * Počet primitiv mřížky.
+    */
+   private final int primitiveCount;
+
+   /**
+    * Postaví mřížku nad primitivy s danými obalovými kvádry s automaticky
+    * zvoleným rozlišením (viz {@link UniformGrid#DEFAULT_DENSITY}).
+    * 
+    * @param primitiveBounds
+    *           Obalové kvádry primitiv. Index v poli je indexem primitiva.
+    */
+   public UniformGrid(BoundingBox[] primitiveBounds) {
+      this(primitiveBounds, DEFAULT_DENSITY);
+   }
+
+   /**
+    * Postaví mřížku nad primitivy s danými obalovými kvádry. Rozlišení se
+    * volí tak, aby buňky byly co nejblíže krychlím a mřížka měla přibližně
+    * <code>density</code> krát více buněk než primitiv, nejvýše však
+    * {@link UniformGrid#MAX_RESOLUTION} buněk v jedné ose.
+    * 
+    * @param primitiveBounds
+    *           Obalové kvádry primitiv. Index v poli je indexem primitiva.
+    * @param density
+    *           Průměrný počet buněk na jedno primitivum.
+    */
+   public UniformGrid(BoundingBox[] primitiveBounds, float density) {
+      primitiveCount = primitiveBounds.length;
+      BoundingBox[] expanded = new BoundingBox[primitiveCount];
+      bounds = new BoundingBox();
+      for (int i = 0; i < primitiveCount; i++) {
+         expanded[i] = Accelerators.expandBounds(primitiveBounds[i]);
+         bounds.include(expanded[i]);
+      }
+      if (primitiveCount == 0) {
+         cellStart = new int[1];
+         cellPrimitives = new int[0];
+         return;
+      }
+
+      chooseResolution(Math.max(density, 1e-3f));
+      for (int axis = 0; axis < 3; axis++) {
+         origin[axis] = bounds.getMin(axis);
+         cellSize[axis] = (bounds.getMax(axis) - origin[axis]) / resolution[axis];
+      }
+
+      // dva pruchody: pocty primitiv v bunkach, pak jejich indexy
+      int cellCount = resolution[0] * resolution[1] * resolution[2];
+      cellStart = new int[cellCount + 1];
+      int[] range = new int[6];
+      for (int i = 0; i < primitiveCount; i++) {
+         cellRange(expanded[i], range);
+         for (int z = range[2]; z <= range[5]; z++) {
+            for (int y = range[1]; y <= range[4]; y++) {
+               for (int x = range[0]; x <= range[3]; x++) {
+                  cellStart[cellIndex(x, y, z) + 1]++;
+               }
+            }
+         }
+      }
+      for (int c = 0; c < cellCount; c++) {
+         cellStart[c + 1] += cellStart[c];
+      }
+      cellPrimitives = new int[cellStart[cellCount]];
+      int[] fill = new int[cellCount];
+      for (int i = 0; i < primitiveCount; i++) {
+         cellRange(expanded[i], range);
+         for (int z = range[2]; z <= range[5]; z++) {
+            for (int y = range[1]; y <= range[4]; y++) {
+               for (int x = range[0]; x <= range[3]; x++) {
+                  int cell = cellIndex(x, y, z);
+                  cellPrimitives[cellStart[cell] + fill[cell]++] = i;
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Zvolí rozlišení mřížky podle počtu primitiv a rozměrů obalového kvádru.
+    * Buňky jsou přibližně krychle a je jich přibližně <code>density</code>
+    * krát více než primitiv. Osa, ve které je mřížka (téměř) plochá, má
+    * jedinou buňku a do výpočtu hustoty se nezapočítává.
+    * 
+    * @param density
+    *           Průměrný počet buněk na jedno primitivum.
+    */
+   private void chooseResolution(float density) {
+      float[] extent = new float[3];
+      float maxExtent = 0;
+      for (int axis = 0; axis < 3; axis++) {
+         extent[axis] = bounds.getMax(axis) - bounds.getMin(axis);
+         maxExtent = Math.max(maxExtent, extent[axis]);
+      }
+      // ploche osy se nepocitaji do objemu, jinak by vysla nulova hustota
+      double volume = 1;
+      int dimensions = 0;
+      for (int axis = 0; axis < 3; axis++) {
+         if (extent[axis] > maxExtent * 1e-3f) {
+            volume *= extent[axis];
+            dimensions++;
+         }
+      }
+      double cellsPerUnit = maxExtent > 0 ? Math.pow(density * primitiveCount / volume, 1.0 / dimensions) : 0;
+      for (int axis = 0; axis < 3; axis++) {
+         int cells = (int) Math.round(extent[axis] * cellsPerUnit);
+         resolution[axis] = Math.max(1, Math.min(MAX_RESOLUTION, cells));
+      }
+   }
+
+   /**
+    * Určí rozsah buněk, do kterých zasahuje daný kvádr.
+    * 
+    * @param box
+    *           Kvádr.
+    * @param range
+    *           Pole pro výsledek: nejmenší indexy buněk v osách X, Y, Z a pak
+    *           největší indexy buněk v osách X, Y, Z (včetně).
+    */
+   private void cellRange(BoundingBox box, int[] range) {
+      for (int axis = 0; axis < 3; axis++) {
+         range[axis] = cellCoordinate(box.getMin(axis), axis);
+         range[axis + 3] = cellCoordinate(box.getMax(axis), axis);
+      }
+   }
+
+   /**
+    * Vrací index buňky, do které v dané ose padne daná souřadnice. Souřadnice
+    * mimo mřížku se přiřadí krajní buňce.
+    * 
+    * @param value
+    *           Souřadnice.
+    * @param axis
+    *           Osa (0 = X, 1 = Y, 2 = Z).
+    * @return Index buňky v dané ose.
+    */
+   private int cellCoordinate(float value, int axis) {
+      int cell = cellSize[axis] > 0 ? (int) ((value - origin[axis]) / cellSize[axis]) : 0;
+      return Math.max(0, Math.min(resolution[axis] - 1, cell));
+   }
+
+   /**
+    * Vrací index buňky v polích mřížky.
+    * 
+    * @param x
+    *           Index buňky v ose X.
+    * @param y
+    *           Index buňky v ose Y.
+    * @param z
+    *           Index buňky v ose Z.
+    * @return Index buňky.
+    */
+   private int cellIndex(int x, int y, int z) {
+      return (z * resolution[1] + y) * resolution[0] + x;
+   }
+
+   /**
+    * Najde nejbližší průsečík daného paprsku s primitivy mřížky. Buňky se
+    * procházejí od výchozího bodu paprsku a průchod končí v buňce, před
+    * jejímž koncem leží dosud nejbližší průsečík.
+    * 
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku. Jeho vzdálenost omezuje
+    *           hledání, nalezený bližší průsečík se do něj zapíše.
+    * @param intersector
+    *           Výpočet průsečíku s jednotlivými primitivy.
+    * @return <code>true</code>, pokud byl nalezen průsečík bližší než
+    *         průsečík původně zaznamenaný v <code>hit</code>, jinak
+    *         <code>false</code>.
+    */
+   @Override
+   public boolean closestHit(Ray ray, HitRecord hit, PrimitiveIntersector intersector) {
+      return traverse(ray, hit, intersector, false);
+   }
+
+   /**
+    * Paprsky paketu se hledají jeden po druhém, každý paprsek prochází mřížkou
+    * po vlastní posloupnosti buněk.
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#closestHits(net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int, net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector)
+    */
+   @Override
+   public void closestHits(Ray[] rays, HitRecord[] hits, int count, PrimitiveIntersector intersector) {
+      for (int k = 0; k < count; k++) {
+         closestHit(rays[k], hits[k], intersector);
+      }
+   }
+
+   /**
+    * Zjistí, zda-li daný paprsek protíná alespoň jedno primitivum mřížky
+    * blíže, než je vzdálenost zaznamenaná v <code>hit</code>. Průchod končí u
+    * prvního nalezeného průsečíku bez ohledu na to, zda-li je nejbližší.
+    * 
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam, jehož vzdálenost omezuje hledání. Nalezený průsečík se
+    *           do něj zapíše.
+    * @param intersector
+    *           Výpočet průsečíku s jednotlivými primitivy.
+    * @return <code>true</code>, pokud byl nalezen průsečík, jinak
+    *         <code>false</code>.
+    */
+   @Override
+   public boolean anyHit(Ray ray, HitRecord hit, PrimitiveIntersector intersector) {
+      return traverse(ray, hit, intersector, true);
+   }
+
+   /**
+    * Prochází buňky mřížky podél paprsku algoritmem 3D-DDA. Průchod nic
+    * nealokuje: stav průchodu je v lokálních proměnných a schránka
+    * testovaných primitiv se sdílí všemi průchody vlákna (viz
+    * {@link Mailbox}).
+    * 
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku.
+    * @param intersector
+    *           Výpočet průsečíku s jednotlivými primitivy.
+    * @param anyHit
+    *           Příznak ukončení průchodu u prvního nalezeného průsečíku.
+    * @return <code>true</code>, pokud byl nalezen průsečík, jinak
+    *         <code>false</code>.
+    */
+   private boolean traverse(Ray ray, HitRecord hit, PrimitiveIntersector intersector, boolean anyHit) {
+      if (primitiveCount == 0) {
+         return false;
+      }
+      Point3D o = ray.getOrigin();
+      Vector3 d = ray.getDirection();
+      float ox = o.getX();
+      float oy = o.getY();
+      float oz = o.getZ();
+      float dx = d.getX();
+      float dy = d.getY();
+      float dz = d.getZ();
+      float invX = 1 / dx;
+      float invY = 1 / dy;
+      float invZ = 1 / dz;
+      float entry = bounds.rayEntryDistance(ox, oy, oz, invX, invY, invZ, hit.getDistance());
+      if (entry == Float.POSITIVE_INFINITY) {
+         return false;
+      }
+
+      // vstupni bunka a vzdalenosti k nejblizsim hranicim bunek v osach
+      int x = cellCoordinate(ox + dx * entry, 0);
+      int y = cellCoordinate(oy + dy * entry, 1);
+      int z = cellCoordinate(oz + dz * entry, 2);
+      int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+      int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+      int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+      int limitX = stepX > 0 ? resolution[0] : -1;
+      int limitY = stepY > 0 ? resolution[1] : -1;
+      int limitZ = stepZ > 0 ? resolution[2] : -1;
+      float nextX = nextBoundary(x, stepX, ox, invX, 0);
+      float nextY = nextBoundary(y, stepY, oy, invY, 1);
+      float nextZ = nextBoundary(z, stepZ, oz, invZ, 2);
+      float deltaX = stepX > 0 ? cellSize[0] * invX : stepX < 0 ? -cellSize[0] * invX : 0;
+      float deltaY = stepY > 0 ? cellSize[1] * invY : stepY < 0 ? -cellSize[1] * invY : 0;
+      float deltaZ = stepZ > 0 ? cellSize[2] * invZ : stepZ < 0 ? -cellSize[2] * invZ : 0;
+
+      Mailbox mailbox = MAILBOXES.get();
+      int epoch = mailbox.nextEpoch();
+      int[] tested = mailbox.primitives;
+      int[] epochs = mailbox.epochs;
+      boolean found = false;
+      while (true) {
+         hit.countTest(RenderStatistics.GRID_CELL_VISITS);
+         int index = cellIndex(x, y, z);
+         for (int i = cellStart[index], last = cellStart[index + 1]; i < last; i++) {
+            int primitive = cellPrimitives[i];
+            int slot = primitive & (MAILBOX_SIZE - 1);
+            if (epochs[slot] == epoch && tested[slot] == primitive) {
+               continue;
+            }
+            epochs[slot] = epoch;
+            tested[slot] = primitive;
+            if (intersector.intersect(primitive, ray, hit)) {
+               if (anyHit) {
+                  return true;
+               }
+               found = true;
+            }
+         }
+
+         // posun do sousedni bunky v ose s nejblizsi hranici; prusecik (nebo
+         // konec hledani) pred koncem bunky ukonci pruchod
+         if (nextX < nextY && nextX < nextZ) {
+            if (nextX >= hit.getDistance()) {
+               return found;
+            }
+            x += stepX;
+            if (x == limitX) {
+               return found;
+            }
+            nextX += deltaX;
+         } else if (nextY < nextZ) {
+            if (nextY >= hit.getDistance()) {
+               return found;
+            }
+            y += stepY;
+            if (y == limitY) {
+               return found;
+            }
+            nextY += deltaY;
+         } else {
+            if (nextZ >= hit.getDistance()) {
+               return found;
+            }
+            z += stepZ;
+            if (z == limitZ) {
+               return found;
+            }
+            nextZ += deltaZ;
+         }
+      }
+   }
+
+   /**
+    * Vrací vzdálenost (v parametru paprsku) k hranici buňky, kterou paprsek z
+    * dané buňky v dané ose vystoupí.
+    * 
+    * @param cell
+    *           Index buňky v dané ose.
+    * @param step
+    *           Směr postupu paprsku v dané ose (1, -1, nebo 0).
+    * @param position
+    *           Souřadnice výchozího bodu paprsku v dané ose.
+    * @param inverse
+    *           Převrácená hodnota složky směru paprsku v dané ose.
+    * @param axis
+    *           Osa (0 = X, 1 = Y, 2 = Z).
+    * @return Vzdálenost k hranici, nebo nekonečno, pokud je paprsek s osou
+    *         kolmý.
+    */
+   private float nextBoundary(int cell, int step, float position, float inverse, int axis) {
+      if (step > 0) {
+         return (origin[axis] + (cell + 1) * cellSize[axis] - position) * inverse;
+      } else if (step < 0) {
+         return (origin[axis] + cell * cellSize[axis] - position) * inverse;
+      }
+      return Float.POSITIVE_INFINITY;
+   }
+
+   /**
+    * Vrací obalový kvádr všech primitiv mřížky.
+    * 
+    * @return Obalový kvádr mřížky (prázdný pro prázdnou mřížku).
+    */
+   @Override
+   public BoundingBox getBounds() {
+      return new BoundingBox(bounds);
+   }
+
+   /**
+    * Vrací počet primitiv mřížky.
+    * 
+    * @return Počet primitiv.
+    */
+   @Override
+   public int getPrimitiveCount() {
+      return primitiveCount;
+   }
+
+   /**
+    * Vrací přibližnou velikost paměti, kterou zabírají seznamy primitiv
+    * buněk.
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.Accelerator#getMemoryFootprint()
+    */
+   @Override
+   public long getMemoryFootprint() {
+      return MemoryEstimate.array(cellStart.length, 4) + MemoryEstimate.array(cellPrimitives.length, 4) + MemoryEstimate.BOUNDING_BOX;
+   }
+
+   /**
+    * Vrací počet buněk mřížky v dané ose.
+    * 
+    * @param axis
+    *           Osa (0 = X, 1 = Y, 2 = Z).
+    * @return Počet buněk.
+    */
+   public int getResolution(int axis) {
+      return resolution[axis];
+   }
+
+   /**
+    * Vrací počet buněk mřížky.
+    * 
+    * @return Počet buněk.
+    */
+   public int getCellCount() {
+      return cellStart.length - 1;
+   }
+
+   /**
+    * Vrací počet odkazů na primitiva ve všech buňkách (primitivum
+    * zasahující do více buněk se počítá vícekrát).
+    * 
+    * @return Počet odkazů na primitiva.
+    */
+   public int getReferenceCount() {
+      return cellPrimitives.length;
+   }
+
+   /**
+    * Schránka naposledy testovaných primitiv sdílená všemi průchody jednoho
+    * vlákna. Záznamy jsou označeny číslem průchodu (epochou), nový průchod
+    * tak schránku nemusí mazat - záznamy předchozích průchodů (i průchodu
+    * vnořeného do výpočtu průsečíku) mají jinou epochu.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private static final class Mailbox {
+      /**
+       * Indexy testovaných primitiv.
+       */
+      final int[] primitives = new int[MAILBOX_SIZE];
+
+      /**
+       * Epochy průchodů, ve kterých byla primitiva testována.
+       */
+      final int[] epochs = new int[MAILBOX_SIZE];
+
+      /**
+       * Epocha posledního průchodu.
+       */
+      private int epoch;
+
+      /**
+       * Zahájí nový průchod.
+       * 
+       * @return Epocha nového průchodu (vždy nenulová).
+       */
+      int nextEpoch() {
+         if (++epoch == 0) {
+            // po preteceni by se mohla shodovat epocha stareho zaznamu
+            Arrays.fill(epochs, 0);
+            epoch = 1;
+         }
+         return epoch;
+      }
+   }
+}
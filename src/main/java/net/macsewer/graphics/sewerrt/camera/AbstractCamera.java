@@ -193,6 +193,26 @@ public abstract class AbstractCamera {
       }
    }
 
+   /**
+    * Vrací primární paprsek středového vzorku mřížky vyhlazování pixelu na
+    * souřadnicích <code>(i, j)</code>, tj. prvek
+    * <code>getSuperSampledCount(r) / 2</code> seznamu
+    * {@link AbstractCamera#getPimaryRaySuperSampledList(int, int, int)}
+    * (pro libovolný poloměr <code>r</code>). Na rozdíl od seznamu se ostatní
+    * vzorky mřížky nepočítají. Kamery, jejichž středový vzorek se liší od
+    * paprsku {@link AbstractCamera#getPrimaryRay(int, int)}, metodu
+    * překrývají.
+    * 
+    * @param i
+    *           Vertikální souřadnice pixelu v rastru průmětny.
+    * @param j
+    *           Horizontální souřadnice pixelu v rastru průmětny.
+    * @return Primární paprsek středového vzorku, nebo <code>null</code>.
+    */
+   public Ray getPrimaryRaySuperSampledCenter(int i, int j) {
+      return getPrimaryRay(i, j);
+   }
+
    public List<Ray> getPimaryRaySuperSampledList(int i, int j, int r) {
       final int count = AbstractCamera.getSuperSampledCount(r);
       final List<Point3D> rayOriginList = getRayOriginSuperSampledList(i, j, r);
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
 import net.macsewer.graphics.sewerrt.geometry.Vector3;
 
 /**
@@ -138,51 +139,66 @@ public class FisheyeCamera extends AbstractCamera {
       final List<Point3D> pixelPositionList = getPixelPositionSuperSampledList(i, j, r);
       final float du = getSuperSampledDU(r);
       final float dv = getSuperSampledDV(r);
-      int pi, pj;
       int ind = 0;
       for (int k = -r; k <= r; k++) {
          for (int l = -r; l <= r; l++, ind++) {
             float u = ((float) (i) / (screenWidth - 1) - 0.5f) * realWidth + k * du;
             float v = ((float) (screenHeight - 1 - j) / (screenHeight - 1) - 0.5f) * realHeight + l * dv;
-            float vzd_2 = (u * u + v * v);
+            directionList.add(getSuperSampleDirection(u, v, pixelPositionList.get(ind)));
+         }
+      }
+      return directionList;
+   }
 
-            if (vzd_2 > 1) {
-               directionList.add(null);
-            } else {
-               float vel;
-
-               Point3D pixelPosition;
-               pi = i;
-               pj = j;
-               switch (cameraType) {
-                  case CAMERA_TYPE_360:
-                     if (vzd_2 <= 0.25f) {
-                        vel = (float) Math.sqrt(1 - 4 * vzd_2);
-                     } else {
-                        float vzd = (float) Math.sqrt(vzd_2);
-                        float vzd_m_1 = vzd - 1;
-                        vel = (float) (-Math.sqrt(1 - 4 * (vzd_m_1 * vzd_m_1)));
-                        u = (u >= -0.5 && u <= 0.5) ? (2 * u) : (Math.signum(u) * 2 * (1 - Math.abs(u)));
-                        v = (v >= -0.5 && v <= 0.5) ? (2 * v) : (Math.signum(v) * 2 * (1 - Math.abs(v)));
-
-                     }
-
-                     pi = (int) (((u + 1) * (screenWidth - 1)) / 2);
-                     int h_m_1 = screenHeight - 1;
-                     pj = (int) (h_m_1 - ((v + 1) * h_m_1) / 2);
-                     break;
-                  case CAMERA_TYPE_180:
-                  default:
-                     vel = (float) ((Math.sqrt(1 - vzd_2)));
-               }
-               pixelPosition = pixelPositionList.get(ind);
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.camera.AbstractCamera#getPrimaryRaySuperSampledCenter(int, int)
+    */
+   @Override
+   public Ray getPrimaryRaySuperSampledCenter(int i, int j) {
+      float u = ((float) (i) / (screenWidth - 1) - 0.5f) * realWidth;
+      float v = ((float) (screenHeight - 1 - j) / (screenHeight - 1) - 0.5f) * realHeight;
+      Vector3 direction = getSuperSampleDirection(u, v, getPixelPosition(i, j));
+      return direction != null ? new Ray(position, direction) : null;
+   }
 
-               Point3D p = pixelPosition.move(direction.mul(vel));
-               directionList.add(new Vector3(position, p));
+   /**
+    * Určuje směrový vektor vzorku mřížky vyhlazování.
+    * 
+    * @param u
+    *           Vodorovná souřadnice vzorku na průmětně.
+    * @param v
+    *           Svislá souřadnice vzorku na průmětně.
+    * @param pixelPosition
+    *           Pozice vzorku ve scéně.
+    * @return Směrový vektor vzorku, nebo <code>null</code>, pokud vzorek leží
+    *         mimo obraz kamery.
+    */
+   private Vector3 getSuperSampleDirection(float u, float v, Point3D pixelPosition) {
+      float vzd_2 = (u * u + v * v);
+
+      if (vzd_2 > 1) {
+         return null;
+      }
+      float vel;
+      switch (cameraType) {
+         case CAMERA_TYPE_360:
+            if (vzd_2 <= 0.25f) {
+               vel = (float) Math.sqrt(1 - 4 * vzd_2);
+            } else {
+               float vzd = (float) Math.sqrt(vzd_2);
+               float vzd_m_1 = vzd - 1;
+               vel = (float) (-Math.sqrt(1 - 4 * (vzd_m_1 * vzd_m_1)));
             }
-         }
+            break;
+         case CAMERA_TYPE_180:
+         default:
+            vel = (float) ((Math.sqrt(1 - vzd_2)));
       }
-      return directionList;
+
+      Point3D p = pixelPosition.move(direction.mul(vel));
+      return new Vector3(position, p);
    }
 
    @Override
@@ -21,11 +21,29 @@ public abstract class AbstractObject {
     */
    protected BoundingSphere bSphere;
 
+   /**
+    * Obalový kvádr objektu se stěnami rovnoběžnými s osami, nebo
+    * <code>null</code>, pokud jej objekt nepočítá. Nastavuje se metodou
+    * {@link AbstractObject#setBoundingBox(BoundingBox)}.
+    */
+   protected BoundingBox bBox;
+
+   /**
+    * Příznak, zda-li se při výpočtu průsečíku testuje místo obalové koule
+    * obalový kvádr.
+    */
+   private boolean boxTest;
+
    /**
     * Transformační matice.
     */
    protected Matrix4 transform;
 
+   /**
+    * Relativní rozšíření obalového kvádru vůči jeho největšímu rozměru.
+    */
+   private static final float BOX_EPSILON = 1e-5f;
+
    /**
     * Vytvoří nový abstraktní objekt.
     */
@@ -43,17 +61,243 @@ public abstract class AbstractObject {
     *         průsečíku. Pokud průsečík neexistuje, metoda vrátí <code>null</code>
     */
    public Vertex crossRay(Ray ray) {
-      if (bSphere.rayCrossed(ray)) {
-         Vertex tmp = _crossRay(ray);
-         if (tmp != null) {
-            Vector3 k = new Vector3(ray.getOrigin(), tmp.getPosition()).normalized();
-            if (k.dot(ray.getDirection()) > 0) {
-               tmp.setOwner(this);
-               return tmp;
+      HitRecord hit = new HitRecord();
+      if (intersect(ray, hit)) {
+         return getVertex(ray, hit);
+      }
+      return null;
+   }
+
+   /**
+    * Určí průsečík objektu s daným paprskem. Pokud průsečík leží před
+    * výchozím bodem paprsku a je bližší než průsečík zaznamenaný v
+    * <code>hit</code>, zapíše jej do záznamu. Metoda nevytváří žádné nové
+    * objekty.
+    * 
+    * @param ray
+    *           Paprsek, s nímž je průsečík určován.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku.
+    * @return <code>true</code>, pokud byl záznam přepsán bližším průsečíkem
+    *         s tímto objektem, jinak <code>false</code>.
+    */
+   public boolean intersect(Ray ray, HitRecord hit) {
+      return getEntryDistance(ray, hit) != Float.POSITIVE_INFINITY && intersectCandidate(ray, hit);
+   }
+
+   /**
+    * Určí průsečík objektu s daným paprskem stejně jako metoda
+    * {@link AbstractObject#intersect(Ray, HitRecord)}, ale bez testu
+    * obalového tělesa. Volá se pro objekty, jejichž obalové těleso již bylo
+    * otestováno metodou {@link AbstractObject#getEntryDistance(Ray, HitRecord)}
+    * (např. při procházení objektů od nejbližšího).
+    * 
+    * @param ray
+    *           Paprsek, s nímž je průsečík určován.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku.
+    * @return <code>true</code>, pokud byl záznam přepsán bližším průsečíkem
+    *         s tímto objektem, jinak <code>false</code>.
+    */
+   public boolean intersectCandidate(Ray ray, HitRecord hit) {
+      if (_intersect(ray, hit)) {
+         hit.object = this;
+         return true;
+      }
+      return false;
+   }
+
+   /**
+    * Určí průsečíky objektu s paprsky paketu danými maskou. Pro každý paprsek
+    * je výsledek totožný s výsledkem metody
+    * {@link AbstractObject#intersect(Ray, HitRecord)}: nejprve se pro všechny
+    * paprsky otestuje obalové těleso (viz
+    * {@link AbstractObject#getEnteringRays(Ray[], HitRecord[], int)}),
+    * paprsky, které jím prošly, se pak předají metodě {@link AbstractObject#_intersect(Ray[], HitRecord[], int)}.
+    * 
+    * @param rays
+    *           Paprsky paketu.
+    * @param hits
+    *           Záznamy o dosud nejbližších průsečících paprsků paketu.
+    * @param mask
+    *           Bitová maska testovaných paprsků (bit <code>k</code> odpovídá
+    *           paprsku <code>rays[k]</code>).
+    * @return Bitová maska paprsků, jejichž záznam byl přepsán bližším
+    *         průsečíkem s tímto objektem.
+    */
+   public int intersect(Ray[] rays, HitRecord[] hits, int mask) {
+      int candidates = getEnteringRays(rays, hits, mask);
+      int found = candidates != 0 ? _intersect(rays, hits, candidates) : 0;
+      for (int rest = found; rest != 0; rest &= rest - 1) {
+         hits[Integer.numberOfTrailingZeros(rest)].object = this;
+      }
+      return found;
+   }
+
+   /**
+    * Zjistí, zda-li daný paprsek protíná objekt před výchozím bodem a blíže,
+    * než je vzdálenost zaznamenaná v <code>hit</code>. Na rozdíl od metody
+    * {@link AbstractObject#intersect(Ray, HitRecord)} nemusí hledat nejbližší
+    * průsečík, stačí libovolný. Používá se pro test zastínění.
+    * 
+    * @param ray
+    *           Paprsek, s nímž je průsečík určován.
+    * @param hit
+    *           Záznam, jehož vzdálenost omezuje hledání.
+    * @return <code>true</code>, pokud paprsek objekt v daném rozsahu protíná,
+    *         jinak <code>false</code>.
+    */
+   public boolean intersectAny(Ray ray, HitRecord hit) {
+      if (getEntryDistance(ray, hit) != Float.POSITIVE_INFINITY && _intersectAny(ray, hit)) {
+         hit.object = this;
+         return true;
+      }
+      return false;
+   }
+
+   /**
+    * Vrací vzdálenost, ve které daný paprsek vstupuje do obalového tělesa
+    * objektu. Testuje se obalový kvádr, pokud je těsnější než obalová koule,
+    * jinak obalová koule. Test se započítává do statistik záznamu.
+    * 
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam, jehož vzdálenost omezuje hledání.
+    * @return Vzdálenost vstupu do obalového tělesa, nebo
+    *         {@link Float#POSITIVE_INFINITY}, pokud paprsek obalové těleso
+    *         před výchozím bodem a blíže než vzdálenost zaznamenaná v
+    *         <code>hit</code> neprotíná nebo pokud je objekt ze hledání
+    *         vyloučen.
+    */
+   public float getEntryDistance(Ray ray, HitRecord hit) {
+      if (hit.excluded == this) {
+         return Float.POSITIVE_INFINITY;
+      }
+      float distance;
+      if (boxTest) {
+         hit.countTest(RenderStatistics.BOUNDING_BOX_TESTS);
+         distance = bBox.rayEntryDistance(ray, hit.distance);
+         if (distance == Float.POSITIVE_INFINITY) {
+            hit.count(RenderStatistics.BOUNDING_BOX_REJECTIONS);
+         }
+      } else {
+         hit.countTest(RenderStatistics.BOUNDING_SPHERE_TESTS);
+         distance = bSphere.rayEntryDistance(ray, hit.distance);
+         if (distance == Float.POSITIVE_INFINITY) {
+            hit.count(RenderStatistics.BOUNDING_SPHERE_REJECTIONS);
+         }
+      }
+      return distance;
+   }
+
+   /**
+    * Vrací bitovou masku paprsků paketu, které vstupují do obalového tělesa
+    * objektu, stejně jako metoda
+    * {@link AbstractObject#getEntryDistance(Ray, HitRecord)} pro jednotlivé
+    * paprsky. Obalovou kouli testuje pro celý paket jádro
+    * {@link IntersectionKernel}.
+    * 
+    * @param rays
+    *           Paprsky paketu.
+    * @param hits
+    *           Záznamy, jejichž vzdálenosti omezují hledání.
+    * @param mask
+    *           Bitová maska testovaných paprsků.
+    * @return Bitová maska paprsků, které obalové těleso protínají.
+    */
+   public int getEnteringRays(Ray[] rays, HitRecord[] hits, int mask) {
+      int entering = 0;
+      if (boxTest) {
+         for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int k = Integer.numberOfTrailingZeros(rest);
+            if (getEntryDistance(rays[k], hits[k]) != Float.POSITIVE_INFINITY) {
+               entering |= 1 << k;
             }
          }
+         return entering;
+      }
+      RayLanes lanes = RayLanes.get();
+      int count = lanes.load(rays, hits, getTestedRays(hits, mask));
+      lanes.countTests(hits, count, RenderStatistics.BOUNDING_SPHERE_TESTS);
+      int entered = bSphere.rayEntered(lanes, count);
+      for (int i = 0; i < count; i++) {
+         if ((entered & (1 << i)) != 0) {
+            entering |= 1 << lanes.ray[i];
+         } else {
+            hits[lanes.ray[i]].count(RenderStatistics.BOUNDING_SPHERE_REJECTIONS);
+         }
+      }
+      return entering;
+   }
+
+   /**
+    * Vrací bitovou masku paprsků paketu, pro které není objekt ze hledání
+    * vyloučen.
+    * 
+    * @param hits
+    *           Záznamy paprsků paketu.
+    * @param mask
+    *           Bitová maska paprsků.
+    * @return Bitová maska paprsků, jejichž záznam objekt nevylučuje.
+    */
+   protected int getTestedRays(HitRecord[] hits, int mask) {
+      int tested = mask;
+      for (int rest = mask; rest != 0; rest &= rest - 1) {
+         int k = Integer.numberOfTrailingZeros(rest);
+         if (hits[k].excluded == this) {
+            tested &= ~(1 << k);
+         }
+      }
+      return tested;
+   }
+
+   /**
+    * Vrací vrchol se všemi atributy (pozice, normála, barva, souřadnice do
+    * textury) pro průsečík zaznamenaný v daném záznamu.
+    * 
+    * @param ray
+    *           Paprsek, pro který byl průsečík určen.
+    * @param hit
+    *           Záznam o průsečíku s tímto objektem.
+    * @return Vrchol, který leží v daném průsečíku.
+    */
+   public Vertex getVertex(Ray ray, HitRecord hit) {
+      Vertex vertex = computeVertex(ray, hit);
+      vertex.setOwner(this);
+      return vertex;
+   }
+
+   /**
+    * Vrací obalový kvádr objektu. Pokud objekt vlastní obalový kvádr
+    * nepočítá, vrací kvádr opsaný obalové kouli objektu.
+    * 
+    * @return Nový obalový kvádr objektu.
+    */
+   public BoundingBox getBoundingBox() {
+      return bBox != null ? new BoundingBox(bBox) : new BoundingBox(bSphere);
+   }
+
+   /**
+    * Nastaví obalový kvádr objektu (obvykle při přepočtu obalové koule). Při
+    * výpočtu průsečíku se pak testuje to z obou obalových těles, které má
+    * menší povrch, a tedy i menší pravděpodobnost, že je paprsek zasáhne
+    * zbytečně. Kvádr se mírně zvětší, aby zaokrouhlovací chyby testu
+    * nevyloučily průsečíky na okraji plochého objektu.
+    * 
+    * @param box
+    *           Obalový kvádr, nebo <code>null</code> pro test jen obalovou
+    *           koulí.
+    */
+   protected void setBoundingBox(BoundingBox box) {
+      bBox = box;
+      boxTest = false;
+      if (box != null && !box.isEmpty()) {
+         float extent = Math.max(Math.max(box.getMax(0) - box.getMin(0), box.getMax(1) - box.getMin(1)), box.getMax(2) - box.getMin(2));
+         box.expand(extent * BOX_EPSILON + Float.MIN_NORMAL);
+         float radius = bSphere.getRadius();
+         boxTest = box.getSurfaceArea() < 4 * (float) Math.PI * radius * radius;
       }
-      return null;
    }
 
    /**
@@ -62,13 +306,73 @@ public abstract class AbstractObject {
    protected abstract void updateBoundingSphere();
 
    /**
-    * MetoDa, která provádí vlastní výpočet průsečíku paprsku s objektem.
+    * Metoda, která provádí vlastní výpočet průsečíku paprsku s objektem. Do
+    * záznamu zapisuje vzdálenost, index primitiva a barycentrické souřadnice
+    * průsečíku, pokud průsečík leží před výchozím bodem paprsku a je bližší
+    * než průsečík již zaznamenaný.
     * 
     * @param ray
     *           Paprsek, s nímž je průsečík určován.
-    * @return Pokud průsečík existuje, metoda vrátí vrchol, který leží v daném
-    *         průsečíku. Pokud průsečík neexistuje, metoda vrátí <code>null</code>.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku.
+    * @return <code>true</code>, pokud byl záznam přepsán, jinak
+    *         <code>false</code>.
+    */
+   protected abstract boolean _intersect(Ray ray, HitRecord hit);
+
+   /**
+    * Metoda, která provádí vlastní výpočet průsečíků paprsků paketu daných
+    * maskou s objektem (bez testu obalového tělesa). Výchozí implementace
+    * volá pro každý paprsek metodu
+    * {@link AbstractObject#_intersect(Ray, HitRecord)}; objekty ji mohou
+    * přepsat tak, aby data objektu zpracovaly jednou pro celý paket.
+    * 
+    * @param rays
+    *           Paprsky paketu.
+    * @param hits
+    *           Záznamy o dosud nejbližších průsečících paprsků paketu.
+    * @param mask
+    *           Bitová maska testovaných paprsků.
+    * @return Bitová maska paprsků, jejichž záznam byl přepsán.
+    */
+   protected int _intersect(Ray[] rays, HitRecord[] hits, int mask) {
+      int found = 0;
+      for (int rest = mask; rest != 0; rest &= rest - 1) {
+         int k = Integer.numberOfTrailingZeros(rest);
+         if (_intersect(rays[k], hits[k])) {
+            found |= 1 << k;
+         }
+      }
+      return found;
+   }
+
+   /**
+    * Metoda, která provádí vlastní test, zda-li paprsek protíná objekt blíže,
+    * než je vzdálenost zaznamenaná v <code>hit</code>. Výchozí implementace
+    * hledá nejbližší průsečík; objekty složené z více primitiv ji mohou
+    * přepsat tak, aby skončily u prvního nalezeného průsečíku.
+    * 
+    * @param ray
+    *           Paprsek, s nímž je průsečík určován.
+    * @param hit
+    *           Záznam, jehož vzdálenost omezuje hledání.
+    * @return <code>true</code>, pokud byl průsečík nalezen, jinak
+    *         <code>false</code>.
+    */
+   protected boolean _intersectAny(Ray ray, HitRecord hit) {
+      return _intersect(ray, hit);
+   }
+
+   /**
+    * Spočítá vrchol se všemi atributy pro průsečík zaznamenaný metodou
+    * {@link AbstractObject#_intersect(Ray, HitRecord)}.
+    * 
+    * @param ray
+    *           Paprsek, pro který byl průsečík určen.
+    * @param hit
+    *           Záznam o průsečíku s tímto objektem.
+    * @return Vrchol, který leží v daném průsečíku.
     */
-   protected abstract Vertex _crossRay(Ray ray);
+   protected abstract Vertex computeVertex(Ray ray, HitRecord hit);
 
 }
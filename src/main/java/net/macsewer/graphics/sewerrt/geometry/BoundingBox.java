@@ -0,0 +1,400 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+/**
+ * Třída reprezentující obalový kvádr zarovnaný s osami soustavy souřadnic
+ * scény (AABB). Používá se pro urychlení výpočtu algoritmu sledování paprsku.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class BoundingBox {
+
+   /**
+    * Minimální souřadnice X.
+    */
+   protected float minX;
+
+   /**
+    * Minimální souřadnice Y.
+    */
+   protected float minY;
+
+   /**
+    * Minimální souřadnice Z.
+    */
+   protected float minZ;
+
+   /**
+    * Maximální souřadnice X.
+    */
+   protected float maxX;
+
+   /**
+    * Maximální souřadnice Y.
+    */
+   protected float maxY;
+
+   /**
+    * Maximální souřadnice Z.
+    */
+   protected float maxZ;
+
+   /**
+    * Vytvoří prázdný obalový kvádr, který neobsahuje žádný bod.
+    */
+   public BoundingBox() {
+      minX = minY = minZ = Float.POSITIVE_INFINITY;
+      maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+   }
+
+   /**
+    * Vytvoří obalový kvádr jako kopii daného kvádru.
+    * 
+    * @param box
+    *           Kopírovaný kvádr.
+    */
+   public BoundingBox(BoundingBox box) {
+      minX = box.minX;
+      minY = box.minY;
+      minZ = box.minZ;
+      maxX = box.maxX;
+      maxY = box.maxY;
+      maxZ = box.maxZ;
+   }
+
+   /**
+    * Vytvoří obalový kvádr opsaný dané obalové kouli.
+    * 
+    * @param sphere
+    *           Obalová koule.
+    */
+   public BoundingBox(BoundingSphere sphere) {
+      Point3D c = sphere.getPivot();
+      float r = sphere.getRadius();
+      minX = c.x - r;
+      minY = c.y - r;
+      minZ = c.z - r;
+      maxX = c.x + r;
+      maxY = c.y + r;
+      maxZ = c.z + r;
+   }
+
+   /**
+    * Rozšíří kvádr tak, aby obsahoval daný bod.
+    * 
+    * @param x
+    *           Souřadnice X bodu.
+    * @param y
+    *           Souřadnice Y bodu.
+    * @param z
+    *           Souřadnice Z bodu.
+    */
+   public void include(float x, float y, float z) {
+      if (x < minX) {
+         minX = x;
+      }
+      if (y < minY) {
+         minY = y;
+      }
+      if (z < minZ) {
+         minZ = z;
+      }
+      if (x > maxX) {
+         maxX = x;
+      }
+      if (y > maxY) {
+         maxY = y;
+      }
+      if (z > maxZ) {
+         maxZ = z;
+      }
+   }
+
+   /**
+    * Rozšíří kvádr tak, aby obsahoval daný bod.
+    * 
+    * @param point
+    *           Bod.
+    */
+   public void include(Float3 point) {
+      include(point.x, point.y, point.z);
+   }
+
+   /**
+    * Rozšíří kvádr tak, aby obsahoval celý daný kvádr.
+    * 
+    * @param box
+    *           Vkládaný kvádr.
+    */
+   public void include(BoundingBox box) {
+      include(box.minX, box.minY, box.minZ);
+      include(box.maxX, box.maxY, box.maxZ);
+   }
+
+   /**
+    * Rozšíří kvádr o danou hodnotu ve všech směrech. Používá se jako rezerva
+    * proti zaokrouhlovacím chybám.
+    * 
+    * @param epsilon
+    *           Velikost rozšíření.
+    */
+   public void expand(float epsilon) {
+      minX -= epsilon;
+      minY -= epsilon;
+      minZ -= epsilon;
+      maxX += epsilon;
+      maxY += epsilon;
+      maxZ += epsilon;
+   }
+
+   /**
+    * Vrací informaci o tom, zda-li kvádr neobsahuje žádný bod.
+    * 
+    * @return <code>true</code>, pokud je kvádr prázdný, jinak
+    *         <code>false</code>.
+    */
+   public boolean isEmpty() {
+      return minX > maxX || minY > maxY || minZ > maxZ;
+   }
+
+   /**
+    * Vrací velikost povrchu kvádru.
+    * 
+    * @return Velikost povrchu kvádru. Pro prázdný kvádr vrací 0.
+    */
+   public float getSurfaceArea() {
+      if (isEmpty()) {
+         return 0;
+      }
+      float dx = maxX - minX;
+      float dy = maxY - minY;
+      float dz = maxZ - minZ;
+      return 2 * (dx * dy + dy * dz + dz * dx);
+   }
+
+   /**
+    * Vrací souřadnici středu kvádru v dané ose.
+    * 
+    * @param axis
+    *           Osa (0 = X, 1 = Y, 2 = Z).
+    * @return Souřadnice středu kvádru.
+    */
+   public float getCenter(int axis) {
+      switch (axis) {
+         case 0:
+            return (minX + maxX) * 0.5f;
+         case 1:
+            return (minY + maxY) * 0.5f;
+         default:
+            return (minZ + maxZ) * 0.5f;
+      }
+   }
+
+   /**
+    * Vrací vzdálenost, ve které daný paprsek vstupuje do kvádru. Pokud výchozí
+    * bod paprsku leží uvnitř kvádru, vrací 0.
+    * 
+    * @param ray
+    *           Paprsek, jehož průsečík určujeme.
+    * @param maxDistance
+    *           Největší vzdálenost od výchozího bodu paprsku, která nás
+    *           zajímá.
+    * @return Vzdálenost vstupu paprsku do kvádru, nebo
+    *         {@link Float#POSITIVE_INFINITY}, pokud paprsek kvádr v intervalu
+    *         <code>[0, maxDistance]</code> neprotíná.
+    */
+   public float rayEntryDistance(Ray ray, float maxDistance) {
+      Point3D o = ray.getOrigin();
+      Vector3 d = ray.getDirection();
+      return rayEntryDistance(o.x, o.y, o.z, 1 / d.x, 1 / d.y, 1 / d.z, maxDistance);
+   }
+
+   /**
+    * Vrací vzdálenost, ve které paprsek daný výchozím bodem a převrácenými
+    * hodnotami složek směrového vektoru vstupuje do kvádru (tzv. "slab" test).
+    * 
+    * @param ox
+    *           Souřadnice X výchozího bodu paprsku.
+    * @param oy
+    *           Souřadnice Y výchozího bodu paprsku.
+    * @param oz
+    *           Souřadnice Z výchozího bodu paprsku.
+    * @param invX
+    *           Převrácená hodnota složky X směrového vektoru.
+    * @param invY
+    *           Převrácená hodnota složky Y směrového vektoru.
+    * @param invZ
+    *           Převrácená hodnota složky Z směrového vektoru.
+    * @param maxDistance
+    *           Největší vzdálenost od výchozího bodu paprsku, která nás
+    *           zajímá.
+    * @return Vzdálenost vstupu paprsku do kvádru, nebo
+    *         {@link Float#POSITIVE_INFINITY}, pokud paprsek kvádr v intervalu
+    *         <code>[0, maxDistance]</code> neprotíná.
+    */
+   public float rayEntryDistance(float ox, float oy, float oz, float invX, float invY, float invZ, float maxDistance) {
+      return rayEntryDistance(minX, minY, minZ, maxX, maxY, maxZ, ox, oy, oz, invX, invY, invZ, maxDistance);
+   }
+
+   /**
+    * Vrací vzdálenost, ve které paprsek vstupuje do kvádru daného mezními
+    * souřadnicemi, stejně jako metoda
+    * {@link BoundingBox#rayEntryDistance(float, float, float, float, float, float, float)}.
+    * Slouží strukturám, které ukládají kvádry v polích, např.
+    * {@link net.macsewer.graphics.sewerrt.acceleration.BoundingVolumeHierarchy}.
+    * 
+    * @param minX
+    *           Minimální souřadnice kvádru v ose X.
+    * @param minY
+    *           Minimální souřadnice kvádru v ose Y.
+    * @param minZ
+    *           Minimální souřadnice kvádru v ose Z.
+    * @param maxX
+    *           Maximální souřadnice kvádru v ose X.
+    * @param maxY
+    *           Maximální souřadnice kvádru v ose Y.
+    * @param maxZ
+    *           Maximální souřadnice kvádru v ose Z.
+    * @param ox
+    *           Souřadnice X výchozího bodu paprsku.
+    * @param oy
+    *           Souřadnice Y výchozího bodu paprsku.
+    * @param oz
+    *           Souřadnice Z výchozího bodu paprsku.
+    * @param invX
+    *           Převrácená hodnota složky X směrového vektoru.
+    * @param invY
+    *           Převrácená hodnota složky Y směrového vektoru.
+    * @param invZ
+    *           Převrácená hodnota složky Z směrového vektoru.
+    * @param maxDistance
+    *           Největší vzdálenost od výchozího bodu paprsku, která nás
+    *           zajímá.
+    * @return Vzdálenost vstupu paprsku do kvádru, nebo
+    *         {@link Float#POSITIVE_INFINITY}, pokud paprsek kvádr v intervalu
+    *         <code>[0, maxDistance]</code> neprotíná.
+    */
+   public static float rayEntryDistance(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float ox, float oy, float oz, float invX, float invY, float invZ,
+         float maxDistance) {
+      float tNear = 0;
+      float tFar = maxDistance;
+      float t1, t2;
+
+      if (Float.isInfinite(invX)) {
+         if (ox < minX || ox > maxX) {
+            return Float.POSITIVE_INFINITY;
+         }
+      } else {
+         t1 = (minX - ox) * invX;
+         t2 = (maxX - ox) * invX;
+         if (t1 > t2) {
+            float tmp = t1;
+            t1 = t2;
+            t2 = tmp;
+         }
+         tNear = t1 > tNear ? t1 : tNear;
+         tFar = t2 < tFar ? t2 : tFar;
+      }
+
+      if (Float.isInfinite(invY)) {
+         if (oy < minY || oy > maxY) {
+            return Float.POSITIVE_INFINITY;
+         }
+      } else {
+         t1 = (minY - oy) * invY;
+         t2 = (maxY - oy) * invY;
+         if (t1 > t2) {
+            float tmp = t1;
+            t1 = t2;
+            t2 = tmp;
+         }
+         tNear = t1 > tNear ? t1 : tNear;
+         tFar = t2 < tFar ? t2 : tFar;
+      }
+
+      if (Float.isInfinite(invZ)) {
+         if (oz < minZ || oz > maxZ) {
+            return Float.POSITIVE_INFINITY;
+         }
+      } else {
+         t1 = (minZ - oz) * invZ;
+         t2 = (maxZ - oz) * invZ;
+         if (t1 > t2) {
+            float tmp = t1;
+            t1 = t2;
+            t2 = tmp;
+         }
+         tNear = t1 > tNear ? t1 : tNear;
+         tFar = t2 < tFar ? t2 : tFar;
+      }
+
+      return tNear <= tFar ? tNear : Float.POSITIVE_INFINITY;
+   }
+
+   /**
+    * Vrací minimální souřadnici kvádru v dané ose.
+    * 
+    * @param axis
+    *           Osa (0 = X, 1 = Y, 2 = Z).
+    * @return Minimální souřadnice kvádru.
+    */
+   public float getMin(int axis) {
+      switch (axis) {
+         case 0:
+            return minX;
+         case 1:
+            return minY;
+         default:
+            return minZ;
+      }
+   }
+
+   /**
+    * Vrací maximální souřadnici kvádru v dané ose.
+    * 
+    * @param axis
+    *           Osa (0 = X, 1 = Y, 2 = Z).
+    * @return Maximální souřadnice kvádru.
+    */
+   public float getMax(int axis) {
+      switch (axis) {
+         case 0:
+            return maxX;
+         case 1:
+            return maxY;
+         default:
+            return maxZ;
+      }
+   }
+
+   /**
+    * Vrací bod s minimálními souřadnicemi kvádru.
+    * 
+    * @return Bod s minimálními souřadnicemi.
+    */
+   public Point3D getMin() {
+      return new Point3D(minX, minY, minZ);
+   }
+
+   /**
+    * Vrací bod s maximálními souřadnicemi kvádru.
+    * 
+    * @return Bod s maximálními souřadnicemi.
+    */
+   public Point3D getMax() {
+      return new Point3D(maxX, maxY, maxZ);
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see java.lang.Object#toString()
+    */
+   @Override
+   public String toString() {
+      return "[" + getMin() + " - " + getMax() + "]";
+   }
+}
@@ -74,6 +74,206 @@ public class BoundingSphere {
       return d >= 0;
    }
 
+   /**
+    * Vrací vzdálenost, ve které daný paprsek vstupuje do koule. Na rozdíl od
+    * metody {@link BoundingSphere#rayCrossed(Ray)} bere v úvahu jen část
+    * paprsku před výchozím bodem, koule ležící za výchozím bodem paprsku
+    * nebo dále než <code>maxDistance</code> tedy paprsek neprotíná.
+    * 
+    * @param ray
+    *           Paprsek, jehož průsečík určujeme.
+    * @param maxDistance
+    *           Největší vzdálenost od výchozího bodu paprsku, která nás
+    *           zajímá.
+    * @return Vzdálenost vstupu paprsku do koule (0, pokud výchozí bod leží
+    *         uvnitř koule), nebo {@link Float#POSITIVE_INFINITY}, pokud
+    *         paprsek kouli v intervalu <code>[0, maxDistance]</code>
+    *         neprotíná.
+    */
+   public float rayEntryDistance(Ray ray, float maxDistance) {
+      Point3D p = ray.getOrigin();
+      Vector3 s = ray.getDirection();
+
+      float a = s.dot(s);
+      float b = 2 * (s.x * p.x + s.y * p.y + s.z * p.z - (s.x * pivot.x + s.y * pivot.y + s.z * pivot.z));
+      float c = p.x * p.x + p.y * p.y + p.z * p.z - 2 * (p.x * pivot.x + p.y * pivot.y + p.z * pivot.z) + (pivot.x * pivot.x + pivot.y * pivot.y + pivot.z * pivot.z) - radius * radius;
+
+      float d = b * b - 4 * a * c;
+      if (d < 0) {
+         return Float.POSITIVE_INFINITY;
+      }
+      float root = (float) Math.sqrt(d);
+      float tFar = (-b + root) / (2 * a);
+      if (!(tFar >= 0)) {
+         // koule lezi za vychozim bodem paprsku
+         return Float.POSITIVE_INFINITY;
+      }
+      float tNear = (-b - root) / (2 * a);
+      if (tNear < 0) {
+         tNear = 0;
+      }
+      return tNear <= maxDistance ? tNear : Float.POSITIVE_INFINITY;
+   }
+
+   /**
+    * Určí, které z paprsků uložených v drahách vstupují do koule, stejně jako
+    * metoda {@link BoundingSphere#rayEntryDistance(Ray, float)} se
+    * vzdáleností uloženou v dráze. Všechny dráhy se počítají jedním voláním
+    * jádra {@link IntersectionKernel}.
+    * 
+    * @param lanes
+    *           Dráhy s paprsky.
+    * @param count
+    *           Počet obsazených drah.
+    * @return Bitová maska drah, jejichž paprsek do koule vstupuje.
+    */
+   public int rayEntered(RayLanes lanes, int count) {
+      return IntersectionKernel.getInstance().intersectSphere(lanes, count, pivot.x, pivot.y, pivot.z, radius);
+   }
+
+   /**
+    * Vytvoří co nejmenší obalovou kouli dané množiny bodů. Spočítá kouli
+    * Ritterovým algoritmem (počáteční koule nad nejvzdálenější dvojicí
+    * krajních bodů v osách, kterou pak postupně zvětšuje o body ležící vně)
+    * a kouli se středem v těžišti bodů a vrátí menší z nich. Výsledek je
+    * nejvýše o několik procent větší než minimální obalová koule.
+    * 
+    * @param points
+    *           Souřadnice bodů (tři složky na bod).
+    * @param length
+    *           Počet platných složek pole (násobek tří).
+    * @return Nová obalová koule. Pro prázdnou množinu bodů koule s nulovým
+    *         poloměrem a středem v počátku.
+    */
+   public static BoundingSphere enclosing(float[] points, int length) {
+      if (length < 3) {
+         return new BoundingSphere(new Point3D(), 0);
+      }
+
+      // stred v tezisti bodu
+      double gx = 0, gy = 0, gz = 0;
+      for (int i = 0; i < length; i += 3) {
+         gx += points[i];
+         gy += points[i + 1];
+         gz += points[i + 2];
+      }
+      int count = length / 3;
+      gx /= count;
+      gy /= count;
+      gz /= count;
+      double centroidRadius = Math.sqrt(maxDistance2(points, length, gx, gy, gz));
+
+      // Ritter: nejvzdalenejsi dvojice krajnich bodu v osach X, Y a Z
+      int[] extremes = new int[6];
+      for (int i = 3; i < length; i += 3) {
+         for (int axis = 0; axis < 3; axis++) {
+            if (points[i + axis] < points[extremes[axis * 2] + axis]) {
+               extremes[axis * 2] = i;
+            }
+            if (points[i + axis] > points[extremes[axis * 2 + 1] + axis]) {
+               extremes[axis * 2 + 1] = i;
+            }
+         }
+      }
+      int first = extremes[0], second = extremes[1];
+      double span2 = -1;
+      for (int axis = 0; axis < 3; axis++) {
+         int a = extremes[axis * 2], b = extremes[axis * 2 + 1];
+         double d2 = distance2(points, a, points[b], points[b + 1], points[b + 2]);
+         if (d2 > span2) {
+            span2 = d2;
+            first = a;
+            second = b;
+         }
+      }
+      double cx = (points[first] + (double) points[second]) * 0.5;
+      double cy = (points[first + 1] + (double) points[second + 1]) * 0.5;
+      double cz = (points[first + 2] + (double) points[second + 2]) * 0.5;
+      double radius = Math.sqrt(span2) * 0.5;
+      for (int i = 0; i < length; i += 3) {
+         double d2 = distance2(points, i, cx, cy, cz);
+         if (d2 > radius * radius) {
+            // koule se zvetsi tak, aby se dotykala puvodni koule i bodu
+            double d = Math.sqrt(d2);
+            double newRadius = (radius + d) * 0.5;
+            double shift = (newRadius - radius) / d;
+            cx += (points[i] - cx) * shift;
+            cy += (points[i + 1] - cy) * shift;
+            cz += (points[i + 2] - cz) * shift;
+            radius = newRadius;
+         }
+      }
+      // zaokrouhlovaci chyby posunu stredu se vyrovnaji presnym polomerem
+      radius = Math.sqrt(maxDistance2(points, length, cx, cy, cz));
+
+      if (centroidRadius <= radius) {
+         cx = gx;
+         cy = gy;
+         cz = gz;
+         radius = centroidRadius;
+      }
+      Point3D center = new Point3D((float) cx, (float) cy, (float) cz);
+      return new BoundingSphere(center, roundUp(Math.sqrt(maxDistance2(points, length, center.x, center.y, center.z))));
+   }
+
+   /**
+    * Vrací druhou mocninu největší vzdálenosti bodu od daného středu.
+    * 
+    * @param points
+    *           Souřadnice bodů.
+    * @param length
+    *           Počet platných složek pole.
+    * @param cx
+    *           Souřadnice X středu.
+    * @param cy
+    *           Souřadnice Y středu.
+    * @param cz
+    *           Souřadnice Z středu.
+    * @return Druhá mocnina největší vzdálenosti.
+    */
+   private static double maxDistance2(float[] points, int length, double cx, double cy, double cz) {
+      double max = 0;
+      for (int i = 0; i < length; i += 3) {
+         max = Math.max(max, distance2(points, i, cx, cy, cz));
+      }
+      return max;
+   }
+
+   /**
+    * Vrací druhou mocninu vzdálenosti bodu od daného středu.
+    * 
+    * @param points
+    *           Souřadnice bodů.
+    * @param i
+    *           Index první složky bodu.
+    * @param cx
+    *           Souřadnice X středu.
+    * @param cy
+    *           Souřadnice Y středu.
+    * @param cz
+    *           Souřadnice Z středu.
+    * @return Druhá mocnina vzdálenosti.
+    */
+   private static double distance2(float[] points, int i, double cx, double cy, double cz) {
+      double dx = points[i] - cx;
+      double dy = points[i + 1] - cy;
+      double dz = points[i + 2] - cz;
+      return dx * dx + dy * dy + dz * dz;
+   }
+
+   /**
+    * Převede poloměr na <code>float</code> tak, aby se nezmenšil.
+    * 
+    * @param radius
+    *           Poloměr.
+    * @return Nejmenší hodnota typu <code>float</code>, která není menší než
+    *         daný poloměr.
+    */
+   private static float roundUp(double radius) {
+      float r = (float) radius;
+      return r < radius ? Math.nextUp(r) : r;
+   }
+
    /**
     * Vrací střed koule.
     * 
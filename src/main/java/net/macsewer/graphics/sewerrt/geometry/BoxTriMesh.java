@@ -71,7 +71,7 @@ public class BoxTriMesh extends TriMesh {
     * Přepočítá vrcholy trojúhelníků na základě rozměrů kvádru.
     */
    private void compute() {
-      Vector<Triangle> triangles = getTriangles();
+      Vector<Triangle> triangles = new Vector<Triangle>(12);
 
       Vertex vA = new Vertex(new Point3D(pivot.x + depth / 2, pivot.y - width / 2, pivot.z), null, ColorRGB.white, new Float3());
       vA.setOwner(this);
@@ -97,8 +97,6 @@ public class BoxTriMesh extends TriMesh {
       Vertex vH = new Vertex(new Point3D(pivot.x - depth / 2, pivot.y - width / 2, pivot.z + height), null, ColorRGB.white, new Float3());
       vH.setOwner(this);
 
-      triangles.clear();
-
       triangles.add(new Triangle(vA, vB, vE));
       triangles.add(new Triangle(vE, vB, vF));
 
@@ -117,6 +115,6 @@ public class BoxTriMesh extends TriMesh {
       triangles.add(new Triangle(vH, vE, vF));
       triangles.add(new Triangle(vH, vF, vG));
 
-      updateBoundingSphere();
+      setTriangles(triangles);
    }
 }
@@ -0,0 +1,247 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+/**
+ * Třída reprezentující záznam o dosud nejbližším průsečíku paprsku se scénou.
+ * Při hledání průsečíku se místo vytváření vrcholu ({@link Vertex}) pro každý
+ * nalezený průsečík jen přepisují hodnoty záznamu. Vrchol se všemi atributy se
+ * počítá až pro výsledný nejbližší průsečík metodou
+ * {@link AbstractObject#getVertex(Ray, HitRecord)}.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class HitRecord {
+
+   /**
+    * Vzdálenost průsečíku od výchozího bodu paprsku. Dokud není průsečík
+    * nalezen, obsahuje největší vzdálenost, která nás zajímá.
+    */
+   protected float distance;
+
+   /**
+    * Objekt, kterému průsečík patří, nebo <code>null</code>, pokud průsečík
+    * nebyl nalezen.
+    */
+   protected AbstractObject object;
+
+   /**
+    * Index primitiva (např. trojúhelníku) v rámci objektu.
+    */
+   protected int primitive;
+
+   /**
+    * Barycentrická souřadnice průsečíku (váha vrcholu B trojúhelníku).
+    */
+   protected float u;
+
+   /**
+    * Barycentrická souřadnice průsečíku (váha vrcholu C trojúhelníku).
+    */
+   protected float v;
+
+   /**
+    * Objekt, jehož průsečíky se ignorují (objekt, ze kterého vychází
+    * sekundární paprsek), nebo <code>null</code>.
+    */
+   protected AbstractObject excluded;
+
+   /**
+    * Statistiky, do kterých se započítávají testy průsečíků, nebo
+    * <code>null</code>, pokud se statistiky nesbírají.
+    */
+   protected RenderStatistics statistics;
+
+   /**
+    * Pruh čítačů statistik pro vlákno, které záznam používá.
+    */
+   protected int stripe;
+
+   /**
+    * Čítač testů průsečíků pro mapu ceny pixelů (první prvek pole), nebo
+    * <code>null</code>.
+    */
+   protected int[] testCounter;
+
+   /**
+    * Vytvoří prázdný záznam bez omezení vzdálenosti.
+    */
+   public HitRecord() {
+      reset(Float.POSITIVE_INFINITY, null);
+   }
+
+   /**
+    * Připraví záznam pro hledání nového průsečíku.
+    * 
+    * @param maxDistance
+    *           Největší vzdálenost průsečíku, která nás zajímá.
+    * @param excluded
+    *           Objekt, jehož průsečíky se mají ignorovat, nebo
+    *           <code>null</code>.
+    */
+   public void reset(float maxDistance, AbstractObject excluded) {
+      distance = maxDistance;
+      object = null;
+      primitive = -1;
+      u = 0;
+      v = 0;
+      this.excluded = excluded;
+   }
+
+   /**
+    * Nastaví statistiky, do kterých se mají započítávat testy průsečíků s
+    * tímto záznamem. Záznam smí poté používat jen aktuální vlákno.
+    * 
+    * @param statistics
+    *           Statistiky, nebo <code>null</code>, pokud se statistiky nemají
+    *           sbírat.
+    */
+   public void setStatistics(RenderStatistics statistics) {
+      this.statistics = statistics;
+      stripe = statistics != null ? statistics.stripe() : 0;
+   }
+
+   /**
+    * Vrací statistiky, do kterých se započítávají testy průsečíků.
+    * 
+    * @return Statistiky, nebo <code>null</code>.
+    */
+   public RenderStatistics getStatistics() {
+      return statistics;
+   }
+
+   /**
+    * Nastavuje čítač testů průsečíků, do kterého se přičítají všechny testy
+    * provedené s tímto záznamem (viz
+    * {@link HitRecord#countTest(int)}).
+    * 
+    * @param testCounter
+    *           Čítač (první prvek pole), nebo <code>null</code>.
+    */
+   public void setTestCounter(int[] testCounter) {
+      this.testCounter = testCounter;
+   }
+
+   /**
+    * Započítá test průsečíku (s obalovým tělesem nebo primitivem) do
+    * statistik a do čítače testů, pokud jsou nastaveny.
+    * 
+    * @param counter
+    *           Čítač statistik (např. {@link RenderStatistics#TRIANGLE_TESTS}).
+    */
+   public void countTest(int counter) {
+      if (statistics != null) {
+         statistics.increment(stripe, counter);
+      }
+      if (testCounter != null) {
+         testCounter[0]++;
+      }
+   }
+
+   /**
+    * Zvýší o jedna daný čítač statistik, pokud se statistiky sbírají.
+    * 
+    * @param counter
+    *           Čítač (např. {@link RenderStatistics#TRIANGLE_TESTS}).
+    */
+   public void count(int counter) {
+      if (statistics != null) {
+         statistics.increment(stripe, counter);
+      }
+   }
+
+   /**
+    * Zaznamená nový nejbližší průsečík s primitivem.
+    * 
+    * @param distance
+    *           Vzdálenost průsečíku od výchozího bodu paprsku.
+    * @param primitive
+    *           Index primitiva v rámci objektu.
+    * @param u
+    *           Barycentrická souřadnice průsečíku.
+    * @param v
+    *           Barycentrická souřadnice průsečíku.
+    */
+   public void set(float distance, int primitive, float u, float v) {
+      this.distance = distance;
+      this.primitive = primitive;
+      this.u = u;
+      this.v = v;
+   }
+
+   /**
+    * Vrací informaci o tom, zda-li byl průsečík nalezen.
+    * 
+    * @return <code>true</code>, pokud byl průsečík nalezen, jinak
+    *         <code>false</code>.
+    */
+   public boolean isHit() {
+      return object != null;
+   }
+
+   /**
+    * Vrací vzdálenost průsečíku od výchozího bodu paprsku.
+    * 
+    * @return Vzdálenost průsečíku.
+    */
+   public float getDistance() {
+      return distance;
+   }
+
+   /**
+    * Vrací objekt, kterému průsečík patří.
+    * 
+    * @return Objekt průsečíku, nebo <code>null</code>.
+    */
+   public AbstractObject getObject() {
+      return object;
+   }
+
+   /**
+    * Nastavuje objekt, kterému průsečík patří.
+    * 
+    * @param object
+    *           Objekt průsečíku.
+    */
+   public void setObject(AbstractObject object) {
+      this.object = object;
+   }
+
+   /**
+    * Vrací index primitiva v rámci objektu.
+    * 
+    * @return Index primitiva.
+    */
+   public int getPrimitive() {
+      return primitive;
+   }
+
+   /**
+    * Vrací barycentrickou souřadnici průsečíku (váhu vrcholu B).
+    * 
+    * @return Barycentrická souřadnice.
+    */
+   public float getU() {
+      return u;
+   }
+
+   /**
+    * Vrací barycentrickou souřadnici průsečíku (váhu vrcholu C).
+    * 
+    * @return Barycentrická souřadnice.
+    */
+   public float getV() {
+      return v;
+   }
+
+   /**
+    * Vrací objekt, jehož průsečíky se ignorují.
+    * 
+    * @return Ignorovaný objekt, nebo <code>null</code>.
+    */
+   public AbstractObject getExcluded() {
+      return excluded;
+   }
+}
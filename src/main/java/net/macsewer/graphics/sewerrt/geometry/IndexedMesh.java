@@ -0,0 +1,409 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+/**
+ * Třída reprezentující síť trojúhelníků v kompaktní indexované podobě. Vrcholy
+ * jsou uloženy jednou ve sdíleném poli souřadnic a trojúhelníky je odkazují
+ * indexy, všechna data jsou v polích primitivních typů (po složkách za sebou,
+ * např. <code>x0, y0, z0, x1, y1, z1, ...</code>). Oproti trojúhelníkům
+ * {@link Triangle}, z nichž každý drží tři kopie vrcholů s vlastními objekty
+ * souřadnic, normály, barvy a souřadnic do textury, zabírá trojúhelník jen
+ * několik desítek bajtů.
+ * <p>
+ * Normály, barvy a souřadnice do textury vrcholů jsou volitelné. Bez normál
+ * vrcholů se používá normála roviny trojúhelníku, bez barev vrcholů difúzní
+ * barva sítě. Pole se nekopírují a po vytvoření sítě se nesmí měnit.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class IndexedMesh {
+
+   /**
+    * Souřadnice vrcholů (tři složky na vrchol).
+    */
+   private final float[] positions;
+
+   /**
+    * Normály vrcholů (tři složky na vrchol), nebo <code>null</code>.
+    */
+   private final float[] normals;
+
+   /**
+    * Barvy vrcholů (tři složky 0-255 na vrchol), nebo <code>null</code>.
+    */
+   private final float[] colors;
+
+   /**
+    * Souřadnice do textury (dvě složky na vrchol), nebo <code>null</code>.
+    */
+   private final float[] textureCoordinates;
+
+   /**
+    * Indexy vrcholů trojúhelníků (tři indexy na trojúhelník).
+    */
+   private final int[] indices;
+
+   /**
+    * Difúzní barva sítě (pokud nejsou zadány barvy vrcholů).
+    */
+   private ColorRGB diffuseColor = ColorRGB.white;
+
+   /**
+    * Vytvoří síť trojúhelníků bez normál, barev a souřadnic do textury
+    * vrcholů.
+    * 
+    * @param positions
+    *           Souřadnice vrcholů (tři složky na vrchol).
+    * @param indices
+    *           Indexy vrcholů trojúhelníků (tři indexy na trojúhelník).
+    * @throws IllegalArgumentException
+    *            Pokud délky polí neodpovídají nebo index neodkazuje na
+    *            existující vrchol.
+    */
+   public IndexedMesh(float[] positions, int[] indices) {
+      this(positions, null, null, null, indices);
+   }
+
+   /**
+    * Vytvoří síť trojúhelníků.
+    * 
+    * @param positions
+    *           Souřadnice vrcholů (tři složky na vrchol).
+    * @param normals
+    *           Normály vrcholů (tři složky na vrchol), nebo <code>null</code>.
+    * @param colors
+    *           Barvy vrcholů (tři složky 0-255 na vrchol), nebo
+    *           <code>null</code>.
+    * @param textureCoordinates
+    *           Souřadnice do textury (dvě složky na vrchol), nebo
+    *           <code>null</code>.
+    * @param indices
+    *           Indexy vrcholů trojúhelníků (tři indexy na trojúhelník).
+    * @throws IllegalArgumentException
+    *            Pokud délky polí neodpovídají nebo index neodkazuje na
+    *            existující vrchol.
+    */
+   public IndexedMesh(float[] positions, float[] normals, float[] colors, float[] textureCoordinates, int[] indices) {
+      if (positions.length % 3 != 0 || indices.length % 3 != 0) {
+         throw new IllegalArgumentException("Positions and indices must have 3 components per vertex and triangle");
+      }
+      int vertexCount = positions.length / 3;
+      if ((normals != null && normals.length != positions.length) || (colors != null && colors.length != positions.length)
+            || (textureCoordinates != null && textureCoordinates.length != vertexCount * 2)) {
+         throw new IllegalArgumentException("Vertex attribute arrays do not match the vertex count " + vertexCount);
+      }
+      for (int k = 0; k < indices.length; k++) {
+         if (indices[k] < 0 || indices[k] >= vertexCount) {
+            throw new IllegalArgumentException("Index " + indices[k] + " out of range at " + k);
+         }
+      }
+      this.positions = positions;
+      this.normals = normals;
+      this.colors = colors;
+      this.textureCoordinates = textureCoordinates;
+      this.indices = indices;
+   }
+
+   /**
+    * Určí průsečík daného trojúhelníku s paprskem (algoritmus Möller-Trumbore
+    * přímo nad poli sítě). Pokud průsečík leží před výchozím bodem paprsku a
+    * je bližší než průsečík zaznamenaný v <code>hit</code>, zapíše do záznamu
+    * jeho vzdálenost, index trojúhelníku a barycentrické souřadnice.
+    * 
+    * @param triangle
+    *           Index trojúhelníku.
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku.
+    * @return <code>true</code>, pokud byl záznam přepsán, jinak
+    *         <code>false</code>.
+    */
+   public boolean intersect(int triangle, Ray ray, HitRecord hit) {
+      hit.countTest(RenderStatistics.TRIANGLE_TESTS);
+      int a = indices[triangle * 3] * 3;
+      int b = indices[triangle * 3 + 1] * 3;
+      int c = indices[triangle * 3 + 2] * 3;
+      float ax = positions[a];
+      float ay = positions[a + 1];
+      float az = positions[a + 2];
+      float e1x = positions[b] - ax;
+      float e1y = positions[b + 1] - ay;
+      float e1z = positions[b + 2] - az;
+      float e2x = positions[c] - ax;
+      float e2y = positions[c + 1] - ay;
+      float e2z = positions[c + 2] - az;
+
+      Vector3 direction = ray.getDirection();
+      float sx = direction.x;
+      float sy = direction.y;
+      float sz = direction.z;
+
+      // p = s x e2
+      float px = sy * e2z - sz * e2y;
+      float py = sz * e2x - sx * e2z;
+      float pz = sx * e2y - sy * e2x;
+      float det = e1x * px + e1y * py + e1z * pz;
+      if (det == 0) { // paprsek rovnobezny s trojuhelnikem
+         return false;
+      }
+      float invDet = 1 / det;
+
+      Point3D origin = ray.getOrigin();
+      float tx = origin.x - ax;
+      float ty = origin.y - ay;
+      float tz = origin.z - az;
+      float u = (tx * px + ty * py + tz * pz) * invDet;
+      if (u < 0 || u > 1) {
+         return false;
+      }
+
+      // q = t x e1
+      float qx = ty * e1z - tz * e1y;
+      float qy = tz * e1x - tx * e1z;
+      float qz = tx * e1y - ty * e1x;
+      float v = (sx * qx + sy * qy + sz * qz) * invDet;
+      if (v < 0 || u + v > 1) {
+         return false;
+      }
+
+      float t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+      if (!(t > 0 && t < hit.distance)) {
+         return false;
+      }
+      hit.set(t, triangle, u, v);
+      return true;
+   }
+
+   /**
+    * Určí průsečíky daného trojúhelníku s paprsky paketu danými maskou stejně
+    * jako metoda {@link IndexedMesh#intersect(int, Ray, HitRecord)}. Vrcholy
+    * a hrany trojúhelníku se z polí sítě načtou jednou pro celý paket a
+    * paprsky se testují jádrem {@link IntersectionKernel}.
+    * 
+    * @param triangle
+    *           Index trojúhelníku.
+    * @param rays
+    *           Paprsky paketu.
+    * @param hits
+    *           Záznamy o dosud nejbližších průsečících paprsků paketu.
+    * @param mask
+    *           Bitová maska testovaných paprsků (bit <code>k</code> odpovídá
+    *           paprsku <code>rays[k]</code>).
+    * @return Bitová maska paprsků, jejichž záznam byl přepsán.
+    */
+   public int intersect(int triangle, Ray[] rays, HitRecord[] hits, int mask) {
+      int a = indices[triangle * 3] * 3;
+      int b = indices[triangle * 3 + 1] * 3;
+      int c = indices[triangle * 3 + 2] * 3;
+      float ax = positions[a];
+      float ay = positions[a + 1];
+      float az = positions[a + 2];
+      float e1x = positions[b] - ax;
+      float e1y = positions[b + 1] - ay;
+      float e1z = positions[b + 2] - az;
+      float e2x = positions[c] - ax;
+      float e2y = positions[c + 1] - ay;
+      float e2z = positions[c + 2] - az;
+
+      RayLanes lanes = RayLanes.get();
+      int count = lanes.load(rays, hits, mask);
+      lanes.countTests(hits, count, RenderStatistics.TRIANGLE_TESTS);
+      int found = IntersectionKernel.getInstance().intersectEdges(lanes, count, ax, ay, az, e1x, e1y, e1z, e2x, e2y, e2z);
+      return lanes.store(hits, found, triangle);
+   }
+
+   /**
+    * Vrací vrchol se všemi atributy pro průsečík s trojúhelníkem zaznamenaný v
+    * daném záznamu. Atributy vrcholů se interpolují podle barycentrických
+    * souřadnic průsečíku.
+    * 
+    * @param ray
+    *           Paprsek, pro který byl průsečík určen.
+    * @param hit
+    *           Záznam o průsečíku.
+    * @return Vrchol průsečíku.
+    */
+   public Vertex computeVertex(Ray ray, HitRecord hit) {
+      int triangle = hit.primitive;
+      int a = indices[triangle * 3];
+      int b = indices[triangle * 3 + 1];
+      int c = indices[triangle * 3 + 2];
+      float u = hit.u;
+      float v = hit.v;
+      float w = 1 - u - v;
+
+      Point3D origin = ray.getOrigin();
+      Vector3 direction = ray.getDirection();
+      float t = hit.distance;
+      Point3D position = new Point3D(origin.x + t * direction.x, origin.y + t * direction.y, origin.z + t * direction.z);
+
+      Vector3 normal;
+      if (normals != null) {
+         normal = new Vector3(interpolate(normals, a, b, c, 0, w, u, v), interpolate(normals, a, b, c, 1, w, u, v), interpolate(normals, a, b, c, 2, w, u, v)).normalized();
+      } else {
+         normal = getNormal(triangle);
+      }
+
+      ColorRGB color;
+      if (colors != null) {
+         color = new ColorRGB(interpolate(colors, a, b, c, 0, w, u, v), interpolate(colors, a, b, c, 1, w, u, v), interpolate(colors, a, b, c, 2, w, u, v));
+      } else {
+         color = new ColorRGB(diffuseColor);
+      }
+
+      Float3 textureCoordinate;
+      if (textureCoordinates != null) {
+         textureCoordinate = new Float3(w * textureCoordinates[a * 2] + u * textureCoordinates[b * 2] + v * textureCoordinates[c * 2], w * textureCoordinates[a * 2 + 1] + u
+               * textureCoordinates[b * 2 + 1] + v * textureCoordinates[c * 2 + 1], 0);
+      } else {
+         textureCoordinate = new Float3();
+      }
+      return new Vertex(position, normal, color, textureCoordinate);
+   }
+
+   /**
+    * Interpoluje složku atributu vrcholů se třemi složkami na vrchol.
+    * 
+    * @param values
+    *           Pole atributu.
+    * @param a
+    *           Index vrcholu A.
+    * @param b
+    *           Index vrcholu B.
+    * @param c
+    *           Index vrcholu C.
+    * @param component
+    *           Složka (0-2).
+    * @param wa
+    *           Váha vrcholu A.
+    * @param wb
+    *           Váha vrcholu B.
+    * @param wc
+    *           Váha vrcholu C.
+    * @return Interpolovaná hodnota.
+    */
+   private static float interpolate(float[] values, int a, int b, int c, int component, float wa, float wb, float wc) {
+      return wa * values[a * 3 + component] + wb * values[b * 3 + component] + wc * values[c * 3 + component];
+   }
+
+   /**
+    * Vrací normálu roviny daného trojúhelníku (stejně orientovanou jako
+    * {@link Triangle#computeNormal(Point3D, Point3D, Point3D)}).
+    * 
+    * @param triangle
+    *           Index trojúhelníku.
+    * @return Jednotková normála roviny trojúhelníku.
+    */
+   public Vector3 getNormal(int triangle) {
+      int a = indices[triangle * 3] * 3;
+      int b = indices[triangle * 3 + 1] * 3;
+      int c = indices[triangle * 3 + 2] * 3;
+      Vector3 ab = new Vector3(positions[b] - positions[a], positions[b + 1] - positions[a + 1], positions[b + 2] - positions[a + 2]);
+      Vector3 ac = new Vector3(positions[c] - positions[a], positions[c + 1] - positions[a + 1], positions[c + 2] - positions[a + 2]);
+      return ab.cross(ac).normalized();
+   }
+
+   /**
+    * Vrací obalový kvádr daného trojúhelníku.
+    * 
+    * @param triangle
+    *           Index trojúhelníku.
+    * @return Obalový kvádr trojúhelníku.
+    */
+   public BoundingBox getBoundingBox(int triangle) {
+      BoundingBox box = new BoundingBox();
+      for (int k = 0; k < 3; k++) {
+         int p = indices[triangle * 3 + k] * 3;
+         box.include(positions[p], positions[p + 1], positions[p + 2]);
+      }
+      return box;
+   }
+
+   /**
+    * Vrací počet vrcholů sítě.
+    * 
+    * @return Počet vrcholů.
+    */
+   public int getVertexCount() {
+      return positions.length / 3;
+   }
+
+   /**
+    * Vrací počet trojúhelníků sítě.
+    * 
+    * @return Počet trojúhelníků.
+    */
+   public int getTriangleCount() {
+      return indices.length / 3;
+   }
+
+   /**
+    * Vrací souřadnice vrcholů. Pole se nesmí měnit.
+    * 
+    * @return Souřadnice vrcholů (tři složky na vrchol).
+    */
+   public float[] getPositions() {
+      return positions;
+   }
+
+   /**
+    * Vrací normály vrcholů. Pole se nesmí měnit.
+    * 
+    * @return Normály vrcholů, nebo <code>null</code>.
+    */
+   public float[] getNormals() {
+      return normals;
+   }
+
+   /**
+    * Vrací barvy vrcholů. Pole se nesmí měnit.
+    * 
+    * @return Barvy vrcholů, nebo <code>null</code>.
+    */
+   public float[] getColors() {
+      return colors;
+   }
+
+   /**
+    * Vrací souřadnice do textury. Pole se nesmí měnit.
+    * 
+    * @return Souřadnice do textury (dvě složky na vrchol), nebo
+    *         <code>null</code>.
+    */
+   public float[] getTextureCoordinates() {
+      return textureCoordinates;
+   }
+
+   /**
+    * Vrací indexy vrcholů trojúhelníků. Pole se nesmí měnit.
+    * 
+    * @return Indexy vrcholů (tři na trojúhelník).
+    */
+   public int[] getIndices() {
+      return indices;
+   }
+
+   /**
+    * Vrací difúzní barvu sítě.
+    * 
+    * @return Difúzní barva.
+    */
+   public ColorRGB getDiffuseColor() {
+      return diffuseColor;
+   }
+
+   /**
+    * Nastavuje difúzní barvu sítě, která se používá, pokud nejsou zadány
+    * barvy vrcholů.
+    * 
+    * @param diffuseColor
+    *           Nová difúzní barva.
+    */
+   public void setDiffuseColor(ColorRGB diffuseColor) {
+      this.diffuseColor = diffuseColor;
+   }
+}
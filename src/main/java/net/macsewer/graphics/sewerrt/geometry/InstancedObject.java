@@ -0,0 +1,229 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+/**
+ * Třída reprezentující instanci sdíleného objektu umístěnou do scény
+ * transformační maticí. Geometrie (a u sítí trojúhelníků i jejich hierarchie
+ * obalových kvádrů) se uchovává jen jednou ve sdíleném objektu, instance si
+ * pamatuje jen matici, její inverzi a vlastní obalová tělesa. Paměť scény tak
+ * roste s počtem různých objektů, nikoli s počtem instancí.
+ * <p>
+ * Průsečík se počítá v soustavě souřadnic sdíleného objektu: paprsek se
+ * převede inverzní maticí a vzdálenosti se přepočítají poměrem délek směru
+ * paprsku v obou soustavách. Urychlovací struktura scény nad instancemi tvoří
+ * horní úroveň, hierarchie sdíleného objektu dolní úroveň. Sdílený objekt se
+ * po vytvoření instancí nemá měnit.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class InstancedObject extends AbstractObject {
+
+   /**
+    * Sdílený objekt v souřadnicích objektu.
+    */
+   private final AbstractObject object;
+
+   /**
+    * Inverze transformační matice (převod ze scény do soustavy objektu).
+    */
+   private final Matrix4 inverse;
+
+   /**
+    * Matice pro převod normál do soustavy scény (transponovaná inverze).
+    */
+   private final Matrix4 normalTransform;
+
+   /**
+    * Vytvoří instanci daného objektu.
+    * 
+    * @param object
+    *           Sdílený objekt.
+    * @param transform
+    *           Transformační matice ze soustavy objektu do soustavy scény
+    *           (body se násobí maticí zprava). Matice se kopíruje.
+    * @throws IllegalArgumentException
+    *            Pokud je matice singulární.
+    */
+   public InstancedObject(AbstractObject object, Matrix4 transform) {
+      this.object = object;
+      this.transform = new Matrix4(transform);
+      inverse = transform.inverse();
+      normalTransform = inverse.transposed();
+      updateBoundingSphere();
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#updateBoundingSphere()
+    */
+   @Override
+   protected void updateBoundingSphere() {
+      BoundingBox local = object.getBoundingBox();
+      BoundingBox box = new BoundingBox();
+      for (int corner = 0; corner < 8; corner++) {
+         Point3D point = new Point3D((corner & 1) == 0 ? local.getMin(0) : local.getMax(0), (corner & 2) == 0 ? local.getMin(1) : local.getMax(1), (corner & 4) == 0 ? local.getMin(2) : local.getMax(2));
+         box.include(point.mul(transform));
+      }
+      pivot = new Point3D(box.getCenter(0), box.getCenter(1), box.getCenter(2));
+      float dx = box.getMax(0) - box.getMin(0), dy = box.getMax(1) - box.getMin(1), dz = box.getMax(2) - box.getMin(2);
+      bSphere = new BoundingSphere(pivot, Math.nextUp(0.5f * (float) Math.sqrt(dx * dx + dy * dy + dz * dz)));
+      setBoundingBox(box);
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#_intersect(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+    */
+   @Override
+   protected boolean _intersect(Ray ray, HitRecord hit) {
+      return intersectObject(ray, hit, false);
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#_intersectAny(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+    */
+   @Override
+   protected boolean _intersectAny(Ray ray, HitRecord hit) {
+      return intersectObject(ray, hit, true);
+   }
+
+   /**
+    * Paprsky paketu se převedou do soustavy sdíleného objektu a předají se mu
+    * jako paket. Vzdálenosti v záznamech se převádějí stejně jako při výpočtu
+    * průsečíku s jedním paprskem. Převedené paprsky a pomocná pole se berou z
+    * {@link PacketScratch} aktuálního vlákna.
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#_intersect(net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int)
+    */
+   @Override
+   protected int _intersect(Ray[] rays, HitRecord[] hits, int mask) {
+      if ((mask & (mask - 1)) == 0) {
+         return super._intersect(rays, hits, mask);
+      }
+      PacketScratch scratch = PacketScratch.get();
+      PacketScratch.Frame frame = scratch.reserve();
+      try {
+         Ray[] objectRays = frame.transformed;
+         float[] scales = frame.scales;
+         float[] distances = frame.distances;
+         for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int k = Integer.numberOfTrailingZeros(rest);
+            scales[k] = toObject(rays[k], objectRays[k]);
+            distances[k] = hits[k].distance;
+            hits[k].distance = distances[k] * scales[k];
+         }
+         int found = object.intersect(objectRays, hits, mask);
+         for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int k = Integer.numberOfTrailingZeros(rest);
+            hits[k].distance = (found & (1 << k)) != 0 ? hits[k].distance / scales[k] : distances[k];
+         }
+         return found;
+      } finally {
+         scratch.release(frame);
+      }
+   }
+
+   /**
+    * Určí průsečík paprsku se sdíleným objektem v soustavě objektu. Vzdálenost
+    * v záznamu se před výpočtem převede do soustavy objektu a po něm zpět.
+    * 
+    * @param ray
+    *           Paprsek v soustavě scény.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku.
+    * @param any
+    *           Příznak, zda-li stačí libovolný průsečík.
+    * @return <code>true</code>, pokud byl záznam přepsán, jinak
+    *         <code>false</code>.
+    */
+   private boolean intersectObject(Ray ray, HitRecord hit, boolean any) {
+      PacketScratch scratch = PacketScratch.get();
+      PacketScratch.Frame frame = scratch.reserve();
+      try {
+         Ray objectRay = frame.transformed[0];
+         float scale = toObject(ray, objectRay);
+         float distance = hit.distance;
+         hit.distance = distance * scale;
+         boolean found = any ? object.intersectAny(objectRay, hit) : object.intersect(objectRay, hit);
+         hit.distance = found ? hit.distance / scale : distance;
+         return found;
+      } finally {
+         scratch.release(frame);
+      }
+   }
+
+   /**
+    * Převede paprsek do soustavy sdíleného objektu. Výsledek se zapíše do
+    * výchozího bodu a směru daného paprsku, výpočet odpovídá násobení
+    * inverzní maticí a normalizaci směru.
+    * 
+    * @param ray
+    *           Paprsek v soustavě scény.
+    * @param objectRay
+    *           Paprsek, do kterého se zapíše převedený paprsek.
+    * @return Délka převedeného směru před normalizací.
+    */
+   private float toObject(Ray ray, Ray objectRay) {
+      float[][] md = inverse.getData();
+      Point3D o = ray.getOrigin();
+      Point3D origin = objectRay.getOrigin();
+      origin.x = o.x * md[0][0] + o.y * md[1][0] + o.z * md[2][0] + o.w * md[3][0];
+      origin.y = o.x * md[0][1] + o.y * md[1][1] + o.z * md[2][1] + o.w * md[3][1];
+      origin.z = o.x * md[0][2] + o.y * md[1][2] + o.z * md[2][2] + o.w * md[3][2];
+      origin.w = o.x * md[0][3] + o.y * md[1][3] + o.z * md[2][3] + o.w * md[3][3];
+      Vector3 d = ray.getDirection();
+      float x = d.x * md[0][0] + d.y * md[1][0] + d.z * md[2][0];
+      float y = d.x * md[0][1] + d.y * md[1][1] + d.z * md[2][1];
+      float z = d.x * md[0][2] + d.y * md[1][2] + d.z * md[2][2];
+      float scale = (float) Math.sqrt(x * x + y * y + z * z);
+      Vector3 direction = objectRay.getDirection();
+      direction.x = x / scale;
+      direction.y = y / scale;
+      direction.z = z / scale;
+      return scale;
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#computeVertex(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+    */
+   @Override
+   protected Vertex computeVertex(Ray ray, HitRecord hit) {
+      Vector3 direction = ray.getDirection().mul(inverse);
+      float scale = direction.lenght();
+      Ray objectRay = new Ray(ray.getOrigin().mul(inverse), direction);
+      float distance = hit.distance;
+      hit.distance = distance * scale;
+      Vertex vertex = object.computeVertex(objectRay, hit);
+      hit.distance = distance;
+      vertex.setPosition(ray.getOrigin().move(ray.getDirection().mul(distance)));
+      vertex.setNormal(vertex.getNormal().mul(normalTransform).normalized());
+      return vertex;
+   }
+
+   /**
+    * Vrací sdílený objekt.
+    * 
+    * @return Sdílený objekt.
+    */
+   public AbstractObject getObject() {
+      return object;
+   }
+
+   /**
+    * Vrací transformační matici instance.
+    * 
+    * @return Kopie transformační matice.
+    */
+   public Matrix4 getTransform() {
+      return new Matrix4(transform);
+   }
+}
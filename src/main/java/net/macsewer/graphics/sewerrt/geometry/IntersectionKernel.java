@@ -0,0 +1,186 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Jádro výpočtu průsečíků více paprsků (drah {@link RayLanes}) s jedním
+ * primitivem najednou. Jádra vracejí bitovou masku drah, ve kterých paprsek
+ * primitivum protíná blíže než ve vzdálenosti uložené v dráze, a spočítané
+ * hodnoty zapisují do drah. Statistiky ani záznamy o průsečících
+ * nemění, to je úkolem volajícího.
+ * <p>
+ * Jádro se vybírá za běhu při prvním použití (viz
+ * {@link IntersectionKernel#getInstance()}). Je-li k dispozici modul
+ * <code>jdk.incubator.vector</code> (JVM spuštěný s volbou
+ * <code>--add-modules jdk.incubator.vector</code>) a jádro nad ním přeložené
+ * profilem <code>simd</code>, počítají se dráhy vektorově po celých
+ * registrech procesoru. Jinak se použije skalární jádro. Obě jádra počítají
+ * stejné operace ve stejném pořadí bez slučovaného násobení a sčítání, takže
+ * jsou jejich výsledky bitově totožné s výsledky výpočtu průsečíku s
+ * jedním paprskem.
+ * <p>
+ * Vektorové jádro lze vypnout systémovou vlastností
+ * <code>-Dsewerrt.simd=off</code>.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public abstract class IntersectionKernel {
+   /**
+    * Název třídy vektorového jádra, které se načítá reflexí, aby se bez
+    * modulu <code>jdk.incubator.vector</code> nenačítaly třídy, které na něm
+    * závisí.
+    */
+   private static final String VECTOR_KERNEL = "net.macsewer.graphics.sewerrt.geometry.VectorIntersectionKernel";
+
+   /**
+    * Jádro vybrané pro tento běh.
+    */
+   private static final IntersectionKernel INSTANCE = select();
+
+   /**
+    * Vrací jádro vybrané pro tento běh: vektorové, pokud je k dispozici a
+    * není vypnuté, jinak skalární.
+    * 
+    * @return Jádro výpočtu průsečíků.
+    */
+   public static IntersectionKernel getInstance() {
+      return INSTANCE;
+   }
+
+   /**
+    * Vybere jádro pro tento běh.
+    * 
+    * @return Vektorové jádro, pokud jej lze použít, jinak skalární jádro.
+    */
+   private static IntersectionKernel select() {
+      if (!"off".equalsIgnoreCase(System.getProperty("sewerrt.simd"))) {
+         try {
+            return (IntersectionKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+         } catch (InvocationTargetException e) {
+            // procesor nema vektorove registry pro float (konstruktor vyhodil
+            // UnsupportedOperationException)
+         } catch (ReflectiveOperationException e) {
+            // jadro nebylo prelozeno
+         } catch (LinkageError e) {
+            // modul jdk.incubator.vector neni k dispozici
+         }
+      }
+      return new ScalarIntersectionKernel();
+   }
+
+   /**
+    * Vrací název jádra pro výpisy měření: <code>scalar</code>, nebo
+    * <code>vector</code> s šířkou vektoru v bitech (např.
+    * <code>vector512</code>).
+    * 
+    * @return Název jádra.
+    */
+   public abstract String getName();
+
+   /**
+    * Určí průsečíky paprsků v drahách s trojúhelníkem daným daty projekční
+    * metody (viz {@link Triangle#updateIntersectionData()}). Do drah zapíše
+    * vzdálenost a barycentrické souřadnice vrcholů B a C.
+    * 
+    * @param lanes
+    *           Dráhy s paprsky.
+    * @param count
+    *           Počet obsazených drah.
+    * @param nx
+    *           Normála roviny dělená dominantní složkou (složka X).
+    * @param ny
+    *           Normála roviny dělená dominantní složkou (složka Y).
+    * @param nz
+    *           Normála roviny dělená dominantní složkou (složka Z).
+    * @param nd
+    *           Vzdálenost roviny od počátku.
+    * @param bx
+    *           Koeficient barycentrické souřadnice vrcholu B (složka X).
+    * @param by
+    *           Koeficient barycentrické souřadnice vrcholu B (složka Y).
+    * @param bz
+    *           Koeficient barycentrické souřadnice vrcholu B (složka Z).
+    * @param bd
+    *           Absolutní člen barycentrické souřadnice vrcholu B.
+    * @param cx
+    *           Koeficient barycentrické souřadnice vrcholu C (složka X).
+    * @param cy
+    *           Koeficient barycentrické souřadnice vrcholu C (složka Y).
+    * @param cz
+    *           Koeficient barycentrické souřadnice vrcholu C (složka Z).
+    * @param cd
+    *           Absolutní člen barycentrické souřadnice vrcholu C.
+    * @return Bitová maska drah s bližším průsečíkem.
+    */
+   public abstract int intersectTriangle(RayLanes lanes, int count, float nx, float ny, float nz, float nd, float bx, float by, float bz, float bd, float cx, float cy, float cz, float cd);
+
+   /**
+    * Určí průsečíky paprsků v drahách s trojúhelníkem daným vrcholem a dvěma
+    * hranami (algoritmus Möller-Trumbore, viz
+    * {@link IndexedMesh#intersect(int, Ray, HitRecord)}). Do drah zapíše
+    * vzdálenost a barycentrické souřadnice.
+    * 
+    * @param lanes
+    *           Dráhy s paprsky.
+    * @param count
+    *           Počet obsazených drah.
+    * @param ax
+    *           Souřadnice X vrcholu A.
+    * @param ay
+    *           Souřadnice Y vrcholu A.
+    * @param az
+    *           Souřadnice Z vrcholu A.
+    * @param e1x
+    *           Složka X hrany AB.
+    * @param e1y
+    *           Složka Y hrany AB.
+    * @param e1z
+    *           Složka Z hrany AB.
+    * @param e2x
+    *           Složka X hrany AC.
+    * @param e2y
+    *           Složka Y hrany AC.
+    * @param e2z
+    *           Složka Z hrany AC.
+    * @return Bitová maska drah s bližším průsečíkem.
+    */
+   public abstract int intersectEdges(RayLanes lanes, int count, float ax, float ay, float az, float e1x, float e1y, float e1z, float e2x, float e2y, float e2z);
+
+   /**
+    * Určí vstupy paprsků v drahách do koule stejně jako metoda
+    * {@link BoundingSphere#rayEntryDistance(Ray, float)}: paprsek kouli
+    * protíná, pokud do ní vstupuje nejdále ve vzdálenosti uložené v dráze a
+    * koule neleží celá za výchozím bodem. Do drah zapíše vzdálenost bližšího
+    * průsečíku s povrchem koule (zápornou, pokud výchozí bod leží uvnitř).
+    * 
+    * @param lanes
+    *           Dráhy s paprsky.
+    * @param count
+    *           Počet obsazených drah.
+    * @param x
+    *           Souřadnice X středu koule.
+    * @param y
+    *           Souřadnice Y středu koule.
+    * @param z
+    *           Souřadnice Z středu koule.
+    * @param radius
+    *           Poloměr koule.
+    * @return Bitová maska drah, jejichž paprsek do koule vstupuje.
+    */
+   public abstract int intersectSphere(RayLanes lanes, int count, float x, float y, float z, float radius);
+
+   /**
+    * Vrací bitovou masku prvních <code>count</code> drah.
+    * 
+    * @param count
+    *           Počet drah.
+    * @return Bitová maska.
+    */
+   protected static int laneMask(int count) {
+      return count == 32 ? -1 : (1 << count) - 1;
+   }
+}
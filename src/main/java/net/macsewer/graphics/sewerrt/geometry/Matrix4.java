@@ -91,6 +91,164 @@ public class Matrix4 {
       return tmp;
    }
 
+   /**
+    * Vrací součin této matice a dané matice. Body a vektory se násobí maticí
+    * zprava (jako řádkové vektory), výsledná matice proto odpovídá nejprve
+    * transformaci touto maticí a potom danou maticí.
+    * 
+    * @param m
+    *           Matice, kterou se násobí zprava.
+    * @return Nová matice <code>this * m</code>.
+    */
+   public Matrix4 mul(Matrix4 m) {
+      Matrix4 tmp = new Matrix4();
+      for (int i = 0; i < 4; i++) {
+         for (int j = 0; j < 4; j++) {
+            float sum = 0;
+            for (int k = 0; k < 4; k++) {
+               sum += data[i][k] * m.data[k][j];
+            }
+            tmp.data[i][j] = sum;
+         }
+      }
+      return tmp;
+   }
+
+   /**
+    * Vrací transponovanou matici.
+    * 
+    * @return Nová transponovaná matice.
+    */
+   public Matrix4 transposed() {
+      Matrix4 tmp = new Matrix4();
+      for (int i = 0; i < 4; i++) {
+         for (int j = 0; j < 4; j++) {
+            tmp.data[i][j] = data[j][i];
+         }
+      }
+      return tmp;
+   }
+
+   /**
+    * Vrací inverzní matici. Počítá se Gaussovou-Jordanovou eliminací s
+    * výběrem hlavního prvku ve dvojnásobné přesnosti.
+    * 
+    * @return Nová inverzní matice.
+    * @throws IllegalArgumentException
+    *            Pokud je matice singulární.
+    */
+   public Matrix4 inverse() {
+      double[][] a = new double[4][8];
+      for (int i = 0; i < 4; i++) {
+         for (int j = 0; j < 4; j++) {
+            a[i][j] = data[i][j];
+         }
+         a[i][4 + i] = 1;
+      }
+      for (int column = 0; column < 4; column++) {
+         int pivotRow = column;
+         for (int i = column + 1; i < 4; i++) {
+            if (Math.abs(a[i][column]) > Math.abs(a[pivotRow][column])) {
+               pivotRow = i;
+            }
+         }
+         if (a[pivotRow][column] == 0) {
+            throw new IllegalArgumentException("Singular matrix");
+         }
+         double[] row = a[pivotRow];
+         a[pivotRow] = a[column];
+         a[column] = row;
+         double scale = 1 / row[column];
+         for (int j = 0; j < 8; j++) {
+            row[j] *= scale;
+         }
+         for (int i = 0; i < 4; i++) {
+            double factor = a[i][column];
+            if (i != column && factor != 0) {
+               for (int j = 0; j < 8; j++) {
+                  a[i][j] -= factor * row[j];
+               }
+            }
+         }
+      }
+      Matrix4 tmp = new Matrix4();
+      for (int i = 0; i < 4; i++) {
+         for (int j = 0; j < 4; j++) {
+            tmp.data[i][j] = (float) a[i][4 + j];
+         }
+      }
+      return tmp;
+   }
+
+   /**
+    * Vytvoří jednotkovou matici.
+    * 
+    * @return Nová jednotková matice.
+    */
+   public static Matrix4 identity() {
+      Matrix4 tmp = new Matrix4();
+      for (int i = 0; i < 4; i++) {
+         tmp.data[i][i] = 1;
+      }
+      return tmp;
+   }
+
+   /**
+    * Vytvoří matici posunutí o daný vektor.
+    * 
+    * @param x
+    *           Posunutí ve směru osy x.
+    * @param y
+    *           Posunutí ve směru osy y.
+    * @param z
+    *           Posunutí ve směru osy z.
+    * @return Nová matice posunutí.
+    */
+   public static Matrix4 translation(float x, float y, float z) {
+      Matrix4 tmp = identity();
+      tmp.data[3][0] = x;
+      tmp.data[3][1] = y;
+      tmp.data[3][2] = z;
+      return tmp;
+   }
+
+   /**
+    * Vytvoří matici změny měřítka podél os.
+    * 
+    * @param x
+    *           Měřítko ve směru osy x.
+    * @param y
+    *           Měřítko ve směru osy y.
+    * @param z
+    *           Měřítko ve směru osy z.
+    * @return Nová matice změny měřítka.
+    */
+   public static Matrix4 scale(float x, float y, float z) {
+      Matrix4 tmp = identity();
+      tmp.data[0][0] = x;
+      tmp.data[1][1] = y;
+      tmp.data[2][2] = z;
+      return tmp;
+   }
+
+   /**
+    * Vytvoří matici otočení kolem osy z (od osy x k ose y).
+    * 
+    * @param angle
+    *           Úhel otočení v radiánech.
+    * @return Nová matice otočení.
+    */
+   public static Matrix4 rotationZ(float angle) {
+      Matrix4 tmp = identity();
+      float cos = (float) Math.cos(angle);
+      float sin = (float) Math.sin(angle);
+      tmp.data[0][0] = cos;
+      tmp.data[0][1] = sin;
+      tmp.data[1][0] = -sin;
+      tmp.data[1][1] = cos;
+      return tmp;
+   }
+
    /**
     * @return
     */
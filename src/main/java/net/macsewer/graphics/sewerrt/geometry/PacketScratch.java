@@ -0,0 +1,136 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Pomocná pole pro výpočet průsečíků paketu paprsků, sdílená všemi výpočty
+ * jednoho vlákna, aby se při každé návštěvě objektu paketem nealokovala nová.
+ * Výpočet si na začátku vyhradí rámec a na konci jej uvolní. Výpočty vnořené
+ * do jiného (např. síť trojúhelníků uvnitř instance) si vyhradí rámec nad
+ * ním.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+final class PacketScratch {
+   /**
+    * Největší počet paprsků paketu (paprsky se evidují bitovou maskou).
+    */
+   static final int CAPACITY = Integer.SIZE;
+
+   /**
+    * Pomocná pole jednotlivých vláken.
+    */
+   private static final ThreadLocal<PacketScratch> SCRATCHES = new ThreadLocal<PacketScratch>() {
+      @Override
+      protected PacketScratch initialValue() {
+         return new PacketScratch();
+      }
+   };
+
+   /**
+    * Rámce, vytvářené až při prvním použití.
+    */
+   private Frame[] frames = new Frame[4];
+
+   /**
+    * Počet vyhrazených rámců.
+    */
+   private int top;
+
+   /**
+    * Vytvoří prázdná pomocná pole.
+    */
+   private PacketScratch() {
+   }
+
+   /**
+    * Vrací pomocná pole aktuálního vlákna.
+    * 
+    * @return Pomocná pole aktuálního vlákna.
+    */
+   static PacketScratch get() {
+      return SCRATCHES.get();
+   }
+
+   /**
+    * Vyhradí nový rámec.
+    * 
+    * @return Vyhrazený rámec.
+    */
+   Frame reserve() {
+      if (top == frames.length) {
+         frames = Arrays.copyOf(frames, top * 2);
+      }
+      Frame frame = frames[top];
+      if (frame == null) {
+         frame = new Frame(top);
+         frames[top] = frame;
+      }
+      top++;
+      return frame;
+   }
+
+   /**
+    * Uvolní rámec vyhrazený metodou {@link PacketScratch#reserve()} (a
+    * všechny rámce nad ním).
+    * 
+    * @param frame
+    *           Uvolňovaný rámec.
+    */
+   void release(Frame frame) {
+      top = frame.level;
+   }
+
+   /**
+    * Rámec pomocných polí jednoho výpočtu.
+    */
+   static final class Frame {
+      /**
+       * Pořadí rámce.
+       */
+      private final int level;
+
+      /**
+       * Paprsky vybrané z paketu.
+       */
+      final Ray[] rays = new Ray[CAPACITY];
+
+      /**
+       * Záznamy o průsečících vybrané z paketu.
+       */
+      final HitRecord[] hits = new HitRecord[CAPACITY];
+
+      /**
+       * Vzdálenosti v záznamech před výpočtem.
+       */
+      final float[] distances = new float[CAPACITY];
+
+      /**
+       * Poměry délek směrů paprsků v soustavě objektu a ve scéně.
+       */
+      final float[] scales = new float[CAPACITY];
+
+      /**
+       * Paprsky převedené do soustavy objektu. Výchozí bod i směr se
+       * přepisují na místě.
+       */
+      final Ray[] transformed = new Ray[CAPACITY];
+
+      /**
+       * Vytvoří rámec daného pořadí.
+       * 
+       * @param level
+       *           Pořadí rámce.
+       */
+      private Frame(int level) {
+         this.level = level;
+         for (int k = 0; k < CAPACITY; k++) {
+            transformed[k] = new Ray(new Point3D(), new Vector3(0, 0, 1));
+         }
+      }
+   }
+}
@@ -0,0 +1,224 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import net.macsewer.graphics.sewerrt.acceleration.BoundingVolumeHierarchy;
+
+/**
+ * Paprsky paketu rozložené po složkách do polí (struktura polí), nad kterými
+ * počítají průsečíky jádra {@link IntersectionKernel}. Aktivní paprsky paketu
+ * se do polí ukládají těsně za sebou, pozice paprsku v polích se nazývá
+ * dráha. Dráhy za posledním aktivním paprskem obsahují neplatná data, jádra
+ * je počítají také a jejich výsledky se maskou zahodí.
+ * <p>
+ * Každé vlákno má vlastní instanci (viz {@link RayLanes#get()}), jádra ji
+ * nesmí uchovávat mezi voláními.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public final class RayLanes {
+   /**
+    * Počet drah, násobek délky libovolného vektoru typu <code>float</code>
+    * (nejvýše 16 složek pro 512bitové registry).
+    */
+   public static final int CAPACITY = BoundingVolumeHierarchy.MAX_PACKET_SIZE;
+
+   /**
+    * Instance pro jednotlivá vlákna.
+    */
+   private static final ThreadLocal<RayLanes> LANES = new ThreadLocal<RayLanes>() {
+      @Override
+      protected RayLanes initialValue() {
+         return new RayLanes();
+      }
+   };
+
+   /**
+    * Souřadnice X výchozích bodů paprsků.
+    */
+   final float[] ox = new float[CAPACITY];
+
+   /**
+    * Souřadnice Y výchozích bodů paprsků.
+    */
+   final float[] oy = new float[CAPACITY];
+
+   /**
+    * Souřadnice Z výchozích bodů paprsků.
+    */
+   final float[] oz = new float[CAPACITY];
+
+   /**
+    * Složky X směrů paprsků.
+    */
+   final float[] dx = new float[CAPACITY];
+
+   /**
+    * Složky Y směrů paprsků.
+    */
+   final float[] dy = new float[CAPACITY];
+
+   /**
+    * Složky Z směrů paprsků.
+    */
+   final float[] dz = new float[CAPACITY];
+
+   /**
+    * Vzdálenosti dosud nejbližších průsečíků paprsků.
+    */
+   final float[] distance = new float[CAPACITY];
+
+   /**
+    * Vzdálenosti průsečíků spočítané jádrem.
+    */
+   final float[] t = new float[CAPACITY];
+
+   /**
+    * Barycentrické souřadnice průsečíků spočítané jádrem.
+    */
+   final float[] u = new float[CAPACITY];
+
+   /**
+    * Barycentrické souřadnice průsečíků spočítané jádrem.
+    */
+   final float[] v = new float[CAPACITY];
+
+   /**
+    * Index paprsku v paketu pro každou dráhu.
+    */
+   final int[] ray = new int[CAPACITY];
+
+   /**
+    * Vytvoří prázdné dráhy.
+    */
+   private RayLanes() {
+   }
+
+   /**
+    * Vrací dráhy patřící aktuálnímu vláknu.
+    * 
+    * @return Dráhy aktuálního vlákna.
+    */
+   public static RayLanes get() {
+      return LANES.get();
+   }
+
+   /**
+    * Uloží do drah paprsky paketu dané maskou spolu se vzdálenostmi jejich
+    * dosud nejbližších průsečíků. Paprsky se načítají při každém volání,
+    * volající je proto mezi voláními smí přepisovat na místě.
+    * 
+    * @param rays
+    *           Paprsky paketu.
+    * @param hits
+    *           Záznamy o dosud nejbližších průsečících paprsků paketu.
+    * @param mask
+    *           Bitová maska ukládaných paprsků (bit <code>k</code> odpovídá
+    *           paprsku <code>rays[k]</code>).
+    * @return Počet obsazených drah.
+    */
+   public int load(Ray[] rays, HitRecord[] hits, int mask) {
+      int count = 0;
+      for (int rest = mask; rest != 0; rest &= rest - 1) {
+         int k = Integer.numberOfTrailingZeros(rest);
+         Point3D o = rays[k].getOrigin();
+         Vector3 s = rays[k].getDirection();
+         ox[count] = o.x;
+         oy[count] = o.y;
+         oz[count] = o.z;
+         dx[count] = s.x;
+         dy[count] = s.y;
+         dz[count] = s.z;
+         distance[count] = hits[k].distance;
+         ray[count++] = k;
+      }
+      return count;
+   }
+
+   /**
+    * Započítá test průsečíku do záznamů paprsků v prvních <code>count</code>
+    * drahách.
+    * 
+    * @param hits
+    *           Záznamy o průsečících paprsků paketu.
+    * @param count
+    *           Počet obsazených drah.
+    * @param counter
+    *           Čítač statistik (např. {@link RenderStatistics#TRIANGLE_TESTS}).
+    */
+   public void countTests(HitRecord[] hits, int count, int counter) {
+      for (int i = 0; i < count; i++) {
+         hits[ray[i]].countTest(counter);
+      }
+   }
+
+   /**
+    * Zapíše průsečíky spočítané jádrem v drahách daných maskou do záznamů
+    * paprsků.
+    * 
+    * @param hits
+    *           Záznamy o průsečících paprsků paketu.
+    * @param found
+    *           Bitová maska drah s bližším průsečíkem (výsledek jádra).
+    * @param primitive
+    *           Index primitiva v rámci objektu.
+    * @return Bitová maska paprsků paketu, jejichž záznam byl přepsán.
+    */
+   public int store(HitRecord[] hits, int found, int primitive) {
+      int stored = 0;
+      for (int rest = found; rest != 0; rest &= rest - 1) {
+         int i = Integer.numberOfTrailingZeros(rest);
+         hits[ray[i]].set(t[i], primitive, u[i], v[i]);
+         stored |= 1 << ray[i];
+      }
+      return stored;
+   }
+
+   /**
+    * Vrací index paprsku v paketu uloženého v dané dráze.
+    * 
+    * @param lane
+    *           Dráha.
+    * @return Index paprsku v paketu.
+    */
+   public int getRay(int lane) {
+      return ray[lane];
+   }
+
+   /**
+    * Vrací vzdálenost průsečíku spočítanou jádrem v dané dráze.
+    * 
+    * @param lane
+    *           Dráha.
+    * @return Vzdálenost průsečíku.
+    */
+   public float getT(int lane) {
+      return t[lane];
+   }
+
+   /**
+    * Vrací barycentrickou souřadnici průsečíku spočítanou jádrem v dané
+    * dráze.
+    * 
+    * @param lane
+    *           Dráha.
+    * @return Barycentrická souřadnice.
+    */
+   public float getU(int lane) {
+      return u[lane];
+   }
+
+   /**
+    * Vrací barycentrickou souřadnici průsečíku spočítanou jádrem v dané
+    * dráze.
+    * 
+    * @param lane
+    *           Dráha.
+    * @return Barycentrická souřadnice.
+    */
+   public float getV(int lane) {
+      return v[lane];
+   }
+}
@@ -0,0 +1,259 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Třída se statistikami vykreslování (počty paprsků, testů průsečíků, zásahů
+ * a doby jednotlivých fází). Čítače jsou rozděleny do několika pruhů
+ * (stripes), vlákno přičítá do pruhu podle svého identifikátoru. Souběžně
+ * vykreslující vlákna si tak navzájem nepřepisují tutéž řádku cache a
+ * přičítání zůstává levné. Hodnota čítače je součtem přes všechny pruhy a lze
+ * ji číst kdykoli, i během vykreslování.
+ * <p>
+ * Statistiky jsou volitelné, sbírají se jen tehdy, když je raytraceru
+ * nastavena instance této třídy. Čítače průsečíků se předávají v záznamu o
+ * průsečíku ({@link HitRecord#setStatistics(RenderStatistics)}).
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class RenderStatistics {
+
+   /**
+    * Počet primárních paprsků.
+    */
+   public static final int PRIMARY_RAYS = 0;
+
+   /**
+    * Počet stínových paprsků (testů zastínění).
+    */
+   public static final int SHADOW_RAYS = 1;
+
+   /**
+    * Počet odražených paprsků.
+    */
+   public static final int REFLECTION_RAYS = 2;
+
+   /**
+    * Počet testů obalové koule objektu.
+    */
+   public static final int BOUNDING_SPHERE_TESTS = 3;
+
+   /**
+    * Počet testů obalové koule, které paprsek vyloučily.
+    */
+   public static final int BOUNDING_SPHERE_REJECTIONS = 4;
+
+   /**
+    * Počet testů obalového kvádru objektu.
+    */
+   public static final int BOUNDING_BOX_TESTS = 5;
+
+   /**
+    * Počet testů obalového kvádru, které paprsek vyloučily.
+    */
+   public static final int BOUNDING_BOX_REJECTIONS = 6;
+
+   /**
+    * Počet testů průsečíku s trojúhelníkem.
+    */
+   public static final int TRIANGLE_TESTS = 7;
+
+   /**
+    * Počet testů průsečíku s koulí.
+    */
+   public static final int SPHERE_TESTS = 8;
+
+   /**
+    * Počet navštívených uzlů hierarchií obalových kvádrů.
+    */
+   public static final int BVH_NODE_VISITS = 9;
+
+   /**
+    * Počet navštívených buněk pravidelných mřížek.
+    */
+   public static final int GRID_CELL_VISITS = 10;
+
+   /**
+    * Počet primárních a odražených paprsků, které zasáhly objekt scény.
+    */
+   public static final int HITS = 11;
+
+   /**
+    * Počet stínových paprsků, které narazily na překážku.
+    */
+   public static final int SHADOW_HITS = 12;
+
+   /**
+    * Doba stavby hierarchie objektů scény (ns).
+    */
+   public static final int BUILD_NANOS = 13;
+
+   /**
+    * Doba prvního průchodu adaptivního vyhlazování (ns).
+    */
+   public static final int PREVIEW_NANOS = 14;
+
+   /**
+    * Doba vykreslování rastru (ns), u adaptivního vyhlazování bez prvního
+    * průchodu.
+    */
+   public static final int RENDER_NANOS = 15;
+
+   /**
+    * Počet čítačů.
+    */
+   public static final int COUNTER_COUNT = 16;
+
+   /**
+    * Názvy čítačů pro výpis.
+    */
+   private static final String[] NAMES = { "primary_rays", "shadow_rays", "reflection_rays", "bounding_sphere_tests", "bounding_sphere_rejections", "bounding_box_tests", "bounding_box_rejections", "triangle_tests", "sphere_tests",
+         "bvh_node_visits", "grid_cell_visits", "hits", "shadow_hits", "build_ns", "preview_ns", "render_ns" };
+
+   /**
+    * Počet čítačů v jednom pruhu včetně výplně (nejméně
+    * {@link RenderStatistics#COUNTER_COUNT}). Pruh zabírá 128 bajtů, takže
+    * sousední pruhy neleží ve stejné řádce cache.
+    */
+   private static final int STRIDE = 16;
+
+   /**
+    * Maska pro výběr pruhu (počet pruhů je mocnina dvou).
+    */
+   private final int mask;
+
+   /**
+    * Čítače všech pruhů (pruh <code>s</code> začíná na indexu
+    * <code>(s + 1) * STRIDE</code>, první blok je výplň).
+    */
+   private final AtomicLongArray counters;
+
+   /**
+    * Vytvoří statistiky s počtem pruhů podle počtu procesorů.
+    */
+   public RenderStatistics() {
+      this(Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * Vytvoří statistiky pro daný počet souběžně zapisujících vláken.
+    * 
+    * @param threadCount
+    *           Očekávaný počet vláken. Počet pruhů se zaokrouhlí nahoru na
+    *           mocninu dvou.
+    */
+   public RenderStatistics(int threadCount) {
+      int stripes = Integer.highestOneBit(Math.max(1, Math.min(threadCount, 64)) * 2 - 1);
+      mask = stripes - 1;
+      counters = new AtomicLongArray((stripes + 2) * STRIDE);
+   }
+
+   /**
+    * Vrací pruh čítačů pro aktuální vlákno. Vlákno, které přičítá opakovaně,
+    * si může pruh zjistit jednou a předávat jej metodě
+    * {@link RenderStatistics#add(int, int, long)}.
+    * 
+    * @return Index pruhu.
+    */
+   public int stripe() {
+      return (int) Thread.currentThread().getId() & mask;
+   }
+
+   /**
+    * Přičte k čítači v daném pruhu danou hodnotu.
+    * 
+    * @param stripe
+    *           Index pruhu (viz {@link RenderStatistics#stripe()}).
+    * @param counter
+    *           Čítač (např. {@link RenderStatistics#PRIMARY_RAYS}).
+    * @param delta
+    *           Přičítaná hodnota.
+    */
+   public void add(int stripe, int counter, long delta) {
+      counters.addAndGet((stripe + 1) * STRIDE + counter, delta);
+   }
+
+   /**
+    * Přičte k čítači v pruhu aktuálního vlákna danou hodnotu.
+    * 
+    * @param counter
+    *           Čítač.
+    * @param delta
+    *           Přičítaná hodnota.
+    */
+   public void add(int counter, long delta) {
+      add(stripe(), counter, delta);
+   }
+
+   /**
+    * Zvýší čítač v daném pruhu o jedna.
+    * 
+    * @param stripe
+    *           Index pruhu.
+    * @param counter
+    *           Čítač.
+    */
+   public void increment(int stripe, int counter) {
+      counters.incrementAndGet((stripe + 1) * STRIDE + counter);
+   }
+
+   /**
+    * Vrací hodnotu čítače (součet přes všechny pruhy). Během vykreslování je
+    * výsledek jen průběžný, jednotlivé pruhy se nečtou atomicky najednou.
+    * 
+    * @param counter
+    *           Čítač.
+    * @return Hodnota čítače.
+    */
+   public long get(int counter) {
+      long sum = 0;
+      for (int s = 0; s <= mask; s++) {
+         sum += counters.get((s + 1) * STRIDE + counter);
+      }
+      return sum;
+   }
+
+   /**
+    * Vynuluje všechny čítače. Nemá se volat souběžně s vykreslováním.
+    */
+   public void reset() {
+      for (int s = 0; s <= mask; s++) {
+         for (int c = 0; c < COUNTER_COUNT; c++) {
+            counters.set((s + 1) * STRIDE + c, 0);
+         }
+      }
+   }
+
+   /**
+    * Vrací název čítače pro výpis.
+    * 
+    * @param counter
+    *           Čítač.
+    * @return Název čítače.
+    */
+   public static String getName(int counter) {
+      return NAMES[counter];
+   }
+
+   /**
+    * Vrací hodnoty všech čítačů ve tvaru <code>název=hodnota</code> oddělené
+    * mezerou.
+    * 
+    * @see java.lang.Object#toString()
+    */
+   @Override
+   public String toString() {
+      StringBuilder sb = new StringBuilder();
+      for (int c = 0; c < COUNTER_COUNT; c++) {
+         if (c > 0) {
+            sb.append(' ');
+         }
+         sb.append(NAMES[c]).append('=').append(get(c));
+      }
+      return sb.toString();
+   }
+}
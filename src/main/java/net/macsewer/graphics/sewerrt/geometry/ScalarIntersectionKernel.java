@@ -0,0 +1,141 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+/**
+ * Skalární jádro výpočtu průsečíků, které zpracovává dráhy jednu po druhé.
+ * Používá se, pokud není k dispozici vektorové jádro.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+class ScalarIntersectionKernel extends IntersectionKernel {
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.IntersectionKernel#getName()
+    */
+   @Override
+   public String getName() {
+      return "scalar";
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.IntersectionKernel#intersectTriangle(net.macsewer.graphics.sewerrt.geometry.RayLanes, int, float, float, float, float, float, float, float, float, float, float, float, float)
+    */
+   @Override
+   public int intersectTriangle(RayLanes lanes, int count, float nx, float ny, float nz, float nd, float bx, float by, float bz, float bd, float cx, float cy, float cz, float cd) {
+      int found = 0;
+      for (int i = 0; i < count; i++) {
+         float ox = lanes.ox[i], oy = lanes.oy[i], oz = lanes.oz[i];
+         float sx = lanes.dx[i], sy = lanes.dy[i], sz = lanes.dz[i];
+         float t = (nd - (nx * ox + ny * oy + nz * oz)) / (nx * sx + ny * sy + nz * sz);
+         if (!(t > 0 && t < lanes.distance[i])) {
+            continue;
+         }
+         float hx = ox + t * sx;
+         float hy = oy + t * sy;
+         float hz = oz + t * sz;
+         float beta = bx * hx + by * hy + bz * hz + bd;
+         if (!(beta >= 0)) {
+            continue;
+         }
+         float gamma = cx * hx + cy * hy + cz * hz + cd;
+         if (!(gamma >= 0) || beta + gamma > 1) {
+            continue;
+         }
+         lanes.t[i] = t;
+         lanes.u[i] = beta;
+         lanes.v[i] = gamma;
+         found |= 1 << i;
+      }
+      return found;
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.IntersectionKernel#intersectEdges(net.macsewer.graphics.sewerrt.geometry.RayLanes, int, float, float, float, float, float, float, float, float, float)
+    */
+   @Override
+   public int intersectEdges(RayLanes lanes, int count, float ax, float ay, float az, float e1x, float e1y, float e1z, float e2x, float e2y, float e2z) {
+      int found = 0;
+      for (int i = 0; i < count; i++) {
+         float sx = lanes.dx[i], sy = lanes.dy[i], sz = lanes.dz[i];
+         float px = sy * e2z - sz * e2y;
+         float py = sz * e2x - sx * e2z;
+         float pz = sx * e2y - sy * e2x;
+         float det = e1x * px + e1y * py + e1z * pz;
+         if (det == 0) {
+            continue;
+         }
+         float invDet = 1 / det;
+
+         float tx = lanes.ox[i] - ax;
+         float ty = lanes.oy[i] - ay;
+         float tz = lanes.oz[i] - az;
+         float u = (tx * px + ty * py + tz * pz) * invDet;
+         if (u < 0 || u > 1) {
+            continue;
+         }
+
+         float qx = ty * e1z - tz * e1y;
+         float qy = tz * e1x - tx * e1z;
+         float qz = tx * e1y - ty * e1x;
+         float v = (sx * qx + sy * qy + sz * qz) * invDet;
+         if (v < 0 || u + v > 1) {
+            continue;
+         }
+
+         float t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+         if (!(t > 0 && t < lanes.distance[i])) {
+            continue;
+         }
+         lanes.t[i] = t;
+         lanes.u[i] = u;
+         lanes.v[i] = v;
+         found |= 1 << i;
+      }
+      return found;
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.IntersectionKernel#intersectSphere(net.macsewer.graphics.sewerrt.geometry.RayLanes, int, float, float, float, float)
+    */
+   @Override
+   public int intersectSphere(RayLanes lanes, int count, float x, float y, float z, float radius) {
+      float center2 = x * x + y * y + z * z;
+      float radius2 = radius * radius;
+      int found = 0;
+      for (int i = 0; i < count; i++) {
+         float px = lanes.ox[i], py = lanes.oy[i], pz = lanes.oz[i];
+         float sx = lanes.dx[i], sy = lanes.dy[i], sz = lanes.dz[i];
+
+         float a = sx * sx + sy * sy + sz * sz;
+         float b = 2 * (sx * px + sy * py + sz * pz - (sx * x + sy * y + sz * z));
+         float c = px * px + py * py + pz * pz - 2 * (px * x + py * y + pz * z) + center2 - radius2;
+         float d = b * b - 4 * a * c;
+         if (d < 0) {
+            continue;
+         }
+         float root = (float) Math.sqrt(d);
+         if (!((-b + root) / (2 * a) >= 0)) {
+            // koule lezi za vychozim bodem paprsku
+            continue;
+         }
+         float tNear = (-b - root) / (2 * a);
+         if (!(Math.max(tNear, 0) <= lanes.distance[i])) {
+            continue;
+         }
+         lanes.t[i] = tNear;
+         found |= 1 << i;
+      }
+      return found;
+   }
+}
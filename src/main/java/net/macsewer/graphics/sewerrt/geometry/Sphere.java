@@ -49,10 +49,11 @@ public class Sphere extends AbstractObject {
    /*
     * (non-Javadoc)
     * 
-    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#_crossRay(net.macsewer.graphics.sewerrt.geometry.Ray)
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#_intersect(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
     */
    @Override
-   protected Vertex _crossRay(Ray ray) {
+   protected boolean _intersect(Ray ray, HitRecord hit) {
+      hit.countTest(RenderStatistics.SPHERE_TESTS);
       Point3D p = ray.getOrigin();
       Vector3 s = ray.getDirection();
 
@@ -63,17 +64,67 @@ public class Sphere extends AbstractObject {
       float d = b * b - 4 * a * c;
       if (d >= 0) {
          float t = (-b - (float) Math.sqrt(d)) / (2 * a);
-         Point3D position = p.move(s.mul(t));
-         Vertex cross = new Vertex();
-         cross.setPosition(position);
-         cross.setNormal(new Vector3(pivot, position).normalized());
-         cross.setDiffuse(diffuseColor);
-         cross.setTextureCoord(new Float3());
-         cross.setOwner(this);
-         return cross;
-      } else {
-         return null;
+         if (t > 0 && t < hit.distance) {
+            hit.set(t, 0, 0, 0);
+            return true;
+         }
       }
+      return false;
+   }
+
+   /**
+    * Koule je sama sobě obalovou koulí, test obalové koule a výpočet průsečíku
+    * proto vystačí s jedním řešením kvadratické rovnice na paprsek, které pro
+    * celý paket spočítá jádro {@link IntersectionKernel}. Výsledek i
+    * statistiky jsou totožné s postupným voláním
+    * {@link AbstractObject#intersect(Ray, HitRecord)}.
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#intersect(net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int)
+    */
+   @Override
+   public int intersect(Ray[] rays, HitRecord[] hits, int mask) {
+      if (bSphere.getPivot() != pivot || bSphere.getRadius() != radius) {
+         // obalova koule neodpovida kouli (zmena polomeru bez prepocitani)
+         return super.intersect(rays, hits, mask);
+      }
+      RayLanes lanes = RayLanes.get();
+      int count = lanes.load(rays, hits, getTestedRays(hits, mask));
+      lanes.countTests(hits, count, RenderStatistics.BOUNDING_SPHERE_TESTS);
+      int entered = bSphere.rayEntered(lanes, count);
+
+      int found = 0;
+      for (int i = 0; i < count; i++) {
+         HitRecord hit = hits[lanes.ray[i]];
+         if ((entered & (1 << i)) == 0) {
+            hit.count(RenderStatistics.BOUNDING_SPHERE_REJECTIONS);
+            continue;
+         }
+         hit.countTest(RenderStatistics.SPHERE_TESTS);
+         float tNear = lanes.t[i];
+         if (tNear > 0 && tNear < hit.distance) {
+            hit.set(tNear, 0, 0, 0);
+            hit.object = this;
+            found |= 1 << lanes.ray[i];
+         }
+      }
+      return found;
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#computeVertex(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+    */
+   @Override
+   protected Vertex computeVertex(Ray ray, HitRecord hit) {
+      Point3D position = ray.getOrigin().move(ray.getDirection().mul(hit.distance));
+      Vertex cross = new Vertex();
+      cross.setPosition(position);
+      cross.setNormal(new Vector3(pivot, position).normalized());
+      cross.setDiffuse(diffuseColor);
+      cross.setTextureCoord(new Float3());
+      cross.setOwner(this);
+      return cross;
    }
 
    /**
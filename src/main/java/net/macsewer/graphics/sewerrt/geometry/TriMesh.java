@@ -3,10 +3,19 @@
  */
 package net.macsewer.graphics.sewerrt.geometry;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Vector;
 
+import net.macsewer.graphics.sewerrt.acceleration.BoundingVolumeHierarchy;
+import net.macsewer.graphics.sewerrt.acceleration.PacketIntersector;
+
 /**
- * Třída reprezentující objekt typu "Mesh" složený z trojúhelníků.
+ * Třída reprezentující objekt typu "Mesh" složený z trojúhelníků. Trojúhelníky
+ * jsou uloženy buď jako kolekce objektů {@link Triangle}, nebo v kompaktní
+ * indexované podobě ({@link IndexedMesh}), nad kterou se průsečíky počítají
+ * přímo. Indexovaná síť se po vytvoření objektu nemění.
  * 
  * @author Pavel Macík
  * 
@@ -17,6 +26,26 @@ public class TriMesh extends AbstractObject {
     */
    private Vector<Triangle> triangles;
 
+   /**
+    * Indexovaná síť trojúhelníků, nebo <code>null</code>, pokud je objekt
+    * složen z kolekce trojúhelníků {@link TriMesh#triangles}.
+    */
+   private IndexedMesh indexedMesh;
+
+   /**
+    * Hierarchie obalových kvádrů nad trojúhelníky. Staví se líně při prvním
+    * výpočtu průsečíku (nebo voláním {@link TriMesh#buildHierarchy()}) a
+    * zahazuje se při změně trojúhelníků.
+    */
+   private volatile MeshHierarchy hierarchy;
+
+   /**
+    * Nejmenší počet trojúhelníků, od kterého se hierarchií sítě prochází
+    * paket paprsků společně. U menších sítí převáží režie paketu a paprsky se
+    * testují jeden po druhém.
+    */
+   private static final int PACKET_MIN_TRIANGLES = 64;
+
    /**
     * Vytvoří prázdný objekt typu Mesh.
     */
@@ -24,6 +53,18 @@ public class TriMesh extends AbstractObject {
       triangles = new Vector<Triangle>(10, 5);
    }
 
+   /**
+    * Vytvoří objekt typu Mesh nad danou indexovanou sítí trojúhelníků.
+    * 
+    * @param mesh
+    *           Indexovaná síť trojúhelníků.
+    */
+   public TriMesh(IndexedMesh mesh) {
+      triangles = new Vector<Triangle>(0);
+      indexedMesh = mesh;
+      updateBoundingSphere();
+   }
+
    /**
     * Vloží do objektu trojúhelník, jehož vrcholy jsou dány parametry. Barva
     * trojúhelníku je bílá.
@@ -40,7 +81,10 @@ public class TriMesh extends AbstractObject {
    }
 
    /**
-    * Vloží do objektu trojúhelník, jehož vrcholy jsou dány parametry.
+    * Vloží do objektu trojúhelník, jehož vrcholy jsou dány parametry. Po
+    * každém vložení se přepočítá obalová koule objektu, takže vložení trvá
+    * úměrně počtu trojúhelníků. Velké sítě je lepší sestavit najednou pomocí
+    * {@link TriMeshBuilder}.
     * 
     * @param vp1
     *           Vrchol trojúhelníku.
@@ -50,44 +94,204 @@ public class TriMesh extends AbstractObject {
     *           Vrchol trojúhelníku.
     * @param color
     *           Barva trojúhelníku.
+    * @throws IllegalStateException
+    *            Pokud je objekt složen z indexované sítě.
     */
    public void addTriangle(Point3D vp1, Point3D vp2, Point3D vp3, ColorRGB color) {
+      if (indexedMesh != null) {
+         throw new IllegalStateException("Cannot add a triangle to an indexed mesh");
+      }
+      triangles.add(createTriangle(vp1, vp2, vp3, color));
+      updateBoundingSphere();
+   }
+
+   /**
+    * Vytvoří trojúhelník s danými vrcholy a barvou, jaký vkládá metoda
+    * {@link TriMesh#addTriangle(Point3D, Point3D, Point3D, ColorRGB)}.
+    * 
+    * @param vp1
+    *           Vrchol trojúhelníku.
+    * @param vp2
+    *           Vrchol trojúhelníku.
+    * @param vp3
+    *           Vrchol trojúhelníku.
+    * @param color
+    *           Barva trojúhelníku.
+    * @return Trojúhelník.
+    */
+   static Triangle createTriangle(Point3D vp1, Point3D vp2, Point3D vp3, ColorRGB color) {
       Vector3 normal = Triangle.computeNormal(vp1, vp2, vp3);
       Vertex v1 = new Vertex(vp1, normal, color, new Vector3());
       Vertex v2 = new Vertex(vp2, normal, color, new Vector3());
       Vertex v3 = new Vertex(vp3, normal, color, new Vector3());
       Triangle t = new Triangle(v1, v2, v3);
       t.setDiffueColor(color);
-      triangles.add(t);
-      updateBoundingSphere();
+      return t;
    }
 
    /*
     * (non-Javadoc)
     * 
-    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#_crossRay(net.macsewer.graphics.sewerrt.geometry.Ray)
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#_intersect(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+    */
+   @Override
+   protected boolean _intersect(Ray ray, HitRecord hit) {
+      MeshHierarchy currentHierarchy = getHierarchy();
+      return currentHierarchy.bvh.closestHit(ray, hit, currentHierarchy);
+   }
+
+   /**
+    * Paket se hierarchií trojúhelníků prochází společně (viz
+    * {@link BoundingVolumeHierarchy#closestHits(Ray[], HitRecord[], int, net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector)}).
+    * Paprsky, které maska vynechává, se z paketu vypustí. Pomocná pole se berou
+    * z {@link PacketScratch} aktuálního vlákna.
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#_intersect(net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int)
     */
    @Override
-   protected Vertex _crossRay(Ray ray) {
-      int count = triangles.size();
-      Triangle currentTriangle;
-      Vertex vertex = null, currentVertex = null;
-      float depth = Float.MAX_VALUE;
-      float currentDepth;
-
-      for (int k = 0; k < count; k++) {
-         currentTriangle = triangles.get(k);
-         currentVertex = currentTriangle.crossRay(ray);
-
-         if (currentVertex != null) {
-            currentDepth = new Vector3(ray.getOrigin(), currentVertex.getPosition()).lenght();
-            if (currentDepth < depth) {
-               depth = currentDepth;
-               vertex = currentVertex;
+   protected int _intersect(Ray[] rays, HitRecord[] hits, int mask) {
+      MeshHierarchy currentHierarchy = getHierarchy();
+      int count = Integer.bitCount(mask);
+      if (count == 1 || currentHierarchy.primitiveCount < PACKET_MIN_TRIANGLES) {
+         return super._intersect(rays, hits, mask);
+      }
+      PacketScratch scratch = PacketScratch.get();
+      PacketScratch.Frame frame = scratch.reserve();
+      try {
+         Ray[] packetRays = rays;
+         HitRecord[] packetHits = hits;
+         if (count == 32 ? mask != -1 : mask != (1 << count) - 1) {
+            packetRays = frame.rays;
+            packetHits = frame.hits;
+            int i = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+               int k = Integer.numberOfTrailingZeros(rest);
+               packetRays[i] = rays[k];
+               packetHits[i++] = hits[k];
             }
          }
+         float[] distances = frame.distances;
+         for (int i = 0; i < count; i++) {
+            distances[i] = packetHits[i].distance;
+         }
+         currentHierarchy.bvh.closestHits(packetRays, packetHits, count, currentHierarchy);
+
+         // zaznam se prepisuje jen blizsim prusecikem
+         int found = 0;
+         int i = 0;
+         for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int k = Integer.numberOfTrailingZeros(rest);
+            if (hits[k].distance != distances[i++]) {
+               found |= 1 << k;
+            }
+         }
+         return found;
+      } finally {
+         scratch.release(frame);
       }
-      return vertex;
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#_intersectAny(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+    */
+   @Override
+   protected boolean _intersectAny(Ray ray, HitRecord hit) {
+      MeshHierarchy currentHierarchy = getHierarchy();
+      return currentHierarchy.bvh.anyHit(ray, hit, currentHierarchy);
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.AbstractObject#computeVertex(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+    */
+   @Override
+   protected Vertex computeVertex(Ray ray, HitRecord hit) {
+      return getHierarchy().computeVertex(ray, hit);
+   }
+
+   /**
+    * Vrací aktuální hierarchii obalových kvádrů nad trojúhelníky. Pokud
+    * hierarchie neexistuje (nebo byla zahozena metodou
+    * {@link TriMesh#invalidateHierarchy()}), postaví ji.
+    * 
+    * @return Hierarchie obalových kvádrů.
+    */
+   private MeshHierarchy getHierarchy() {
+      MeshHierarchy currentHierarchy = hierarchy;
+      if (currentHierarchy == null) {
+         synchronized (this) {
+            currentHierarchy = hierarchy;
+            if (currentHierarchy == null) {
+               currentHierarchy = createHierarchy(BoundingVolumeHierarchy.getDefaultBuildMethod());
+               hierarchy = currentHierarchy;
+            }
+         }
+      }
+      return currentHierarchy;
+   }
+
+   /**
+    * Postaví hierarchii obalových kvádrů nad trojúhelníky objektu danou
+    * metodou stavby.
+    * 
+    * @param buildMethod
+    *           Metoda stavby (např.
+    *           {@link BoundingVolumeHierarchy#BUILD_BINNED}).
+    * @return Hierarchie obalových kvádrů.
+    */
+   private MeshHierarchy createHierarchy(int buildMethod) {
+      if (indexedMesh != null) {
+         return new IndexedHierarchy(indexedMesh, buildMethod);
+      }
+      return new TriangleHierarchy(triangles.toArray(new Triangle[triangles.size()]), buildMethod);
+   }
+
+   /**
+    * Postaví hierarchii obalových kvádrů nad trojúhelníky objektu (znovu,
+    * pokud už existuje) výchozí metodou stavby (viz
+    * {@link BoundingVolumeHierarchy#setDefaultBuildMethod(int)}). Jinak se
+    * hierarchie staví až při prvním výpočtu průsečíku.
+    */
+   public void buildHierarchy() {
+      buildHierarchy(BoundingVolumeHierarchy.getDefaultBuildMethod());
+   }
+
+   /**
+    * Postaví hierarchii obalových kvádrů nad trojúhelníky objektu (znovu,
+    * pokud už existuje) danou metodou stavby.
+    * 
+    * @param buildMethod
+    *           Metoda stavby (např.
+    *           {@link BoundingVolumeHierarchy#BUILD_BINNED}).
+    */
+   public void buildHierarchy(int buildMethod) {
+      synchronized (this) {
+         hierarchy = createHierarchy(buildMethod);
+      }
+   }
+
+   /**
+    * Vrací hierarchii obalových kvádrů nad trojúhelníky objektu, např. pro
+    * výpis doby stavby a kvality hierarchie. Pokud hierarchie neexistuje,
+    * postaví ji.
+    * 
+    * @return Hierarchie obalových kvádrů.
+    */
+   public BoundingVolumeHierarchy getBoundingVolumeHierarchy() {
+      return getHierarchy().bvh;
+   }
+
+   /**
+    * Zahodí hierarchii obalových kvádrů nad trojúhelníky. Při přidání
+    * trojúhelníku metodou <code>addTriangle</code> nebo nastavení kolekce
+    * metodou <code>setTriangles</code> se volá automaticky; ručně je nutné ji
+    * volat jen po posunutí vrcholů existujících trojúhelníků.
+    */
+   public void invalidateHierarchy() {
+      hierarchy = null;
    }
 
    /*
@@ -97,64 +301,292 @@ public class TriMesh extends AbstractObject {
     */
    @Override
    protected void updateBoundingSphere() {
-      float x = 0, y = 0, z = 0;
-      int count = triangles.size();
-      Point3D currentVertexPosition;
-      Point3D[] vertexPositions = new Point3D[count * 3];
-      for (int i = 0, j = 0; i < count; i++) {
-         currentVertexPosition = triangles.get(i).vertexA.getPosition();
-         x += currentVertexPosition.x;
-         y += currentVertexPosition.y;
-         z += currentVertexPosition.z;
-         vertexPositions[j++] = currentVertexPosition;
-
-         currentVertexPosition = triangles.get(i).vertexB.getPosition();
-         x += currentVertexPosition.x;
-         y += currentVertexPosition.y;
-         z += currentVertexPosition.z;
-         vertexPositions[j++] = currentVertexPosition;
-
-         currentVertexPosition = triangles.get(i).vertexC.getPosition();
-         x += currentVertexPosition.x;
-         y += currentVertexPosition.y;
-         z += currentVertexPosition.z;
-         vertexPositions[j++] = currentVertexPosition;
-      }
-      count *= 3;
-      x /= count;
-      y /= count;
-      z /= count;
-      bSphere.setPivot(new Point3D(x, y, z));
-      pivot = bSphere.getPivot();
-      float newRadius = 0;
-      float currentVertexDistance = 0;
-      for (int i = 0; i < count; i++) {
-         currentVertexPosition = vertexPositions[i];
-         currentVertexDistance = new Vector3(currentVertexPosition, bSphere.getPivot()).lenght();
-         if (currentVertexDistance > newRadius) {
-            newRadius = currentVertexDistance;
+      invalidateHierarchy();
+      if (indexedMesh != null) {
+         updateBounds(indexedMesh.getPositions(), indexedMesh.getVertexCount() * 3);
+      } else {
+         int count = triangles.size();
+         float[] points = new float[count * 9];
+         int p = 0;
+         for (int i = 0; i < count; i++) {
+            Triangle triangle = triangles.get(i);
+            p = put(points, p, triangle.vertexA.getPosition());
+            p = put(points, p, triangle.vertexB.getPosition());
+            p = put(points, p, triangle.vertexC.getPosition());
          }
+         updateBounds(points, points.length);
       }
-      bSphere.setRadius(newRadius);
+   }
 
+   /**
+    * Zapíše souřadnice bodu do pole.
+    * 
+    * @param points
+    *           Pole souřadnic.
+    * @param p
+    *           Index, od kterého se souřadnice zapíší.
+    * @param point
+    *           Bod.
+    * @return Index za zapsanými souřadnicemi.
+    */
+   private static int put(float[] points, int p, Point3D point) {
+      points[p] = point.x;
+      points[p + 1] = point.y;
+      points[p + 2] = point.z;
+      return p + 3;
    }
 
    /**
-    * Vrací kolekci trojúhelníků, ze kterých je složen povrch objektu.
+    * Spočítá obalovou kouli (viz {@link BoundingSphere#enclosing(float[], int)})
+    * a obalový kvádr vrcholů sítě. Objekt se pak testuje tím z obou těles,
+    * které je těsnější (plochá a protáhlá síť obvykle kvádrem).
     * 
-    * @return Kolekce trojúhelníků.
+    * @param points
+    *           Souřadnice vrcholů (tři složky na vrchol).
+    * @param length
+    *           Počet platných složek pole.
     */
-   public Vector<Triangle> getTriangles() {
-      return triangles;
+   private void updateBounds(float[] points, int length) {
+      bSphere = BoundingSphere.enclosing(points, length);
+      pivot = bSphere.getPivot();
+      BoundingBox box = new BoundingBox();
+      for (int i = 0; i < length; i += 3) {
+         box.include(points[i], points[i + 1], points[i + 2]);
+      }
+      setBoundingBox(box);
    }
 
    /**
-    * Mění kolekci trojúhelníků, ze kterých je složen povrch objektu.
+    * Vrací počet trojúhelníků objektu.
+    * 
+    * @return Počet trojúhelníků.
+    */
+   public int getTriangleCount() {
+      return indexedMesh != null ? indexedMesh.getTriangleCount() : triangles.size();
+   }
+
+   /**
+    * Vrací indexovanou síť trojúhelníků, ze které je objekt složen.
+    * 
+    * @return Indexovaná síť, nebo <code>null</code>, pokud je objekt složen z
+    *         kolekce trojúhelníků.
+    */
+   public IndexedMesh getIndexedMesh() {
+      return indexedMesh;
+   }
+
+   /**
+    * Vrací kolekci trojúhelníků, ze kterých je složen povrch objektu. Pokud je
+    * objekt složen z indexované sítě, je kolekce prázdná.
+    * <p>
+    * Kolekci nelze měnit; trojúhelníky se přidávají metodou
+    * <code>addTriangle</code> nebo nahrazují metodou
+    * {@link TriMesh#setTriangles(Collection)}, které zahodí hierarchii
+    * obalových kvádrů a přepočítají obalová tělesa.
+    * 
+    * @return Kolekce trojúhelníků (jen pro čtení).
+    */
+   public List<Triangle> getTriangles() {
+      return Collections.unmodifiableList(triangles);
+   }
+
+   /**
+    * Mění kolekci trojúhelníků, ze kterých je složen povrch objektu. Objekt
+    * si trojúhelníky zkopíruje do vlastní kolekce, pozdější změny předané
+    * kolekce se ho tedy netýkají.
     * 
     * @param triangles
     *           Nová kolekce trojúhelníků.
     */
-   public void setTriangles(Vector<Triangle> triangles) {
-      this.triangles = triangles;
+   public void setTriangles(Collection<? extends Triangle> triangles) {
+      this.triangles = new Vector<Triangle>(triangles);
+      indexedMesh = null;
+      updateBoundingSphere();
+   }
+
+   /**
+    * Hierarchie obalových kvádrů spolu s trojúhelníky, nad kterými byla
+    * postavena. Zároveň slouží jako výpočet průsečíku paprsku (i paketu
+    * paprsků) s trojúhelníky při průchodu hierarchií.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private abstract static class MeshHierarchy implements PacketIntersector {
+      /**
+       * Počet trojúhelníků, nad kterými byla hierarchie postavena.
+       */
+      final int primitiveCount;
+
+      /**
+       * Hierarchie obalových kvádrů.
+       */
+      final BoundingVolumeHierarchy bvh;
+
+      /**
+       * Postaví hierarchii nad danými obalovými kvádry trojúhelníků.
+       * 
+       * @param bounds
+       *           Obalové kvádry trojúhelníků.
+       * @param buildMethod
+       *           Metoda stavby hierarchie.
+       */
+      MeshHierarchy(BoundingBox[] bounds, int buildMethod) {
+         primitiveCount = bounds.length;
+         bvh = new BoundingVolumeHierarchy(bounds, BoundingVolumeHierarchy.DEFAULT_MAX_LEAF_SIZE, buildMethod);
+      }
+
+      /**
+       * Vrací vrchol pro průsečík s trojúhelníkem zaznamenaný v záznamu.
+       * 
+       * @param ray
+       *           Paprsek, pro který byl průsečík určen.
+       * @param hit
+       *           Záznam o průsečíku.
+       * @return Vrchol průsečíku.
+       */
+      abstract Vertex computeVertex(Ray ray, HitRecord hit);
+   }
+
+   /**
+    * Hierarchie nad kolekcí trojúhelníků {@link Triangle}.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private static class TriangleHierarchy extends MeshHierarchy {
+      /**
+       * Trojúhelníky indexované indexem primitiva hierarchie.
+       */
+      private final Triangle[] triangles;
+
+      /**
+       * Postaví hierarchii nad danými trojúhelníky.
+       * 
+       * @param triangles
+       *           Trojúhelníky.
+       * @param buildMethod
+       *           Metoda stavby hierarchie.
+       */
+      TriangleHierarchy(Triangle[] triangles, int buildMethod) {
+         super(getBounds(triangles), buildMethod);
+         this.triangles = triangles;
+      }
+
+      /**
+       * Vrací obalové kvádry daných trojúhelníků.
+       * 
+       * @param triangles
+       *           Trojúhelníky.
+       * @return Obalové kvádry.
+       */
+      private static BoundingBox[] getBounds(Triangle[] triangles) {
+         BoundingBox[] bounds = new BoundingBox[triangles.length];
+         for (int i = 0; i < triangles.length; i++) {
+            bounds[i] = triangles[i].getBoundingBox();
+         }
+         return bounds;
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.geometry.TriMesh.MeshHierarchy#computeVertex(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+       */
+      @Override
+      Vertex computeVertex(Ray ray, HitRecord hit) {
+         return triangles[hit.primitive].computeVertex(ray, hit);
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector#intersect(int, net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+       */
+      @Override
+      public boolean intersect(int primitive, Ray ray, HitRecord hit) {
+         return triangles[primitive].intersect(ray, hit, primitive);
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.acceleration.PacketIntersector#intersect(int, net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int)
+       */
+      @Override
+      public int intersect(int primitive, Ray[] rays, HitRecord[] hits, int mask) {
+         return triangles[primitive].intersect(rays, hits, mask, primitive);
+      }
+   }
+
+   /**
+    * Hierarchie nad indexovanou sítí trojúhelníků {@link IndexedMesh}.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private static class IndexedHierarchy extends MeshHierarchy {
+      /**
+       * Indexovaná síť trojúhelníků.
+       */
+      private final IndexedMesh mesh;
+
+      /**
+       * Postaví hierarchii nad danou indexovanou sítí.
+       * 
+       * @param mesh
+       *           Indexovaná síť trojúhelníků.
+       * @param buildMethod
+       *           Metoda stavby hierarchie.
+       */
+      IndexedHierarchy(IndexedMesh mesh, int buildMethod) {
+         super(getBounds(mesh), buildMethod);
+         this.mesh = mesh;
+      }
+
+      /**
+       * Vrací obalové kvádry trojúhelníků dané sítě.
+       * 
+       * @param mesh
+       *           Indexovaná síť trojúhelníků.
+       * @return Obalové kvádry.
+       */
+      private static BoundingBox[] getBounds(IndexedMesh mesh) {
+         BoundingBox[] bounds = new BoundingBox[mesh.getTriangleCount()];
+         for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = mesh.getBoundingBox(i);
+         }
+         return bounds;
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector#intersect(int, net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+       */
+      @Override
+      public boolean intersect(int primitive, Ray ray, HitRecord hit) {
+         return mesh.intersect(primitive, ray, hit);
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.acceleration.PacketIntersector#intersect(int, net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int)
+       */
+      @Override
+      public int intersect(int primitive, Ray[] rays, HitRecord[] hits, int mask) {
+         return mesh.intersect(primitive, rays, hits, mask);
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.geometry.TriMesh.MeshHierarchy#computeVertex(net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+       */
+      @Override
+      Vertex computeVertex(Ray ray, HitRecord hit) {
+         return mesh.computeVertex(ray, hit);
+      }
    }
 }
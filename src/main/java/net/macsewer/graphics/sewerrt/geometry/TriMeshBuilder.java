@@ -0,0 +1,355 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.RecursiveAction;
+
+import net.macsewer.graphics.sewerrt.acceleration.BuildPool;
+
+/**
+ * Třída pro hromadné sestavení objektu {@link TriMesh}. Na rozdíl od metody
+ * {@link TriMesh#addTriangle(Point3D, Point3D, Point3D, ColorRGB)}, která po
+ * každém vložení přepočítává obalovou kouli celého objektu, sbírá stavitel
+ * vrcholy trojúhelníků do polí a objekt sestaví najednou metodou
+ * {@link TriMeshBuilder#build()}. Trojúhelníky se přitom vytvářejí paralelně
+ * a obalová koule se počítá jen jednou, sestavení sítě s <code>n</code>
+ * trojúhelníky tak trvá lineárně dlouho. Trojúhelníky jsou v síti v pořadí
+ * vložení, ať byly vloženy vrcholy, nebo hotové.
+ * <p>
+ * Stavitel není určen pro souběžné použití z více vláken.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class TriMeshBuilder {
+
+   /**
+    * Nejmenší počet trojúhelníků, které vytváří jedna paralelní úloha.
+    */
+   static final int TASK_SIZE = 4096;
+
+   /**
+    * Souřadnice vrcholů dosud vložených trojúhelníků (devět složek na
+    * trojúhelník). Složky hotových trojúhelníků se nepoužívají.
+    */
+   private float[] positions;
+
+   /**
+    * Barvy dosud vložených trojúhelníků (<code>null</code> u hotových
+    * trojúhelníků).
+    */
+   private ColorRGB[] colors;
+
+   /**
+    * Hotové trojúhelníky vložené metodou
+    * {@link TriMeshBuilder#addTriangles(Collection)} na indexech, na které
+    * byly vloženy; u trojúhelníků zadaných vrcholy <code>null</code>.
+    */
+   private Triangle[] triangles;
+
+   /**
+    * Počet dosud vložených trojúhelníků.
+    */
+   private int count;
+
+   /**
+    * Počet vláken, která trojúhelníky vytvářejí.
+    */
+   private int threadCount = Runtime.getRuntime().availableProcessors();
+
+   /**
+    * Vytvoří stavitel pro menší síť.
+    */
+   public TriMeshBuilder() {
+      this(1024);
+   }
+
+   /**
+    * Vytvoří stavitel pro síť s přibližně daným počtem trojúhelníků.
+    * 
+    * @param expectedCount
+    *           Očekávaný počet trojúhelníků.
+    */
+   public TriMeshBuilder(int expectedCount) {
+      int capacity = Math.max(16, expectedCount);
+      positions = new float[capacity * 9];
+      colors = new ColorRGB[capacity];
+      triangles = new Triangle[capacity];
+   }
+
+   /**
+    * Vloží bílý trojúhelník s danými vrcholy.
+    * 
+    * @param vp1
+    *           Vrchol trojúhelníku.
+    * @param vp2
+    *           Vrchol trojúhelníku.
+    * @param vp3
+    *           Vrchol trojúhelníku.
+    * @return Tento stavitel.
+    */
+   public TriMeshBuilder addTriangle(Point3D vp1, Point3D vp2, Point3D vp3) {
+      return addTriangle(vp1, vp2, vp3, ColorRGB.white);
+   }
+
+   /**
+    * Vloží trojúhelník s danými vrcholy a barvou.
+    * 
+    * @param vp1
+    *           Vrchol trojúhelníku.
+    * @param vp2
+    *           Vrchol trojúhelníku.
+    * @param vp3
+    *           Vrchol trojúhelníku.
+    * @param color
+    *           Barva trojúhelníku.
+    * @return Tento stavitel.
+    */
+   public TriMeshBuilder addTriangle(Point3D vp1, Point3D vp2, Point3D vp3, ColorRGB color) {
+      ensureCapacity(count + 1);
+      int p = count * 9;
+      positions[p++] = vp1.x;
+      positions[p++] = vp1.y;
+      positions[p++] = vp1.z;
+      positions[p++] = vp2.x;
+      positions[p++] = vp2.y;
+      positions[p++] = vp2.z;
+      positions[p++] = vp3.x;
+      positions[p++] = vp3.y;
+      positions[p] = vp3.z;
+      colors[count++] = color;
+      return this;
+   }
+
+   /**
+    * Vloží trojúhelníky dané polem souřadnic vrcholů.
+    * 
+    * @param trianglePositions
+    *           Souřadnice vrcholů trojúhelníků (devět složek na trojúhelník:
+    *           <code>ax, ay, az, bx, by, bz, cx, cy, cz</code>).
+    * @param color
+    *           Barva všech vkládaných trojúhelníků.
+    * @return Tento stavitel.
+    * @throws IllegalArgumentException
+    *            Pokud délka pole není násobkem devíti.
+    */
+   public TriMeshBuilder addTriangles(float[] trianglePositions, ColorRGB color) {
+      if (trianglePositions.length % 9 != 0) {
+         throw new IllegalArgumentException("Triangle positions must have 9 components per triangle");
+      }
+      int added = trianglePositions.length / 9;
+      ensureCapacity(count + added);
+      System.arraycopy(trianglePositions, 0, positions, count * 9, trianglePositions.length);
+      Arrays.fill(colors, count, count + added, color);
+      count += added;
+      return this;
+   }
+
+   /**
+    * Vloží hotové trojúhelníky. Trojúhelníky se do sítě vkládají přímo, bez
+    * kopírování.
+    * 
+    * @param triangles
+    *           Trojúhelníky.
+    * @return Tento stavitel.
+    */
+   public TriMeshBuilder addTriangles(Collection<? extends Triangle> triangles) {
+      ensureCapacity(count + triangles.size());
+      for (Triangle triangle : triangles) {
+         this.triangles[count++] = triangle;
+      }
+      return this;
+   }
+
+   /**
+    * Vrací počet dosud vložených trojúhelníků.
+    * 
+    * @return Počet trojúhelníků.
+    */
+   public int getTriangleCount() {
+      return count;
+   }
+
+   /**
+    * Vrací počet vláken, která při sestavení vytvářejí trojúhelníky.
+    * 
+    * @return Počet vláken.
+    */
+   public int getThreadCount() {
+      return threadCount;
+   }
+
+   /**
+    * Nastavuje počet vláken, která při sestavení vytvářejí trojúhelníky.
+    * Hodnota 1 znamená sestavení v aktuálním vlákně.
+    * 
+    * @param threadCount
+    *           Počet vláken (alespoň 1).
+    * @return Tento stavitel.
+    */
+   public TriMeshBuilder setThreadCount(int threadCount) {
+      this.threadCount = Math.max(1, threadCount);
+      return this;
+   }
+
+   /**
+    * Sestaví objekt ze všech vložených trojúhelníků v pořadí vložení. Obalová
+    * koule objektu se spočítá jednou, hierarchie obalových kvádrů se staví až
+    * při prvním výpočtu průsečíku.
+    * <p>
+    * Trojúhelníky vytváří nejvýše {@link TriMeshBuilder#getThreadCount()}
+    * úloh fork/join. Úlohy běží ve fondu aktuálního vlákna, pokud do
+    * nějakého patří, jinak ve sdíleném fondu {@link BuildPool}; stavitel si
+    * vlastní fond nevytváří.
+    * 
+    * @return Nový objekt typu Mesh.
+    */
+   public TriMesh build() {
+      Triangle[] built = Arrays.copyOf(triangles, count);
+      if (threadCount > 1 && count > TASK_SIZE) {
+         int taskSize = Math.max(TASK_SIZE, (count + threadCount - 1) / threadCount);
+         CreateTask task = new CreateTask(positions, colors, built, 0, count, taskSize);
+         BuildPool.invoke(task);
+      } else {
+         CreateTask.create(positions, colors, built, 0, count);
+      }
+
+      TriMesh mesh = new TriMesh();
+      mesh.setTriangles(Arrays.asList(built));
+      return mesh;
+   }
+
+   /**
+    * Zvětší pole vrcholů, barev a hotových trojúhelníků tak, aby pojala daný
+    * počet trojúhelníků.
+    * 
+    * @param capacity
+    *           Požadovaný počet trojúhelníků.
+    */
+   private void ensureCapacity(int capacity) {
+      if (capacity > colors.length) {
+         int newCapacity = Math.max(capacity, colors.length * 2);
+         positions = Arrays.copyOf(positions, newCapacity * 9);
+         colors = Arrays.copyOf(colors, newCapacity);
+         triangles = Arrays.copyOf(triangles, newCapacity);
+      }
+   }
+
+   /**
+    * Úloha pro paralelní vytvoření úseku trojúhelníků. Úsek se dělí po
+    * dávkách dané velikosti (alespoň {@link TriMeshBuilder#TASK_SIZE}), dokud
+    * nezbývá jediná.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private static class CreateTask extends RecursiveAction {
+
+      /**
+       * ID pro serializaci.
+       */
+      private static final long serialVersionUID = 4170592287465021795L;
+
+      /**
+       * Souřadnice vrcholů trojúhelníků.
+       */
+      private final float[] positions;
+
+      /**
+       * Barvy trojúhelníků.
+       */
+      private final ColorRGB[] colors;
+
+      /**
+       * Pole pro vytvořené trojúhelníky.
+       */
+      private final Triangle[] triangles;
+
+      /**
+       * Index prvního trojúhelníku úseku (včetně).
+       */
+      private final int from;
+
+      /**
+       * Index posledního trojúhelníku úseku (vyjma).
+       */
+      private final int to;
+
+      /**
+       * Počet trojúhelníků, které vytváří jedna dávka.
+       */
+      private final int taskSize;
+
+      /**
+       * Vytvoří úlohu pro daný úsek trojúhelníků.
+       * 
+       * @param positions
+       *           Souřadnice vrcholů trojúhelníků.
+       * @param colors
+       *           Barvy trojúhelníků.
+       * @param triangles
+       *           Pole pro vytvořené trojúhelníky.
+       * @param from
+       *           Index prvního trojúhelníku (včetně).
+       * @param to
+       *           Index posledního trojúhelníku (vyjma).
+       * @param taskSize
+       *           Počet trojúhelníků, které vytváří jedna dávka.
+       */
+      CreateTask(float[] positions, ColorRGB[] colors, Triangle[] triangles, int from, int to, int taskSize) {
+         this.positions = positions;
+         this.colors = colors;
+         this.triangles = triangles;
+         this.from = from;
+         this.to = to;
+         this.taskSize = taskSize;
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see java.util.concurrent.RecursiveAction#compute()
+       */
+      @Override
+      protected void compute() {
+         int batches = (to - from + taskSize - 1) / taskSize;
+         if (batches > 1) {
+            int middle = from + batches / 2 * taskSize;
+            invokeAll(new CreateTask(positions, colors, triangles, from, middle, taskSize), new CreateTask(positions, colors, triangles, middle, to, taskSize));
+         } else {
+            create(positions, colors, triangles, from, to);
+         }
+      }
+
+      /**
+       * Vytvoří úsek trojúhelníků v aktuálním vlákně. Hotové trojúhelníky v
+       * poli ponechá.
+       * 
+       * @param positions
+       *           Souřadnice vrcholů trojúhelníků.
+       * @param colors
+       *           Barvy trojúhelníků.
+       * @param triangles
+       *           Pole pro vytvořené trojúhelníky.
+       * @param from
+       *           Index prvního trojúhelníku (včetně).
+       * @param to
+       *           Index posledního trojúhelníku (vyjma).
+       */
+      static void create(float[] positions, ColorRGB[] colors, Triangle[] triangles, int from, int to) {
+         for (int i = from; i < to; i++) {
+            if (triangles[i] != null) {
+               continue;
+            }
+            int p = i * 9;
+            Point3D a = new Point3D(positions[p], positions[p + 1], positions[p + 2]);
+            Point3D b = new Point3D(positions[p + 3], positions[p + 4], positions[p + 5]);
+            Point3D c = new Point3D(positions[p + 6], positions[p + 7], positions[p + 8]);
+            triangles[i] = TriMesh.createTriangle(a, b, c, colors[i]);
+         }
+      }
+   }
+}
@@ -36,6 +36,67 @@ public class Triangle {
     */
    protected ColorRGB diffueColor = ColorRGB.white;
 
+   /**
+    * Normála roviny dělená svou dominantní složkou (složka X).
+    */
+   private float nx;
+
+   /**
+    * Normála roviny dělená svou dominantní složkou (složka Y).
+    */
+   private float ny;
+
+   /**
+    * Normála roviny dělená svou dominantní složkou (složka Z).
+    */
+   private float nz;
+
+   /**
+    * Vzdálenost roviny od počátku v jednotkách {@link Triangle#nx},
+    * {@link Triangle#ny}, {@link Triangle#nz}.
+    */
+   private float nd;
+
+   /**
+    * Koeficient barycentrické souřadnice vrcholu B (složka X).
+    */
+   private float bx;
+
+   /**
+    * Koeficient barycentrické souřadnice vrcholu B (složka Y).
+    */
+   private float by;
+
+   /**
+    * Koeficient barycentrické souřadnice vrcholu B (složka Z).
+    */
+   private float bz;
+
+   /**
+    * Absolutní člen barycentrické souřadnice vrcholu B.
+    */
+   private float bd;
+
+   /**
+    * Koeficient barycentrické souřadnice vrcholu C (složka X).
+    */
+   private float cx;
+
+   /**
+    * Koeficient barycentrické souřadnice vrcholu C (složka Y).
+    */
+   private float cy;
+
+   /**
+    * Koeficient barycentrické souřadnice vrcholu C (složka Z).
+    */
+   private float cz;
+
+   /**
+    * Absolutní člen barycentrické souřadnice vrcholu C.
+    */
+   private float cd;
+
    /**
     * Vytvoří trojúhelník, jehož vrcholy jsou v počátku soustavy souřadnic
     * scény.
@@ -44,6 +105,7 @@ public class Triangle {
       vertexA = new Vertex();
       vertexB = new Vertex();
       vertexC = new Vertex();
+      updateIntersectionData();
    }
 
    /**
@@ -64,99 +126,183 @@ public class Triangle {
       vertexA.setNormal(normal);
       vertexB.setNormal(normal);
       vertexC.setNormal(normal);
+      updateIntersectionData();
    }
 
    /**
-    * Vrací průsečík trojúhelníku s daným paprskem.
-    * 
-    * @param ray
-    *           Paprsek, s nímž je průsečík určován.
-    * @return Pokud průsečík existuje, metoda vrátí vrchol, který leží v daném
-    *         průsečíku. Pokud průsečík neexistuje, metoda vrátí <code>null</code>
+    * Předpočítá data pro výpočet průsečíku s paprskem (projekční metoda podle
+    * Walda). Rovina trojúhelníku se normalizuje dominantní složkou normály
+    * <code>k</code>, barycentrické souřadnice se počítají v průmětu do
+    * zbývajících dvou os. Koeficienty průmětu jsou uloženy jako trojsložkové
+    * vektory s nulovou složkou <code>k</code>, takže výpočet průsečíku
+    * nevětví podle osy. Metodu je nutné zavolat po změně pozic vrcholů; při
+    * vytvoření trojúhelníku a nastavení vrcholu se volá automaticky.
     */
-   public Vertex crossRay(Ray ray) {
-      Vector3 n = getNormal();
+   public void updateIntersectionData() {
       Point3D pA = vertexA.getPosition();
       Point3D pB = vertexB.getPosition();
       Point3D pC = vertexC.getPosition();
+      float abx = pB.x - pA.x, aby = pB.y - pA.y, abz = pB.z - pA.z;
+      float acx = pC.x - pA.x, acy = pC.y - pA.y, acz = pC.z - pA.z;
+      float[] n = { aby * acz - abz * acy, abz * acx - abx * acz, abx * acy - aby * acx };
+      float[] a = { pA.x, pA.y, pA.z };
+      float[] ab = { abx, aby, abz };
+      float[] ac = { acx, acy, acz };
+
+      int k = Math.abs(n[0]) >= Math.abs(n[1]) ? (Math.abs(n[0]) >= Math.abs(n[2]) ? 0 : 2) : (Math.abs(n[1]) >= Math.abs(n[2]) ? 1 : 2);
+      int u = (k + 1) % 3;
+      int v = (k + 2) % 3;
+
+      // pro degenerovany trojuhelnik vyjdou nekonecna nebo NaN a pruseciky
+      // se odmitnou
+      float nk = n[k];
+      nx = n[0] / nk;
+      ny = n[1] / nk;
+      nz = n[2] / nk;
+      nd = nx * a[0] + ny * a[1] + nz * a[2];
+
+      // H - A = beta * (B - A) + gamma * (C - A) v osach u, v
+      float det = ab[u] * ac[v] - ab[v] * ac[u];
+      float[] b = new float[3];
+      float[] c = new float[3];
+      b[u] = ac[v] / det;
+      b[v] = -ac[u] / det;
+      c[u] = -ab[v] / det;
+      c[v] = ab[u] / det;
+      bx = b[0];
+      by = b[1];
+      bz = b[2];
+      bd = -(b[u] * a[u] + b[v] * a[v]);
+      cx = c[0];
+      cy = c[1];
+      cz = c[2];
+      cd = -(c[u] * a[u] + c[v] * a[v]);
+   }
 
-      // parametry rovnice roviny
-      float a = n.x;
-      float b = n.y;
-      float c = n.z;
-      float d = -(a * pA.x + b * pA.y + c * pA.z);
-
-      // vychozi bod paprsku
-      Point3D point = ray.getOrigin();
-      float px = point.x;
-      float py = point.y;
-      float pz = point.z;
-
-      // smerovy vektor paprsku
-      Vector3 direction = ray.getDirection();
-      float sx = direction.x;
-      float sy = direction.y;
-      float sz = direction.z;
-
-      float jmenovatel = a * sx + b * sy + c * sz;
+   /**
+    * Vrací data předpočítaná metodou
+    * {@link Triangle#updateIntersectionData()}.
+    * 
+    * @return Data v pořadí parametrů
+    *         {@link IntersectionKernel#intersectTriangle(RayLanes, int, float, float, float, float, float, float, float, float, float, float, float, float)}.
+    */
+   float[] getIntersectionData() {
+      return new float[] { nx, ny, nz, nd, bx, by, bz, bd, cx, cy, cz, cd };
+   }
 
-      if (jmenovatel == 0) { // paprsek rovnobezny s trojuhelnikem
-         return null;
+   /**
+    * Vrací průsečík trojúhelníku s daným paprskem.
+    * 
+    * @param ray
+    *           Paprsek, s nímž je průsečík určován.
+    * @return Pokud průsečík existuje a leží před výchozím bodem paprsku,
+    *         metoda vrátí vrchol, který leží v daném průsečíku. Jinak metoda
+    *         vrátí <code>null</code>
+    */
+   public Vertex crossRay(Ray ray) {
+      HitRecord hit = new HitRecord();
+      if (intersect(ray, hit, 0)) {
+         return computeVertex(ray, hit);
       }
+      return null;
+   }
 
-      float citatel = a * px + b * py + c * pz + d;
-
-      float t = -citatel / jmenovatel;
-
-      float x = px + t * sx;
-      float y = py + t * sy;
-      float z = pz + t * sz;
-
-      float u0 = 0, v0 = 0, u1 = 0, v1 = 0, u2 = 0, v2 = 0;
-      a = Math.abs(a);
-      b = Math.abs(b);
-      c = Math.abs(c);
-      if (a >= b && a >= c) {
-         u0 = y - pA.y;
-         v0 = z - pA.z;
-         u1 = pB.y - pA.y;
-         v1 = pB.z - pA.z;
-         u2 = pC.y - pA.y;
-         v2 = pC.z - pA.z;
-      } else if (b >= c && b >= a) {
-         u0 = x - pA.x;
-         v0 = z - pA.z;
-         u1 = pB.x - pA.x;
-         v1 = pB.z - pA.z;
-         u2 = pC.x - pA.x;
-         v2 = pC.z - pA.z;
-      } else if (c >= a && c >= b) {
-         u0 = x - pA.x;
-         v0 = y - pA.y;
-         u1 = pB.x - pA.x;
-         v1 = pB.y - pA.y;
-         u2 = pC.x - pA.x;
-         v2 = pC.y - pA.y;
+   /**
+    * Určí průsečík trojúhelníku s daným paprskem. Pokud průsečík leží před
+    * výchozím bodem paprsku a je bližší než průsečík zaznamenaný v
+    * <code>hit</code>, zapíše do záznamu jeho vzdálenost, daný index
+    * trojúhelníku a barycentrické souřadnice. Výpočet používá data
+    * předpočítaná metodou {@link Triangle#updateIntersectionData()}, vystačí
+    * si s jedním dělením a většinu paprsků, které trojúhelník minou, odmítne
+    * po několika násobeních.
+    * 
+    * @param ray
+    *           Paprsek, s nímž je průsečík určován.
+    * @param hit
+    *           Záznam o dosud nejbližším průsečíku.
+    * @param index
+    *           Index trojúhelníku v rámci objektu.
+    * @return <code>true</code>, pokud byl záznam přepsán, jinak
+    *         <code>false</code>.
+    */
+   public boolean intersect(Ray ray, HitRecord hit, int index) {
+      hit.countTest(RenderStatistics.TRIANGLE_TESTS);
+      Point3D o = ray.getOrigin();
+      Vector3 s = ray.getDirection();
+
+      // vzdalenost pruseciku s rovinou, jedine deleni (pro rovnobezny
+      // paprsek vyjde nekonecno nebo NaN a test vzdalenosti jej odmitne)
+      float t = (nd - (nx * o.x + ny * o.y + nz * o.z)) / (nx * s.x + ny * s.y + nz * s.z);
+      if (!(t > 0 && t < hit.distance)) {
+         return false;
       }
 
-      float aa = 0, bb = 0;
+      float hx = o.x + t * s.x;
+      float hy = o.y + t * s.y;
+      float hz = o.z + t * s.z;
+      float beta = bx * hx + by * hy + bz * hz + bd;
+      if (!(beta >= 0)) {
+         return false;
+      }
+      float gamma = cx * hx + cy * hy + cz * hz + cd;
+      if (!(gamma >= 0) || beta + gamma > 1) {
+         return false;
+      }
+      hit.set(t, index, beta, gamma);
+      return true;
+   }
 
-      bb = (u1 * v0 - u0 * v1) / (u1 * v2 - u2 * v1);
-      aa = (u0 - bb * u2) / u1;
+   /**
+    * Určí průsečíky trojúhelníku s paprsky paketu danými maskou stejně jako
+    * metoda {@link Triangle#intersect(Ray, HitRecord, int)}. Předpočítaná data
+    * trojúhelníku se načtou jednou pro celý paket a paprsky se testují jádrem
+    * {@link IntersectionKernel}.
+    * 
+    * @param rays
+    *           Paprsky paketu.
+    * @param hits
+    *           Záznamy o dosud nejbližších průsečících paprsků paketu.
+    * @param mask
+    *           Bitová maska testovaných paprsků (bit <code>k</code> odpovídá
+    *           paprsku <code>rays[k]</code>).
+    * @param index
+    *           Index trojúhelníku v rámci objektu.
+    * @return Bitová maska paprsků, jejichž záznam byl přepsán.
+    */
+   public int intersect(Ray[] rays, HitRecord[] hits, int mask, int index) {
+      RayLanes lanes = RayLanes.get();
+      int count = lanes.load(rays, hits, mask);
+      lanes.countTests(hits, count, RenderStatistics.TRIANGLE_TESTS);
+      int found = IntersectionKernel.getInstance().intersectTriangle(lanes, count, nx, ny, nz, nd, bx, by, bz, bd, cx, cy, cz, cd);
+      return lanes.store(hits, found, index);
+   }
 
-      if (aa >= 0.0f && bb >= 0.0f && (aa + bb) <= 1.0f) {
-         Point3D pX = new Point3D(x, y, z);
+   /**
+    * Spočítá vrchol se všemi atributy interpolovanými z vrcholů trojúhelníku
+    * pro průsečík zaznamenaný metodou
+    * {@link Triangle#intersect(Ray, HitRecord, int)}.
+    * 
+    * @param ray
+    *           Paprsek, pro který byl průsečík určen.
+    * @param hit
+    *           Záznam o průsečíku s tímto trojúhelníkem.
+    * @return Vrchol, který leží v daném průsečíku.
+    */
+   public Vertex computeVertex(Ray ray, HitRecord hit) {
+      Point3D point = ray.getOrigin();
+      Vector3 direction = ray.getDirection();
+      float t = hit.distance;
+      float aa = hit.u;
+      float bb = hit.v;
 
-         Vector3 midNormal = new Vector3(computeMidPoint(vertexA.getNormal(), vertexB.getNormal(), vertexC.getNormal(), aa, bb));
+      Point3D pX = new Point3D(point.x + t * direction.x, point.y + t * direction.y, point.z + t * direction.z);
 
-         ColorRGB midColor = new ColorRGB(computeMidPoint(vertexA.getDiffuse(), vertexB.getDiffuse(), vertexC.getDiffuse(), aa, bb));
-         Float3 midTextureCoordinates = new Float3(computeMidPoint(vertexA.getTextureCoord(), vertexB.getTextureCoord(), vertexC.getTextureCoord(), aa, bb));
+      Vector3 midNormal = new Vector3(computeMidPoint(vertexA.getNormal(), vertexB.getNormal(), vertexC.getNormal(), aa, bb));
 
-         return new Vertex(pX, midNormal, midColor, midTextureCoordinates);
+      ColorRGB midColor = new ColorRGB(computeMidPoint(vertexA.getDiffuse(), vertexB.getDiffuse(), vertexC.getDiffuse(), aa, bb));
+      Float3 midTextureCoordinates = new Float3(computeMidPoint(vertexA.getTextureCoord(), vertexB.getTextureCoord(), vertexC.getTextureCoord(), aa, bb));
 
-      } else {
-         return null;
-      }
+      return new Vertex(pX, midNormal, midColor, midTextureCoordinates);
    }
 
    /**
@@ -187,6 +333,19 @@ public class Triangle {
       return pA.add(vX);
    }
 
+   /**
+    * Vrací obalový kvádr trojúhelníku.
+    * 
+    * @return Obalový kvádr trojúhelníku.
+    */
+   public BoundingBox getBoundingBox() {
+      BoundingBox box = new BoundingBox();
+      box.include(vertexA.getPosition());
+      box.include(vertexB.getPosition());
+      box.include(vertexC.getPosition());
+      return box;
+   }
+
    /**
     * Vrací normálový vektor roviny trojúhelníku.
     * 
@@ -230,6 +389,7 @@ public class Triangle {
     */
    public void setVertexA(Vertex vertexA) {
       this.vertexA = vertexA;
+      updateIntersectionData();
    }
 
    /**
@@ -249,6 +409,7 @@ public class Triangle {
     */
    public void setVertexB(Vertex vertexB) {
       this.vertexB = vertexB;
+      updateIntersectionData();
    }
 
    /**
@@ -268,6 +429,7 @@ public class Triangle {
     */
    public void setVertexC(Vertex vertexC) {
       this.vertexC = vertexC;
+      updateIntersectionData();
    }
 
    /**
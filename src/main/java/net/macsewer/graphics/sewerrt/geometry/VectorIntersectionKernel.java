@@ -0,0 +1,210 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.GE;
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.LE;
+import static jdk.incubator.vector.VectorOperators.LT;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vektorové jádro výpočtu průsečíků nad rozhraním
+ * <code>jdk.incubator.vector</code>. Dráhy se zpracovávají po celých
+ * vektorech preferované délky (na procesorech s AVX-512 šestnáct drah
+ * najednou). Výrazy zachovávají pořadí operací skalárního jádra, výsledky
+ * jsou proto bitově totožné.
+ * <p>
+ * Třída se překládá jen profilem <code>simd</code> (JDK 16 a novější) a
+ * načítá se reflexí z {@link IntersectionKernel#getInstance()}.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+class VectorIntersectionKernel extends IntersectionKernel {
+   /**
+    * Tvar vektorů: preferovaný tvar procesoru, pokud se vejde do drah.
+    */
+   private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED.length() <= RayLanes.CAPACITY ? FloatVector.SPECIES_PREFERRED : FloatVector.SPECIES_512;
+
+   /**
+    * Nejmenší počet obsazených drah, pro který se počítá vektorově. Méně drah
+    * (rozpadlý paket v hlubších uzlech hierarchie) spočítá rychleji skalární
+    * jádro.
+    */
+   private static final int MIN_LANES = SPECIES.length() / 2;
+
+   /**
+    * Skalární jádro pro málo obsazené dráhy.
+    */
+   private final ScalarIntersectionKernel scalar = new ScalarIntersectionKernel();
+
+   /**
+    * Vytvoří vektorové jádro.
+    * 
+    * @throws UnsupportedOperationException
+    *            Pokud procesor nemá vektorové registry alespoň pro čtyři
+    *            hodnoty typu <code>float</code>.
+    */
+   VectorIntersectionKernel() {
+      if (SPECIES.length() < 4) {
+         throw new UnsupportedOperationException("No float vectors: " + SPECIES);
+      }
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.IntersectionKernel#getName()
+    */
+   @Override
+   public String getName() {
+      return "vector" + SPECIES.vectorBitSize();
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.IntersectionKernel#intersectTriangle(net.macsewer.graphics.sewerrt.geometry.RayLanes, int, float, float, float, float, float, float, float, float, float, float, float, float)
+    */
+   @Override
+   public int intersectTriangle(RayLanes lanes, int count, float nx, float ny, float nz, float nd, float bx, float by, float bz, float bd, float cx, float cy, float cz, float cd) {
+      if (count < MIN_LANES) {
+         return scalar.intersectTriangle(lanes, count, nx, ny, nz, nd, bx, by, bz, bd, cx, cy, cz, cd);
+      }
+      int found = 0;
+      for (int i = 0; i < count; i += SPECIES.length()) {
+         FloatVector ox = FloatVector.fromArray(SPECIES, lanes.ox, i);
+         FloatVector oy = FloatVector.fromArray(SPECIES, lanes.oy, i);
+         FloatVector oz = FloatVector.fromArray(SPECIES, lanes.oz, i);
+         FloatVector sx = FloatVector.fromArray(SPECIES, lanes.dx, i);
+         FloatVector sy = FloatVector.fromArray(SPECIES, lanes.dy, i);
+         FloatVector sz = FloatVector.fromArray(SPECIES, lanes.dz, i);
+         FloatVector distance = FloatVector.fromArray(SPECIES, lanes.distance, i);
+
+         FloatVector num = FloatVector.broadcast(SPECIES, nd).sub(ox.mul(nx).add(oy.mul(ny)).add(oz.mul(nz)));
+         FloatVector t = num.div(sx.mul(nx).add(sy.mul(ny)).add(sz.mul(nz)));
+         VectorMask<Float> m = t.compare(GT, 0).and(t.compare(LT, distance));
+         if (!m.anyTrue()) {
+            continue;
+         }
+
+         FloatVector hx = ox.add(t.mul(sx));
+         FloatVector hy = oy.add(t.mul(sy));
+         FloatVector hz = oz.add(t.mul(sz));
+         FloatVector beta = hx.mul(bx).add(hy.mul(by)).add(hz.mul(bz)).add(bd);
+         FloatVector gamma = hx.mul(cx).add(hy.mul(cy)).add(hz.mul(cz)).add(cd);
+         m = m.and(beta.compare(GE, 0)).and(gamma.compare(GE, 0)).andNot(beta.add(gamma).compare(GT, 1));
+         if (!m.anyTrue()) {
+            continue;
+         }
+         t.intoArray(lanes.t, i);
+         beta.intoArray(lanes.u, i);
+         gamma.intoArray(lanes.v, i);
+         found |= (int) (m.toLong() << i);
+      }
+      return found & laneMask(count);
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.IntersectionKernel#intersectEdges(net.macsewer.graphics.sewerrt.geometry.RayLanes, int, float, float, float, float, float, float, float, float, float)
+    */
+   @Override
+   public int intersectEdges(RayLanes lanes, int count, float ax, float ay, float az, float e1x, float e1y, float e1z, float e2x, float e2y, float e2z) {
+      if (count < MIN_LANES) {
+         return scalar.intersectEdges(lanes, count, ax, ay, az, e1x, e1y, e1z, e2x, e2y, e2z);
+      }
+      int found = 0;
+      for (int i = 0; i < count; i += SPECIES.length()) {
+         FloatVector sx = FloatVector.fromArray(SPECIES, lanes.dx, i);
+         FloatVector sy = FloatVector.fromArray(SPECIES, lanes.dy, i);
+         FloatVector sz = FloatVector.fromArray(SPECIES, lanes.dz, i);
+
+         // p = s x e2
+         FloatVector px = sy.mul(e2z).sub(sz.mul(e2y));
+         FloatVector py = sz.mul(e2x).sub(sx.mul(e2z));
+         FloatVector pz = sx.mul(e2y).sub(sy.mul(e2x));
+         FloatVector det = px.mul(e1x).add(py.mul(e1y)).add(pz.mul(e1z));
+         VectorMask<Float> m = det.compare(EQ, 0).not();
+         FloatVector invDet = FloatVector.broadcast(SPECIES, 1).div(det);
+
+         FloatVector tx = FloatVector.fromArray(SPECIES, lanes.ox, i).sub(ax);
+         FloatVector ty = FloatVector.fromArray(SPECIES, lanes.oy, i).sub(ay);
+         FloatVector tz = FloatVector.fromArray(SPECIES, lanes.oz, i).sub(az);
+         FloatVector u = tx.mul(px).add(ty.mul(py)).add(tz.mul(pz)).mul(invDet);
+         m = m.andNot(u.compare(LT, 0)).andNot(u.compare(GT, 1));
+         if (!m.anyTrue()) {
+            continue;
+         }
+
+         // q = t x e1
+         FloatVector qx = ty.mul(e1z).sub(tz.mul(e1y));
+         FloatVector qy = tz.mul(e1x).sub(tx.mul(e1z));
+         FloatVector qz = tx.mul(e1y).sub(ty.mul(e1x));
+         FloatVector v = sx.mul(qx).add(sy.mul(qy)).add(sz.mul(qz)).mul(invDet);
+         FloatVector t = qx.mul(e2x).add(qy.mul(e2y)).add(qz.mul(e2z)).mul(invDet);
+         FloatVector distance = FloatVector.fromArray(SPECIES, lanes.distance, i);
+         m = m.andNot(v.compare(LT, 0)).andNot(u.add(v).compare(GT, 1)).and(t.compare(GT, 0)).and(t.compare(LT, distance));
+         if (!m.anyTrue()) {
+            continue;
+         }
+         t.intoArray(lanes.t, i);
+         u.intoArray(lanes.u, i);
+         v.intoArray(lanes.v, i);
+         found |= (int) (m.toLong() << i);
+      }
+      return found & laneMask(count);
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.geometry.IntersectionKernel#intersectSphere(net.macsewer.graphics.sewerrt.geometry.RayLanes, int, float, float, float, float)
+    */
+   @Override
+   public int intersectSphere(RayLanes lanes, int count, float x, float y, float z, float radius) {
+      if (count < MIN_LANES) {
+         return scalar.intersectSphere(lanes, count, x, y, z, radius);
+      }
+      float center2 = x * x + y * y + z * z;
+      float radius2 = radius * radius;
+      int found = 0;
+      for (int i = 0; i < count; i += SPECIES.length()) {
+         FloatVector px = FloatVector.fromArray(SPECIES, lanes.ox, i);
+         FloatVector py = FloatVector.fromArray(SPECIES, lanes.oy, i);
+         FloatVector pz = FloatVector.fromArray(SPECIES, lanes.oz, i);
+         FloatVector sx = FloatVector.fromArray(SPECIES, lanes.dx, i);
+         FloatVector sy = FloatVector.fromArray(SPECIES, lanes.dy, i);
+         FloatVector sz = FloatVector.fromArray(SPECIES, lanes.dz, i);
+
+         FloatVector a = sx.mul(sx).add(sy.mul(sy)).add(sz.mul(sz));
+         FloatVector b = sx.mul(px).add(sy.mul(py)).add(sz.mul(pz)).sub(sx.mul(x).add(sy.mul(y)).add(sz.mul(z))).mul(2);
+         FloatVector c = px.mul(px).add(py.mul(py)).add(pz.mul(pz)).sub(px.mul(x).add(py.mul(y)).add(pz.mul(z)).mul(2)).add(center2).sub(radius2);
+         FloatVector d = b.mul(b).sub(a.mul(4).mul(c));
+         VectorMask<Float> m = d.compare(GE, 0);
+         if (!m.anyTrue()) {
+            continue;
+         }
+
+         FloatVector root = d.sqrt();
+         FloatVector twoA = a.mul(2);
+         FloatVector tFar = b.neg().add(root).div(twoA);
+         FloatVector tNear = b.neg().sub(root).div(twoA);
+         FloatVector distance = FloatVector.fromArray(SPECIES, lanes.distance, i);
+         m = m.and(tFar.compare(GE, 0)).and(tNear.max(0).compare(LE, distance));
+         if (!m.anyTrue()) {
+            continue;
+         }
+         tNear.intoArray(lanes.t, i);
+         found |= (int) (m.toLong() << i);
+      }
+      return found & laneMask(count);
+   }
+}
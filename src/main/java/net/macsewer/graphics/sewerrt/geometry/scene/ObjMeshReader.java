@@ -0,0 +1,131 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry.scene;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+
+import net.macsewer.graphics.sewerrt.geometry.IndexedMesh;
+import net.macsewer.graphics.sewerrt.geometry.TriMesh;
+
+/**
+ * Třída pro načtení sítě trojúhelníků ze souboru ve formátu Wavefront OBJ.
+ * Načítají se jen vrcholy (<code>v</code>) a stěny (<code>f</code>), stěny s
+ * více než třemi vrcholy se rozloží na trojúhelníky (vějířem z prvního
+ * vrcholu). Texturovací souřadnice, normály, materiály ani skupiny se
+ * nenačítají, normály trojúhelníků se počítají z jejich vrcholů. Síť se
+ * načítá do kompaktní indexované podoby ({@link IndexedMesh}), sdílené vrcholy
+ * se tedy neduplikují.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public final class ObjMeshReader {
+
+   /**
+    * Třída obsahuje jen statické metody.
+    */
+   private ObjMeshReader() {
+   }
+
+   /**
+    * Načte síť trojúhelníků z daného souboru.
+    * 
+    * @param file
+    *           Soubor ve formátu OBJ.
+    * @return Síť trojúhelníků.
+    * @throws IOException
+    *            Pokud se soubor nepodaří přečíst nebo není ve formátu OBJ.
+    */
+   public static TriMesh read(File file) throws IOException {
+      Reader reader = new InputStreamReader(new FileInputStream(file), "US-ASCII");
+      try {
+         return read(reader);
+      } finally {
+         reader.close();
+      }
+   }
+
+   /**
+    * Načte síť trojúhelníků z daného proudu znaků.
+    * 
+    * @param reader
+    *           Proud znaků ve formátu OBJ.
+    * @return Síť trojúhelníků.
+    * @throws IOException
+    *            Pokud se proud nepodaří přečíst nebo není ve formátu OBJ.
+    */
+   public static TriMesh read(Reader reader) throws IOException {
+      BufferedReader in = new BufferedReader(reader);
+      float[] positions = new float[3 * 1024];
+      int positionCount = 0;
+      int[] indices = new int[3 * 1024];
+      int indexCount = 0;
+      String line;
+      int lineNumber = 0;
+      while ((line = in.readLine()) != null) {
+         lineNumber++;
+         String[] tokens = line.trim().split("\\s+");
+         try {
+            if (tokens[0].equals("v")) {
+               if (positionCount + 3 > positions.length) {
+                  positions = Arrays.copyOf(positions, positions.length * 2);
+               }
+               positions[positionCount++] = Float.parseFloat(tokens[1]);
+               positions[positionCount++] = Float.parseFloat(tokens[2]);
+               positions[positionCount++] = Float.parseFloat(tokens[3]);
+            } else if (tokens[0].equals("f")) {
+               if (tokens.length < 4) {
+                  throw new IOException("Face with less than 3 vertices at line " + lineNumber);
+               }
+               int vertexCount = positionCount / 3;
+               int first = vertex(vertexCount, tokens[1]);
+               int previous = vertex(vertexCount, tokens[2]);
+               for (int i = 3; i < tokens.length; i++) {
+                  int current = vertex(vertexCount, tokens[i]);
+                  if (indexCount + 3 > indices.length) {
+                     indices = Arrays.copyOf(indices, indices.length * 2);
+                  }
+                  indices[indexCount++] = first;
+                  indices[indexCount++] = previous;
+                  indices[indexCount++] = current;
+                  previous = current;
+               }
+            }
+         } catch (RuntimeException e) {
+            throw new IOException("Invalid OBJ data at line " + lineNumber + ": " + line, e);
+         }
+      }
+      return new TriMesh(new IndexedMesh(Arrays.copyOf(positions, positionCount), Arrays.copyOf(indices, indexCount)));
+   }
+
+   /**
+    * Vrací index (od nuly) vrcholu odkazovaného daným prvkem stěny
+    * (<code>v</code>, <code>v/vt</code>, <code>v//vn</code> nebo
+    * <code>v/vt/vn</code>). Záporný index se počítá od posledního načteného
+    * vrcholu.
+    * 
+    * @param vertexCount
+    *           Počet dosud načtených vrcholů.
+    * @param token
+    *           Prvek stěny.
+    * @return Index vrcholu.
+    * @throws IndexOutOfBoundsException
+    *            Pokud prvek odkazuje na neexistující vrchol.
+    */
+   private static int vertex(int vertexCount, String token) {
+      int slash = token.indexOf('/');
+      int index = Integer.parseInt(slash < 0 ? token : token.substring(0, slash));
+      index = index < 0 ? vertexCount + index : index - 1;
+      if (index < 0 || index >= vertexCount) {
+         throw new IndexOutOfBoundsException("Vertex " + token + " does not exist");
+      }
+      return index;
+   }
+}
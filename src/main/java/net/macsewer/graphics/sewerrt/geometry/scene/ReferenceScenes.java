@@ -0,0 +1,236 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry.scene;
+
+import java.util.Random;
+
+import net.macsewer.graphics.sewerrt.geometry.BoxTriMesh;
+import net.macsewer.graphics.sewerrt.geometry.ColorRGB;
+import net.macsewer.graphics.sewerrt.geometry.IndexedMesh;
+import net.macsewer.graphics.sewerrt.geometry.InstancedObject;
+import net.macsewer.graphics.sewerrt.geometry.Matrix4;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Sphere;
+import net.macsewer.graphics.sewerrt.geometry.TriMesh;
+
+/**
+ * Třída s referenčními scénami, které používá ukázková aplikace a měření
+ * výkonu. Všechny scény mají osu Z jako svislou osu. Náhodné scény se
+ * generují z pevného semínka, takže jsou při každém vytvoření stejné.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public final class ReferenceScenes {
+
+   /**
+    * Třída obsahuje jen statické metody.
+    */
+   private ReferenceScenes() {
+   }
+
+   /**
+    * Vytvoří scénu s kuličkami. (Čtvercová plocha, na které je rozmístěno 9
+    * koulí (v matici 3x3). Nad deskou i kuličkami jsou umístěna 4 všesměrová
+    * světla (červené, zelené, modré a bílé). Ambientní světlo je v nastaveno
+    * na hodnotu RGB = (20,&nbsp;20,&nbsp;20) a barva pozadí je černá RGB =
+    * (0,&nbsp;0,&nbsp;0)).
+    * 
+    * @return Scéna s kuličkami.
+    */
+   public static Scene createKulicky() {
+      Scene scene = new Scene();
+
+      TriMesh mesh = new TriMesh();
+      float p = 1;
+      float m = -1;
+      mesh.addTriangle(new Point3D(m + 1, m, 0), new Point3D(p + 1, p, 0), new Point3D(m + 1, p, 0));
+      mesh.addTriangle(new Point3D(m + 1, m, 0), new Point3D(p + 1, m, 0), new Point3D(p + 1, p, 0));
+      scene.addObject(mesh);
+
+      Sphere ss;
+      for (int i = 0; i < 3; i++) {
+         for (int j = 0; j < 3; j++) {
+            ss = new Sphere(new Point3D(i * 0.5f + 0.5f, j * 0.5f - 0.5f, 0.1f), 0.1f);
+            ss.setDiffuseColor(new ColorRGB(i * 70, j * 70, i * j * 20));
+            scene.addObject(ss);
+         }
+      }
+      ss = new Sphere(new Point3D(0.5f, 0, 0), 0.03f);
+      ss.setDiffuseColor(ColorRGB.blue);
+      scene.addObject(ss);
+
+      scene.setAmbientLight(new ColorRGB(20, 20, 20));
+      scene.setBackgroundColor(ColorRGB.black);
+      scene.setLight(0, new Light(new Point3D(1, -1, 1), 0.4f, new ColorRGB(ColorRGB.red)));
+      scene.setLight(1, new Light(new Point3D(1, 1, 1), 0.4f, new ColorRGB(ColorRGB.green)));
+      scene.setLight(2, new Light(new Point3D(0, 1, 1), 0.4f, new ColorRGB(ColorRGB.blue)));
+      scene.setLight(3, new Light(new Point3D(0, -1, 1), 0.4f, new ColorRGB(ColorRGB.white)));
+      return scene;
+   }
+
+   /**
+    * Vytvoří scénu typu město. Na čtvercové podlaze o straně 6 stojí mřížka
+    * 11x11 kvádrů, jejichž výška roste se vzdáleností od os X a Y. Kvádry
+    * jsou instancemi ({@link InstancedObject}) jediného jednotkového kvádru
+    * ({@link BoxTriMesh}). Scénu osvětluje jedno bílé světlo.
+    * 
+    * @return Scéna typu město.
+    */
+   public static Scene createMesto() {
+      Scene scene = new Scene();
+
+      TriMesh floor = new TriMesh();
+      float p = 3;
+      float m = -3;
+      floor.addTriangle(new Point3D(m, m, 0), new Point3D(p, p, 0), new Point3D(m, p, 0));
+      floor.addTriangle(new Point3D(m, m, 0), new Point3D(p, m, 0), new Point3D(p, p, 0));
+      scene.addObject(floor);
+
+      BoxTriMesh box = new BoxTriMesh(new Point3D(), 1, 1, 1);
+      for (int i = -5; i <= 5; i++) {
+         for (int j = -5; j <= 5; j++) {
+            float x = i * 0.4f;
+            float y = j * 0.4f;
+            float d = Math.abs(x * y) * 0.4f + 0.2f;
+            scene.addObject(new InstancedObject(box, Matrix4.scale(0.07f, 0.07f, d).mul(Matrix4.translation(x, y, 0))));
+         }
+      }
+
+      scene.setAmbientLight(new ColorRGB(30, 30, 30));
+      scene.setLight(0, new Light(new Point3D(1.5f, -2, 4), 5f, ColorRGB.white));
+      return scene;
+   }
+
+   /**
+    * Vytvoří scénu typu velkoměsto. Na stejné podlaze jako ve scéně typu
+    * město stojí mřížka <code>n x n</code> budov náhodné výšky, velikosti a
+    * natočení. Všechny budovy jsou instancemi ({@link InstancedObject})
+    * jediného jednotkového kvádru, takže paměť scény roste jen s počtem
+    * transformačních matic. Scénu osvětluje stejné světlo jako město.
+    * 
+    * @param n
+    *           Počet budov v každém směru.
+    * @param seed
+    *           Semínko generátoru náhodných čísel.
+    * @return Scéna typu velkoměsto.
+    */
+   public static Scene createVelkomesto(int n, long seed) {
+      Scene scene = new Scene();
+      Random random = new Random(seed);
+
+      TriMesh floor = new TriMesh();
+      float p = 3;
+      float m = -3;
+      floor.addTriangle(new Point3D(m, m, 0), new Point3D(p, p, 0), new Point3D(m, p, 0));
+      floor.addTriangle(new Point3D(m, m, 0), new Point3D(p, m, 0), new Point3D(p, p, 0));
+      scene.addObject(floor);
+
+      BoxTriMesh box = new BoxTriMesh(new Point3D(), 1, 1, 1);
+      float spacing = (p - m) / n;
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < n; j++) {
+            float x = m + (i + 0.5f) * spacing;
+            float y = m + (j + 0.5f) * spacing;
+            float size = spacing * (0.3f + 0.4f * random.nextFloat());
+            float height = spacing * (1 + 6 * random.nextFloat() * random.nextFloat());
+            float angle = 0.5f * (float) Math.PI * random.nextFloat();
+            Matrix4 transform = Matrix4.scale(size, size, height).mul(Matrix4.rotationZ(angle)).mul(Matrix4.translation(x, y, 0));
+            scene.addObject(new InstancedObject(box, transform));
+         }
+      }
+
+      scene.setAmbientLight(new ColorRGB(30, 30, 30));
+      scene.setLight(0, new Light(new Point3D(1.5f, -2, 4), 5f, ColorRGB.white));
+      return scene;
+   }
+
+   /**
+    * Vytvoří scénu s daným počtem náhodně rozmístěných koulí náhodných barev v
+    * kvádru <code>[0, 6] x [-3, 3] x [-1, 1]</code>. Koule osvětlují stejná
+    * světla jako ve scéně s kuličkami.
+    * 
+    * @param count
+    *           Počet koulí.
+    * @param seed
+    *           Semínko generátoru náhodných čísel.
+    * @return Scéna s náhodnými koulemi.
+    */
+   public static Scene createRandomSpheres(int count, long seed) {
+      Scene scene = new Scene();
+      Random random = new Random(seed);
+      for (int i = 0; i < count; i++) {
+         Point3D center = new Point3D(6 * random.nextFloat(), 6 * random.nextFloat() - 3, 2 * random.nextFloat() - 1);
+         Sphere sphere = new Sphere(center, 0.01f + 0.04f * random.nextFloat());
+         sphere.setDiffuseColor(new ColorRGB(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+         scene.addObject(sphere);
+      }
+      scene.setAmbientLight(new ColorRGB(20, 20, 20));
+      scene.setLight(0, new Light(new Point3D(1, -1, 1), 0.4f, new ColorRGB(ColorRGB.red)));
+      scene.setLight(1, new Light(new Point3D(1, 1, 1), 0.4f, new ColorRGB(ColorRGB.green)));
+      scene.setLight(2, new Light(new Point3D(0, 1, 1), 0.4f, new ColorRGB(ColorRGB.blue)));
+      scene.setLight(3, new Light(new Point3D(0, -1, 1), 0.4f, new ColorRGB(ColorRGB.white)));
+      return scene;
+   }
+
+   /**
+    * Vytvoří výškovou mapu (terén) jako síť trojúhelníků nad čtvercem
+    * <code>[0, 4] x [-2, 2]</code>. Síť má <code>2 * n * n</code>
+    * trojúhelníků a je uložena v indexované podobě ({@link IndexedMesh}) se
+    * sdílenými vrcholy mřížky.
+    * 
+    * @param n
+    *           Počet buněk mřížky v každém směru.
+    * @param seed
+    *           Semínko generátoru náhodného šumu výšky.
+    * @return Síť trojúhelníků terénu.
+    */
+   public static TriMesh createTerrain(int n, long seed) {
+      Random random = new Random(seed);
+      float[] positions = new float[3 * (n + 1) * (n + 1)];
+      for (int j = 0, p = 0; j <= n; j++) {
+         for (int i = 0; i <= n; i++) {
+            float x = 4f * i / n;
+            float y = 4f * j / n - 2;
+            float z = (float) (0.3 * Math.sin(3 * x) * Math.cos(2 * y) + 0.1 * Math.sin(7 * x + 5 * y)) + 0.01f * random.nextFloat();
+            positions[p++] = x;
+            positions[p++] = y;
+            positions[p++] = z;
+         }
+      }
+
+      int[] indices = new int[6 * n * n];
+      for (int j = 0, k = 0; j < n; j++) {
+         for (int i = 0; i < n; i++) {
+            int a = j * (n + 1) + i;
+            int b = a + 1;
+            int c = b + n + 1;
+            int d = a + n + 1;
+            indices[k++] = a;
+            indices[k++] = b;
+            indices[k++] = c;
+            indices[k++] = a;
+            indices[k++] = c;
+            indices[k++] = d;
+         }
+      }
+      return new TriMesh(new IndexedMesh(positions, indices));
+   }
+
+   /**
+    * Vytvoří scénu s danou sítí trojúhelníků osvětlenou dvěma bílými světly.
+    * 
+    * @param mesh
+    *           Síť trojúhelníků.
+    * @return Scéna se sítí trojúhelníků.
+    */
+   public static Scene createMeshScene(TriMesh mesh) {
+      Scene scene = new Scene();
+      scene.addObject(mesh);
+      scene.setAmbientLight(new ColorRGB(20, 20, 20));
+      scene.setLight(0, new Light(new Point3D(1, -1, 2), 1f, ColorRGB.white));
+      scene.setLight(1, new Light(new Point3D(3, 1, 2), 1f, ColorRGB.white));
+      return scene;
+   }
+}
@@ -0,0 +1,100 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Třída pro zobrazení hodnot pixelů (např. ceny výpočtu pixelu) v
+ * nepravých barvách. Hodnoty se lineárně mapují na barevnou škálu od tmavě
+ * modré (nejnižší hodnota) přes modrou, azurovou, zelenou a žlutou po červenou
+ * (nejvyšší hodnota).
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public final class HeatMap {
+
+   /**
+    * Barvy opěrných bodů škály (ve formátu <code>0xRRGGBB</code>) rozmístěné
+    * rovnoměrně na intervalu <code>[0, 1]</code>.
+    */
+   private static final int[] RAMP = { 0x000040, 0x0000ff, 0x00ffff, 0x00ff00, 0xffff00, 0xff0000 };
+
+   /**
+    * Třída obsahuje jen statické metody.
+    */
+   private HeatMap() {
+   }
+
+   /**
+    * Vrací barvu škály pro danou relativní hodnotu.
+    * 
+    * @param t
+    *           Relativní hodnota z intervalu <code>[0, 1]</code> (hodnoty
+    *           mimo interval se ořezávají).
+    * @return Barva ve formátu <code>0xRRGGBB</code>.
+    */
+   public static int color(float t) {
+      if (!(t > 0)) {
+         return RAMP[0];
+      }
+      if (t >= 1) {
+         return RAMP[RAMP.length - 1];
+      }
+      float position = t * (RAMP.length - 1);
+      int k = (int) position;
+      float w = position - k;
+      int c0 = RAMP[k];
+      int c1 = RAMP[k + 1];
+      int r = Math.round(((c0 >> 16) & 0xff) * (1 - w) + ((c1 >> 16) & 0xff) * w);
+      int g = Math.round(((c0 >> 8) & 0xff) * (1 - w) + ((c1 >> 8) & 0xff) * w);
+      int b = Math.round((c0 & 0xff) * (1 - w) + (c1 & 0xff) * w);
+      return (r << 16) | (g << 8) | b;
+   }
+
+   /**
+    * Vrací největší hodnotu pole.
+    * 
+    * @param values
+    *           Hodnoty.
+    * @return Největší hodnota, pro prázdné pole 0.
+    */
+   public static int max(int[] values) {
+      int max = 0;
+      for (int k = 0; k < values.length; k++) {
+         if (values[k] > max) {
+            max = values[k];
+         }
+      }
+      return max;
+   }
+
+   /**
+    * Vytvoří obrázek, ve kterém má každý pixel barvu škály odpovídající jeho
+    * hodnotě. Hodnota <code>maxValue</code> (a vyšší) má nejvyšší barvu
+    * škály, takže při stejném maximu lze porovnávat více obrázků.
+    * 
+    * @param values
+    *           Hodnoty pixelů po řádcích (pixel <code>(i, j)</code> má index
+    *           <code>j * width + i</code>).
+    * @param width
+    *           Šířka obrázku.
+    * @param height
+    *           Výška obrázku.
+    * @param maxValue
+    *           Hodnota odpovídající nejvyšší barvě škály.
+    * @return Obrázek typu {@link BufferedImage#TYPE_INT_RGB}.
+    */
+   public static BufferedImage createImage(int[] values, int width, int height, int maxValue) {
+      BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+      float scale = maxValue > 0 ? 1f / maxValue : 0;
+      for (int k = 0; k < pixels.length; k++) {
+         pixels[k] = color(values[k] * scale);
+      }
+      return image;
+   }
+}
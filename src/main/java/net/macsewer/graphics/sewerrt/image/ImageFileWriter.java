@@ -0,0 +1,125 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.image;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Třída pro ukládání rastru průmětny do souboru. Formát obrázku se určuje podle
+ * přípony souboru. Podporované formáty jsou PNG, BMP a PPM (binární varianta
+ * P6). Formáty PNG a BMP se ukládají pomocí {@link ImageIO}, formát PPM, který
+ * {@link ImageIO} nepodporuje, se zapisuje přímo.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public final class ImageFileWriter {
+
+   /**
+    * Formát PNG.
+    */
+   public static final String FORMAT_PNG = "png";
+
+   /**
+    * Formát BMP.
+    */
+   public static final String FORMAT_BMP = "bmp";
+
+   /**
+    * Formát PPM (binární varianta P6).
+    */
+   public static final String FORMAT_PPM = "ppm";
+
+   /**
+    * Třída obsahuje jen statické metody.
+    */
+   private ImageFileWriter() {
+   }
+
+   /**
+    * Vrací formát obrázku odpovídající příponě daného souboru.
+    * 
+    * @param file
+    *           Soubor obrázku.
+    * @return Jedna z hodnot {@link ImageFileWriter#FORMAT_PNG},
+    *         {@link ImageFileWriter#FORMAT_BMP} nebo
+    *         {@link ImageFileWriter#FORMAT_PPM}.
+    * @throws IllegalArgumentException
+    *            Pokud přípona souboru neodpovídá žádnému podporovanému
+    *            formátu.
+    */
+   public static String getFormat(File file) {
+      String name = file.getName();
+      int dot = name.lastIndexOf('.');
+      String extension = dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+      if (extension.equals(FORMAT_PNG) || extension.equals(FORMAT_BMP) || extension.equals(FORMAT_PPM)) {
+         return extension;
+      }
+      throw new IllegalArgumentException("Unsupported image format: " + name + " (use .png, .bmp or .ppm)");
+   }
+
+   /**
+    * Uloží daný rastr do daného souboru ve formátu určeném podle přípony
+    * souboru.
+    * 
+    * @param img
+    *           Rastr průmětny.
+    * @param file
+    *           Soubor, do kterého se má rastr uložit.
+    * @throws IOException
+    *            Pokud se zápis do souboru nezdaří.
+    * @see ImageFileWriter#getFormat(File)
+    */
+   public static void write(BufferedImage img, File file) throws IOException {
+      String format = getFormat(file);
+      if (format.equals(FORMAT_PPM)) {
+         OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+         try {
+            writePPM(img, out);
+         } finally {
+            out.close();
+         }
+      } else if (!ImageIO.write(img, format, file)) {
+         throw new IOException("No image writer for format " + format);
+      }
+   }
+
+   /**
+    * Zapíše daný rastr do proudu ve formátu PPM (binární varianta P6, 8 bitů
+    * na složku).
+    * 
+    * @param img
+    *           Rastr průmětny.
+    * @param out
+    *           Výstupní proud.
+    * @throws IOException
+    *            Pokud se zápis do proudu nezdaří.
+    */
+   public static void writePPM(BufferedImage img, OutputStream out) throws IOException {
+      int width = img.getWidth();
+      int height = img.getHeight();
+      out.write(("P6\n" + width + " " + height + "\n255\n").getBytes(Charset.forName("US-ASCII")));
+
+      int[] row = new int[width];
+      byte[] bytes = new byte[width * 3];
+      for (int j = 0; j < height; j++) {
+         img.getRGB(0, j, width, 1, row, 0, width);
+         for (int i = 0, k = 0; i < width; i++) {
+            int rgb = row[i];
+            bytes[k++] = (byte) (rgb >> 16);
+            bytes[k++] = (byte) (rgb >> 8);
+            bytes[k++] = (byte) rgb;
+         }
+         out.write(bytes);
+      }
+   }
+}
@@ -0,0 +1,210 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.raytracer;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.macsewer.graphics.sewerrt.camera.AbstractCamera;
+import net.macsewer.graphics.sewerrt.geometry.scene.Scene;
+import net.macsewer.graphics.sewerrt.image.ImageFileWriter;
+
+/**
+ * Třída pro vykreslení posloupnosti snímků animace do souborů. Ukládání
+ * snímku probíhá ve zvláštním vlákně souběžně s vykreslováním dalšího snímku.
+ * Raytracer přitom střídá několik rastrů průmětny: hotový rastr se předá k
+ * uložení a vykresluje se do volného rastru. Pokud volný rastr není (ukládání
+ * nestíhá), vykreslování počká, dokud se některý rastr neuvolní. Počet rastrů
+ * tak omezuje počet snímků čekajících na uložení i spotřebu paměti.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class FrameSequenceRenderer {
+
+   /**
+    * Výchozí počet snímků, které mohou současně čekat na uložení.
+    */
+   public static final int DEFAULT_QUEUE_CAPACITY = 2;
+
+   /**
+    * Raytracer, který snímky vykresluje.
+    */
+   private final RayTracer rayTracer;
+
+   /**
+    * Vykreslovaná scéna.
+    */
+   private final Scene scene;
+
+   /**
+    * Režim vykreslování snímků.
+    */
+   private int renderMode = RayTracer.RENDER_SINGLE;
+
+   /**
+    * Počet snímků, které mohou současně čekat na uložení.
+    */
+   private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+   /**
+    * První chyba, která nastala při ukládání snímků.
+    */
+   private volatile IOException writeError;
+
+   /**
+    * Počet primárních paprsků všech snímků posledního vykreslování.
+    */
+   private long sampleCount;
+
+   /**
+    * Vytvoří vykreslovač posloupnosti snímků.
+    * 
+    * @param rayTracer
+    *           Raytracer s nastavenou kamerou.
+    * @param scene
+    *           Vykreslovaná scéna.
+    */
+   public FrameSequenceRenderer(RayTracer rayTracer, Scene scene) {
+      this.rayTracer = rayTracer;
+      this.scene = scene;
+   }
+
+   /**
+    * Vykreslí daný počet snímků a uloží je do souborů. Název souboru vznikne z
+    * daného vzoru metodou {@link String#format(String, Object...)} s indexem
+    * snímku jako parametrem (např. <code>"frame_%04d.png"</code>), formát se
+    * určí podle přípony (viz {@link ImageFileWriter}). Metoda skončí až po
+    * uložení všech snímků.
+    * 
+    * @param frameCount
+    *           Počet snímků.
+    * @param setup
+    *           Nastavení kamery a scény pro jednotlivé snímky, nebo
+    *           <code>null</code>.
+    * @param fileNamePattern
+    *           Vzor názvu souborů snímků.
+    * @throws IOException
+    *            Pokud se nepodaří uložit některý snímek. Vykreslování dalších
+    *            snímků se v takovém případě ukončí.
+    * @throws InterruptedException
+    *            Pokud bylo vlákno přerušeno při čekání na volný rastr.
+    */
+   public void render(int frameCount, FrameSetup setup, String fileNamePattern) throws IOException, InterruptedException {
+      ImageFileWriter.getFormat(new File(String.format(Locale.ROOT, fileNamePattern, 0)));
+
+      AbstractCamera camera = rayTracer.getCamera();
+      int width = camera.getScreenWidth();
+      int height = camera.getScreenHeight();
+      final BlockingQueue<BufferedImage> freeCanvases = new ArrayBlockingQueue<BufferedImage>(queueCapacity + 1);
+      for (int i = 0; i <= queueCapacity; i++) {
+         freeCanvases.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+      }
+
+      writeError = null;
+      sampleCount = 0;
+      ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+         @Override
+         public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "sewerrt-frame-writer");
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+      try {
+         rayTracer.setScene(scene);
+         for (int frame = 0; frame < frameCount && writeError == null; frame++) {
+            if (setup != null) {
+               setup.setupFrame(frame, camera, scene);
+            }
+            final BufferedImage canvas = freeCanvases.take();
+            rayTracer.setCanvas(canvas);
+            rayTracer.renderScene(renderMode);
+            sampleCount += rayTracer.getSampleCount();
+
+            final File file = new File(String.format(Locale.ROOT, fileNamePattern, frame));
+            writer.execute(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     if (writeError == null) {
+                        ImageFileWriter.write(canvas, file);
+                     }
+                  } catch (IOException e) {
+                     writeError = e;
+                  } finally {
+                     freeCanvases.add(canvas);
+                  }
+               }
+            });
+         }
+      } finally {
+         writer.shutdown();
+         writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      }
+      if (writeError != null) {
+         throw writeError;
+      }
+   }
+
+   /**
+    * Vrací počet primárních paprsků (vzorků) všech snímků vykreslených
+    * posledním voláním metody
+    * {@link FrameSequenceRenderer#render(int, FrameSetup, String)}.
+    * 
+    * @return Počet primárních paprsků.
+    */
+   public long getSampleCount() {
+      return sampleCount;
+   }
+
+   /**
+    * Vrací režim vykreslování snímků.
+    * 
+    * @return Režim vykreslování.
+    */
+   public int getRenderMode() {
+      return renderMode;
+   }
+
+   /**
+    * Nastavuje režim vykreslování snímků.
+    * 
+    * @param renderMode
+    *           Režim vykreslování ({@link RayTracer#RENDER_SINGLE},
+    *           {@link RayTracer#RENDER_SUPERSAMPLED} nebo
+    *           {@link RayTracer#RENDER_ADAPTIVE}).
+    */
+   public void setRenderMode(int renderMode) {
+      this.renderMode = renderMode;
+   }
+
+   /**
+    * Vrací počet snímků, které mohou současně čekat na uložení.
+    * 
+    * @return Počet snímků.
+    */
+   public int getQueueCapacity() {
+      return queueCapacity;
+   }
+
+   /**
+    * Nastavuje počet snímků, které mohou současně čekat na uložení. Kromě
+    * nich se alokuje ještě jeden rastr pro právě vykreslovaný snímek.
+    * 
+    * @param queueCapacity
+    *           Počet snímků (alespoň 1).
+    */
+   public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = Math.max(1, queueCapacity);
+   }
+}
@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.raytracer;
+
+import net.macsewer.graphics.sewerrt.camera.AbstractCamera;
+import net.macsewer.graphics.sewerrt.geometry.scene.Scene;
+
+/**
+ * Rozhraní pro nastavení kamery a scény před vykreslením jednoho snímku
+ * animace (např. posun kamery nebo světel po dráze).
+ * 
+ * @author Pavel Macík
+ * @see FrameSequenceRenderer
+ */
+public interface FrameSetup {
+
+   /**
+    * Nastaví kameru a scénu pro daný snímek. Metoda se volá ve vlákně, které
+    * snímky vykresluje, a to vždy až po dokončení vykreslení předchozího
+    * snímku. Kamera smí být jen upravena (poloha, směr, ...), rozměry jejího
+    * rastru se měnit nesmí.
+    * 
+    * @param frame
+    *           Index snímku (od 0).
+    * @param camera
+    *           Kamera raytraceru.
+    * @param scene
+    *           Vykreslovaná scéna.
+    */
+   void setupFrame(int frame, AbstractCamera camera, Scene scene);
+}
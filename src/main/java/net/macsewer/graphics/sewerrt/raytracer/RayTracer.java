@@ -4,18 +4,32 @@
 package net.macsewer.graphics.sewerrt.raytracer;
 
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 
+import net.macsewer.graphics.sewerrt.acceleration.Accelerator;
+import net.macsewer.graphics.sewerrt.acceleration.BoundingVolumeHierarchy;
+import net.macsewer.graphics.sewerrt.acceleration.LinearAccelerator;
+import net.macsewer.graphics.sewerrt.acceleration.PacketIntersector;
+import net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector;
+import net.macsewer.graphics.sewerrt.acceleration.UniformGrid;
 import net.macsewer.graphics.sewerrt.camera.AbstractCamera;
 import net.macsewer.graphics.sewerrt.geometry.AbstractObject;
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
 import net.macsewer.graphics.sewerrt.geometry.ColorRGB;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
 import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.RenderStatistics;
 import net.macsewer.graphics.sewerrt.geometry.Vector3;
 import net.macsewer.graphics.sewerrt.geometry.Vertex;
 import net.macsewer.graphics.sewerrt.geometry.scene.Light;
 import net.macsewer.graphics.sewerrt.geometry.scene.Scene;
+import net.macsewer.graphics.sewerrt.image.HeatMap;
 
 /**
  * Třída reprezentující vykreslovací stroj. Jedná se o implementaci algoritmu
@@ -40,6 +54,14 @@ public class RayTracer {
     */
    private BufferedImage canvas;
 
+   /**
+    * Pole pixelů rastru průmětny (po řádcích, ve formátu RGB). Pole je přímo
+    * datovým polem obrázku {@link RayTracer#canvas}, zápis do něj se proto
+    * okamžitě projeví v obrázku bez kopírování a bez převodu barevného
+    * modelu.
+    */
+   private int[] frameBuffer;
+
    /**
     * Hloubka rekurze pro algoritmus sledování paprsku.
     */
@@ -62,6 +84,175 @@ public class RayTracer {
 
    private int superSamplingRadius = 0;
 
+   /**
+    * Režim vykreslování jedním primárním paprskem na pixel (viz
+    * {@link RayTracer#renderScene()}).
+    */
+   public static final int RENDER_SINGLE = 0;
+
+   /**
+    * Režim vykreslování s vyhlazováním (viz
+    * {@link RayTracer#renderSceneSuperSampled()}).
+    */
+   public static final int RENDER_SUPERSAMPLED = 1;
+
+   /**
+    * Režim vykreslování s adaptivním vyhlazováním (viz
+    * {@link RayTracer#renderSceneAdaptive()}). Uvnitř raytraceru označuje
+    * také druhý průchod adaptivního vyhlazování.
+    */
+   public static final int RENDER_ADAPTIVE = 2;
+
+   /**
+    * První průchod adaptivního vyhlazování (středový vzorek mřížky).
+    */
+   static final int RENDER_ADAPTIVE_PREVIEW = 3;
+
+   /**
+    * Práh rozdílu barev (ve složkách 0-255) pro adaptivní vyhlazování.
+    */
+   private float adaptiveThreshold = 16;
+
+   /**
+    * Počet primárních paprsků (vzorků) sledovaných při posledním vykreslení.
+    */
+   private final AtomicLong sampleCount = new AtomicLong();
+
+   /**
+    * Statistiky vykreslování, nebo <code>null</code>, pokud se nesbírají.
+    */
+   private RenderStatistics statistics;
+
+   /**
+    * Mapa ceny pixelů se nepočítá.
+    */
+   public static final int COST_OFF = 0;
+
+   /**
+    * Cenou pixelu je počet testů průsečíků (obalových těles i primitiv)
+    * provedených při výpočtu jeho barvy.
+    */
+   public static final int COST_TESTS = 1;
+
+   /**
+    * Cenou pixelu je doba výpočtu jeho barvy v nanosekundách.
+    */
+   public static final int COST_NANOS = 2;
+
+   /**
+    * Režim mapy ceny pixelů ({@link RayTracer#COST_OFF},
+    * {@link RayTracer#COST_TESTS} nebo {@link RayTracer#COST_NANOS}).
+    */
+   private int costMode = COST_OFF;
+
+   /**
+    * Urychlovací strukturou objektů scény je hierarchie obalových kvádrů
+    * ({@link BoundingVolumeHierarchy}).
+    */
+   public static final int ACCELERATION_BVH = 0;
+
+   /**
+    * Urychlovací strukturou objektů scény je pravidelná mřížka
+    * ({@link UniformGrid}).
+    */
+   public static final int ACCELERATION_GRID = 1;
+
+   /**
+    * Objekty scény se procházejí postupně bez prostorového dělení
+    * ({@link LinearAccelerator}), slouží jako základ pro srovnání.
+    */
+   public static final int ACCELERATION_LINEAR = 2;
+
+   /**
+    * Názvy urychlovacích struktur indexované režimem (pro volby příkazové
+    * řádky a výpisy).
+    */
+   private static final String[] ACCELERATION_NAMES = { "bvh", "grid", "linear" };
+
+   /**
+    * Urychlovací struktura objektů scény ({@link RayTracer#ACCELERATION_BVH},
+    * {@link RayTracer#ACCELERATION_GRID} nebo
+    * {@link RayTracer#ACCELERATION_LINEAR}).
+    */
+   private int accelerationMode = ACCELERATION_BVH;
+
+   /**
+    * Cena pixelů z posledního vykreslení (po řádcích jako
+    * {@link RayTracer#frameBuffer}), nebo <code>null</code>.
+    */
+   private int[] costBuffer;
+
+   /**
+    * Čítač testů průsečíků pixelu, který právě počítá aktuální vlákno.
+    */
+   private final ThreadLocal<int[]> pixelTests = new ThreadLocal<int[]>() {
+      @Override
+      protected int[] initialValue() {
+         return new int[1];
+      }
+   };
+
+   /**
+    * Barvy pixelů z prvního průchodu adaptivního vyhlazování.
+    */
+   private int[] firstPass;
+
+   /**
+    * Barvy středových vzorků z prvního průchodu adaptivního vyhlazování (tři
+    * složky na pixel, před omezením na rozsah 0-255). Pixely bez středového
+    * vzorku zůstávají nulové.
+    */
+   private float[] firstPassColors;
+
+   /**
+    * Počet vláken, která souběžně vykreslují rastr. Hodnota 1 znamená sériové
+    * vykreslování v aktuálním vlákně.
+    */
+   private int threadCount = 1;
+
+   /**
+    * Velikost strany čtvercové dlaždice (v pixelech), po kterých se rastr
+    * vykresluje v paralelním režimu.
+    */
+   private int tileSize = 32;
+
+   /**
+    * Počet primárních paprsků, které se sledují najednou jako paket (1 =
+    * každý paprsek zvlášť).
+    */
+   private int packetSize = 1;
+
+   /**
+    * Fond vláken pro paralelní vykreslování.
+    */
+   private ForkJoinPool pool;
+
+   /**
+    * Urychlovací struktura nad objekty scény (viz
+    * {@link RayTracer#setAccelerationMode(int)}). Staví se před každým
+    * vykreslením scény; paprsky sledované mimo vykreslování bez postavené
+    * struktury použijí {@link LinearAccelerator} (viz
+    * {@link RayTracer#getSceneAccelerator()}).
+    */
+   private volatile Accelerator accelerator;
+
+   /**
+    * Doba stavby urychlovací struktury {@link RayTracer#accelerator} (ns).
+    */
+   private long acceleratorBuildNanos;
+
+   /**
+    * Výpočet průsečíku s objekty scény v pořadí, ve kterém byly vloženy do
+    * struktury {@link RayTracer#accelerator}.
+    */
+   private ObjectIntersector objectIntersector;
+
+   /**
+    * Test zastínění objekty scény v pořadí, ve kterém byly vloženy do
+    * struktury {@link RayTracer#accelerator}.
+    */
+   private ObjectIntersector occlusionIntersector;
+
    /**
     * Vytvoří raytracer s danou kamerou.
     * 
@@ -89,9 +280,44 @@ public class RayTracer {
       this.camera = camera;
       if (camera != null) {
          canvas = new BufferedImage(camera.getScreenWidth(), camera.getScreenHeight(), BufferedImage.TYPE_INT_RGB);
+         frameBuffer = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
       } else {
          canvas = null;
+         frameBuffer = null;
+      }
+   }
+
+   /**
+    * Nastaví raytraceru nový rastr průmětny. Umožňuje střídat několik rastrů,
+    * např. vykreslovat další snímek, zatímco se předchozí ukládá.
+    * 
+    * @param canvas
+    *           Nový rastr typu {@link BufferedImage#TYPE_INT_RGB} s rozměry
+    *           průmětny přiřazené kamery.
+    * @throws IllegalArgumentException
+    *            Pokud rastr nemá správný typ nebo rozměry.
+    */
+   public void setCanvas(BufferedImage canvas) {
+      if (canvas.getType() != BufferedImage.TYPE_INT_RGB || camera == null || canvas.getWidth() != camera.getScreenWidth() || canvas.getHeight() != camera.getScreenHeight()) {
+         throw new IllegalArgumentException("Canvas must be a TYPE_INT_RGB image with the camera screen size");
       }
+      this.canvas = canvas;
+      frameBuffer = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+   }
+
+   /**
+    * Vykreslí (promítne) přiřazenou scénu daným režimem.
+    * 
+    * @param mode
+    *           Režim vykreslování ({@link RayTracer#RENDER_SINGLE},
+    *           {@link RayTracer#RENDER_SUPERSAMPLED} nebo
+    *           {@link RayTracer#RENDER_ADAPTIVE}).
+    */
+   public void renderScene(int mode) {
+      if (mode != RENDER_SINGLE && mode != RENDER_SUPERSAMPLED && mode != RENDER_ADAPTIVE) {
+         throw new IllegalArgumentException("Unknown render mode: " + mode);
+      }
+      render(mode);
    }
 
    /**
@@ -111,29 +337,7 @@ public class RayTracer {
     * kamery.
     */
    public void renderScene() {
-
-      int screenWidth = camera.getScreenWidth();
-      int screenHeight = camera.getScreenHeight();
-      int pixelColor = ColorRGB.black.toInt();
-      Ray currentPrimaryRay;
-      ColorRGB finalColor;
-
-      int background = scene.getBackgroundColor().toInt();
-
-      for (int j = 0; j < screenHeight; j++) {
-         for (int i = 0; i < screenWidth; i++) {
-            currentPrimaryRay = camera.getPrimaryRay(i, j);
-            pixelColor = background;
-            if (currentPrimaryRay != null) {
-               finalColor = traceRay(currentPrimaryRay, null, recursionDeep);
-
-               if (finalColor != null) {
-                  pixelColor = ColorRGB.saturateRGB(finalColor).toInt();
-               }
-            }
-            canvas.setRGB(i, j, pixelColor);
-         }
-      }
+      render(RENDER_SINGLE);
    }
 
    public void renderSceneSuperSampled(Scene scene) {
@@ -147,56 +351,656 @@ public class RayTracer {
    }
 
    public void renderSceneSuperSampled() {
+      render(RENDER_SUPERSAMPLED);
+   }
+
+   /**
+    * Vykreslí danou scénu s adaptivním vyhlazováním.
+    * 
+    * @param scene
+    *           Promítaná scéna.
+    * @param superSamplingRadius
+    *           Poloměr mřížky vzorků zpřesňovaných pixelů (viz
+    *           {@link AbstractCamera#getSuperSampledCount(int)}).
+    * @param adaptiveThreshold
+    *           Práh rozdílu barev, nad kterým se pixel zpřesňuje.
+    * @see RayTracer#renderSceneAdaptive()
+    */
+   public void renderSceneAdaptive(Scene scene, int superSamplingRadius, float adaptiveThreshold) {
+      setScene(scene);
+      this.superSamplingRadius = superSamplingRadius;
+      this.adaptiveThreshold = adaptiveThreshold;
+      renderSceneAdaptive();
+   }
+
+   /**
+    * Vykreslí přiřazenou scénu s adaptivním vyhlazováním. Nejprve se pro každý
+    * pixel sleduje jen středový vzorek mřížky vyhlazování. Poté se zpřesňují jen pixely,
+    * jejichž barva se v některé složce liší od některého ze čtyř sousedů o
+    * více než {@link RayTracer#getAdaptiveThreshold()}. U takového pixelu se
+    * nejdříve sledují rohové a středový vzorek mřížky; zbytek mřížky se
+    * dopočítá jen tehdy, pokud směrodatná odchylka těchto vzorků v některé
+    * složce překročí polovinu prahu. Počet použitých vzorků vrací
+    * {@link RayTracer#getSampleCount()}.
+    */
+   public void renderSceneAdaptive() {
+      render(RENDER_ADAPTIVE);
+   }
+
+   /**
+    * Vykreslí celý rastr průmětny daným režimem. Pokud je nastaven více než
+    * jeden vykreslovací proces (viz {@link RayTracer#setThreadCount(int)}), je
+    * rastr rozdělen na dlaždice, které se vykreslují paralelně. Výsledek je v
+    * obou případech shodný, protože se každý pixel počítá stejnou metodou.
+    * 
+    * @param mode
+    *           Režim vykreslování.
+    */
+   private void render(int mode) {
+      RenderStatistics currentStatistics = statistics;
+      if (currentStatistics != null) {
+         currentStatistics.reset();
+      }
+      long start = System.nanoTime();
+      if (threadCount > 1) {
+         // stavba hierarchie pak bezi ve vykreslovacich vlaknech
+         getPool().invoke(ForkJoinTask.adapt(new Runnable() {
+            @Override
+            public void run() {
+               buildAccelerator();
+            }
+         }));
+      } else {
+         buildAccelerator();
+      }
+      sampleCount.set(0);
+      if (costMode != COST_OFF) {
+         int pixelCount = camera.getScreenWidth() * camera.getScreenHeight();
+         if (costBuffer == null || costBuffer.length != pixelCount) {
+            costBuffer = new int[pixelCount];
+         } else {
+            Arrays.fill(costBuffer, 0);
+         }
+      } else {
+         costBuffer = null;
+      }
+      long built = System.nanoTime();
+      long previewed = built;
+
+      if (mode == RENDER_ADAPTIVE) {
+         firstPassColors = new float[camera.getScreenWidth() * camera.getScreenHeight() * 3];
+         renderTiles(RENDER_ADAPTIVE_PREVIEW);
+         firstPass = frameBuffer.clone();
+         previewed = System.nanoTime();
+         renderTiles(RENDER_ADAPTIVE);
+         firstPass = null;
+         firstPassColors = null;
+      } else {
+         renderTiles(mode);
+      }
+
+      if (currentStatistics != null) {
+         currentStatistics.add(RenderStatistics.BUILD_NANOS, built - start);
+         currentStatistics.add(RenderStatistics.PREVIEW_NANOS, previewed - built);
+         currentStatistics.add(RenderStatistics.RENDER_NANOS, System.nanoTime() - previewed);
+      }
+   }
+
+   /**
+    * Vykreslí celý rastr průmětny daným režimem - sériově, nebo paralelně po
+    * dlaždicích.
+    * 
+    * @param mode
+    *           Režim vykreslování.
+    */
+   private void renderTiles(int mode) {
       int screenWidth = camera.getScreenWidth();
       int screenHeight = camera.getScreenHeight();
 
+      if (threadCount > 1) {
+         getPool().invoke(new TileRenderTask(this, screenWidth, screenHeight, tileSize, mode));
+      } else {
+         renderRegion(0, 0, screenWidth, screenHeight, mode);
+      }
+   }
+
+   /**
+    * Vykreslí obdélníkovou oblast rastru průmětny. Metodu lze volat souběžně
+    * pro navzájem disjunktní oblasti.
+    * 
+    * @param x0
+    *           Levý okraj oblasti (včetně).
+    * @param y0
+    *           Horní okraj oblasti (včetně).
+    * @param x1
+    *           Pravý okraj oblasti (vyjma).
+    * @param y1
+    *           Dolní okraj oblasti (vyjma).
+    * @param mode
+    *           Režim vykreslování.
+    */
+   void renderRegion(int x0, int y0, int x1, int y1, int mode) {
+      if (packetSize > 1 && costBuffer == null && mode != RENDER_ADAPTIVE) {
+         renderRegionPackets(x0, y0, x1, y1, mode);
+         return;
+      }
+      int[] samples = new int[1];
+      int screenWidth = camera.getScreenWidth();
+      int pixelColor;
+      int[] cost = costBuffer;
+      int[] tests = cost != null && costMode == COST_TESTS ? pixelTests.get() : null;
+      long pixelStart = 0;
+      for (int j = y0; j < y1; j++) {
+         int index = j * screenWidth + x0;
+         for (int i = x0; i < x1; i++, index++) {
+            if (tests != null) {
+               tests[0] = 0;
+            } else if (cost != null) {
+               pixelStart = System.nanoTime();
+            }
+            switch (mode) {
+               case RENDER_SUPERSAMPLED:
+                  pixelColor = computePixelSuperSampled(i, j, samples);
+                  break;
+               case RENDER_ADAPTIVE:
+                  pixelColor = computePixelAdaptive(i, j, samples);
+                  break;
+               case RENDER_ADAPTIVE_PREVIEW:
+                  pixelColor = computePixelCenterSample(i, j, samples);
+                  break;
+               case RENDER_SINGLE:
+               default:
+                  pixelColor = computePixel(i, j, samples);
+            }
+            frameBuffer[index] = pixelColor & 0xffffff;
+            if (tests != null) {
+               cost[index] += tests[0];
+            } else if (cost != null) {
+               cost[index] += (int) Math.min(Integer.MAX_VALUE, System.nanoTime() - pixelStart);
+            }
+         }
+      }
+      sampleCount.addAndGet(samples[0]);
+   }
+
+   /**
+    * Vykreslí obdélníkovou oblast rastru průmětny po paketech primárních
+    * paprsků. Při vykreslení jedním paprskem na pixel tvoří paket blok
+    * sousedních pixelů (2x2, 4x2 nebo 4x4 podle velikosti paketu), při
+    * vyhlazování vzorky jednoho pixelu. Výsledný obraz je stejný jako při
+    * sledování jednotlivých paprsků metodou
+    * {@link RayTracer#renderRegion(int, int, int, int, int)}.
+    * 
+    * @param x0
+    *           Levý okraj oblasti (včetně).
+    * @param y0
+    *           Horní okraj oblasti (včetně).
+    * @param x1
+    *           Pravý okraj oblasti (vyjma).
+    * @param y1
+    *           Dolní okraj oblasti (vyjma).
+    * @param mode
+    *           Režim vykreslování ({@link RayTracer#RENDER_SINGLE},
+    *           {@link RayTracer#RENDER_SUPERSAMPLED} nebo
+    *           {@link RayTracer#RENDER_ADAPTIVE_PREVIEW}).
+    */
+   private void renderRegionPackets(int x0, int y0, int x1, int y1, int mode) {
+      int screenWidth = camera.getScreenWidth();
+      int background = scene.getBackgroundColor().toInt();
+      Ray[] rays = new Ray[packetSize];
+      ColorRGB[] colors = new ColorRGB[packetSize];
+      HitRecord[] hits = new HitRecord[packetSize];
+      for (int k = 0; k < packetSize; k++) {
+         hits[k] = new HitRecord();
+         hits[k].setStatistics(statistics);
+      }
+      long samples = 0;
+
+      if (mode == RENDER_SUPERSAMPLED) {
+         int count = AbstractCamera.getSuperSampledCount(superSamplingRadius);
+         int[] order = new int[count];
+         ColorRGB[] sampleColors = new ColorRGB[count];
+         for (int j = y0; j < y1; j++) {
+            int index = j * screenWidth + x0;
+            for (int i = x0; i < x1; i++, index++) {
+               List<Ray> primaryRayList = camera.getPimaryRaySuperSampledList(i, j, superSamplingRadius);
+               int innerCount = 0;
+               for (int k = 0; k < count; k++) {
+                  Ray ray = primaryRayList.get(k);
+                  if (ray != null) {
+                     order[innerCount++] = k;
+                  }
+               }
+               for (int first = 0; first < innerCount; first += packetSize) {
+                  int packetCount = Math.min(packetSize, innerCount - first);
+                  for (int k = 0; k < packetCount; k++) {
+                     rays[k] = primaryRayList.get(order[first + k]);
+                  }
+                  tracePacket(rays, hits, packetCount, colors);
+                  System.arraycopy(colors, 0, sampleColors, first, packetCount);
+               }
+               float rSum = 0;
+               float gSum = 0;
+               float bSum = 0;
+               for (int k = 0; k < innerCount; k++) {
+                  rSum += sampleColors[k].getX();
+                  gSum += sampleColors[k].getY();
+                  bSum += sampleColors[k].getZ();
+               }
+               samples += innerCount;
+               frameBuffer[index] = ColorRGB.saturateRGB(new ColorRGB(rSum / innerCount, gSum / innerCount, bSum / innerCount)).toInt() & 0xffffff;
+            }
+         }
+      } else {
+         int packetWidth = packetSize >= 8 ? 4 : 2;
+         int packetHeight = packetSize / packetWidth;
+         int[] indices = new int[packetSize];
+         for (int by = y0; by < y1; by += packetHeight) {
+            for (int bx = x0; bx < x1; bx += packetWidth) {
+               int count = 0;
+               for (int j = by, jEnd = Math.min(by + packetHeight, y1); j < jEnd; j++) {
+                  for (int i = bx, iEnd = Math.min(bx + packetWidth, x1); i < iEnd; i++) {
+                     Ray ray = mode == RENDER_ADAPTIVE_PREVIEW ? camera.getPrimaryRaySuperSampledCenter(i, j) : camera.getPrimaryRay(i, j);
+                     if (ray != null) {
+                        rays[count] = ray;
+                        indices[count++] = j * screenWidth + i;
+                     } else {
+                        frameBuffer[j * screenWidth + i] = background & 0xffffff;
+                     }
+                  }
+               }
+               tracePacket(rays, hits, count, colors);
+               for (int k = 0; k < count; k++) {
+                  frameBuffer[indices[k]] = ColorRGB.saturateRGB(colors[k]).toInt() & 0xffffff;
+                  if (mode == RENDER_ADAPTIVE_PREVIEW) {
+                     storeFirstPassColor(indices[k], colors[k]);
+                  }
+               }
+               samples += count;
+            }
+         }
+      }
+      sampleCount.addAndGet(samples);
+   }
+
+   /**
+    * Sleduje paket primárních paprsků. Nejbližší průsečíky všech paprsků se
+    * hledají najednou (viz
+    * {@link Accelerator#closestHits(Ray[], HitRecord[], int, PrimitiveIntersector)}),
+    * osvětlení a odražené paprsky se pak počítají pro každý paprsek zvlášť.
+    * 
+    * @param rays
+    *           Primární paprsky paketu.
+    * @param hits
+    *           Záznamy o průsečících, které se pro paket znovu použijí
+    *           (alespoň <code>count</code> prvků).
+    * @param count
+    *           Počet paprsků paketu.
+    * @param colors
+    *           Pole, do kterého se zapíší barvy paprsků.
+    */
+   private void tracePacket(Ray[] rays, HitRecord[] hits, int count, ColorRGB[] colors) {
+      for (int k = 0; k < count; k++) {
+         hits[k].reset(Float.MAX_VALUE, null);
+         hits[k].count(RenderStatistics.PRIMARY_RAYS);
+      }
+
+      getSceneAccelerator().closestHits(rays, hits, count, objectIntersector);
+
+      for (int k = 0; k < count; k++) {
+         Vertex vertex = null;
+         if (hits[k].isHit()) {
+            hits[k].count(RenderStatistics.HITS);
+            vertex = hits[k].getObject().getVertex(rays[k], hits[k]);
+         }
+         colors[k] = shade(rays[k], vertex, recursionDeep);
+      }
+   }
+
+   /**
+    * Spočítá barvu pixelu na souřadnicích <code>(i, j)</code> pomocí jednoho
+    * primárního paprsku.
+    * 
+    * @param i
+    *           Vertikální souřadnice pixelu v rastru průmětny.
+    * @param j
+    *           Horizontální souřadnice pixelu v rastru průmětny.
+    * @param samples
+    *           Čítač sledovaných primárních paprsků (první prvek pole).
+    * @return Barva pixelu.
+    */
+   private int computePixel(int i, int j, int[] samples) {
+      int pixelColor = scene.getBackgroundColor().toInt();
+      Ray currentPrimaryRay = camera.getPrimaryRay(i, j);
+      if (currentPrimaryRay != null) {
+         samples[0]++;
+         ColorRGB finalColor = traceRay(currentPrimaryRay, null, recursionDeep);
+
+         if (finalColor != null) {
+            pixelColor = ColorRGB.saturateRGB(finalColor).toInt();
+         }
+      }
+      return pixelColor;
+   }
+
+   /**
+    * Spočítá barvu pixelu na souřadnicích <code>(i, j)</code> jako průměr
+    * barev primárních paprsků rozmístěných v okolí pixelu.
+    * 
+    * @param i
+    *           Vertikální souřadnice pixelu v rastru průmětny.
+    * @param j
+    *           Horizontální souřadnice pixelu v rastru průmětny.
+    * @param samples
+    *           Čítač sledovaných primárních paprsků (první prvek pole).
+    * @return Barva pixelu.
+    */
+   private int computePixelSuperSampled(int i, int j, int[] samples) {
       int count = AbstractCamera.getSuperSampledCount(superSamplingRadius);
-      List<Ray> currentPrimaryRayList = new ArrayList<>(count);
+      List<Ray> currentPrimaryRayList = camera.getPimaryRaySuperSampledList(i, j, superSamplingRadius);
       Ray currentPrimaryRaySuperSample = null;
       ColorRGB finalColor;
       ColorRGB currentColor;
       float rSum = 0;
       float gSum = 0;
       float bSum = 0;
+      int innerCount = 0;
 
-      int background = scene.getBackgroundColor().toInt();
-      int pixelColor = background;
+      int pixelColor = scene.getBackgroundColor().toInt();
+      for (int k = 0; k < count; k++) {
+         currentPrimaryRaySuperSample = currentPrimaryRayList.get(k);
+         if (currentPrimaryRaySuperSample != null) {
+            currentColor = traceRay(currentPrimaryRaySuperSample, null, recursionDeep);
+            rSum += currentColor.getX();
+            gSum += currentColor.getY();
+            bSum += currentColor.getZ();
+            innerCount++;
+         }
+      }
+      samples[0] += innerCount;
 
-      int innerCount = 0;
-      for (int j = 0; j < screenHeight; j++) {
-         for (int i = 0; i < screenWidth; i++) {
-            currentPrimaryRayList = camera.getPimaryRaySuperSampledList(i, j, superSamplingRadius);
-
-            pixelColor = background;
-            rSum = 0;
-            gSum = 0;
-            bSum = 0;
-            innerCount = 0;
-            for (int k = 0; k < count; k++) {
-               currentPrimaryRaySuperSample = currentPrimaryRayList.get(k);
-               if (currentPrimaryRaySuperSample != null) {
-                  currentColor = traceRay(currentPrimaryRaySuperSample, null, recursionDeep);
-                  rSum += currentColor.getX();
-                  gSum += currentColor.getY();
-                  bSum += currentColor.getZ();
-                  innerCount++;
-               }
-            }
+      finalColor = new ColorRGB(rSum / innerCount, gSum / innerCount, bSum / innerCount);
+
+      if (finalColor != null) {
+         pixelColor = ColorRGB.saturateRGB(finalColor).toInt();
+      }
+      return pixelColor;
+   }
+
+   /**
+    * Spočítá barvu pixelu na souřadnicích <code>(i, j)</code> pomocí
+    * středového vzorku mřížky vyhlazování (viz
+    * {@link AbstractCamera#getPrimaryRaySuperSampledCenter(int, int)}). Tento
+    * vzorek se v druhém průchodu adaptivního vyhlazování znovu použije, proto
+    * se nepočítá metodou {@link RayTracer#computePixel(int, int, int[])} -
+    * některé kamery (např.
+    * {@link net.macsewer.graphics.sewerrt.camera.FisheyeCamera}) rozmisťují
+    * vzorky mřížky jinak než jediný primární paprsek. Barva vzorku se uloží do
+    * {@link RayTracer#firstPassColors}.
+    * 
+    * @param i
+    *           Vertikální souřadnice pixelu v rastru průmětny.
+    * @param j
+    *           Horizontální souřadnice pixelu v rastru průmětny.
+    * @param samples
+    *           Čítač sledovaných primárních paprsků (první prvek pole).
+    * @return Barva pixelu.
+    */
+   private int computePixelCenterSample(int i, int j, int[] samples) {
+      int pixelColor = scene.getBackgroundColor().toInt();
+      Ray currentPrimaryRay = camera.getPrimaryRaySuperSampledCenter(i, j);
+      if (currentPrimaryRay != null) {
+         samples[0]++;
+         ColorRGB finalColor = traceRay(currentPrimaryRay, null, recursionDeep);
+
+         if (finalColor != null) {
+            pixelColor = ColorRGB.saturateRGB(finalColor).toInt();
+            storeFirstPassColor(j * camera.getScreenWidth() + i, finalColor);
+         }
+      }
+      return pixelColor;
+   }
+
+   /**
+    * Uloží barvu středového vzorku pixelu z prvního průchodu adaptivního
+    * vyhlazování.
+    * 
+    * @param index
+    *           Index pixelu v rastru.
+    * @param color
+    *           Barva vzorku (před omezením na rozsah 0-255).
+    */
+   private void storeFirstPassColor(int index, ColorRGB color) {
+      firstPassColors[index * 3] = color.getX();
+      firstPassColors[index * 3 + 1] = color.getY();
+      firstPassColors[index * 3 + 2] = color.getZ();
+   }
 
-            finalColor = new ColorRGB(rSum / innerCount, gSum / innerCount, bSum / innerCount);
+   /**
+    * Spočítá barvu pixelu na souřadnicích <code>(i, j)</code> v druhém
+    * průchodu adaptivního vyhlazování. Pixely s malým rozdílem barvy oproti
+    * sousedům si ponechají barvu z prvního průchodu, ostatní se zpřesní.
+    * 
+    * @param i
+    *           Vertikální souřadnice pixelu v rastru průmětny.
+    * @param j
+    *           Horizontální souřadnice pixelu v rastru průmětny.
+    * @param samples
+    *           Čítač sledovaných primárních paprsků (první prvek pole).
+    * @return Barva pixelu.
+    * @see RayTracer#renderSceneAdaptive()
+    */
+   private int computePixelAdaptive(int i, int j, int[] samples) {
+      int screenWidth = camera.getScreenWidth();
+      int screenHeight = camera.getScreenHeight();
+      int index = j * screenWidth + i;
+      int center = firstPass[index];
+
+      float contrast = 0;
+      if (i > 0) {
+         contrast = Math.max(contrast, colorDifference(center, firstPass[index - 1]));
+      }
+      if (i < screenWidth - 1) {
+         contrast = Math.max(contrast, colorDifference(center, firstPass[index + 1]));
+      }
+      if (j > 0) {
+         contrast = Math.max(contrast, colorDifference(center, firstPass[index - screenWidth]));
+      }
+      if (j < screenHeight - 1) {
+         contrast = Math.max(contrast, colorDifference(center, firstPass[index + screenWidth]));
+      }
+      if (contrast <= adaptiveThreshold) {
+         return center;
+      }
 
-            if (finalColor != null) {
-               pixelColor = ColorRGB.saturateRGB(finalColor).toInt();
+      int count = AbstractCamera.getSuperSampledCount(superSamplingRadius);
+      int side = 2 * superSamplingRadius + 1;
+      List<Ray> primaryRayList = camera.getPimaryRaySuperSampledList(i, j, superSamplingRadius);
+      boolean[] traced = new boolean[count];
+      float[] colorSum = new float[3];
+      float[] sum = new float[3];
+      float[] sumSquares = new float[3];
+
+      // stredovy vzorek je spocitan z prvniho pruchodu
+      traced[count / 2] = true;
+      int reused = 0;
+      if (primaryRayList.get(count / 2) != null) {
+         addSample(firstPassColors[index * 3], firstPassColors[index * 3 + 1], firstPassColors[index * 3 + 2], colorSum, sum, sumSquares);
+         reused = 1;
+      }
+      int innerCount = reused;
+
+      // rohove vzorky
+      int[] probes = { 0, side - 1, count - side, count - 1 };
+      for (int k = 0; k < probes.length; k++) {
+         if (!traced[probes[k]]) {
+            traced[probes[k]] = true;
+            innerCount += traceSample(primaryRayList.get(probes[k]), colorSum, sum, sumSquares);
+         }
+      }
+
+      boolean refine = false;
+      if (innerCount > 1) {
+         float limit = adaptiveThreshold * 0.5f;
+         for (int c = 0; c < 3; c++) {
+            float mean = sum[c] / innerCount;
+            float variance = sumSquares[c] / innerCount - mean * mean;
+            if (variance > limit * limit) {
+               refine = true;
             }
-            canvas.setRGB(i, j, pixelColor);
          }
+      } else {
+         refine = true;
+      }
+
+      if (refine) {
+         for (int k = 0; k < count; k++) {
+            if (!traced[k]) {
+               innerCount += traceSample(primaryRayList.get(k), colorSum, sum, sumSquares);
+            }
+         }
+      }
+      samples[0] += innerCount - reused;
+
+      if (innerCount == 0) {
+         return scene.getBackgroundColor().toInt();
+      }
+      return ColorRGB.saturateRGB(new ColorRGB(colorSum[0] / innerCount, colorSum[1] / innerCount, colorSum[2] / innerCount)).toInt();
+   }
+
+   /**
+    * Sleduje jeden vzorek pixelu a přičte jeho barvu k daným součtům (viz
+    * {@link RayTracer#addSample(float, float, float, float[], float[], float[])}).
+    * 
+    * @param ray
+    *           Primární paprsek vzorku (může být <code>null</code>).
+    * @param colorSum
+    *           Součty složek barev vzorků.
+    * @param sum
+    *           Součty složek barev vzorků omezených na rozsah 0-255.
+    * @param sumSquares
+    *           Součty čtverců složek barev vzorků omezených na rozsah 0-255.
+    * @return Počet sledovaných paprsků (0 nebo 1).
+    */
+   private int traceSample(Ray ray, float[] colorSum, float[] sum, float[] sumSquares) {
+      if (ray == null) {
+         return 0;
+      }
+      ColorRGB color = traceRay(ray, null, recursionDeep);
+      addSample(color.getX(), color.getY(), color.getZ(), colorSum, sum, sumSquares);
+      return 1;
+   }
+
+   /**
+    * Přičte barvu vzorku k součtům. Barva pixelu se počítá z průměru
+    * neomezených barev, rozptyl vzorků z barev omezených na rozsah 0-255 - jen
+    * tak je odhad rozptylu nezáporný a rozdíly nad 255 (např. přesvícená
+    * odlesková místa) jej nezkreslují.
+    * 
+    * @param r
+    *           Červená složka barvy vzorku.
+    * @param g
+    *           Zelená složka barvy vzorku.
+    * @param b
+    *           Modrá složka barvy vzorku.
+    * @param colorSum
+    *           Součty složek barev vzorků.
+    * @param sum
+    *           Součty složek barev vzorků omezených na rozsah 0-255.
+    * @param sumSquares
+    *           Součty čtverců složek barev vzorků omezených na rozsah 0-255.
+    */
+   private static void addSample(float r, float g, float b, float[] colorSum, float[] sum, float[] sumSquares) {
+      colorSum[0] += r;
+      colorSum[1] += g;
+      colorSum[2] += b;
+      float sr = Math.min(255, Math.max(r, 0));
+      float sg = Math.min(255, Math.max(g, 0));
+      float sb = Math.min(255, Math.max(b, 0));
+      sum[0] += sr;
+      sum[1] += sg;
+      sum[2] += sb;
+      sumSquares[0] += sr * sr;
+      sumSquares[1] += sg * sg;
+      sumSquares[2] += sb * sb;
+   }
+
+   /**
+    * Vrací největší rozdíl složek dvou barev v celočíselném tvaru RGB.
+    * 
+    * @param color1
+    *           První barva.
+    * @param color2
+    *           Druhá barva.
+    * @return Největší absolutní rozdíl odpovídajících si složek.
+    */
+   private static int colorDifference(int color1, int color2) {
+      int dr = Math.abs(((color1 >> 16) & 0xff) - ((color2 >> 16) & 0xff));
+      int dg = Math.abs(((color1 >> 8) & 0xff) - ((color2 >> 8) & 0xff));
+      int db = Math.abs((color1 & 0xff) - (color2 & 0xff));
+      return Math.max(dr, Math.max(dg, db));
+   }
+
+   /**
+    * Postaví urychlovací strukturu zvolenou metodou
+    * {@link RayTracer#setAccelerationMode(int)} nad aktuálními objekty scény.
+    * Volá se automaticky před každým vykreslením, explicitně ji stačí volat
+    * jen při použití metody {@link RayTracer#traceRay(Ray, Vertex, int)} mimo
+    * vykreslování - jinak se paprsky sledují přes {@link LinearAccelerator}.
+    */
+   public void buildAccelerator() {
+      buildAccelerator(accelerationMode);
+   }
+
+   /**
+    * Postaví urychlovací strukturu daného typu nad aktuálními objekty scény.
+    * 
+    * @param mode
+    *           Typ urychlovací struktury.
+    */
+   private void buildAccelerator(int mode) {
+      long start = System.nanoTime();
+      Vector<AbstractObject> objects = scene.getObjects();
+      AbstractObject[] objectArray = objects.toArray(new AbstractObject[objects.size()]);
+      BoundingBox[] bounds = new BoundingBox[objectArray.length];
+      for (int k = 0; k < objectArray.length; k++) {
+         bounds[k] = objectArray[k].getBoundingBox();
+      }
+      objectIntersector = new ObjectIntersector(objectArray, false);
+      occlusionIntersector = new ObjectIntersector(objectArray, true);
+      switch (mode) {
+         case ACCELERATION_GRID:
+            accelerator = new UniformGrid(bounds);
+            break;
+         case ACCELERATION_LINEAR:
+            accelerator = new LinearAccelerator(bounds);
+            break;
+         default:
+            accelerator = new BoundingVolumeHierarchy(bounds);
+      }
+      acceleratorBuildNanos = System.nanoTime() - start;
+   }
 
+   /**
+    * Vrací fond vláken pro paralelní vykreslování. Fond se vytváří až při
+    * prvním použití a znovu jen při změně počtu vláken.
+    * 
+    * @return Fond vláken.
+    */
+   private synchronized ForkJoinPool getPool() {
+      if (pool == null || pool.getParallelism() != threadCount) {
+         if (pool != null) {
+            pool.shutdown();
+         }
+         pool = new ForkJoinPool(threadCount);
       }
+      return pool;
    }
 
    /**
     * Počítá barvu pixelu na základě algoritmu sledování paprsku s danými
-    * atributy.
+    * atributy. Metoda nemění stav raytraceru, scény ani kamery, a proto ji lze
+    * volat souběžně z více vláken.
     * 
     * @param ray
     *           Sledovaný paprsek.
@@ -209,7 +1013,23 @@ public class RayTracer {
     * @return Barva pixelu.
     */
    public ColorRGB traceRay(Ray ray, Vertex origin, int deep) {
-      Vertex currentVertex = getCrossedVertex(ray, origin);
+      return shade(ray, getCrossedVertex(ray, origin), deep);
+   }
+
+   /**
+    * Spočítá barvu paprsku v daném průsečíku se scénou (osvětlení, stíny a
+    * odražené paprsky).
+    * 
+    * @param ray
+    *           Sledovaný paprsek.
+    * @param currentVertex
+    *           Nejbližší průsečík paprsku se scénou, nebo <code>null</code>,
+    *           pokud paprsek scénu nezasáhl.
+    * @param deep
+    *           Hloubka rekurze algoritmu.
+    * @return Barva paprsku.
+    */
+   private ColorRGB shade(Ray ray, Vertex currentVertex, int deep) {
       if (currentVertex == null) {
          return scene.getBackgroundColor();
       }
@@ -220,7 +1040,6 @@ public class RayTracer {
       Light currentLight;
       Vector3 lightVector, cameraVector, reflectVector, normalVector;
       Ray currentShadowRay;
-      Vertex tmpVertex;
 
       cameraVector = new Vector3(currentVertex.getPosition(), ray.getOrigin()).normalized();
       normalVector = currentVertex.getNormal().normalized();
@@ -236,11 +1055,7 @@ public class RayTracer {
                // zjištění stínu
                if (shadowsMode == SHADOWS_ON) {
                   currentShadowRay = new Ray(currentVertex.getPosition(), lightVector);
-                  tmpVertex = getCrossedVertex(currentShadowRay, currentVertex);
-                  if (tmpVertex != null) {
-                     // || tmpVertex.getOwner() == currentVertex
-                     // .getOwner()) {
-
+                  if (isOccluded(currentShadowRay, currentVertex, lightDistance)) {
                      continue;
                   }
                }
@@ -290,29 +1105,140 @@ public class RayTracer {
     * @return
     */
    private Vertex getCrossedVertex(Ray ray, Vertex origin) {
-      Vector<AbstractObject> objects = scene.getObjects();
-      int objectCount = objects.size();
-      AbstractObject currentObject;
-      Vertex vertex = null, currentVertex = null;
-      float depth = Float.MAX_VALUE;
-      float currentDepth;
-
-      for (int k = 0; k < objectCount; k++) {
-         currentObject = objects.get(k);
-         currentVertex = currentObject.crossRay(ray);
-
-         if (currentVertex != null) {
-            if (origin != null && (currentVertex.getOwner() == origin.getOwner())) {
-               continue;
+      HitRecord hit = new HitRecord();
+      hit.reset(Float.MAX_VALUE, origin != null ? origin.getOwner() : null);
+      hit.setStatistics(statistics);
+      if (costMode == COST_TESTS) {
+         hit.setTestCounter(pixelTests.get());
+      }
+      hit.count(origin != null ? RenderStatistics.REFLECTION_RAYS : RenderStatistics.PRIMARY_RAYS);
+
+      getSceneAccelerator().closestHit(ray, hit, objectIntersector);
+
+      if (hit.isHit()) {
+         hit.count(RenderStatistics.HITS);
+         return hit.getObject().getVertex(ray, hit);
+      }
+      return null;
+   }
+
+   /**
+    * Vrací urychlovací strukturu objektů scény. Pokud ještě nebyla postavena
+    * (paprsky sledované metodou {@link RayTracer#traceRay(Ray, Vertex, int)}
+    * mimo vykreslování bez volání {@link RayTracer#buildAccelerator()}),
+    * postaví nad aktuálními objekty scény {@link LinearAccelerator} -
+    * základní průchod všemi objekty bez prostorového dělení.
+    * 
+    * @return Urychlovací struktura objektů scény.
+    */
+   private Accelerator getSceneAccelerator() {
+      Accelerator current = accelerator;
+      if (current == null) {
+         synchronized (this) {
+            current = accelerator;
+            if (current == null) {
+               buildAccelerator(ACCELERATION_LINEAR);
+               current = accelerator;
             }
-            currentDepth = new Vector3(ray.getOrigin(), currentVertex.getPosition()).lenght();
-            if (currentDepth < depth) {
-               depth = currentDepth;
-               vertex = currentVertex;
+         }
+      }
+      return current;
+   }
+
+   /**
+    * Zjistí, zda-li daný paprsek protíná některý objekt scény ve vzdálenosti
+    * menší než <code>maxDistance</code> (typicky test, zda-li bod není ve
+    * stínu vůči světlu). Hledání končí u prvního nalezeného objektu a
+    * nepočítá se žádný vrchol, takže je výrazně levnější než hledání
+    * nejbližšího průsečíku. Metodu lze volat souběžně z více vláken.
+    * 
+    * @param ray
+    *           Paprsek.
+    * @param origin
+    *           Výchozí vrchol paprsku, jehož vlastník se do testu nezahrnuje,
+    *           nebo <code>null</code>.
+    * @param maxDistance
+    *           Vzdálenost, do které se překážky hledají (např. vzdálenost ke
+    *           světlu).
+    * @return <code>true</code>, pokud paprsek protíná některý objekt scény
+    *         blíže než <code>maxDistance</code>, jinak <code>false</code>.
+    */
+   public boolean isOccluded(Ray ray, Vertex origin, float maxDistance) {
+      HitRecord hit = new HitRecord();
+      hit.reset(maxDistance, origin != null ? origin.getOwner() : null);
+      hit.setStatistics(statistics);
+      if (costMode == COST_TESTS) {
+         hit.setTestCounter(pixelTests.get());
+      }
+      hit.count(RenderStatistics.SHADOW_RAYS);
+
+      boolean occluded = getSceneAccelerator().anyHit(ray, hit, occlusionIntersector);
+      if (occluded) {
+         hit.count(RenderStatistics.SHADOW_HITS);
+      }
+      return occluded;
+   }
+
+   /**
+    * Výpočet průsečíku paprsku (i paketu paprsků) s objekty scény pro průchod
+    * urychlovací strukturou.
+    * 
+    * @author Pavel Macík
+    * 
+    */
+   private static class ObjectIntersector implements PacketIntersector {
+      /**
+       * Objekty scény indexované indexem primitiva hierarchie.
+       */
+      private final AbstractObject[] objects;
+
+      /**
+       * Příznak hledání libovolného (ne nutně nejbližšího) průsečíku.
+       */
+      private final boolean anyHit;
+
+      /**
+       * Vytvoří výpočet průsečíku nad danými objekty.
+       * 
+       * @param objects
+       *           Objekty scény.
+       * @param anyHit
+       *           Příznak hledání libovolného průsečíku (test zastínění).
+       */
+      ObjectIntersector(AbstractObject[] objects, boolean anyHit) {
+         this.objects = objects;
+         this.anyHit = anyHit;
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector#intersect(int, net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+       */
+      @Override
+      public boolean intersect(int primitive, Ray ray, HitRecord hit) {
+         return anyHit ? objects[primitive].intersectAny(ray, hit) : objects[primitive].intersect(ray, hit);
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.acceleration.PacketIntersector#intersect(int, net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int)
+       */
+      @Override
+      public int intersect(int primitive, Ray[] rays, HitRecord[] hits, int mask) {
+         if (!anyHit) {
+            return objects[primitive].intersect(rays, hits, mask);
+         }
+         int found = 0;
+         for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int k = Integer.numberOfTrailingZeros(rest);
+            if (objects[primitive].intersectAny(rays[k], hits[k])) {
+               found |= 1 << k;
             }
          }
+         return found;
       }
-      return vertex;
    }
 
    /**
@@ -324,6 +1250,18 @@ public class RayTracer {
       return canvas;
    }
 
+   /**
+    * Vrací pole pixelů rastru průmětny. Pixel na souřadnicích
+    * <code>(i, j)</code> má index <code>j * šířka + i</code> a barvu ve
+    * formátu <code>0xRRGGBB</code>. Pole sdílí data s obrázkem vraceným
+    * metodou {@link RayTracer#getCanvas()}.
+    * 
+    * @return Pole pixelů rastru průmětny.
+    */
+   public int[] getFrameBuffer() {
+      return frameBuffer;
+   }
+
    /**
     * Nastavuje novou scénu.
     * 
@@ -332,6 +1270,9 @@ public class RayTracer {
     */
    public void setScene(Scene scene) {
       this.scene = scene;
+      accelerator = null;
+      objectIntersector = null;
+      occlusionIntersector = null;
    }
 
    /**
@@ -409,4 +1350,276 @@ public class RayTracer {
       this.superSamplingRadius = superSamplingRadius;
    }
 
+   /**
+    * Vrací práh rozdílu barev pro adaptivní vyhlazování.
+    * 
+    * @return Práh rozdílu barev (ve složkách 0-255).
+    */
+   public float getAdaptiveThreshold() {
+      return adaptiveThreshold;
+   }
+
+   /**
+    * Nastavuje práh rozdílu barev pro adaptivní vyhlazování.
+    * 
+    * @param adaptiveThreshold
+    *           Nový práh rozdílu barev (ve složkách 0-255).
+    * @see RayTracer#renderSceneAdaptive()
+    */
+   public void setAdaptiveThreshold(float adaptiveThreshold) {
+      this.adaptiveThreshold = adaptiveThreshold;
+   }
+
+   /**
+    * Vrací počet primárních paprsků (vzorků), které byly sledovány při
+    * posledním vykreslení.
+    * 
+    * @return Počet sledovaných primárních paprsků.
+    */
+   public long getSampleCount() {
+      return sampleCount.get();
+   }
+
+   /**
+    * Vrací statistiky vykreslování. Čítače lze číst i během vykreslování z
+    * jiného vlákna.
+    * 
+    * @return Statistiky vykreslování, nebo <code>null</code>, pokud se
+    *         nesbírají.
+    */
+   public RenderStatistics getStatistics() {
+      return statistics;
+   }
+
+   /**
+    * Nastavuje statistiky vykreslování. Statistiky se na začátku každého
+    * vykreslení vynulují a během něj se do nich započítávají paprsky, testy
+    * průsečíků, zásahy a doby jednotlivých fází. Sběr statistik vykreslování
+    * mírně zpomaluje, proto je ve výchozím stavu vypnutý.
+    * 
+    * @param statistics
+    *           Statistiky, nebo <code>null</code> pro vypnutí sběru
+    *           statistik.
+    */
+   public void setStatistics(RenderStatistics statistics) {
+      this.statistics = statistics;
+   }
+
+   /**
+    * Vrací urychlovací strukturu objektů scény.
+    * 
+    * @return {@link RayTracer#ACCELERATION_BVH},
+    *         {@link RayTracer#ACCELERATION_GRID} nebo
+    *         {@link RayTracer#ACCELERATION_LINEAR}.
+    */
+   public int getAccelerationMode() {
+      return accelerationMode;
+   }
+
+   /**
+    * Nastavuje urychlovací strukturu objektů scény, která se postaví při
+    * příštím vykreslení. Výsledný obraz na volbě nezávisí, liší se jen doba
+    * stavby a vykreslování.
+    * 
+    * @param accelerationMode
+    *           {@link RayTracer#ACCELERATION_BVH},
+    *           {@link RayTracer#ACCELERATION_GRID} nebo
+    *           {@link RayTracer#ACCELERATION_LINEAR}.
+    * @throws IllegalArgumentException
+    *            Pokud struktura není platná.
+    */
+   public void setAccelerationMode(int accelerationMode) {
+      if (accelerationMode < 0 || accelerationMode >= ACCELERATION_NAMES.length) {
+         throw new IllegalArgumentException("Unknown acceleration mode: " + accelerationMode);
+      }
+      this.accelerationMode = accelerationMode;
+   }
+
+   /**
+    * Vrací název urychlovací struktury.
+    * 
+    * @param accelerationMode
+    *           Urychlovací struktura (např. {@link RayTracer#ACCELERATION_BVH}).
+    * @return Název struktury (<code>bvh</code>, <code>grid</code> nebo
+    *         <code>linear</code>).
+    */
+   public static String getAccelerationName(int accelerationMode) {
+      return ACCELERATION_NAMES[accelerationMode];
+   }
+
+   /**
+    * Vrací urychlovací strukturu daného názvu.
+    * 
+    * @param name
+    *           Název struktury (<code>bvh</code>, <code>grid</code> nebo
+    *           <code>linear</code>).
+    * @return Urychlovací struktura (např. {@link RayTracer#ACCELERATION_BVH}).
+    * @throws IllegalArgumentException
+    *            Pokud struktura daného názvu neexistuje.
+    */
+   public static int getAccelerationMode(String name) {
+      for (int mode = 0; mode < ACCELERATION_NAMES.length; mode++) {
+         if (ACCELERATION_NAMES[mode].equals(name)) {
+            return mode;
+         }
+      }
+      throw new IllegalArgumentException("Unknown acceleration structure: " + name);
+   }
+
+   /**
+    * Vrací urychlovací strukturu postavenou při posledním vykreslení (nebo
+    * voláním {@link RayTracer#buildAccelerator()}).
+    * 
+    * @return Urychlovací struktura, nebo <code>null</code>, pokud ještě
+    *         nebyla postavena.
+    */
+   public Accelerator getAccelerator() {
+      return accelerator;
+   }
+
+   /**
+    * Vrací dobu stavby urychlovací struktury vrácené metodou
+    * {@link RayTracer#getAccelerator()}.
+    * 
+    * @return Doba stavby v nanosekundách.
+    */
+   public long getAcceleratorBuildNanos() {
+      return acceleratorBuildNanos;
+   }
+
+   /**
+    * Vrací režim mapy ceny pixelů.
+    * 
+    * @return Režim mapy ceny pixelů.
+    */
+   public int getCostMode() {
+      return costMode;
+   }
+
+   /**
+    * Nastavuje režim mapy ceny pixelů. Pokud není vypnutá, počítá se při
+    * každém vykreslení vedle barvy pixelu i jeho cena (počet testů průsečíků
+    * nebo doba výpočtu). Cena se u adaptivního vyhlazování sčítá přes oba
+    * průchody.
+    * 
+    * @param costMode
+    *           Režim ({@link RayTracer#COST_OFF},
+    *           {@link RayTracer#COST_TESTS} nebo
+    *           {@link RayTracer#COST_NANOS}).
+    * @throws IllegalArgumentException
+    *            Pokud režim není platný.
+    */
+   public void setCostMode(int costMode) {
+      if (costMode != COST_OFF && costMode != COST_TESTS && costMode != COST_NANOS) {
+         throw new IllegalArgumentException("Unknown cost mode: " + costMode);
+      }
+      this.costMode = costMode;
+   }
+
+   /**
+    * Vrací cenu pixelů z posledního vykreslení. Pixel na souřadnicích
+    * <code>(i, j)</code> má index <code>j * šířka + i</code>.
+    * 
+    * @return Cena pixelů, nebo <code>null</code>, pokud se při posledním
+    *         vykreslení nepočítala.
+    */
+   public int[] getCostBuffer() {
+      return costBuffer;
+   }
+
+   /**
+    * Vytvoří obrázek ceny pixelů z posledního vykreslení v nepravých barvách
+    * ({@link HeatMap}). Nejdražší pixel má nejvyšší barvu škály.
+    * 
+    * @return Obrázek ceny pixelů, nebo <code>null</code>, pokud se cena při
+    *         posledním vykreslení nepočítala.
+    */
+   public BufferedImage getCostImage() {
+      return costBuffer != null ? getCostImage(HeatMap.max(costBuffer)) : null;
+   }
+
+   /**
+    * Vytvoří obrázek ceny pixelů z posledního vykreslení v nepravých barvách
+    * s pevným maximem škály, např. pro porovnání snímků.
+    * 
+    * @param maxCost
+    *           Cena odpovídající nejvyšší barvě škály.
+    * @return Obrázek ceny pixelů, nebo <code>null</code>, pokud se cena při
+    *         posledním vykreslení nepočítala.
+    */
+   public BufferedImage getCostImage(int maxCost) {
+      if (costBuffer == null) {
+         return null;
+      }
+      return HeatMap.createImage(costBuffer, camera.getScreenWidth(), camera.getScreenHeight(), maxCost);
+   }
+
+   /**
+    * Vrací počet vláken pro vykreslování.
+    * 
+    * @return Počet vláken pro vykreslování.
+    */
+   public int getThreadCount() {
+      return threadCount;
+   }
+
+   /**
+    * Nastavuje počet vláken pro vykreslování. Při hodnotě větší než 1 se rastr
+    * vykresluje paralelně po dlaždicích.
+    * 
+    * @param threadCount
+    *           Nový počet vláken (alespoň 1).
+    */
+   public void setThreadCount(int threadCount) {
+      this.threadCount = Math.max(1, threadCount);
+   }
+
+   /**
+    * Vrací počet primárních paprsků sledovaných najednou jako paket.
+    * 
+    * @return Velikost paketu (1 = každý paprsek zvlášť).
+    */
+   public int getPacketSize() {
+      return packetSize;
+   }
+
+   /**
+    * Nastavuje počet primárních paprsků sledovaných najednou jako paket.
+    * Paket prochází urychlovací strukturu objektů scény společně, což šetří
+    * testy uzlů u souvislých primárních paprsků dírkové a plošné kamery.
+    * Výsledný obraz na velikosti paketu nezávisí. Při sledování ceny pixelů
+    * (viz {@link RayTracer#setCostMode(int)}) a ve druhém průchodu
+    * adaptivního vyhlazování se paprsky sledují jednotlivě.
+    * 
+    * @param packetSize
+    *           Velikost paketu: 1 (každý paprsek zvlášť), 4, 8 nebo 16.
+    * @throws IllegalArgumentException
+    *            Pokud velikost paketu není platná.
+    */
+   public void setPacketSize(int packetSize) {
+      if (packetSize != 1 && packetSize != 4 && packetSize != 8 && packetSize != 16) {
+         throw new IllegalArgumentException("Packet size must be 1, 4, 8 or 16: " + packetSize);
+      }
+      this.packetSize = packetSize;
+   }
+
+   /**
+    * Vrací velikost dlaždice pro paralelní vykreslování.
+    * 
+    * @return Velikost strany dlaždice v pixelech.
+    */
+   public int getTileSize() {
+      return tileSize;
+   }
+
+   /**
+    * Nastavuje velikost dlaždice pro paralelní vykreslování.
+    * 
+    * @param tileSize
+    *           Nová velikost strany dlaždice v pixelech (alespoň 1).
+    */
+   public void setTileSize(int tileSize) {
+      this.tileSize = Math.max(1, tileSize);
+   }
+
 }
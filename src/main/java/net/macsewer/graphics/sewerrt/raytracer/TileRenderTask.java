@@ -0,0 +1,127 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.raytracer;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Úloha pro paralelní vykreslení rastru průmětny po dlaždicích. Úloha pokrývá
+ * souvislý úsek dlaždic (číslovaných po řádcích), který rekurzivně půlí, dokud
+ * nezbude jediná dlaždice. Ta se pak vykreslí metodou
+ * {@link RayTracer#renderRegion(int, int, int, int, int)}.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+class TileRenderTask extends RecursiveAction {
+
+   /**
+    * ID pro serializaci.
+    */
+   private static final long serialVersionUID = -2931573309166212410L;
+
+   /**
+    * Raytracer, který dlaždice vykresluje.
+    */
+   private final RayTracer rayTracer;
+
+   /**
+    * Šířka rastru průmětny.
+    */
+   private final int screenWidth;
+
+   /**
+    * Výška rastru průmětny.
+    */
+   private final int screenHeight;
+
+   /**
+    * Velikost strany dlaždice.
+    */
+   private final int tileSize;
+
+   /**
+    * Počet dlaždic v jednom řádku.
+    */
+   private final int tilesPerRow;
+
+   /**
+    * Index první dlaždice úlohy (včetně).
+    */
+   private final int firstTile;
+
+   /**
+    * Index poslední dlaždice úlohy (vyjma).
+    */
+   private final int lastTile;
+
+   /**
+    * Režim vykreslování.
+    */
+   private final int mode;
+
+   /**
+    * Vytvoří úlohu pokrývající celý rastr průmětny.
+    * 
+    * @param rayTracer
+    *           Raytracer, který dlaždice vykresluje.
+    * @param screenWidth
+    *           Šířka rastru průmětny.
+    * @param screenHeight
+    *           Výška rastru průmětny.
+    * @param tileSize
+    *           Velikost strany dlaždice.
+    * @param mode
+    *           Režim vykreslování.
+    */
+   TileRenderTask(RayTracer rayTracer, int screenWidth, int screenHeight, int tileSize, int mode) {
+      this(rayTracer, screenWidth, screenHeight, tileSize, mode, 0, ((screenWidth + tileSize - 1) / tileSize) * ((screenHeight + tileSize - 1) / tileSize));
+   }
+
+   /**
+    * Vytvoří úlohu pokrývající daný úsek dlaždic.
+    * 
+    * @param rayTracer
+    *           Raytracer, který dlaždice vykresluje.
+    * @param screenWidth
+    *           Šířka rastru průmětny.
+    * @param screenHeight
+    *           Výška rastru průmětny.
+    * @param tileSize
+    *           Velikost strany dlaždice.
+    * @param mode
+    *           Režim vykreslování.
+    * @param firstTile
+    *           Index první dlaždice (včetně).
+    * @param lastTile
+    *           Index poslední dlaždice (vyjma).
+    */
+   private TileRenderTask(RayTracer rayTracer, int screenWidth, int screenHeight, int tileSize, int mode, int firstTile, int lastTile) {
+      this.rayTracer = rayTracer;
+      this.screenWidth = screenWidth;
+      this.screenHeight = screenHeight;
+      this.tileSize = tileSize;
+      this.tilesPerRow = (screenWidth + tileSize - 1) / tileSize;
+      this.mode = mode;
+      this.firstTile = firstTile;
+      this.lastTile = lastTile;
+   }
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see java.util.concurrent.RecursiveAction#compute()
+    */
+   @Override
+   protected void compute() {
+      if (lastTile - firstTile > 1) {
+         int middle = (firstTile + lastTile) >>> 1;
+         invokeAll(new TileRenderTask(rayTracer, screenWidth, screenHeight, tileSize, mode, firstTile, middle), new TileRenderTask(rayTracer, screenWidth, screenHeight, tileSize, mode, middle, lastTile));
+      } else if (lastTile > firstTile) {
+         int x0 = (firstTile % tilesPerRow) * tileSize;
+         int y0 = (firstTile / tilesPerRow) * tileSize;
+         rayTracer.renderRegion(x0, y0, Math.min(x0 + tileSize, screenWidth), Math.min(y0 + tileSize, screenHeight), mode);
+      }
+   }
+}
@@ -0,0 +1,261 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import java.util.Random;
+
+import net.macsewer.graphics.sewerrt.geometry.AbstractObject;
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+import net.macsewer.graphics.sewerrt.geometry.BoxTriMesh;
+import net.macsewer.graphics.sewerrt.geometry.GeometryFixtures;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.Point3D;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+import net.macsewer.graphics.sewerrt.geometry.Sphere;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Společné testy urychlovacích struktur. Struktura vytvořená potomkem musí
+ * pro jednotlivé paprsky najít tytéž průsečíky jako postupný test všech
+ * objektů scény.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public abstract class AbstractAcceleratorTest {
+   /**
+    * Počáteční hodnota generátoru náhodných scén.
+    */
+   static final long SEED = 19;
+
+   /**
+    * Počet paketů paprsků.
+    */
+   static final int PACKETS = 150;
+
+   /**
+    * Počet paprsků paketu.
+    */
+   static final int PACKET_SIZE = 16;
+
+   /**
+    * Vytvoří testované struktury nad danými obalovými kvádry.
+    * 
+    * @param bounds
+    *           Obalové kvádry objektů scény.
+    * @return Urychlovací struktury.
+    */
+   protected abstract Accelerator[] createAccelerators(BoundingBox[] bounds);
+
+   /**
+    * Scény testů: náhodně rozmístěné koule různých velikostí a pravidelná
+    * mřížka kvádrů (obdoba scény města).
+    * 
+    * @return Objekty scén.
+    */
+   @DataProvider(name = "scenes")
+   public static Object[][] scenes() {
+      Random random = new Random(SEED);
+      AbstractObject[] spheres = new AbstractObject[300];
+      for (int k = 0; k < spheres.length; k++) {
+         float radius = k % 50 == 0 ? 1.5f : 0.05f + 0.3f * random.nextFloat();
+         spheres[k] = new Sphere(GeometryFixtures.randomPoint(random, 5), radius);
+      }
+
+      AbstractObject[] boxes = new AbstractObject[12 * 12];
+      for (int i = 0; i < 12; i++) {
+         for (int j = 0; j < 12; j++) {
+            boxes[i * 12 + j] = new BoxTriMesh(new Point3D(i - 6, j - 6, 0), 0.6f, 0.5f + 2 * random.nextFloat(), 0.6f);
+         }
+      }
+      return new Object[][] { { "spheres", spheres }, { "boxes", boxes } };
+   }
+
+   /**
+    * Nejbližší průsečíky jednotlivých paprsků.
+    * 
+    * @param name
+    *           Název scény.
+    * @param objects
+    *           Objekty scény.
+    */
+   @Test(dataProvider = "scenes")
+   public void closestHitMatchesBruteForce(String name, AbstractObject[] objects) {
+      SceneIntersector intersector = new SceneIntersector(objects, false);
+      Ray[][] packets = randomPackets(new Random(SEED + 1));
+      Accelerator[] accelerators = createAccelerators(getBounds(objects));
+      int hits = 0;
+      for (Ray[] rays : packets) {
+         for (Ray ray : rays) {
+            HitRecord expected = GeometryFixtures.newHit(Float.MAX_VALUE);
+            boolean found = closestHit(objects, ray, expected);
+            for (Accelerator accelerator : accelerators) {
+               String message = name + " " + describe(accelerator);
+               HitRecord hit = GeometryFixtures.newHit(Float.MAX_VALUE);
+               Assert.assertEquals(accelerator.closestHit(ray, hit, intersector), found, message);
+               GeometryFixtures.assertSameHit(hit, expected, message);
+            }
+            hits += found ? 1 : 0;
+         }
+      }
+      Assert.assertTrue(hits > PACKETS * PACKET_SIZE / 4, "too few hits: " + hits);
+   }
+
+   /**
+    * Test zastínění: průsečík v omezené vzdálenosti se najde, právě když jej
+    * najde postupný test všech objektů.
+    * 
+    * @param name
+    *           Název scény.
+    * @param objects
+    *           Objekty scény.
+    */
+   @Test(dataProvider = "scenes")
+   public void anyHitMatchesBruteForce(String name, AbstractObject[] objects) {
+      SceneIntersector intersector = new SceneIntersector(objects, true);
+      Random random = new Random(SEED + 3);
+      Ray[][] packets = randomPackets(random);
+      for (Accelerator accelerator : createAccelerators(getBounds(objects))) {
+         String message = name + " " + describe(accelerator);
+         for (Ray[] rays : packets) {
+            for (Ray ray : rays) {
+               float limit = 2 + 10 * random.nextFloat();
+               boolean expected = anyHit(objects, ray, GeometryFixtures.newHit(limit));
+               Assert.assertEquals(accelerator.anyHit(ray, GeometryFixtures.newHit(limit), intersector), expected, message);
+            }
+         }
+      }
+   }
+
+   /**
+    * Vrací popis struktury pro zprávy testů.
+    * 
+    * @param accelerator
+    *           Urychlovací struktura.
+    * @return Popis struktury.
+    */
+   static String describe(Accelerator accelerator) {
+      if (accelerator instanceof BoundingVolumeHierarchy) {
+         return "bvh " + BoundingVolumeHierarchy.getBuildName(((BoundingVolumeHierarchy) accelerator).getBuildMethod());
+      }
+      return accelerator.getClass().getSimpleName();
+   }
+
+   /**
+    * Vrací obalové kvádry objektů.
+    * 
+    * @param objects
+    *           Objekty scény.
+    * @return Obalové kvádry.
+    */
+   static BoundingBox[] getBounds(AbstractObject[] objects) {
+      BoundingBox[] bounds = new BoundingBox[objects.length];
+      for (int k = 0; k < objects.length; k++) {
+         bounds[k] = objects[k].getBoundingBox();
+      }
+      return bounds;
+   }
+
+   /**
+    * Vytvoří pakety paprsků. Paprsky vycházejí z bodů mimo scénu.
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @return Pakety paprsků.
+    */
+   static Ray[][] randomPackets(Random random) {
+      return GeometryFixtures.randomPackets(random, PACKETS, PACKET_SIZE, 8, 4, 0.5f);
+   }
+
+   /**
+    * Najde nejbližší průsečík postupným testem všech objektů.
+    * 
+    * @param objects
+    *           Objekty scény.
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam o průsečíku.
+    * @return <code>true</code>, pokud byl průsečík nalezen.
+    */
+   static boolean closestHit(AbstractObject[] objects, Ray ray, HitRecord hit) {
+      boolean found = false;
+      for (AbstractObject object : objects) {
+         found |= object.intersect(ray, hit);
+      }
+      return found;
+   }
+
+   /**
+    * Zjistí postupným testem všech objektů, zda-li paprsek protne některý
+    * objekt.
+    * 
+    * @param objects
+    *           Objekty scény.
+    * @param ray
+    *           Paprsek.
+    * @param hit
+    *           Záznam s největší vzdáleností průsečíku.
+    * @return <code>true</code>, pokud byl průsečík nalezen.
+    */
+   static boolean anyHit(AbstractObject[] objects, Ray ray, HitRecord hit) {
+      for (AbstractObject object : objects) {
+         if (object.intersectAny(ray, hit)) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Výpočet průsečíku s objekty scény indexovanými indexem primitiva.
+    */
+   static class SceneIntersector implements PacketIntersector {
+      /**
+       * Objekty scény.
+       */
+      private final AbstractObject[] objects;
+
+      /**
+       * Příznak hledání libovolného průsečíku.
+       */
+      private final boolean anyHit;
+
+      /**
+       * Vytvoří výpočet průsečíku nad danými objekty.
+       * 
+       * @param objects
+       *           Objekty scény.
+       * @param anyHit
+       *           Příznak hledání libovolného průsečíku.
+       */
+      SceneIntersector(AbstractObject[] objects, boolean anyHit) {
+         this.objects = objects;
+         this.anyHit = anyHit;
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.acceleration.PrimitiveIntersector#intersect(int, net.macsewer.graphics.sewerrt.geometry.Ray, net.macsewer.graphics.sewerrt.geometry.HitRecord)
+       */
+      @Override
+      public boolean intersect(int primitive, Ray ray, HitRecord hit) {
+         return anyHit ? objects[primitive].intersectAny(ray, hit) : objects[primitive].intersect(ray, hit);
+      }
+
+      /*
+       * (non-Javadoc)
+       * 
+       * @see net.macsewer.graphics.sewerrt.acceleration.PacketIntersector#intersect(int, net.macsewer.graphics.sewerrt.geometry.Ray[], net.macsewer.graphics.sewerrt.geometry.HitRecord[], int)
+       */
+      @Override
+      public int intersect(int primitive, Ray[] rays, HitRecord[] hits, int mask) {
+         return objects[primitive].intersect(rays, hits, mask);
+      }
+   }
+}
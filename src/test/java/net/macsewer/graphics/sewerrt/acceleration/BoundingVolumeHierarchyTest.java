@@ -0,0 +1,28 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+
+/**
+ * Testy průsečíků hierarchie obalových kvádrů postavené všemi metodami
+ * stavby.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class BoundingVolumeHierarchyTest extends AbstractAcceleratorTest {
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.AbstractAcceleratorTest#createAccelerators(net.macsewer.graphics.sewerrt.geometry.BoundingBox[])
+    */
+   @Override
+   protected Accelerator[] createAccelerators(BoundingBox[] bounds) {
+      return new Accelerator[] { new BoundingVolumeHierarchy(bounds, BoundingVolumeHierarchy.DEFAULT_MAX_LEAF_SIZE, BoundingVolumeHierarchy.BUILD_SWEEP),
+            new BoundingVolumeHierarchy(bounds, BoundingVolumeHierarchy.DEFAULT_MAX_LEAF_SIZE, BoundingVolumeHierarchy.BUILD_BINNED),
+            new BoundingVolumeHierarchy(bounds, BoundingVolumeHierarchy.DEFAULT_MAX_LEAF_SIZE, BoundingVolumeHierarchy.BUILD_MORTON) };
+   }
+}
@@ -0,0 +1,25 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+
+/**
+ * Testy průsečíků struktury bez prostorového dělení.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class LinearAcceleratorTest extends AbstractAcceleratorTest {
+
+   /*
+    * (non-Javadoc)
+    * 
+    * @see net.macsewer.graphics.sewerrt.acceleration.AbstractAcceleratorTest#createAccelerators(net.macsewer.graphics.sewerrt.geometry.BoundingBox[])
+    */
+   @Override
+   protected Accelerator[] createAccelerators(BoundingBox[] bounds) {
+      return new Accelerator[] { new LinearAccelerator(bounds) };
+   }
+}
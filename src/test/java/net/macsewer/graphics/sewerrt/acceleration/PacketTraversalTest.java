@@ -0,0 +1,53 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.acceleration;
+
+import java.util.Random;
+
+import net.macsewer.graphics.sewerrt.geometry.AbstractObject;
+import net.macsewer.graphics.sewerrt.geometry.BoundingBox;
+import net.macsewer.graphics.sewerrt.geometry.GeometryFixtures;
+import net.macsewer.graphics.sewerrt.geometry.HitRecord;
+import net.macsewer.graphics.sewerrt.geometry.Ray;
+
+import org.testng.annotations.Test;
+
+/**
+ * Testy průchodu paketů paprsků urychlovacími strukturami. Každý paprsek
+ * paketu musí dostat týž průsečík jako při postupném testu všech objektů
+ * scény.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class PacketTraversalTest {
+
+   /**
+    * Nejbližší průsečíky paketů paprsků.
+    * 
+    * @param name
+    *           Název scény.
+    * @param objects
+    *           Objekty scény.
+    */
+   @Test(dataProvider = "scenes", dataProviderClass = AbstractAcceleratorTest.class)
+   public void closestHitsMatchBruteForce(String name, AbstractObject[] objects) {
+      BoundingBox[] bounds = AbstractAcceleratorTest.getBounds(objects);
+      Accelerator[] accelerators = { new LinearAccelerator(bounds), new UniformGrid(bounds), new BoundingVolumeHierarchy(bounds) };
+      AbstractAcceleratorTest.SceneIntersector intersector = new AbstractAcceleratorTest.SceneIntersector(objects, false);
+      Ray[][] packets = AbstractAcceleratorTest.randomPackets(new Random(AbstractAcceleratorTest.SEED + 2));
+      for (Accelerator accelerator : accelerators) {
+         String message = name + " " + AbstractAcceleratorTest.describe(accelerator);
+         for (Ray[] rays : packets) {
+            HitRecord[] hits = GeometryFixtures.newHits(rays.length);
+            accelerator.closestHits(rays, hits, rays.length, intersector);
+            for (int k = 0; k < rays.length; k++) {
+               HitRecord expected = GeometryFixtures.newHit(Float.MAX_VALUE);
+               AbstractAcceleratorTest.closestHit(objects, rays[k], expected);
+               GeometryFixtures.assertSameHit(hits[k], expected, message + " ray " + k);
+            }
+         }
+      }
+   }
+}
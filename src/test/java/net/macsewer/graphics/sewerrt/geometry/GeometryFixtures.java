@@ -0,0 +1,113 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import java.util.Random;
+
+import org.testng.Assert;
+
+/**
+ * Společné pomůcky testů průsečíků: náhodné body a pakety paprsků, prázdné
+ * záznamy o průsečících a jejich porovnání.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public final class GeometryFixtures {
+
+   /**
+    * Třída obsahuje jen statické metody.
+    */
+   private GeometryFixtures() {
+   }
+
+   /**
+    * Vrací náhodný bod krychle kolem počátku.
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @param size
+    *           Polovina délky hrany krychle.
+    * @return Bod.
+    */
+   public static Point3D randomPoint(Random random, float size) {
+      return new Point3D(size * (2 * random.nextFloat() - 1), size * (2 * random.nextFloat() - 1), size * (2 * random.nextFloat() - 1));
+   }
+
+   /**
+    * Vytvoří pakety paprsků. Paprsky paketu vycházejí ze stejného bodu a
+    * míří do malé oblasti kolem společného cíle, takže strukturami projdou
+    * jako paket.
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @param packets
+    *           Počet paketů.
+    * @param packetSize
+    *           Počet paprsků paketu.
+    * @param originSize
+    *           Polovina hrany krychle výchozích bodů.
+    * @param targetSize
+    *           Polovina hrany krychle cílů paketů.
+    * @param spread
+    *           Polovina hrany krychle cílů paprsků kolem cíle paketu.
+    * @return Pakety paprsků.
+    */
+   public static Ray[][] randomPackets(Random random, int packets, int packetSize, float originSize, float targetSize, float spread) {
+      Ray[][] result = new Ray[packets][packetSize];
+      for (Ray[] rays : result) {
+         Point3D origin = randomPoint(random, originSize);
+         Point3D target = randomPoint(random, targetSize);
+         for (int k = 0; k < rays.length; k++) {
+            rays[k] = new Ray(origin, new Vector3(origin, target.move(new Vector3(randomPoint(random, spread)))));
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Vytvoří záznam bez průsečíku.
+    * 
+    * @param distance
+    *           Největší vzdálenost hledaného průsečíku.
+    * @return Záznam.
+    */
+   public static HitRecord newHit(float distance) {
+      HitRecord hit = new HitRecord();
+      hit.reset(distance, null);
+      return hit;
+   }
+
+   /**
+    * Vytvoří záznamy bez průsečíku s neomezenou vzdáleností.
+    * 
+    * @param count
+    *           Počet záznamů.
+    * @return Záznamy.
+    */
+   public static HitRecord[] newHits(int count) {
+      HitRecord[] hits = new HitRecord[count];
+      for (int k = 0; k < count; k++) {
+         hits[k] = newHit(Float.MAX_VALUE);
+      }
+      return hits;
+   }
+
+   /**
+    * Ověří, že záznam obsahuje týž průsečík (objekt, primitivum a vzdálenost)
+    * jako očekávaný záznam.
+    * 
+    * @param hit
+    *           Testovaný záznam.
+    * @param expected
+    *           Očekávaný záznam.
+    * @param message
+    *           Popis testu.
+    */
+   public static void assertSameHit(HitRecord hit, HitRecord expected, String message) {
+      Assert.assertSame(hit.getObject(), expected.getObject(), message);
+      Assert.assertEquals(hit.getPrimitive(), expected.getPrimitive(), message);
+      Assert.assertEquals(hit.getDistance(), expected.getDistance(), 0f, message);
+   }
+}
@@ -0,0 +1,54 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Testy průsečíků instancí sdíleného objektu.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class InstancedObjectTest {
+
+   /**
+    * Paket paprsků musí dát u každé instance stejné průsečíky jako jednotlivé
+    * paprsky, i když se převedené paprsky instancí ukládají do stejných
+    * objektů. Paket zasáhne obě instance, bližší se testuje až po vzdálenější.
+    */
+   @Test
+   public void packetMatchesSingleRays() {
+      Sphere sphere = new Sphere(new Point3D(0, 0, 0), 1);
+      InstancedObject[] instances = { new InstancedObject(sphere, Matrix4.scale(1.5f, 1.5f, 1.5f).mul(Matrix4.translation(0, 0, 4))),
+            new InstancedObject(sphere, Matrix4.scale(2, 1.5f, 1).mul(Matrix4.translation(0.1f, 0.2f, 0))) };
+
+      Ray[] rays = new Ray[16];
+      HitRecord[] packetHits = new HitRecord[rays.length];
+      HitRecord[] singleHits = new HitRecord[rays.length];
+      for (int k = 0; k < rays.length; k++) {
+         rays[k] = new Ray(new Point3D(-0.8f + 0.1f * k, 0.1f * (k % 4), -10), new Vector3(0.01f * (k % 3), 0, 1));
+         packetHits[k] = new HitRecord();
+         packetHits[k].reset(Float.MAX_VALUE, null);
+         singleHits[k] = new HitRecord();
+         singleHits[k].reset(Float.MAX_VALUE, null);
+      }
+
+      for (InstancedObject instance : instances) {
+         int expected = 0;
+         for (int k = 0; k < rays.length; k++) {
+            if (instance.intersect(rays[k], singleHits[k])) {
+               expected |= 1 << k;
+            }
+         }
+         Assert.assertEquals(expected, (1 << rays.length) - 1);
+         Assert.assertEquals(instance.intersect(rays, packetHits, (1 << rays.length) - 1), expected);
+      }
+      for (int k = 0; k < rays.length; k++) {
+         Assert.assertSame(packetHits[k].getObject(), singleHits[k].getObject(), "ray " + k);
+         Assert.assertEquals(packetHits[k].getDistance(), singleHits[k].getDistance(), 0f, "ray " + k);
+      }
+   }
+}
@@ -0,0 +1,227 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Testy shody vektorového a skalárního jádra výpočtu průsečíků. Pro stejné
+ * dráhy musí obě jádra vrátit stejnou masku a bitově stejné hodnoty v
+ * drahách s průsečíkem. Vektorové jádro se testuje, jen pokud bylo přeloženo
+ * (profil <code>simd</code>) a JVM má modul <code>jdk.incubator.vector</code>.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class IntersectionKernelTest {
+   /**
+    * Počáteční hodnota generátoru náhodných scén.
+    */
+   private static final long SEED = 42;
+
+   /**
+    * Počet náhodných primitiv na test.
+    */
+   private static final int ROUNDS = 500;
+
+   /**
+    * Skalární jádro.
+    */
+   private IntersectionKernel scalar;
+
+   /**
+    * Vektorové jádro, nebo <code>null</code>, pokud není k dispozici.
+    */
+   private IntersectionKernel vector;
+
+   /**
+    * Vytvoří obě jádra.
+    */
+   @BeforeClass
+   public void createKernels() {
+      scalar = new ScalarIntersectionKernel();
+      try {
+         vector = (IntersectionKernel) Class.forName(IntersectionKernel.class.getPackage().getName() + ".VectorIntersectionKernel").getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException e) {
+         vector = null;
+      } catch (LinkageError e) {
+         vector = null;
+      }
+   }
+
+   /**
+    * Trojúhelník s předpočítanými daty (projekční metoda).
+    */
+   @Test
+   public void triangleMatchesScalar() {
+      requireVector();
+      Random random = new Random(SEED);
+      RayLanes lanes = RayLanes.get();
+      int hits = 0;
+      for (int round = 0; round < ROUNDS; round++) {
+         Triangle triangle = new Triangle(randomVertex(random), randomVertex(random), randomVertex(random));
+         float[] p = triangle.getIntersectionData();
+         int count = fillLanes(lanes, random);
+         int expected = scalar.intersectTriangle(lanes, count, p[0], p[1], p[2], p[3], p[4], p[5], p[6], p[7], p[8], p[9], p[10], p[11]);
+         float[][] values = copyValues(lanes, count);
+         int found = vector.intersectTriangle(lanes, count, p[0], p[1], p[2], p[3], p[4], p[5], p[6], p[7], p[8], p[9], p[10], p[11]);
+         hits += Integer.bitCount(expected);
+         assertSameValues(lanes, expected, found, values, true);
+      }
+      Assert.assertTrue(hits > 0, "no lane hit");
+   }
+
+   /**
+    * Trojúhelník zadaný vrcholem a hranami (sítě s indexy).
+    */
+   @Test
+   public void edgesMatchScalar() {
+      requireVector();
+      Random random = new Random(SEED + 1);
+      RayLanes lanes = RayLanes.get();
+      int hits = 0;
+      for (int round = 0; round < ROUNDS; round++) {
+         float[] e = new float[9];
+         for (int i = 0; i < e.length; i++) {
+            e[i] = randomCoordinate(random);
+         }
+         int count = fillLanes(lanes, random);
+         int expected = scalar.intersectEdges(lanes, count, e[0], e[1], e[2], e[3] - e[0], e[4] - e[1], e[5] - e[2], e[6] - e[0], e[7] - e[1], e[8] - e[2]);
+         float[][] values = copyValues(lanes, count);
+         int found = vector.intersectEdges(lanes, count, e[0], e[1], e[2], e[3] - e[0], e[4] - e[1], e[5] - e[2], e[6] - e[0], e[7] - e[1], e[8] - e[2]);
+         hits += Integer.bitCount(expected);
+         assertSameValues(lanes, expected, found, values, true);
+      }
+      Assert.assertTrue(hits > 0, "no lane hit");
+   }
+
+   /**
+    * Koule.
+    */
+   @Test
+   public void sphereMatchesScalar() {
+      requireVector();
+      Random random = new Random(SEED + 2);
+      RayLanes lanes = RayLanes.get();
+      int hits = 0;
+      for (int round = 0; round < ROUNDS; round++) {
+         float x = randomCoordinate(random), y = randomCoordinate(random), z = randomCoordinate(random);
+         float radius = 0.1f + random.nextFloat() * 2;
+         int count = fillLanes(lanes, random);
+         int expected = scalar.intersectSphere(lanes, count, x, y, z, radius);
+         float[][] values = copyValues(lanes, count);
+         int found = vector.intersectSphere(lanes, count, x, y, z, radius);
+         hits += Integer.bitCount(expected);
+         assertSameValues(lanes, expected, found, values, false);
+      }
+      Assert.assertTrue(hits > 0, "no lane hit");
+   }
+
+   /**
+    * Přeskočí test, pokud vektorové jádro není k dispozici.
+    */
+   private void requireVector() {
+      if (vector == null) {
+         throw new SkipException("Vector kernel is not available");
+      }
+   }
+
+   /**
+    * Naplní náhodný počet drah paprsky z okolí počátku směřujícími zhruba k
+    * němu, aby část z nich primitivum zasáhla.
+    * 
+    * @param lanes
+    *           Dráhy.
+    * @param random
+    *           Generátor náhodných čísel.
+    * @return Počet obsazených drah.
+    */
+   private static int fillLanes(RayLanes lanes, Random random) {
+      int count = 1 + random.nextInt(RayLanes.CAPACITY);
+      for (int i = 0; i < count; i++) {
+         Point3D origin = new Point3D(randomCoordinate(random) * 4, randomCoordinate(random) * 4, randomCoordinate(random) * 4);
+         Point3D target = new Point3D(randomCoordinate(random), randomCoordinate(random), randomCoordinate(random));
+         Ray ray = new Ray(origin, new Vector3(origin, target));
+         lanes.ox[i] = ray.getOrigin().x;
+         lanes.oy[i] = ray.getOrigin().y;
+         lanes.oz[i] = ray.getOrigin().z;
+         lanes.dx[i] = ray.getDirection().x;
+         lanes.dy[i] = ray.getDirection().y;
+         lanes.dz[i] = ray.getDirection().z;
+         lanes.distance[i] = random.nextInt(4) == 0 ? 5 * random.nextFloat() : Float.MAX_VALUE;
+      }
+      return count;
+   }
+
+   /**
+    * Zkopíruje výsledky jádra z drah.
+    * 
+    * @param lanes
+    *           Dráhy.
+    * @param count
+    *           Počet obsazených drah.
+    * @return Kopie hodnot t, u a v.
+    */
+   private static float[][] copyValues(RayLanes lanes, int count) {
+      float[][] values = new float[3][count];
+      System.arraycopy(lanes.t, 0, values[0], 0, count);
+      System.arraycopy(lanes.u, 0, values[1], 0, count);
+      System.arraycopy(lanes.v, 0, values[2], 0, count);
+      return values;
+   }
+
+   /**
+    * Ověří, že vektorové jádro našlo průsečíky ve stejných drahách se stejnými
+    * hodnotami jako skalární.
+    * 
+    * @param lanes
+    *           Dráhy s výsledky vektorového jádra.
+    * @param expected
+    *           Maska skalárního jádra.
+    * @param found
+    *           Maska vektorového jádra.
+    * @param values
+    *           Hodnoty skalárního jádra.
+    * @param barycentric
+    *           Příznak, zda-li jádro zapisuje i barycentrické souřadnice.
+    */
+   private static void assertSameValues(RayLanes lanes, int expected, int found, float[][] values, boolean barycentric) {
+      Assert.assertEquals(Integer.toBinaryString(found), Integer.toBinaryString(expected));
+      for (int rest = found; rest != 0; rest &= rest - 1) {
+         int i = Integer.numberOfTrailingZeros(rest);
+         Assert.assertEquals(Float.floatToIntBits(lanes.t[i]), Float.floatToIntBits(values[0][i]), "t in lane " + i);
+         if (barycentric) {
+            Assert.assertEquals(Float.floatToIntBits(lanes.u[i]), Float.floatToIntBits(values[1][i]), "u in lane " + i);
+            Assert.assertEquals(Float.floatToIntBits(lanes.v[i]), Float.floatToIntBits(values[2][i]), "v in lane " + i);
+         }
+      }
+   }
+
+   /**
+    * Vytvoří vrchol v náhodné pozici.
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @return Vrchol.
+    */
+   private static Vertex randomVertex(Random random) {
+      return new Vertex(new Point3D(randomCoordinate(random), randomCoordinate(random), randomCoordinate(random)), new Vector3(0, 0, 1), new ColorRGB(), new Float3());
+   }
+
+   /**
+    * Vrací náhodnou souřadnici z intervalu &lt;-1, 1).
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @return Souřadnice.
+    */
+   private static float randomCoordinate(Random random) {
+      return 2 * random.nextFloat() - 1;
+   }
+}
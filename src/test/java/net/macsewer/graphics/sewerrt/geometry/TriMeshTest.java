@@ -0,0 +1,297 @@
+/**
+ * 
+ */
+package net.macsewer.graphics.sewerrt.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.macsewer.graphics.sewerrt.acceleration.BoundingVolumeHierarchy;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Testy průsečíků trojúhelníků a sítí trojúhelníků. Předpočítaný průsečík
+ * trojúhelníku se porovnává s výpočtem ve dvojité přesnosti, průsečíky sítí
+ * (pro všechny metody stavby hierarchie i pro pakety paprsků) s postupným
+ * testem všech trojúhelníků.
+ * 
+ * @author Pavel Macík
+ * 
+ */
+public class TriMeshTest {
+   /**
+    * Počáteční hodnota generátoru náhodných scén.
+    */
+   private static final long SEED = 7;
+
+   /**
+    * Počet trojúhelníků náhodné sítě.
+    */
+   private static final int TRIANGLES = 300;
+
+   /**
+    * Počet paketů paprsků.
+    */
+   private static final int PACKETS = 100;
+
+   /**
+    * Počet paprsků paketu.
+    */
+   private static final int PACKET_SIZE = 16;
+
+   /**
+    * Průsečík s předpočítanými daty trojúhelníku odpovídá Möllerově-Trumboreově
+    * metodě ve dvojité přesnosti.
+    */
+   @Test
+   public void triangleMatchesReference() {
+      Random random = new Random(SEED);
+      int hits = 0;
+      int misses = 0;
+      for (int round = 0; round < 10000; round++) {
+         Point3D[] p = { GeometryFixtures.randomPoint(random, 1), GeometryFixtures.randomPoint(random, 1), GeometryFixtures.randomPoint(random, 1) };
+         Vertex[] vertices = new Vertex[3];
+         for (int i = 0; i < 3; i++) {
+            vertices[i] = new Vertex(p[i], new Vector3(0, 0, 1), new ColorRGB(), new Float3());
+         }
+         Triangle triangle = new Triangle(vertices[0], vertices[1], vertices[2]);
+         Ray ray = randomRay(random, GeometryFixtures.randomPoint(random, 4), 1);
+         if (isNearEdge(p, ray)) {
+            continue;
+         }
+
+         double[] expected = intersectReference(p, ray, 1);
+         HitRecord hit = GeometryFixtures.newHit(Float.MAX_VALUE);
+         boolean found = triangle.intersect(ray, hit, 0);
+         if (expected == null) {
+            Assert.assertFalse(found, "round " + round);
+            misses++;
+            continue;
+         }
+         Assert.assertTrue(found, "round " + round);
+         Assert.assertEquals(hit.getDistance(), expected[0], 1e-4 * expected[0], "round " + round);
+         Assert.assertEquals(hit.getU(), expected[1], 1e-3, "round " + round);
+         Assert.assertEquals(hit.getV(), expected[2], 1e-3, "round " + round);
+         hits++;
+      }
+      Assert.assertTrue(hits > 100 && misses > 100, "hits: " + hits + ", misses: " + misses);
+   }
+
+   /**
+    * Průsečíky sítě trojúhelníků jsou pro všechny metody stavby hierarchie
+    * stejné jako při postupném testu všech trojúhelníků.
+    */
+   @Test
+   public void hierarchyBuildsMatchBruteForce() {
+      Random random = new Random(SEED + 2);
+      TriMesh mesh = randomMesh(random);
+      Ray[][] packets = GeometryFixtures.randomPackets(random, PACKETS, PACKET_SIZE, 4, 0.8f, 0.2f);
+      int hits = 0;
+      for (int build = BoundingVolumeHierarchy.BUILD_SWEEP; build <= BoundingVolumeHierarchy.BUILD_MORTON; build++) {
+         mesh.buildHierarchy(build);
+         String name = BoundingVolumeHierarchy.getBuildName(build);
+         for (Ray[] rays : packets) {
+            for (Ray ray : rays) {
+               HitRecord expected = intersectAll(mesh, ray);
+               HitRecord hit = GeometryFixtures.newHit(Float.MAX_VALUE);
+               mesh.intersect(ray, hit);
+               GeometryFixtures.assertSameHit(hit, expected, name);
+               hits += expected.getPrimitive() >= 0 ? 1 : 0;
+            }
+         }
+      }
+      Assert.assertTrue(hits > PACKETS * PACKET_SIZE, "too few hits: " + hits);
+   }
+
+   /**
+    * Průsečíky paketů paprsků se sítí trojúhelníků jsou stejné jako při
+    * postupném testu všech trojúhelníků jednotlivými paprsky.
+    */
+   @Test
+   public void packetsMatchBruteForce() {
+      Random random = new Random(SEED + 3);
+      TriMesh mesh = randomMesh(random);
+      Ray[][] packets = GeometryFixtures.randomPackets(random, PACKETS, PACKET_SIZE, 4, 0.8f, 0.2f);
+      int hits = 0;
+      for (Ray[] rays : packets) {
+         HitRecord[] packetHits = GeometryFixtures.newHits(rays.length);
+         mesh.intersect(rays, packetHits, (1 << rays.length) - 1);
+         for (int k = 0; k < rays.length; k++) {
+            HitRecord expected = intersectAll(mesh, rays[k]);
+            GeometryFixtures.assertSameHit(packetHits[k], expected, "ray " + k);
+            hits += expected.getPrimitive() >= 0 ? 1 : 0;
+         }
+      }
+      Assert.assertTrue(hits > PACKETS * PACKET_SIZE / 4, "too few hits: " + hits);
+   }
+
+   /**
+    * Po nahrazení trojúhelníků sítě se průsečíky hledají v nové hierarchii a
+    * kolekci trojúhelníků nelze měnit mimo síť.
+    */
+   @Test
+   public void hierarchyFollowsTriangleChanges() {
+      Random random = new Random(SEED + 4);
+      TriMesh mesh = randomMesh(random);
+      Ray[][] packets = GeometryFixtures.randomPackets(random, PACKETS, PACKET_SIZE, 4, 0.8f, 0.2f);
+      mesh.buildHierarchy();
+      List<Triangle> triangles = new ArrayList<Triangle>(mesh.getTriangles());
+      mesh.setTriangles(triangles.subList(0, TRIANGLES / 2));
+      triangles.clear();
+      Assert.assertEquals(mesh.getTriangles().size(), TRIANGLES / 2);
+      for (Ray[] rays : packets) {
+         for (Ray ray : rays) {
+            HitRecord expected = intersectAll(mesh, ray);
+            HitRecord hit = GeometryFixtures.newHit(Float.MAX_VALUE);
+            mesh.intersect(ray, hit);
+            GeometryFixtures.assertSameHit(hit, expected, "half mesh");
+         }
+      }
+      try {
+         mesh.getTriangles().clear();
+         Assert.fail("triangles are modifiable");
+      } catch (UnsupportedOperationException e) {
+         // ocekavano
+      }
+   }
+
+   /**
+    * Vytvoří síť malých trojúhelníků náhodně rozmístěných v krychli kolem
+    * počátku.
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @return Síť trojúhelníků.
+    */
+   private static TriMesh randomMesh(Random random) {
+      TriMesh mesh = new TriMesh();
+      for (int k = 0; k < TRIANGLES; k++) {
+         Point3D a = GeometryFixtures.randomPoint(random, 1);
+         mesh.addTriangle(a, a.move(new Vector3(GeometryFixtures.randomPoint(random, 0.2f))), a.move(new Vector3(GeometryFixtures.randomPoint(random, 0.2f))));
+      }
+      return mesh;
+   }
+
+   /**
+    * Vytvoří paprsek z daného bodu mířící do náhodného bodu krychle kolem
+    * počátku.
+    * 
+    * @param random
+    *           Generátor náhodných čísel.
+    * @param origin
+    *           Výchozí bod paprsku.
+    * @param size
+    *           Polovina délky hrany krychle.
+    * @return Paprsek.
+    */
+   private static Ray randomRay(Random random, Point3D origin, float size) {
+      return new Ray(origin, new Vector3(origin, GeometryFixtures.randomPoint(random, size)));
+   }
+
+   /**
+    * Najde nejbližší průsečík paprsku se sítí postupným testem všech
+    * trojúhelníků.
+    * 
+    * @param mesh
+    *           Síť trojúhelníků.
+    * @param ray
+    *           Paprsek.
+    * @return Záznam o průsečíku.
+    */
+   private static HitRecord intersectAll(TriMesh mesh, Ray ray) {
+      HitRecord hit = GeometryFixtures.newHit(Float.MAX_VALUE);
+      int index = 0;
+      for (Triangle triangle : mesh.getTriangles()) {
+         triangle.intersect(ray, hit, index++);
+      }
+      if (hit.getPrimitive() >= 0) {
+         hit.setObject(mesh);
+      }
+      return hit;
+   }
+
+   /**
+    * Spočítá průsečík paprsku s trojúhelníkem Möllerovou-Trumboreovou metodou
+    * ve dvojité přesnosti. Trojúhelník lze zvětšit nebo zmenšit kolem těžiště.
+    * 
+    * @param p
+    *           Vrcholy trojúhelníku.
+    * @param ray
+    *           Paprsek.
+    * @param scale
+    *           Poměr zvětšení trojúhelníku.
+    * @return Vzdálenost a barycentrické souřadnice vůči druhému a třetímu
+    *         vrcholu, nebo <code>null</code>, pokud paprsek trojúhelník
+    *         nezasáhne.
+    */
+   private static double[] intersectReference(Point3D[] p, Ray ray, double scale) {
+      double[][] v = new double[3][3];
+      for (int i = 0; i < 3; i++) {
+         v[i][0] = ((double) p[0].x + p[1].x + p[2].x) / 3 * (1 - scale) + p[i].x * scale;
+         v[i][1] = ((double) p[0].y + p[1].y + p[2].y) / 3 * (1 - scale) + p[i].y * scale;
+         v[i][2] = ((double) p[0].z + p[1].z + p[2].z) / 3 * (1 - scale) + p[i].z * scale;
+      }
+      double[] o = { ray.getOrigin().x, ray.getOrigin().y, ray.getOrigin().z };
+      double[] s = { ray.getDirection().x, ray.getDirection().y, ray.getDirection().z };
+      double[] e1 = { v[1][0] - v[0][0], v[1][1] - v[0][1], v[1][2] - v[0][2] };
+      double[] e2 = { v[2][0] - v[0][0], v[2][1] - v[0][1], v[2][2] - v[0][2] };
+      double[] q = cross(s, e2);
+      double det = dot(e1, q);
+      if (Math.abs(det) < 1e-9) {
+         return null;
+      }
+      double[] t = { o[0] - v[0][0], o[1] - v[0][1], o[2] - v[0][2] };
+      double u = dot(t, q) / det;
+      double[] r = cross(t, e1);
+      double w = dot(s, r) / det;
+      double distance = dot(e2, r) / det;
+      if (u < 0 || w < 0 || u + w > 1 || distance <= 0) {
+         return null;
+      }
+      return new double[] { distance, u, w };
+   }
+
+   /**
+    * Zjistí, zda-li paprsek prochází těsně u hrany trojúhelníku, takže
+    * výsledek testu ve dvojité a jednoduché přesnosti se může lišit.
+    * 
+    * @param p
+    *           Vrcholy trojúhelníku.
+    * @param ray
+    *           Paprsek.
+    * @return <code>true</code>, pokud paprsek zasáhne trojúhelník zvětšený o
+    *         promile, ale ne zmenšený o promile.
+    */
+   private static boolean isNearEdge(Point3D[] p, Ray ray) {
+      return (intersectReference(p, ray, 1.001) == null) != (intersectReference(p, ray, 0.999) == null);
+   }
+
+   /**
+    * Vektorový součin.
+    * 
+    * @param a
+    *           Vektor.
+    * @param b
+    *           Vektor.
+    * @return Vektorový součin <code>a x b</code>.
+    */
+   private static double[] cross(double[] a, double[] b) {
+      return new double[] { a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0] };
+   }
+
+   /**
+    * Skalární součin.
+    * 
+    * @param a
+    *           Vektor.
+    * @param b
+    *           Vektor.
+    * @return Skalární součin.
+    */
+   private static double dot(double[] a, double[] b) {
+      return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+   }
+}